@@ -30,9 +30,10 @@
 public class AuditWriterFactory {
     private static final Logger logger = LoggerFactory.getLogger(AuditWriterFactory.class);
 
-    public static final  String AUDIT_FILETYPE_DEFAULT     = "json";
-    public static final  String AUDIT_JSON_FILEWRITER_IMPL = "org.apache.ranger.audit.utils.RangerJSONAuditWriter";
-    public static final  String AUDIT_ORC_FILEWRITER_IMPL  = "org.apache.ranger.audit.utils.RangerORCAuditWriter";
+    public static final  String AUDIT_FILETYPE_DEFAULT        = "json";
+    public static final  String AUDIT_JSON_FILEWRITER_IMPL    = "org.apache.ranger.audit.utils.RangerJSONAuditWriter";
+    public static final  String AUDIT_ORC_FILEWRITER_IMPL     = "org.apache.ranger.audit.utils.RangerORCAuditWriter";
+    public static final  String AUDIT_PARQUET_FILEWRITER_IMPL = "org.apache.ranger.audit.utils.RangerParquetAuditWriter";
 
     private static volatile AuditWriterFactory me;
 
@@ -102,6 +103,9 @@ public String getDefaultWriter(String auditFileType) {
             case "json":
                 ret = AUDIT_JSON_FILEWRITER_IMPL;
                 break;
+            case "parquet":
+                ret = AUDIT_PARQUET_FILEWRITER_IMPL;
+                break;
             default:
                 ret = null;
                 break;
@@ -23,6 +23,8 @@
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.security.authentication.util.KerberosName;
 import org.apache.hadoop.security.authentication.util.KerberosUtil;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.utils.AuditEventJsonSerializer;
 import org.apache.ranger.authorization.hadoop.utils.RangerCredentialProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -304,6 +306,8 @@ public static <T> String stringify(T log) {
         if (log != null) {
             if (log instanceof String) {
                 ret = (String) log;
+            } else if (AuditEventJsonSerializer.isSupported(log)) {
+                ret = AuditEventJsonSerializer.toJson((AuthzAuditEvent) log);
             } else if (getMapper() != null) {
                 try {
                     ret = getMapper().writeValueAsString(log);
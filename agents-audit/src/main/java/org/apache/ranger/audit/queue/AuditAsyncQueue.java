@@ -19,28 +19,42 @@
 
 package org.apache.ranger.audit.queue;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
 /**
- * This is a non-blocking queue with no limit on capacity.
+ * This is a non-blocking queue: events are dropped when the queue has maxQueueSize events. With
+ * &lt;prefix&gt;.queue.type=ringbuffer, a pre-allocated lock-free ring buffer (AuditRingBuffer) is used in place of
+ * the default LinkedBlockingQueue; &lt;prefix&gt;.wait.strategy sets how the consumer thread waits for events, and
+ * &lt;prefix&gt;.ringbuffer.capacity the number of slots allocated - rounded up to a power of 2, default 8192, at most
+ * maxQueueSize. Events are dropped when the ring buffer is full, hence its capacity is to be set as per the burst of
+ * events the consumer thread is expected to lag behind.
  */
 public class AuditAsyncQueue extends AuditQueue implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(AuditAsyncQueue.class);
 
+    public static final String PROP_QUEUE_TYPE             = "queue.type";
+    public static final String PROP_RINGBUFFER_CAPACITY    = "ringbuffer.capacity";
+    public static final String QUEUE_TYPE_RINGBUFFER       = "ringbuffer";
+    public static final int    DEFAULT_RINGBUFFER_CAPACITY = 8192;
+
     static final int    MAX_DRAIN    = 1000;
     static final String DEFAULT_NAME = "async";
     static       int    threadCount;
 
-    LinkedBlockingQueue<AuditEventBase> queue          = new LinkedBlockingQueue<>();
-    Thread                              consumerThread;
+    BlockingQueue<AuditEventBase> queue = new LinkedBlockingQueue<>();
+    Thread                        consumerThread;
 
     public AuditAsyncQueue(AuditHandler consumer) {
         super(consumer);
@@ -62,17 +76,36 @@ public boolean log(AuditEventBase event) {
         addTotalCount(1);
 
         // Add to the queue and return ASAP
-        if (queue.size() >= getMaxQueueSize()) {
+        if (queue.size() >= getMaxQueueSize() || !queue.offer(event)) {
             addFailedCount(1);
 
             return false;
         }
 
-        queue.add(event);
-
         return true;
     }
 
+    @Override
+    public void init(Properties props, String basePropertyName) {
+        super.init(props, basePropertyName);
+
+        String queueType = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_QUEUE_TYPE);
+
+        if (QUEUE_TYPE_RINGBUFFER.equalsIgnoreCase(StringUtils.trim(queueType))) {
+            AuditRingBuffer.WaitStrategy waitStrategy = AuditRingBufferQueue.toWaitStrategy(MiscUtil.getStringProperty(props, propPrefix + "." + AuditRingBufferQueue.PROP_WAIT_STRATEGY), AuditRingBuffer.WaitStrategy.BLOCKING);
+
+            if (consumerThread == null && queue.isEmpty()) {
+                int capacity = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_RINGBUFFER_CAPACITY, DEFAULT_RINGBUFFER_CAPACITY);
+
+                queue = new AuditRingBuffer<>(Math.max(1, Math.min(capacity, getMaxQueueSize())), waitStrategy);
+
+                logger.info("Created {} for {}", queue, getName());
+            } else {
+                logger.warn("{}: queue is in use; ignoring {}.{}={}", getName(), propPrefix, PROP_QUEUE_TYPE, queueType);
+            }
+        }
+    }
+
     @Override
     public void logStatus() {
         super.logStatus();
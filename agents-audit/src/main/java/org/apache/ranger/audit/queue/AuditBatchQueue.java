@@ -96,9 +96,7 @@ public synchronized void start() {
             return;
         }
 
-        logger.info("Creating ArrayBlockingQueue with maxSize={}", getMaxQueueSize());
-
-        queue = new ArrayBlockingQueue<>(getMaxQueueSize());
+        queue = createQueue(getMaxQueueSize());
 
         // Start the consumer first
         consumer.start();
@@ -151,6 +149,15 @@ public void init(Properties prop, String basePropertyName) {
         super.init(prop, propPrefix);
     }
 
+    /**
+     * Creates the queue between producers and the consumer thread; called from start()
+     */
+    protected BlockingQueue<AuditEventBase> createQueue(int capacity) {
+        logger.info("Creating ArrayBlockingQueue with maxSize={}", capacity);
+
+        return new ArrayBlockingQueue<>(capacity);
+    }
+
     /*
      * (non-Javadoc)
      *
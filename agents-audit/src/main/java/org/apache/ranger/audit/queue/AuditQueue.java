@@ -40,6 +40,7 @@ public abstract class AuditQueue extends BaseAuditHandler {
     public static final String PROP_QUEUE_SIZE                     = "queue.size";
     public static final String PROP_BATCH_INTERVAL                 = "batch.interval.ms";
     public static final String PROP_FILE_SPOOL_ENABLE              = "filespool.enable";
+    public static final String PROP_FILE_SPOOL_TYPE                = "filespool.type";
     public static final String PROP_FILE_SPOOL_WAIT_FOR_FULL_DRAIN = "filespool.drain.full.wait.ms";
     public static final String PROP_FILE_SPOOL_QUEUE_THRESHOLD     = "filespool.drain.threshold.percent";
 
@@ -95,7 +96,7 @@ public void init(Properties props, String basePropertyName) {
             fileSpoolerEnabled             = true;
             fileSpoolMaxWaitTime           = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_WAIT_FOR_FULL_DRAIN, fileSpoolMaxWaitTime);
             fileSpoolDrainThresholdPercent = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_QUEUE_THRESHOLD, fileSpoolDrainThresholdPercent);
-            fileSpooler                    = new AuditFileSpool(this, consumer);
+            fileSpooler                    = createFileSpool(MiscUtil.getStringProperty(props, propPrefix + "." + PROP_FILE_SPOOL_TYPE));
 
             if (!fileSpooler.init(props, basePropertyName)) {
                 fileSpoolerEnabled = false;
@@ -107,6 +108,16 @@ public void init(Properties props, String basePropertyName) {
         }
     }
 
+    protected AuditFileSpool createFileSpool(String spoolType) {
+        LOG.info("Creating file spool for {}: spoolType={}", getName(), spoolType);
+
+        if (AuditWalSpool.SPOOL_TYPE.equalsIgnoreCase(spoolType)) {
+            return new AuditWalSpool(this, consumer);
+        }
+
+        return new AuditFileSpool(this, consumer);
+    }
+
     @Override
     public void setParentPath(String parentPath) {
         super.setParentPath(parentPath);
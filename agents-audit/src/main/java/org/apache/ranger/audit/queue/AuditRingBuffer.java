@@ -0,0 +1,381 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer/single-consumer queue, backed by a pre-allocated ring of slots.
+ *
+ * A producer claims a slot by advancing the tail with compare-and-set, and publishes the element by writing it to the
+ * slot; the consumer takes elements in order, clearing each slot before advancing the head. Hence offer() neither locks
+ * nor allocates. Only one thread may call poll(), take() or drainTo() - as in audit queues, where the consumer thread
+ * is the only reader.
+ *
+ * The wait strategy determines how the consumer waits for elements in poll(timeout)/take(), and how producers wait for
+ * space in put()/offer(timeout): BLOCKING parks the thread, YIELDING yields and BUSY_SPIN spins, yielding only every
+ * few hundred attempts - lowest latency, at the cost of a core.
+ *
+ * Iterators are weakly consistent: they return elements in the range [head, tail) at the time of their creation, that
+ * are published and yet to be consumed when reached. Removal of elements other than the head - by Iterator.remove()
+ * or remove(Object) - is not supported.
+ */
+public class AuditRingBuffer<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+    private static final long MAX_PARK_NANOS  = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int  SPIN_YIELD_MASK = 0xff;
+
+    public enum WaitStrategy { BLOCKING, YIELDING, BUSY_SPIN }
+
+    private final AtomicReferenceArray<E> slots;
+    private final int                     capacity;
+    private final int                     mask;
+    private final WaitStrategy            waitStrategy;
+    private final AtomicLong              tail = new AtomicLong(); // next slot to be claimed by a producer
+    private final AtomicLong              head = new AtomicLong(); // next slot to be read by the consumer
+    private volatile Thread               waitingConsumer;
+
+    /**
+     * @param capacity rounded up to a power of 2
+     */
+    public AuditRingBuffer(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("invalid capacity: " + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity);
+
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        this.slots        = new AtomicReferenceArray<>(size);
+        this.capacity     = size;
+        this.mask         = size - 1;
+        this.waitStrategy = waitStrategy != null ? waitStrategy : WaitStrategy.BLOCKING;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+
+        while (true) {
+            long t = tail.get();
+
+            if (t - head.get() >= capacity) {
+                return false;
+            }
+
+            if (tail.compareAndSet(t, t + 1)) {
+                slots.lazySet((int) t & mask, e);
+
+                Thread consumer = waitingConsumer;
+
+                if (consumer != null) {
+                    LockSupport.unpark(consumer);
+                }
+
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        for (int i = 0; !offer(e); i++) {
+            waitForSpace(i);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        for (int i = 0; !offer(e); i++) {
+            if (deadline - System.nanoTime() <= 0) {
+                return false;
+            }
+
+            waitForSpace(i);
+        }
+
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        long h = head.get();
+        int  i = (int) h & mask;
+        E    e = slots.get(i);
+
+        if (e == null) {
+            if (tail.get() == h) {
+                return null;
+            }
+
+            // a producer has claimed the slot, but is yet to publish the element
+            do {
+                Thread.yield();
+
+                e = slots.get(i);
+            } while (e == null);
+        }
+
+        slots.lazySet(i, null);
+        head.lazySet(h + 1);
+
+        return e;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        return poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E ret = poll();
+
+        if (ret == null) {
+            long deadline = timeout == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + unit.toNanos(timeout);
+
+            for (int i = 0; ret == null; i++) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+
+                long remaining = deadline == Long.MAX_VALUE ? MAX_PARK_NANOS : deadline - System.nanoTime();
+
+                if (remaining <= 0) {
+                    break;
+                }
+
+                waitForElement(i, remaining);
+
+                ret = poll();
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Like poll(), waits for the element at the head to be published when its slot has been claimed; hence returns null
+     * only when the buffer is empty. May be called by any thread: the head is re-read, as the consumer may move it meanwhile.
+     */
+    @Override
+    public E peek() {
+        while (true) {
+            long h = head.get();
+
+            if (tail.get() == h) {
+                return null;
+            }
+
+            E e = slots.get((int) h & mask);
+
+            if (e != null && head.get() == h) {
+                return e;
+            }
+
+            if (e == null) { // a producer has claimed the slot, but is yet to publish the element
+                Thread.yield();
+            }
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        int ret = 0;
+
+        while (ret < maxElements) {
+            E e = poll();
+
+            if (e == null) {
+                break;
+            }
+
+            c.add(e);
+
+            ret++;
+        }
+
+        return ret;
+    }
+
+    @Override
+    public int size() {
+        long h    = head.get();
+        long size = tail.get() - h;
+
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    @Override
+    public String toString() {
+        return "AuditRingBuffer{capacity=" + capacity + ", size=" + size() + ", waitStrategy=" + waitStrategy + "}";
+    }
+
+    private void waitForElement(int attempt, long remainingNanos) {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                if ((attempt & SPIN_YIELD_MASK) == SPIN_YIELD_MASK) { // let other threads run, when there are more threads than cores
+                    Thread.yield();
+                }
+                break;
+
+            case YIELDING:
+                Thread.yield();
+                break;
+
+            default:
+                if (attempt < 16) {
+                    Thread.yield();
+                } else {
+                    // producers unpark the waiting consumer after publishing; re-check after registering, as an element
+                    // published before registration doesn't unpark
+                    waitingConsumer = Thread.currentThread();
+
+                    if (isEmpty()) {
+                        LockSupport.parkNanos(this, Math.min(remainingNanos, MAX_PARK_NANOS * 100));
+                    }
+
+                    waitingConsumer = null;
+                }
+                break;
+        }
+    }
+
+    private void waitForSpace(int attempt) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                if ((attempt & SPIN_YIELD_MASK) == SPIN_YIELD_MASK) { // let other threads run, when there are more threads than cores
+                    Thread.yield();
+                }
+                break;
+
+            case YIELDING:
+                Thread.yield();
+                break;
+
+            default:
+                if (attempt < 16) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(this, MAX_PARK_NANOS / 10);
+                }
+                break;
+        }
+    }
+
+    private final class Itr implements Iterator<E> {
+        private final long end = tail.get();
+        private       long next;
+        private       E    nextElement;
+
+        Itr() {
+            next        = head.get();
+            nextElement = advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextElement != null;
+        }
+
+        @Override
+        public E next() {
+            E ret = nextElement;
+
+            if (ret == null) {
+                throw new NoSuchElementException();
+            }
+
+            nextElement = advance();
+
+            return ret;
+        }
+
+        private E advance() {
+            while (next < end) {
+                long pos = Math.max(next, head.get()); // elements before the head have been consumed
+
+                if (pos >= end) {
+                    break;
+                }
+
+                E e = slots.get((int) pos & mask);
+
+                next = pos + 1;
+
+                // null: claimed, yet to be published. A slot is reused only after the head moves past it,
+                // hence e is the element at pos if the head hasn't
+                if (e != null && head.get() <= pos) {
+                    return e;
+                }
+            }
+
+            next = end;
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Batch queue backed by a lock-free ring buffer (AuditRingBuffer), instead of an ArrayBlockingQueue. Selected for a
+ * destination with xasecure.audit.destination.&lt;dest&gt;.queue=ringbuffer; properties, under
+ * xasecure.audit.destination.&lt;dest&gt;.ringbuffer:
+ *  - wait.strategy: blocking (default), yielding or busy_spin
+ *  - full.policy:   block (default) - the caller waits for space, as in batch queue; or drop - the event is dropped and
+ *                   counted as failed
+ */
+public class AuditRingBufferQueue extends AuditBatchQueue {
+    private static final Logger logger = LoggerFactory.getLogger(AuditRingBufferQueue.class);
+
+    public static final String PROP_WAIT_STRATEGY = "wait.strategy";
+    public static final String PROP_FULL_POLICY   = "full.policy";
+    public static final String FULL_POLICY_BLOCK  = "block";
+    public static final String FULL_POLICY_DROP   = "drop";
+
+    static final String DEFAULT_NAME = "ringbuffer";
+
+    private AuditRingBuffer.WaitStrategy    waitStrategy = AuditRingBuffer.WaitStrategy.BLOCKING;
+    private boolean                         dropWhenFull;
+    private AuditRingBuffer<AuditEventBase> ringBuffer;
+
+    public AuditRingBufferQueue(AuditHandler consumer) {
+        super(consumer);
+
+        setName(DEFAULT_NAME);
+    }
+
+    @Override
+    public void init(Properties props, String basePropertyName) {
+        String propPrefix = "xasecure.audit.ringbuffer";
+
+        if (basePropertyName != null) {
+            propPrefix = basePropertyName;
+        }
+
+        super.init(props, propPrefix);
+
+        String fullPolicy = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_FULL_POLICY, FULL_POLICY_BLOCK);
+
+        waitStrategy = toWaitStrategy(MiscUtil.getStringProperty(props, propPrefix + "." + PROP_WAIT_STRATEGY), waitStrategy);
+        dropWhenFull = FULL_POLICY_DROP.equalsIgnoreCase(fullPolicy.trim());
+
+        logger.info("{}: waitStrategy={}, fullPolicy={}", getName(), waitStrategy, dropWhenFull ? FULL_POLICY_DROP : FULL_POLICY_BLOCK);
+    }
+
+    @Override
+    public boolean log(AuditEventBase event) {
+        if (!dropWhenFull) {
+            return super.log(event);
+        }
+
+        if (!ringBuffer.offer(event)) {
+            addFailedCount(1);
+
+            return false;
+        }
+
+        return true;
+    }
+
+    public AuditRingBuffer.WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public boolean isDropWhenFull() {
+        return dropWhenFull;
+    }
+
+    @Override
+    protected BlockingQueue<AuditEventBase> createQueue(int capacity) {
+        ringBuffer = new AuditRingBuffer<>(capacity, waitStrategy);
+
+        logger.info("Created {} for {}", ringBuffer, getName());
+
+        return ringBuffer;
+    }
+
+    static AuditRingBuffer.WaitStrategy toWaitStrategy(String value, AuditRingBuffer.WaitStrategy defaultValue) {
+        AuditRingBuffer.WaitStrategy ret = defaultValue;
+
+        if (value != null && !value.trim().isEmpty()) {
+            try {
+                ret = AuditRingBuffer.WaitStrategy.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException excp) {
+                logger.warn("invalid wait strategy {}; using {}", value, defaultValue);
+            }
+        }
+
+        return ret;
+    }
+}
@@ -20,6 +20,7 @@
 package org.apache.ranger.audit.queue;
 
 import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.AuditHandler;
 import org.apache.ranger.audit.provider.MiscUtil;
 import org.slf4j.Logger;
@@ -30,29 +31,49 @@
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * This is a non-blocking queue with no limit on capacity.
+ * Summarizes repeated audit events: events with the same user, access type, resource, action, result, policy, session
+ * and client IP are aggregated into one event - the first event, with event count and duration set - and sent to the
+ * consumer when the summary window, started by the first event, ends.
+ *
+ * Events are aggregated by the calling thread, in a concurrent table bounded by summary.max.entries; the consumer
+ * thread only sends summaries of ended windows. When the table is full, new events are queued to be sent as is by the
+ * consumer thread, instead of growing the table; once summary.max.entries events are queued, further events are
+ * dropped and counted as failed. Window is set by summary.interval.ms, and per access type by
+ * summary.interval.ms.&lt;accessType&gt; - for example, summary.interval.ms.read=60000.
  */
 public class AuditSummaryQueue extends AuditQueue implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(AuditSummaryQueue.class);
 
-    public static final String PROP_SUMMARY_INTERVAL = "summary.interval.ms";
+    public static final String PROP_SUMMARY_INTERVAL    = "summary.interval.ms";
+    public static final String PROP_SUMMARY_MAX_ENTRIES = "summary.max.entries";
 
-    private static final int MAX_DRAIN = 100000;
+    private static final int  DEFAULT_MAX_ENTRIES = 10000;
+    private static final long MAX_SWEEP_INTERVAL  = 1000;
 
     static final String DEFAULT_NAME = "summary";
     static       int    threadCount;
 
-    Thread                              consumerThread;
-    LinkedBlockingQueue<AuditEventBase> queue      = new LinkedBlockingQueue<>();
-    HashMap<String, AuditSummary>       summaryMap = new HashMap<>();
+    Thread                          consumerThread;
+    final Map<Object, AuditSummary> summaryMap = new ConcurrentHashMap<>();
+
+    private final Map<String, Integer> summaryIntervalMsByAccessType = new HashMap<>();
+    private final AtomicInteger        summaryCount                  = new AtomicInteger();
+    private final AtomicLong           overflowCount                 = new AtomicLong();
 
-    private int maxSummaryIntervalMs = 5000;
+    private int                           maxSummaryIntervalMs = 5000;
+    private int                           maxSummaryEntries    = DEFAULT_MAX_ENTRIES;
+    private BlockingQueue<AuditEventBase> overflowQueue        = new LinkedBlockingQueue<>(DEFAULT_MAX_ENTRIES);
 
     public AuditSummaryQueue(AuditHandler consumer) {
         super(consumer);
@@ -64,9 +85,23 @@ public AuditSummaryQueue(AuditHandler consumer) {
     public void init(Properties props, String propPrefix) {
         super.init(props, propPrefix);
 
-        maxSummaryIntervalMs = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_SUMMARY_INTERVAL, maxSummaryIntervalMs);
+        String intervalPropPrefix = propPrefix + "." + PROP_SUMMARY_INTERVAL;
+
+        maxSummaryIntervalMs = MiscUtil.getIntProperty(props, intervalPropPrefix, maxSummaryIntervalMs);
+        maxSummaryEntries    = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_SUMMARY_MAX_ENTRIES, maxSummaryEntries);
+        overflowQueue        = new LinkedBlockingQueue<>(Math.max(1, maxSummaryEntries));
+
+        for (Map.Entry<String, String> entry : MiscUtil.getPropertiesWithPrefix(props, intervalPropPrefix + ".").entrySet()) {
+            int intervalMs = MiscUtil.parseInteger(entry.getValue(), -1);
+
+            if (intervalMs >= 0) {
+                summaryIntervalMsByAccessType.put(entry.getKey(), intervalMs);
+            } else {
+                logger.warn("{}.{}: invalid value {}; ignored", intervalPropPrefix, entry.getKey(), entry.getValue());
+            }
+        }
 
-        logger.info("maxSummaryInterval={}, name={}", maxSummaryIntervalMs, getName());
+        logger.info("maxSummaryInterval={}, summaryIntervalByAccessType={}, maxSummaryEntries={}, name={}", maxSummaryIntervalMs, summaryIntervalMsByAccessType, maxSummaryEntries, getName());
     }
 
     /*
@@ -78,14 +113,35 @@ public void init(Properties props, String propPrefix) {
      */
     @Override
     public boolean log(AuditEventBase event) {
-        // Add to the queue and return ASAP
-        if (queue.size() >= getMaxQueueSize()) {
-            return false;
-        }
+        AuditSummary summary = summaryMap.compute(getSummaryKey(event), (k, existing) -> {
+            AuditSummary updated = existing;
+
+            if (updated != null) {
+                updated.add(event.getEventTime());
+            } else if (summaryCount.get() < maxSummaryEntries) {
+                updated = new AuditSummary(event, System.currentTimeMillis() + getSummaryIntervalMs(event));
+
+                summaryCount.incrementAndGet();
+            }
+
+            return updated;
+        });
+
+        final boolean ret;
+
+        if (summary == null) { // table is full: queue the event to be sent as is by the consumer thread, rather than growing the table
+            overflowCount.incrementAndGet();
 
-        queue.add(event);
+            ret = overflowQueue.offer(event);
 
-        return true;
+            if (!ret) {
+                addFailedCount(1);
+            }
+        } else {
+            ret = true;
+        }
+
+        return ret;
     }
 
     @Override
@@ -103,6 +159,23 @@ public boolean log(Collection<AuditEventBase> events) {
         return ret;
     }
 
+    @Override
+    public void logStatus() {
+        super.logStatus();
+
+        if (isStatusLogEnabled()) {
+            logger.info("AuditSummaryQueue.log(name={}): summaryCount={}, overflowCount={}", getName(), summaryCount.get(), overflowCount.get());
+        }
+    }
+
+    public int getSummaryCount() {
+        return summaryCount.get();
+    }
+
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -161,114 +234,216 @@ public void run() {
     }
 
     public void runLogAudit() {
-        long lastDispatchTime = System.currentTimeMillis();
+        long sweepIntervalMs = getSweepIntervalMs();
 
         while (true) {
-            // Time to next dispatch
-            long nextDispatchDuration = lastDispatchTime - System.currentTimeMillis() + maxSummaryIntervalMs;
-
-            Collection<AuditEventBase> eventList = new ArrayList<>();
-
             try {
-                final AuditEventBase event;
-
-                if (!isDrain() && nextDispatchDuration > 0) {
-                    event = queue.poll(nextDispatchDuration, TimeUnit.MILLISECONDS);
-                } else {
-                    // For poll() is non blocking
-                    event = queue.poll();
-                }
-
-                if (event != null) {
-                    eventList.add(event);
-
-                    queue.drainTo(eventList, MAX_DRAIN - 1);
-                } else {
-                    // poll returned due to timeout, so reseting clock
-                    nextDispatchDuration = lastDispatchTime - System.currentTimeMillis() + maxSummaryIntervalMs;
-                    lastDispatchTime     = System.currentTimeMillis();
+                if (!isDrain()) {
+                    Thread.sleep(sweepIntervalMs);
                 }
             } catch (InterruptedException e) {
                 logger.info("Caught exception in consumer thread. Shutdown might be in progress");
+            }
+
+            try {
+                sendSummaries(isDrain());
             } catch (Throwable t) {
                 logger.error("Caught error during processing request.", t);
             }
 
-            for (AuditEventBase event : eventList) {
-                // Add to hash map
-                String       key          = event.getEventKey();
-                AuditSummary auditSummary = summaryMap.get(key);
+            logStatusIfRequired();
 
-                if (auditSummary == null) {
-                    auditSummary = new AuditSummary();
+            if (isDrain()) {
+                if (summaryMap.isEmpty() && overflowQueue.isEmpty()) {
+                    break;
+                }
 
-                    auditSummary.event     = event;
-                    auditSummary.startTime = event.getEventTime();
-                    auditSummary.endTime   = event.getEventTime();
-                    auditSummary.count     = 1;
+                if (isDrainMaxTimeElapsed()) {
+                    logger.warn("Exiting polling loop because max time allowed reached. name={}, waited for {} ms", getName(), stopTime - System.currentTimeMillis());
+                }
+            }
+        }
 
-                    summaryMap.put(key, auditSummary);
-                } else {
-                    auditSummary.endTime = event.getEventTime();
+        logger.info("Exiting polling loop. name={}", getName());
 
-                    auditSummary.count++;
-                }
+        try {
+            // Call stop on the consumer
+            logger.info("Calling to stop consumer. name={}, consumer.name={}", getName(), consumer.getName());
+
+            consumer.stop();
+        } catch (Throwable t) {
+            logger.error("Error while calling stop on consumer.", t);
+        }
+        logger.info("Exiting consumerThread.run() method. name={}", getName());
+    }
+
+    /**
+     * Sends events queued on overflow, and summaries whose window has ended - or all summaries, if sendAll is true - to the consumer
+     */
+    void sendSummaries(boolean sendAll) {
+        long                 now            = System.currentTimeMillis();
+        List<AuditEventBase> overflowEvents = new ArrayList<>();
+
+        overflowQueue.drainTo(overflowEvents);
+
+        for (AuditEventBase event : overflowEvents) {
+            if (!consumer.log(event)) {
+                logFailedEvent(event);
             }
+        }
 
-            if (isDrain() || nextDispatchDuration <= 0) {
-                // Reset time just before sending the logs
-                lastDispatchTime = System.currentTimeMillis();
+        for (Map.Entry<Object, AuditSummary> entry : summaryMap.entrySet()) {
+            AuditSummary auditSummary = entry.getValue();
 
-                for (Map.Entry<String, AuditSummary> entry : summaryMap.entrySet()) {
-                    AuditSummary auditSummary = entry.getValue();
+            if (!sendAll && auditSummary.windowEndTime > now) {
+                continue;
+            }
 
-                    auditSummary.event.setEventCount(auditSummary.count);
+            // once removed, updates go to a new summary; updates done earlier are visible here
+            if (!summaryMap.remove(entry.getKey(), auditSummary)) {
+                continue;
+            }
 
-                    long timeDiff = auditSummary.endTime.getTime() - auditSummary.startTime.getTime();
+            summaryCount.decrementAndGet();
 
-                    timeDiff = timeDiff > 0 ? timeDiff : 1;
+            auditSummary.event.setEventCount(auditSummary.count);
 
-                    auditSummary.event.setEventDurationMS(timeDiff);
+            long timeDiff = auditSummary.endTime != null && auditSummary.startTime != null ? auditSummary.endTime.getTime() - auditSummary.startTime.getTime() : 0;
 
-                    boolean ret = consumer.log(auditSummary.event);
+            timeDiff = timeDiff > 0 ? timeDiff : 1;
 
-                    if (!ret) {
-                        // We need to drop this event
-                        logFailedEvent(auditSummary.event);
-                    }
-                }
+            auditSummary.event.setEventDurationMS(timeDiff);
 
-                summaryMap.clear();
+            boolean ret = consumer.log(auditSummary.event);
+
+            if (!ret) {
+                // We need to drop this event
+                logFailedEvent(auditSummary.event);
             }
+        }
+    }
 
-            if (isDrain()) {
-                if (summaryMap.isEmpty() && queue.isEmpty()) {
-                    break;
-                }
+    private int getSummaryIntervalMs(AuditEventBase event) {
+        Integer ret = null;
 
-                if (isDrainMaxTimeElapsed()) {
-                    logger.warn("Exiting polling loop because max time allowed reached. name={}, waited for {} ms", getName(), stopTime - System.currentTimeMillis());
-                }
+        if (!summaryIntervalMsByAccessType.isEmpty() && event instanceof AuthzAuditEvent) {
+            String accessType = ((AuthzAuditEvent) event).getAccessType();
+
+            if (accessType != null) {
+                ret = summaryIntervalMsByAccessType.get(accessType);
             }
         }
 
-        logger.info("Exiting polling loop. name={}", getName());
+        return ret != null ? ret : maxSummaryIntervalMs;
+    }
 
-        try {
-            // Call stop on the consumer
-            logger.info("Calling to stop consumer. name={}, consumer.name={}", getName(), consumer.getName());
+    private long getSweepIntervalMs() {
+        long ret = maxSummaryIntervalMs;
 
-            consumer.stop();
-        } catch (Throwable t) {
-            logger.error("Error while calling stop on consumer.", t);
+        for (Integer intervalMs : summaryIntervalMsByAccessType.values()) {
+            ret = Math.min(ret, intervalMs);
         }
-        logger.info("Exiting consumerThread.run() method. name={}", getName());
+
+        return Math.max(10, Math.min(ret, MAX_SWEEP_INTERVAL));
+    }
+
+    private static Object getSummaryKey(AuditEventBase event) {
+        return event instanceof AuthzAuditEvent ? new SummaryKey((AuthzAuditEvent) event) : event.getEventKey();
     }
 
     static class AuditSummary {
-        Date           startTime;
-        Date           endTime;
-        int            count;
-        AuditEventBase event;
+        final AuditEventBase event;
+        final long           windowEndTime;
+        final Date           startTime;
+        Date                 endTime;
+        long                 count;
+
+        AuditSummary(AuditEventBase event, long windowEndTime) {
+            this.event         = event;
+            this.windowEndTime = windowEndTime;
+            this.startTime     = event.getEventTime();
+            this.endTime       = startTime;
+            this.count         = 1;
+        }
+
+        // called within ConcurrentHashMap.compute(), which serializes updates to the summary
+        void add(Date eventTime) {
+            if (eventTime != null && (endTime == null || eventTime.after(endTime))) {
+                endTime = eventTime;
+            }
+
+            count++;
+        }
+    }
+
+    /**
+     * Fields of AuthzAuditEvent that identify repeated events; unlike getEventKey(), no string is built per event
+     */
+    static final class SummaryKey {
+        private final String user;
+        private final String accessType;
+        private final String resourcePath;
+        private final String resourceType;
+        private final String action;
+        private final short  accessResult;
+        private final long   policyId;
+        private final String sessionId;
+        private final String clientIP;
+        private final int    hashCode;
+
+        SummaryKey(AuthzAuditEvent event) {
+            this.user         = event.getUser();
+            this.accessType   = event.getAccessType();
+            this.resourcePath = event.getResourcePath();
+            this.resourceType = event.getResourceType();
+            this.action       = event.getAction();
+            this.accessResult = event.getAccessResult();
+            this.policyId     = event.getPolicyId();
+            this.sessionId    = event.getSessionId();
+            this.clientIP     = event.getClientIP();
+            this.hashCode     = computeHashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        private int computeHashCode() {
+            int ret = Objects.hashCode(user);
+
+            ret = 31 * ret + Objects.hashCode(accessType);
+            ret = 31 * ret + Objects.hashCode(resourcePath);
+            ret = 31 * ret + Objects.hashCode(resourceType);
+            ret = 31 * ret + Objects.hashCode(action);
+            ret = 31 * ret + accessResult;
+            ret = 31 * ret + Long.hashCode(policyId);
+            ret = 31 * ret + Objects.hashCode(sessionId);
+            ret = 31 * ret + Objects.hashCode(clientIP);
+
+            return ret;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof SummaryKey)) {
+                return false;
+            }
+
+            SummaryKey other = (SummaryKey) obj;
+
+            return hashCode == other.hashCode &&
+                    accessResult == other.accessResult &&
+                    policyId == other.policyId &&
+                    Objects.equals(user, other.user) &&
+                    Objects.equals(accessType, other.accessType) &&
+                    Objects.equals(resourcePath, other.resourcePath) &&
+                    Objects.equals(resourceType, other.resourceType) &&
+                    Objects.equals(action, other.action) &&
+                    Objects.equals(sessionId, other.sessionId) &&
+                    Objects.equals(clientIP, other.clientIP);
+        }
     }
 }
@@ -0,0 +1,701 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AuditEventJsonSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead spool: stores logs, while the destination is down or overloaded, in an append-only log of memory-mapped
+ * segment files - instead of the text files and the JSON index rewritten after every batch by AuditFileSpool.
+ *
+ * Each record is framed as [length:int][crc32:int][event JSON, UTF-8]; a zero length marks the end of data in a
+ * segment, and a record failing the CRC check (i.e. a torn write) ends the segment. The consumer's progress is kept in
+ * a small checkpoint file holding the position (segment, offset) of the next record, updated in place after every
+ * batch sent. Segments are deleted once sent to the destination.
+ *
+ * Segments left by an earlier run are replayed into the destination on start, in parallel by up to
+ * filespool.wal.replay.threads threads; hence events in these segments may be sent out of order. Progress of replay
+ * of a segment is kept in a checkpoint file of its own, next to the segment, updated after every batch sent and
+ * deleted along with the segment. Delivery is at-least-once: events sent after the last checkpoint may be sent again
+ * after a restart.
+ *
+ * Enabled with: [queue-prefix].filespool.type=wal
+ */
+public class AuditWalSpool extends AuditFileSpool {
+    private static final Logger logger = LoggerFactory.getLogger(AuditWalSpool.class);
+
+    public static final String SPOOL_TYPE                         = "wal";
+    public static final String PROP_FILE_SPOOL_WAL_SEGMENT_SIZE   = "filespool.wal.segment.size";
+    public static final String PROP_FILE_SPOOL_WAL_REPLAY_THREADS = "filespool.wal.replay.threads";
+    public static final String PROP_FILE_SPOOL_WAL_FORCE          = "filespool.wal.force";
+
+    static final int RECORD_HEADER_SIZE   = 8;
+    static final int CHECKPOINT_SLOT_SIZE = 16; // [position:long][crc32:int]; two slots, written alternately
+
+    private static final String SEGMENT_FILE_SUFFIX    = ".wal";
+    private static final String CHECKPOINT_FILE_SUFFIX = ".checkpoint";
+
+    int     segmentSize   = 64 * 1024 * 1024;
+    int     replayThreads = 4;
+    boolean forceOnFlush;
+    String  walFilePrefix;
+
+    // segments left by an earlier run, to be replayed on start
+    final List<Long> recoverySegments = new ArrayList<>();
+    long             checkpointPosition;
+
+    // writer state, guarded by this
+    private final CRC32      writeCrc = new CRC32();
+    private MappedByteBuffer writeBuffer;
+    private long             writeSegment;
+
+    // position (segment << 32 | offset) after the last record written, and of the next record to send
+    private volatile long    writePosition;
+    private volatile long    readPosition;
+    private volatile boolean isRecovering;
+
+    private Checkpoint               checkpoint;
+    private MappedByteBuffer         readBuffer;
+    private long                     readBufferSegment = -1;
+    private volatile ExecutorService replayExecutor;
+
+    public AuditWalSpool(AuditQueue queueProvider, AuditHandler consumerProvider) {
+        super(queueProvider, consumerProvider);
+    }
+
+    @Override
+    public boolean init(Properties props, String basePropertyName) {
+        if (initDone) {
+            logger.error("init() called more than once. queueProvider={}, consumerProvider={}", queueProvider.getName(), consumerProvider.getName());
+            return true;
+        }
+
+        String propPrefix = "xasecure.audit.filespool";
+
+        if (basePropertyName != null) {
+            propPrefix = basePropertyName;
+        }
+
+        try {
+            String logFolderProp = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_FILE_SPOOL_LOCAL_DIR);
+
+            fileNamePrefix     = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_FILE_SPOOL_FILENAME_PREFIX);
+            retryDestinationMS = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_DEST_RETRY_MS, retryDestinationMS);
+            segmentSize        = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_WAL_SEGMENT_SIZE, segmentSize);
+            replayThreads      = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_WAL_REPLAY_THREADS, replayThreads);
+            forceOnFlush       = MiscUtil.getBooleanProperty(props, propPrefix + "." + PROP_FILE_SPOOL_WAL_FORCE, forceOnFlush);
+
+            logger.info("retryDestinationMS={}, segmentSize={}, replayThreads={}, forceOnFlush={}, queueName={}", retryDestinationMS, segmentSize, replayThreads, forceOnFlush, queueProvider.getName());
+
+            if (logFolderProp == null || logFolderProp.isEmpty()) {
+                logger.error("Audit spool folder is not configured. Please set {}.{}.queueName={}", propPrefix, PROP_FILE_SPOOL_LOCAL_DIR, queueProvider.getName());
+
+                return false;
+            }
+
+            logFolder = new File(logFolderProp);
+
+            if (!logFolder.isDirectory()) {
+                logFolder.mkdirs();
+
+                if (!logFolder.isDirectory()) {
+                    logger.error("File Spool folder not found and can't be created. folder={}, queueName={}", logFolder.getAbsolutePath(), queueProvider.getName());
+
+                    return false;
+                }
+            }
+
+            if (fileNamePrefix == null || fileNamePrefix.isEmpty()) {
+                fileNamePrefix = queueProvider.getName() + "_" + consumerProvider.getName();
+            }
+
+            walFilePrefix = MiscUtil.replaceTokens("wal_" + fileNamePrefix + "_" + "%app-type%", System.currentTimeMillis());
+
+            logger.info("logFolder={}, walFilePrefix={}, queueName={}", logFolder, walFilePrefix, queueProvider.getName());
+
+            checkpoint         = new Checkpoint(new File(logFolder, walFilePrefix + CHECKPOINT_FILE_SUFFIX), forceOnFlush);
+            checkpointPosition = checkpoint.getPosition();
+
+            long lastSegment = getSegment(checkpointPosition);
+
+            recoverySegments.addAll(listSegments());
+
+            for (Long segment : recoverySegments) {
+                lastSegment = Math.max(lastSegment, segment);
+            }
+
+            // new records are written to a new segment, leaving segments of the earlier run for parallel replay
+            writeSegment  = lastSegment + 1;
+            writePosition = toPosition(writeSegment, 0);
+            readPosition  = writePosition;
+            isRecovering  = !recoverySegments.isEmpty();
+
+            logger.info("checkpoint={}:{}, recoverySegments={}, writeSegment={}, queueName={}", getSegment(checkpointPosition), getOffset(checkpointPosition), recoverySegments, writeSegment, queueProvider.getName());
+        } catch (Throwable t) {
+            logger.error("Error initializing File Spooler. queue={}", queueProvider.getName(), t);
+
+            return false;
+        }
+
+        initDone = true;
+
+        return true;
+    }
+
+    @Override
+    public void stop() {
+        if (!initDone) {
+            logger.error("Cannot stop Audit File Spooler. Initilization not done. queueName={}", queueProvider.getName());
+            return;
+        }
+
+        logger.info("Stop called, queueName={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
+
+        synchronized (this) {
+            isDrain = true;
+
+            notifyAll();
+        }
+
+        flush();
+
+        ExecutorService executor = replayExecutor;
+
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+
+        if (destinationThread != null) {
+            destinationThread.interrupt();
+        }
+
+        destinationThread = null;
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (!initDone) {
+            logger.error("Cannot flush Audit File Spooler. Initilization not done. queueName={}", queueProvider.getName());
+            return;
+        }
+
+        if (forceOnFlush && writeBuffer != null) {
+            writeBuffer.force();
+        }
+    }
+
+    /**
+     * If any records are still not sent to the destination, including those left by an earlier run
+     */
+    @Override
+    public boolean isPending() {
+        if (!initDone) {
+            logError("isPending(): File Spooler not initialized. queueName={}", queueProvider.getName());
+
+            return false;
+        }
+
+        return isRecovering || readPosition < writePosition;
+    }
+
+    @Override
+    public synchronized void stashLogs(AuditEventBase event) {
+        if (isDrain) {
+            // Stop has been called, so this method shouldn't be called
+            logger.error("stashLogs() is called after stop is called. event={}", event);
+
+            return;
+        }
+
+        try {
+            if (AuditEventJsonSerializer.isSupported(event)) {
+                AuditEventJsonSerializer serializer = AuditEventJsonSerializer.get().serialize((AuthzAuditEvent) event);
+
+                append(serializer.getBuffer(), serializer.size());
+            } else {
+                byte[] data = MiscUtil.stringify(event).getBytes(StandardCharsets.UTF_8);
+
+                append(data, data.length);
+            }
+        } catch (Exception ex) {
+            logger.error("Error writing to file. event={}", event, ex);
+        }
+    }
+
+    @Override
+    public synchronized void stashLogsString(String event) {
+        if (isDrain) {
+            // Stop has been called, so this method shouldn't be called
+            logger.error("stashLogs() is called after stop is called. event={}", event);
+
+            return;
+        }
+
+        try {
+            byte[] data = event.getBytes(StandardCharsets.UTF_8);
+
+            append(data, data.length);
+        } catch (Exception ex) {
+            logger.error("Error writing to file. event={}", event, ex);
+        }
+    }
+
+    @Override
+    public void runLogAudit() {
+        if (isRecovering) {
+            replayRecoverySegments();
+        }
+
+        while (!isDrain) {
+            try {
+                if (isDestDown) {
+                    logger.info("Destination is down. sleeping for {} milli seconds. queueName={}, consumer={}", retryDestinationMS, queueProvider.getName(), consumerProvider.getName());
+
+                    Thread.sleep(retryDestinationMS);
+                }
+
+                long readPos  = readPosition;
+                long writePos = writePosition;
+
+                if (readPos >= writePos) {
+                    waitForRecords();
+
+                    continue;
+                }
+
+                long    segment  = getSegment(readPos);
+                boolean isSealed = segment < getSegment(writePos);
+                int     limit    = isSealed ? Integer.MAX_VALUE : getOffset(writePos);
+
+                if (readBufferSegment != segment) {
+                    readBuffer        = mapSegment(segment);
+                    readBufferSegment = segment;
+                }
+
+                if (!sendRecords(segment, readBuffer, getOffset(readPos), limit, this::updateReadPosition)) {
+                    onDestinationDown();
+                } else if (isSealed) {
+                    readBuffer        = null;
+                    readBufferSegment = -1;
+
+                    deleteSegment(segment);
+                    updateReadPosition(toPosition(segment + 1, 0));
+                } else if (readPosition < writePos) { // records up to writePos are complete, hence unreadable ones are corrupt: skip
+                    updateReadPosition(writePos);
+                }
+            } catch (InterruptedException e) {
+                logger.info("Caught exception in consumer thread. Shutdown might be in progress");
+
+                break;
+            } catch (Exception t) {
+                logger.error("Exception in destination writing thread.", t);
+            }
+        }
+
+        logger.info("Exiting file spooler. provider={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
+    }
+
+    long getWritePosition() {
+        return writePosition;
+    }
+
+    long getReadPosition() {
+        return readPosition;
+    }
+
+    boolean isRecovering() {
+        return isRecovering;
+    }
+
+    File getSegmentFile(long segment) {
+        return new File(logFolder, walFilePrefix + "_" + String.format("%010d", segment) + SEGMENT_FILE_SUFFIX);
+    }
+
+    static long toPosition(long segment, int offset) {
+        return (segment << 32) | offset;
+    }
+
+    static long getSegment(long position) {
+        return position >>> 32;
+    }
+
+    static int getOffset(long position) {
+        return (int) position;
+    }
+
+    private void append(byte[] data, int length) throws IOException {
+        if (writeBuffer == null || writeBuffer.remaining() < RECORD_HEADER_SIZE + length) {
+            openWriteSegment(RECORD_HEADER_SIZE + length);
+        }
+
+        writeCrc.reset();
+        writeCrc.update(data, 0, length);
+
+        writeBuffer.putInt(length);
+        writeBuffer.putInt((int) writeCrc.getValue());
+        writeBuffer.put(data, 0, length);
+
+        writePosition = toPosition(writeSegment, writeBuffer.position());
+
+        notifyAll();
+    }
+
+    private void openWriteSegment(int minSize) throws IOException {
+        if (writeBuffer != null) {
+            if (forceOnFlush) {
+                writeBuffer.force();
+            }
+
+            writeSegment++;
+        }
+
+        File segmentFile = getSegmentFile(writeSegment);
+
+        logger.info("Creating new segment. queueName={}, filename={}", queueProvider.getName(), segmentFile);
+
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile, "rw")) {
+            int size = Math.max(segmentSize, minSize);
+
+            file.setLength(size);
+
+            writeBuffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private synchronized void waitForRecords() throws InterruptedException {
+        if (!isDrain && readPosition >= writePosition) {
+            wait(retryDestinationMS);
+        }
+    }
+
+    /**
+     * Sends records in the segment, from startOffset up to limit or end of data, to the consumer in batches of up to
+     * maxBatchSize; onBatchSent is called with the position after every batch sent
+     *
+     * @return false if the consumer failed to accept a batch
+     */
+    private boolean sendRecords(long segment, MappedByteBuffer buffer, int startOffset, int limit, LongConsumer onBatchSent) {
+        if (buffer == null) {
+            return true;
+        }
+
+        ByteBuffer   records = buffer.duplicate();
+        CRC32        crc     = new CRC32();
+        List<String> lines   = new ArrayList<>();
+        int          end     = Math.min(limit, records.capacity());
+        int          offset  = startOffset;
+
+        while (offset + RECORD_HEADER_SIZE <= end) {
+            int length = records.getInt(offset);
+
+            if (length <= 0 || length > end - offset - RECORD_HEADER_SIZE) {
+                break; // end of data in the segment
+            }
+
+            byte[] data = new byte[length];
+
+            records.position(offset + RECORD_HEADER_SIZE);
+            records.get(data);
+
+            crc.reset();
+            crc.update(data, 0, length);
+
+            if ((int) crc.getValue() != records.getInt(offset + 4)) {
+                logger.error("Corrupt record found, skipping rest of the segment. file={}, offset={}", getSegmentFile(segment), offset);
+
+                break;
+            }
+
+            lines.add(new String(data, StandardCharsets.UTF_8));
+
+            offset += RECORD_HEADER_SIZE + length;
+
+            if (lines.size() >= queueProvider.getMaxBatchSize()) {
+                if (!sendBatch(lines)) {
+                    return false;
+                }
+
+                onBatchSent.accept(toPosition(segment, offset));
+
+                lines.clear();
+            }
+        }
+
+        if (!lines.isEmpty()) {
+            if (!sendBatch(lines)) {
+                return false;
+            }
+
+            onBatchSent.accept(toPosition(segment, offset));
+        }
+
+        return true;
+    }
+
+    private boolean sendBatch(List<String> lines) {
+        boolean ret;
+
+        try {
+            ret = consumerProvider.logJSON(lines);
+        } catch (Exception t) {
+            logger.error("Error while sending logs to consumer. provider={}, consumer={}, logEventCount={}", queueProvider.getName(), consumerProvider.getName(), lines.size(), t);
+
+            ret = false;
+        }
+
+        if (!ret) {
+            // Need to log error after fixed interval
+            logError("Error sending logs to consumer. provider={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
+        } else if (isDestDown) {
+            isDestDown = false;
+
+            logger.info("Destination up now. queueName={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
+        }
+
+        return ret;
+    }
+
+    private void onDestinationDown() {
+        isDestDown      = true;
+        lastAttemptTime = System.currentTimeMillis();
+
+        logError("Destination down. queueName={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
+    }
+
+    private void replayRecoverySegments() {
+        int             threadCount = Math.max(1, Math.min(replayThreads, recoverySegments.size()));
+        String          threadName  = queueProvider.getName() + "_" + consumerProvider.getName() + "_replay";
+        ExecutorService executor    = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread thread = new Thread(r, threadName);
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        logger.info("Replaying {} segments with {} threads. queueName={}, consumer={}", recoverySegments.size(), threadCount, queueProvider.getName(), consumerProvider.getName());
+
+        replayExecutor = executor;
+
+        for (Long segment : recoverySegments) {
+            executor.execute(() -> replaySegment(segment));
+        }
+
+        executor.shutdown();
+
+        try {
+            while (!executor.awaitTermination(retryDestinationMS, TimeUnit.MILLISECONDS)) {
+                logger.info("Replay in progress. queueName={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
+            }
+        } catch (InterruptedException e) {
+            logger.info("Replay interrupted. Shutdown might be in progress");
+
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+
+            return;
+        }
+
+        replayExecutor = null;
+        isRecovering   = isDrain;
+
+        logger.info("Replay done. queueName={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
+    }
+
+    private void replaySegment(long segment) {
+        int[] offset = {0};
+
+        try {
+            File             checkpointFile   = getReplayCheckpointFile(segment);
+            Checkpoint       replayCheckpoint = new Checkpoint(checkpointFile, forceOnFlush);
+            MappedByteBuffer buffer           = mapSegment(segment);
+
+            // the segment might have been the one being sent when the earlier run stopped
+            if (segment == getSegment(checkpointPosition)) {
+                offset[0] = getOffset(checkpointPosition);
+            }
+
+            if (segment == getSegment(replayCheckpoint.getPosition())) {
+                offset[0] = Math.max(offset[0], getOffset(replayCheckpoint.getPosition()));
+            }
+
+            while (!isDrain) {
+                if (sendRecords(segment, buffer, offset[0], Integer.MAX_VALUE, position -> {
+                    replayCheckpoint.update(position);
+
+                    offset[0] = getOffset(position);
+                })) {
+                    // checkpoint is deleted first: should the segment be left behind, it is replayed in full again
+                    if (checkpointFile.exists() && !checkpointFile.delete()) {
+                        logger.error("Error deleting checkpoint file. file={}", checkpointFile);
+                    }
+
+                    deleteSegment(segment);
+
+                    break;
+                }
+
+                onDestinationDown();
+
+                Thread.sleep(retryDestinationMS);
+            }
+        } catch (InterruptedException e) {
+            logger.info("Replay of segment {} interrupted at offset {}. Shutdown might be in progress", segment, offset[0]);
+        } catch (Exception t) {
+            logger.error("Error replaying segment. file={}", getSegmentFile(segment), t);
+        }
+    }
+
+    private MappedByteBuffer mapSegment(long segment) throws IOException {
+        File segmentFile = getSegmentFile(segment);
+
+        if (!segmentFile.exists()) {
+            logger.error("Segment file={} not found.", segmentFile.getPath());
+
+            return null;
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile, "r")) {
+            return file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        }
+    }
+
+    private void deleteSegment(long segment) {
+        File segmentFile = getSegmentFile(segment);
+
+        logger.info("Deleting segment, all records sent. file={}, queueName={}, consumer={}", segmentFile, queueProvider.getName(), consumerProvider.getName());
+
+        if (segmentFile.exists() && !segmentFile.delete()) {
+            logger.error("Error deleting segment file. file={}", segmentFile);
+        }
+    }
+
+    private List<Long> listSegments() {
+        List<Long> ret      = new ArrayList<>();
+        String     prefix   = walFilePrefix + "_";
+        File[]     segments = logFolder.listFiles(file -> file.getName().startsWith(prefix) && file.getName().endsWith(SEGMENT_FILE_SUFFIX));
+
+        if (segments != null) {
+            for (File segment : segments) {
+                String name = segment.getName();
+
+                try {
+                    ret.add(Long.parseLong(name.substring(prefix.length(), name.length() - SEGMENT_FILE_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring unexpected file in spool folder. file={}", segment);
+                }
+            }
+        }
+
+        Collections.sort(ret);
+
+        return ret;
+    }
+
+    private File getReplayCheckpointFile(long segment) {
+        return new File(getSegmentFile(segment).getPath() + CHECKPOINT_FILE_SUFFIX);
+    }
+
+    private void updateReadPosition(long position) {
+        readPosition = position;
+
+        checkpoint.update(position);
+    }
+
+    private static int getCrc(long position) {
+        CRC32 crc = new CRC32();
+
+        for (int i = 56; i >= 0; i -= 8) {
+            crc.update((int) (position >>> i));
+        }
+
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Position of the next record to send, in a memory-mapped file of two slots written alternately; a slot torn by a
+     * crash fails the CRC check, and the other slot then has the previous position
+     */
+    static final class Checkpoint {
+        private final MappedByteBuffer buffer;
+        private final boolean          force;
+        private       int              slot;
+        private       long             position;
+
+        Checkpoint(File file, boolean force) throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                if (raf.length() < 2 * CHECKPOINT_SLOT_SIZE) {
+                    raf.setLength(2 * CHECKPOINT_SLOT_SIZE);
+                }
+
+                this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, 2 * CHECKPOINT_SLOT_SIZE);
+                this.force  = force;
+            }
+
+            for (int i = 0; i < 2; i++) {
+                long slotPosition = buffer.getLong(i * CHECKPOINT_SLOT_SIZE);
+
+                if (buffer.getInt(i * CHECKPOINT_SLOT_SIZE + 8) == getCrc(slotPosition) && slotPosition >= position) {
+                    position = slotPosition;
+                    slot     = i;
+                }
+            }
+        }
+
+        long getPosition() {
+            return position;
+        }
+
+        void update(long position) {
+            this.position = position;
+            this.slot     = slot ^ 1;
+
+            buffer.putLong(slot * CHECKPOINT_SLOT_SIZE, position);
+            buffer.putInt(slot * CHECKPOINT_SLOT_SIZE + 8, getCrc(position));
+
+            if (force) {
+                buffer.force();
+            }
+        }
+    }
+}
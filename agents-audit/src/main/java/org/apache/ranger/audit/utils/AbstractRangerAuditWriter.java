@@ -75,6 +75,7 @@ public abstract class AbstractRangerAuditWriter implements RangerAuditWriter {
     public volatile FSDataOutputStream  ostream;   // output stream wrapped in logWriter
 
     protected boolean reUseLastLogFile;
+    protected String  defaultLogSubFolder = "%app-type%/%time:yyyyMMdd%";
     private   boolean isHFlushCapableStream;
 
     @Override
@@ -212,7 +213,7 @@ public void init(Properties props, String propPrefix) {
         String logSubFolder = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_FILESYSTEM_SUBDIR);
 
         if (StringUtils.isEmpty(logSubFolder)) {
-            logSubFolder = "%app-type%/%time:yyyyMMdd%";
+            logSubFolder = defaultLogSubFolder;
         }
 
         logFileNameFormat = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_FILESYSTEM_FILE_NAME_FORMAT);
@@ -382,7 +383,7 @@ public void setFileExtension(String fileExtension) {
         this.fileExtension = fileExtension;
     }
 
-    private void setNextRollOverTime() {
+    protected void setNextRollOverTime() {
         if (!rollOverByDuration) {
             try {
                 if (StringUtils.isEmpty(rolloverPeriod)) {
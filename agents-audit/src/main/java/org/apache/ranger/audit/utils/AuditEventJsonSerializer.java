@@ -0,0 +1,374 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Streaming JSON serializer for AuthzAuditEvent: writes UTF-8 directly into a reusable, per-thread byte buffer - without
+ * the reflection, intermediate token buffers and per-field strings of ObjectMapper. The output is identical to that of
+ * MiscUtil.getMapper(): same field names and order, nulls included, dates as "yyyy-MM-dd HH:mm:ss.SSS" in the default
+ * time zone.
+ *
+ * Only AuthzAuditEvent instances are supported, not its subclasses - which may add fields; use isSupported() to check.
+ *
+ * Usage: AuditEventJsonSerializer.get().serialize(event).writeTo(out), or AuditEventJsonSerializer.toJson(event)
+ */
+public final class AuditEventJsonSerializer {
+    private static final int    INITIAL_BUFFER_SIZE      = 1024;
+    private static final int    MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+    private static final byte[] HEX_DIGITS               = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL                     = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MIN_LONG                 = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<AuditEventJsonSerializer> INSTANCE = ThreadLocal.withInitial(AuditEventJsonSerializer::new);
+
+    private final SimpleDateFormat dateFormat      = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private final byte[]           digits          = new byte[20];
+    private byte[]                 buffer          = new byte[INITIAL_BUFFER_SIZE];
+    private int                    size;
+    private long                   cachedSecond    = Long.MIN_VALUE;
+    private byte[]                 cachedSecondStr;
+
+    private AuditEventJsonSerializer() {
+    }
+
+    public static AuditEventJsonSerializer get() {
+        return INSTANCE.get();
+    }
+
+    public static boolean isSupported(Object event) {
+        return event != null && event.getClass() == AuthzAuditEvent.class;
+    }
+
+    public static String toJson(AuthzAuditEvent event) {
+        return get().serialize(event).toString();
+    }
+
+    /**
+     * Serializes the event into this serializer's buffer, replacing earlier contents
+     */
+    public AuditEventJsonSerializer serialize(AuthzAuditEvent event) {
+        if (buffer.length > MAX_RETAINED_BUFFER_SIZE) { // don't hold on to the buffer grown for an unusually large event
+            buffer = new byte[INITIAL_BUFFER_SIZE];
+        }
+
+        size = 0;
+
+        writeAscii("{\"repoType\":");
+        writeLong(event.getRepositoryType());
+        writeAscii(",\"repo\":");
+        writeString(event.getRepositoryName());
+        writeAscii(",\"reqUser\":");
+        writeString(event.getUser());
+        writeAscii(",\"evtTime\":");
+        writeDate(event.getEventTime());
+        writeAscii(",\"access\":");
+        writeString(event.getAccessType());
+        writeAscii(",\"resource\":");
+        writeString(event.getResourcePath());
+        writeAscii(",\"resType\":");
+        writeString(event.getResourceType());
+        writeAscii(",\"action\":");
+        writeString(event.getAction());
+        writeAscii(",\"result\":");
+        writeLong(event.getAccessResult());
+        writeAscii(",\"agent\":");
+        writeString(event.getAgentId());
+        writeAscii(",\"policy\":");
+        writeLong(event.getPolicyId());
+        writeAscii(",\"reason\":");
+        writeString(event.getResultReason());
+        writeAscii(",\"enforcer\":");
+        writeString(event.getAclEnforcer());
+        writeAscii(",\"sess\":");
+        writeString(event.getSessionId());
+        writeAscii(",\"cliType\":");
+        writeString(event.getClientType());
+        writeAscii(",\"cliIP\":");
+        writeString(event.getClientIP());
+        writeAscii(",\"reqData\":");
+        writeString(event.getRequestData());
+        writeAscii(",\"agentHost\":");
+        writeString(event.getAgentHostname());
+        writeAscii(",\"logType\":");
+        writeString(event.getLogType());
+        writeAscii(",\"id\":");
+        writeString(event.getEventId());
+        writeAscii(",\"seq_num\":");
+        writeLong(event.getSeqNum());
+        writeAscii(",\"event_count\":");
+        writeLong(event.getEventCount());
+        writeAscii(",\"event_dur_ms\":");
+        writeLong(event.getEventDurationMS());
+        writeAscii(",\"tags\":");
+        writeStrings(event.getTags());
+        writeAscii(",\"datasets\":");
+        writeStrings(event.getDatasets());
+        writeAscii(",\"projects\":");
+        writeStrings(event.getProjects());
+        writeAscii(",\"additional_info\":");
+        writeString(event.getAdditionalInfo());
+        writeAscii(",\"cluster_name\":");
+        writeString(event.getClusterName());
+        writeAscii(",\"zone_name\":");
+        writeString(event.getZoneName());
+        writeAscii(",\"policy_version\":");
+
+        if (event.getPolicyVersion() == null) {
+            writeBytes(NULL);
+        } else {
+            writeLong(event.getPolicyVersion());
+        }
+
+        writeByte('}');
+
+        return this;
+    }
+
+    /**
+     * @return buffer holding the UTF-8 encoded JSON in its first size() bytes; valid until the next serialize() call
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, size, StandardCharsets.UTF_8);
+    }
+
+    private void writeStrings(Collection<String> values) {
+        if (values == null) {
+            writeBytes(NULL);
+        } else {
+            boolean isFirst = true;
+
+            writeByte('[');
+
+            for (String value : values) {
+                if (!isFirst) {
+                    writeByte(',');
+                }
+
+                writeString(value);
+
+                isFirst = false;
+            }
+
+            writeByte(']');
+        }
+    }
+
+    private void writeDate(Date date) {
+        if (date == null) {
+            writeBytes(NULL);
+        } else {
+            long time   = date.getTime();
+            long second = Math.floorDiv(time, 1000);
+            int  millis = (int) Math.floorMod(time, 1000);
+
+            // events are mostly logged close in time: format date/time to seconds only when the second changes
+            if (second != cachedSecond) {
+                cachedSecondStr = dateFormat.format(new Date(second * 1000)).getBytes(StandardCharsets.US_ASCII);
+                cachedSecond    = second;
+            }
+
+            ensureCapacity(cachedSecondStr.length + 6);
+
+            buffer[size++] = '"';
+
+            System.arraycopy(cachedSecondStr, 0, buffer, size, cachedSecondStr.length);
+
+            size += cachedSecondStr.length;
+
+            buffer[size++] = '.';
+            buffer[size++] = (byte) ('0' + millis / 100);
+            buffer[size++] = (byte) ('0' + (millis / 10) % 10);
+            buffer[size++] = (byte) ('0' + millis % 10);
+            buffer[size++] = '"';
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeBytes(MIN_LONG);
+
+            return;
+        }
+
+        ensureCapacity(20);
+
+        if (value < 0) {
+            buffer[size++] = '-';
+
+            value = -value;
+        }
+
+        int pos = digits.length;
+
+        do {
+            digits[--pos] = (byte) ('0' + (value % 10));
+
+            value /= 10;
+        } while (value != 0);
+
+        System.arraycopy(digits, pos, buffer, size, digits.length - pos);
+
+        size += digits.length - pos;
+    }
+
+    // escapes as ObjectMapper does: '"', '\\' and control characters; other characters are written as is, UTF-8 encoded
+    private void writeString(String value) {
+        if (value == null) {
+            writeBytes(NULL);
+
+            return;
+        }
+
+        int len = value.length();
+
+        ensureCapacity(len + 2);
+
+        buffer[size++] = '"';
+
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    if (size == buffer.length) {
+                        ensureCapacity(len - i + 1);
+                    }
+
+                    buffer[size++] = (byte) c;
+                } else {
+                    writeEscaped(c);
+                }
+            } else {
+                ensureCapacity(len - i + 4);
+
+                if (c < 0x800) {
+                    buffer[size++] = (byte) (0xc0 | (c >> 6));
+                    buffer[size++] = (byte) (0x80 | (c & 0x3f));
+                } else if (!Character.isSurrogate(c)) {
+                    buffer[size++] = (byte) (0xe0 | (c >> 12));
+                    buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    buffer[size++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+
+                    buffer[size++] = (byte) (0xf0 | (codePoint >> 18));
+                    buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                    buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                    buffer[size++] = (byte) (0x80 | (codePoint & 0x3f));
+                } else { // unpaired surrogate: replace, as String.getBytes(UTF_8) does
+                    buffer[size++] = '?';
+                }
+            }
+        }
+
+        writeByte('"');
+    }
+
+    private void writeEscaped(char c) {
+        ensureCapacity(6);
+
+        buffer[size++] = '\\';
+
+        switch (c) {
+            case '"':
+            case '\\':
+                buffer[size++] = (byte) c;
+                break;
+            case '\b':
+                buffer[size++] = 'b';
+                break;
+            case '\t':
+                buffer[size++] = 't';
+                break;
+            case '\n':
+                buffer[size++] = 'n';
+                break;
+            case '\f':
+                buffer[size++] = 'f';
+                break;
+            case '\r':
+                buffer[size++] = 'r';
+                break;
+            default:
+                buffer[size++] = 'u';
+                buffer[size++] = '0';
+                buffer[size++] = '0';
+                buffer[size++] = HEX_DIGITS[c >> 4];
+                buffer[size++] = HEX_DIGITS[c & 0xf];
+                break;
+        }
+    }
+
+    private void writeAscii(String value) {
+        int len = value.length();
+
+        ensureCapacity(len);
+
+        for (int i = 0; i < len; i++) {
+            buffer[size++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeBytes(byte[] value) {
+        ensureCapacity(value.length);
+
+        System.arraycopy(value, 0, buffer, size, value.length);
+
+        size += value.length;
+    }
+
+    private void writeByte(char c) {
+        ensureCapacity(1);
+
+        buffer[size++] = (byte) c;
+    }
+
+    private void ensureCapacity(int count) {
+        if (size + count > buffer.length) {
+            byte[] newBuffer = new byte[Math.max(buffer.length * 2, size + count)];
+
+            System.arraycopy(buffer, 0, newBuffer, 0, size);
+
+            buffer = newBuffer;
+        }
+    }
+}
@@ -0,0 +1,463 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.util.HadoopOutputFile;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Types;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BINARY;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT32;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT64;
+
+/**
+ * Writes the Ranger audits to HDFS as Parquet files: one column per audit field, named as in the JSON audit format, with
+ * dictionary encoding, column statistics and bloom filters (by default on reqUser and resource) for predicate pushdown.
+ * Parquet writes a bloom filter only for column chunks that fall back from dictionary encoding, i.e. with more distinct
+ * values than fit in the dictionary; readers filter fully dictionary encoded chunks using the dictionary itself.
+ *
+ * Files are written to [dir]/service_type=%app-type%/dt=%time:yyyy-MM-dd% by default, hence can be queried as a table
+ * partitioned by service type and date. Unlike JSON files, Parquet files are readable only after they are closed: rows
+ * are buffered in memory up to parquet.rowgroup.size bytes and written out as a row group, and the file is closed on
+ * rollover (file.rollover.period), after parquet.file.max.rows rows, or on stop(). Rows in a file still open when the
+ * process exits abnormally are lost; use a short rollover period to limit this.
+ *
+ * Enabled with: [destination-prefix].batch.filequeue.filetype=parquet
+ */
+public class RangerParquetAuditWriter extends AbstractRangerAuditWriter {
+    private static final Logger logger = LoggerFactory.getLogger(RangerParquetAuditWriter.class);
+
+    public static final String PROP_PARQUET_COMPRESSION          = "parquet.compression";
+    public static final String PROP_PARQUET_ROWGROUP_SIZE        = "parquet.rowgroup.size";
+    public static final String PROP_PARQUET_PAGE_SIZE            = "parquet.page.size";
+    public static final String PROP_PARQUET_DICTIONARY_ENABLED   = "parquet.dictionary.enabled";
+    public static final String PROP_PARQUET_BLOOM_FILTER_COLUMNS = "parquet.bloom.filter.columns";
+    public static final String PROP_PARQUET_FILE_MAX_ROWS        = "parquet.file.max.rows";
+    public static final String PROP_PARQUET_ROLLOVER_CHECK_TIME  = "parquet.file.rollover.check.sec";
+
+    protected static final String PARQUET_FILE_EXTENSION = ".parquet";
+
+    static final MessageType AUDIT_SCHEMA = Types.buildMessage()
+            .required(INT32).named("repoType")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("repo")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("reqUser")
+            .optional(INT64).as(LogicalTypeAnnotation.timestampType(true, LogicalTypeAnnotation.TimeUnit.MILLIS)).named("evtTime")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("access")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("resource")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("resType")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("action")
+            .required(INT32).named("result")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("agent")
+            .required(INT64).named("policy")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("reason")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("enforcer")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("sess")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("cliType")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("cliIP")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("reqData")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("agentHost")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("logType")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("id")
+            .required(INT64).named("seq_num")
+            .required(INT64).named("event_count")
+            .required(INT64).named("event_dur_ms")
+            .optionalList().optionalElement(BINARY).as(LogicalTypeAnnotation.stringType()).named("tags")
+            .optionalList().optionalElement(BINARY).as(LogicalTypeAnnotation.stringType()).named("datasets")
+            .optionalList().optionalElement(BINARY).as(LogicalTypeAnnotation.stringType()).named("projects")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("additional_info")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("cluster_name")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("zone_name")
+            .optional(INT64).named("policy_version")
+            .named("ranger_audit");
+
+    protected volatile ParquetWriter<AuthzAuditEvent> parquetWriter;
+
+    protected CompressionCodecName compressionCodec    = CompressionCodecName.SNAPPY;
+    protected long                 rowGroupSize        = 16 * 1024 * 1024;
+    protected int                  pageSize            = ParquetWriter.DEFAULT_PAGE_SIZE;
+    protected boolean              isDictionaryEnabled = true;
+    protected List<String>         bloomFilterColumns  = new ArrayList<>();
+    protected long                 maxRowsPerFile      = 10 * 1000 * 1000L;
+    protected long                 fileRowCount;
+
+    private ScheduledExecutorService rollOverExecutor;
+
+    @Override
+    public void init(Properties props, String propPrefix, String auditProviderName, Map<String, String> auditConfigs) {
+        logger.debug("==> RangerParquetAuditWriter.init()");
+
+        init(props, propPrefix, auditProviderName);
+
+        super.init(props, propPrefix, auditProviderName, auditConfigs);
+
+        logger.debug("<== RangerParquetAuditWriter.init()");
+    }
+
+    public void init(Properties props, String propPrefix, String auditProviderName) {
+        String compression       = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_PARQUET_COMPRESSION);
+        String bloomFilterFields = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_PARQUET_BLOOM_FILTER_COLUMNS, "reqUser,resource");
+
+        if (StringUtils.isNotEmpty(compression)) {
+            compressionCodec = CompressionCodecName.valueOf(compression.trim().toUpperCase());
+        }
+
+        rowGroupSize        = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_PARQUET_ROWGROUP_SIZE, rowGroupSize);
+        pageSize            = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_PARQUET_PAGE_SIZE, pageSize);
+        isDictionaryEnabled = MiscUtil.getBooleanProperty(props, propPrefix + "." + PROP_PARQUET_DICTIONARY_ENABLED, isDictionaryEnabled);
+        maxRowsPerFile      = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_PARQUET_FILE_MAX_ROWS, maxRowsPerFile);
+        bloomFilterColumns  = MiscUtil.toArray(bloomFilterFields, ",");
+
+        setFileExtension(PARQUET_FILE_EXTENSION);
+
+        defaultLogSubFolder = "service_type=%app-type%/dt=%time:yyyy-MM-dd%";
+
+        logger.info("compression={}, rowGroupSize={}, pageSize={}, isDictionaryEnabled={}, bloomFilterColumns={}, maxRowsPerFile={}", compressionCodec, rowGroupSize, pageSize, isDictionaryEnabled, bloomFilterColumns, maxRowsPerFile);
+
+        // close the file on rollover even when no audits are logged; else the audits written would not be readable
+        long rollOverCheckTimeSec = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_PARQUET_ROLLOVER_CHECK_TIME, 60L);
+
+        rollOverExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ParquetAuditFileRollOverTask");
+
+            t.setDaemon(true);
+
+            return t;
+        });
+
+        rollOverExecutor.scheduleAtFixedRate(this::rollOverIfNeeded, rollOverCheckTimeSec, rollOverCheckTimeSec, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public boolean log(Collection<String> events) throws Exception {
+        return logAuditEvents(getAuthzAuditEvents(events));
+    }
+
+    public synchronized boolean logAuditEvents(Collection<AuthzAuditEvent> authzAuditEvents) throws Exception {
+        try {
+            logger.debug("UGI={}. Will write to HDFS file={}", MiscUtil.getUGILoginUser(), currentFileName);
+
+            MiscUtil.executePrivilegedAction((PrivilegedExceptionAction<Void>) () -> {
+                closeFileIfNeeded();
+
+                ParquetWriter<AuthzAuditEvent> writer = getParquetWriter();
+
+                for (AuthzAuditEvent event : authzAuditEvents) {
+                    writer.write(event);
+                }
+
+                fileRowCount += authzAuditEvents.size();
+
+                return null;
+            });
+        } catch (Exception e) {
+            logger.error("Error while writing into Parquet file {}", currentFileName, e);
+
+            // close the file, so that the next batch is written to a new file
+            closeParquetWriter();
+
+            throw e;
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean logFile(File file) throws Exception {
+        return false;
+    }
+
+    @Override
+    public void start() {
+        // Nothing to do here. We will open the file when the first log request comes
+    }
+
+    @Override
+    public void flush() {
+        // Parquet files can't be flushed partially: rows are written out as row groups fill up, and when the file is closed
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (rollOverExecutor != null) {
+            rollOverExecutor.shutdownNow();
+
+            rollOverExecutor = null;
+        }
+
+        try {
+            MiscUtil.executePrivilegedAction((PrivilegedExceptionAction<Void>) () -> {
+                closeParquetWriter();
+
+                return null;
+            });
+        } catch (Exception e) {
+            logger.error("Error on closing Parquet writer. name={}, fileName={}", auditProviderName, currentFileName, e);
+        }
+    }
+
+    @Override
+    public synchronized void closeFileIfNeeded() {
+        if (nextRollOverTime == null) { // init failed
+            return;
+        }
+
+        if (parquetWriter != null && (fileRowCount >= maxRowsPerFile || System.currentTimeMillis() >= nextRollOverTime.getTime())) {
+            logger.info("Closing file. Rolling over. name={}, fileName={}, rows={}", auditProviderName, currentFileName, fileRowCount);
+
+            closeParquetWriter();
+        }
+
+        if (System.currentTimeMillis() >= nextRollOverTime.getTime()) {
+            setNextRollOverTime();
+        }
+    }
+
+    public Collection<AuthzAuditEvent> getAuthzAuditEvents(Collection<String> events) {
+        Collection<AuthzAuditEvent> ret = new ArrayList<>(events.size());
+
+        for (String event : events) {
+            try {
+                ret.add(MiscUtil.fromJson(event, AuthzAuditEvent.class));
+            } catch (Exception e) {
+                logger.error("Error converting to From JSON to AuthzAuditEvent={}", event);
+
+                throw e;
+            }
+        }
+
+        return ret;
+    }
+
+    protected synchronized ParquetWriter<AuthzAuditEvent> getParquetWriter() throws Exception {
+        if (parquetWriter == null) {
+            createFileSystemFolders();
+
+            logger.info("Creating new log file. hdfPath={}", fullPath);
+
+            Builder builder = new Builder(HadoopOutputFile.fromPath(auditPath, conf))
+                    .withConf(conf)
+                    .withWriteMode(ParquetFileWriter.Mode.CREATE)
+                    .withCompressionCodec(compressionCodec)
+                    .withRowGroupSize(rowGroupSize)
+                    .withPageSize(pageSize)
+                    .withDictionaryEncoding(isDictionaryEnabled);
+
+            for (String column : bloomFilterColumns) {
+                builder.withBloomFilterEnabled(column.trim(), true);
+            }
+
+            parquetWriter   = builder.build();
+            fileRowCount    = 0;
+            currentFileName = fullPath;
+        }
+
+        return parquetWriter;
+    }
+
+    protected synchronized void closeParquetWriter() {
+        ParquetWriter<AuthzAuditEvent> writer = parquetWriter;
+
+        parquetWriter = null;
+        fileRowCount  = 0;
+
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (Exception e) {
+                logger.error("Error closing Parquet file. name={}, fileName={}", auditProviderName, currentFileName, e);
+            }
+        }
+    }
+
+    private void rollOverIfNeeded() {
+        try {
+            MiscUtil.executePrivilegedAction((PrivilegedExceptionAction<Void>) () -> {
+                closeFileIfNeeded();
+
+                return null;
+            });
+        } catch (Exception e) {
+            logger.error("Parquet audit file rollover failed. name={}", auditProviderName, e);
+        }
+    }
+
+    static class Builder extends ParquetWriter.Builder<AuthzAuditEvent, Builder> {
+        Builder(OutputFile file) {
+            super(file);
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<AuthzAuditEvent> getWriteSupport(Configuration conf) {
+            return new AuditEventWriteSupport();
+        }
+    }
+
+    static class AuditEventWriteSupport extends WriteSupport<AuthzAuditEvent> {
+        private RecordConsumer recordConsumer;
+
+        @Override
+        public WriteContext init(Configuration configuration) {
+            return new WriteContext(AUDIT_SCHEMA, Collections.emptyMap());
+        }
+
+        @Override
+        public void prepareForWrite(RecordConsumer recordConsumer) {
+            this.recordConsumer = recordConsumer;
+        }
+
+        @Override
+        public void write(AuthzAuditEvent event) {
+            int field = 0;
+
+            recordConsumer.startMessage();
+
+            writeInt(field++, event.getRepositoryType());
+            writeString(field++, event.getRepositoryName());
+            writeString(field++, event.getUser());
+            writeDate(field++, event.getEventTime());
+            writeString(field++, event.getAccessType());
+            writeString(field++, event.getResourcePath());
+            writeString(field++, event.getResourceType());
+            writeString(field++, event.getAction());
+            writeInt(field++, event.getAccessResult());
+            writeString(field++, event.getAgentId());
+            writeLong(field++, event.getPolicyId());
+            writeString(field++, event.getResultReason());
+            writeString(field++, event.getAclEnforcer());
+            writeString(field++, event.getSessionId());
+            writeString(field++, event.getClientType());
+            writeString(field++, event.getClientIP());
+            writeString(field++, event.getRequestData());
+            writeString(field++, event.getAgentHostname());
+            writeString(field++, event.getLogType());
+            writeString(field++, event.getEventId());
+            writeLong(field++, event.getSeqNum());
+            writeLong(field++, event.getEventCount());
+            writeLong(field++, event.getEventDurationMS());
+            writeStrings(field++, event.getTags());
+            writeStrings(field++, event.getDatasets());
+            writeStrings(field++, event.getProjects());
+            writeString(field++, event.getAdditionalInfo());
+            writeString(field++, event.getClusterName());
+            writeString(field++, event.getZoneName());
+
+            if (event.getPolicyVersion() != null) {
+                writeLong(field, event.getPolicyVersion());
+            }
+
+            recordConsumer.endMessage();
+        }
+
+        private void writeInt(int field, int value) {
+            String name = AUDIT_SCHEMA.getFieldName(field);
+
+            recordConsumer.startField(name, field);
+            recordConsumer.addInteger(value);
+            recordConsumer.endField(name, field);
+        }
+
+        private void writeLong(int field, long value) {
+            String name = AUDIT_SCHEMA.getFieldName(field);
+
+            recordConsumer.startField(name, field);
+            recordConsumer.addLong(value);
+            recordConsumer.endField(name, field);
+        }
+
+        private void writeDate(int field, Date value) {
+            if (value != null) {
+                writeLong(field, value.getTime());
+            }
+        }
+
+        private void writeString(int field, String value) {
+            if (value != null) {
+                String name = AUDIT_SCHEMA.getFieldName(field);
+
+                recordConsumer.startField(name, field);
+                recordConsumer.addBinary(Binary.fromString(value));
+                recordConsumer.endField(name, field);
+            }
+        }
+
+        // as LIST: <name> { repeated group list { optional binary element } }
+        private void writeStrings(int field, Collection<String> values) {
+            if (values != null) {
+                String name = AUDIT_SCHEMA.getFieldName(field);
+
+                recordConsumer.startField(name, field);
+                recordConsumer.startGroup();
+
+                if (!values.isEmpty()) {
+                    recordConsumer.startField("list", 0);
+
+                    for (String value : values) {
+                        recordConsumer.startGroup();
+
+                        if (value != null) {
+                            recordConsumer.startField("element", 0);
+                            recordConsumer.addBinary(Binary.fromString(value));
+                            recordConsumer.endField("element", 0);
+                        }
+
+                        recordConsumer.endGroup();
+                    }
+
+                    recordConsumer.endField("list", 0);
+                }
+
+                recordConsumer.endGroup();
+                recordConsumer.endField(name, field);
+            }
+        }
+    }
+}
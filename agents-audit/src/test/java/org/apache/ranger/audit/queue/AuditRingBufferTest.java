@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AuditRingBufferTest {
+    @Test
+    public void verifyOfferAndPoll() {
+        AuditRingBuffer<Integer> ringBuffer = new AuditRingBuffer<>(3, AuditRingBuffer.WaitStrategy.BLOCKING);
+
+        assertEquals(4, ringBuffer.getCapacity());
+        assertTrue(ringBuffer.isEmpty());
+        assertNull(ringBuffer.poll());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ringBuffer.offer(i));
+        }
+
+        assertFalse("offer() must fail when full", ringBuffer.offer(4));
+        assertEquals(4, ringBuffer.size());
+        assertEquals(0, ringBuffer.remainingCapacity());
+        assertEquals(Integer.valueOf(0), ringBuffer.peek());
+        assertEquals(Integer.valueOf(0), ringBuffer.poll());
+        assertTrue(ringBuffer.offer(4));
+
+        List<Integer> drained = new ArrayList<>();
+
+        assertEquals(2, ringBuffer.drainTo(drained, 2));
+        assertEquals(2, ringBuffer.drainTo(drained));
+        assertEquals("[1, 2, 3, 4]", drained.toString());
+        assertTrue(ringBuffer.isEmpty());
+    }
+
+    @Test
+    public void verifyPeekWaitsForPublish() throws Exception {
+        final AuditRingBuffer<Integer> ringBuffer = new AuditRingBuffer<>(4, AuditRingBuffer.WaitStrategy.BLOCKING);
+        final int                      count      = 20000;
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                while (!ringBuffer.offer(i)) {
+                    Thread.yield();
+                }
+            }
+        });
+
+        producer.start();
+
+        for (int i = 0; i < count; ) {
+            boolean isEmpty = ringBuffer.size() == 0;
+            Integer value   = ringBuffer.peek();
+
+            assertTrue("peek() must not return null when size() > 0", isEmpty || value != null);
+
+            if (value != null) {
+                assertEquals(Integer.valueOf(i), value);
+                assertEquals(value, ringBuffer.poll());
+
+                i++;
+            }
+        }
+
+        producer.join();
+
+        assertNull(ringBuffer.peek());
+    }
+
+    @Test
+    public void verifyIterator() {
+        AuditRingBuffer<Integer> ringBuffer = new AuditRingBuffer<>(4, AuditRingBuffer.WaitStrategy.BLOCKING);
+
+        assertFalse(ringBuffer.iterator().hasNext());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ringBuffer.offer(i));
+        }
+
+        assertEquals(Integer.valueOf(0), ringBuffer.poll());
+        assertTrue(ringBuffer.offer(4)); // wraps around, into the slot of 0
+
+        assertEquals("[1, 2, 3, 4]", ringBuffer.stream().collect(Collectors.toList()).toString());
+        assertArrayEquals(new Object[] {1, 2, 3, 4}, ringBuffer.toArray());
+        assertTrue(ringBuffer.contains(3));
+        assertFalse(ringBuffer.contains(0));
+
+        // weakly consistent: elements consumed before being reached are skipped, those added after creation are not returned
+        Iterator<Integer> iter = ringBuffer.iterator();
+
+        assertEquals(Integer.valueOf(1), iter.next());
+        assertEquals(Integer.valueOf(1), ringBuffer.poll());
+        assertEquals(Integer.valueOf(2), ringBuffer.poll());
+        assertEquals(Integer.valueOf(3), ringBuffer.poll());
+        assertTrue(ringBuffer.offer(5));
+        assertEquals(Integer.valueOf(2), iter.next()); // was reached by the previous next()
+        assertEquals(Integer.valueOf(4), iter.next());
+        assertFalse(iter.hasNext());
+    }
+
+    @Test
+    public void verifyMultipleProducers() throws Exception {
+        for (AuditRingBuffer.WaitStrategy waitStrategy : AuditRingBuffer.WaitStrategy.values()) {
+            final int                      producerCount = 4;
+            final int                      eventCount    = 20000;
+            final AuditRingBuffer<Integer> ringBuffer    = new AuditRingBuffer<>(64, waitStrategy);
+            final Thread[]                 producers     = new Thread[producerCount];
+
+            for (int i = 0; i < producerCount; i++) {
+                final int producerId = i;
+
+                producers[i] = new Thread(() -> {
+                    try {
+                        for (int j = 0; j < eventCount; j++) {
+                            ringBuffer.put(producerId * eventCount + j);
+                        }
+                    } catch (InterruptedException excp) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+
+                producers[i].start();
+            }
+
+            int[] lastSeen = new int[producerCount];
+
+            for (int i = 0; i < producerCount; i++) {
+                lastSeen[i] = -1;
+            }
+
+            for (int i = 0; i < producerCount * eventCount; i++) {
+                Integer value = ringBuffer.poll(10, TimeUnit.SECONDS);
+
+                assertTrue("timed out waiting for event #" + i + ", waitStrategy=" + waitStrategy, value != null);
+
+                int producerId = value / eventCount;
+                int sequence   = value % eventCount;
+
+                assertEquals("events of a producer must be received in order", lastSeen[producerId] + 1, sequence);
+
+                lastSeen[producerId] = sequence;
+            }
+
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            assertTrue(ringBuffer.isEmpty());
+        }
+    }
+
+    @Test
+    public void verifyBlockingPutAndTimeouts() throws Exception {
+        final AuditRingBuffer<Integer> ringBuffer = new AuditRingBuffer<>(1, AuditRingBuffer.WaitStrategy.BLOCKING);
+        final CountDownLatch           putDone    = new CountDownLatch(1);
+
+        assertNull(ringBuffer.poll(20, TimeUnit.MILLISECONDS));
+        assertTrue(ringBuffer.offer(1));
+        assertFalse(ringBuffer.offer(2, 20, TimeUnit.MILLISECONDS));
+
+        Thread producer = new Thread(() -> {
+            try {
+                ringBuffer.put(2);
+
+                putDone.countDown();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        producer.start();
+
+        assertFalse("put() must block when full", putDone.await(50, TimeUnit.MILLISECONDS));
+        assertEquals(Integer.valueOf(1), ringBuffer.take());
+        assertTrue(putDone.await(10, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(2), ringBuffer.take());
+
+        producer.join();
+    }
+
+    @Test
+    public void verifyTakeIsInterruptible() throws Exception {
+        final AuditRingBuffer<Integer>   ringBuffer = new AuditRingBuffer<>(8, AuditRingBuffer.WaitStrategy.BLOCKING);
+        final AtomicReference<Throwable> error      = new AtomicReference<>();
+
+        Thread consumer = new Thread(() -> {
+            try {
+                ringBuffer.take();
+            } catch (Throwable excp) {
+                error.set(excp);
+            }
+        });
+
+        consumer.start();
+        Thread.sleep(50);
+        consumer.interrupt();
+        consumer.join(10000);
+
+        assertFalse(consumer.isAlive());
+        assertTrue(error.get() instanceof InterruptedException);
+    }
+
+    @Test
+    public void verifyQueueConfiguration() {
+        Properties props = new Properties();
+
+        props.setProperty("xasecure.audit.destination.test.ringbuffer.wait.strategy", "yielding");
+        props.setProperty("xasecure.audit.destination.test.ringbuffer.full.policy", "drop");
+        props.setProperty("xasecure.audit.destination.test.ringbuffer.queue.size", "2");
+        props.setProperty("xasecure.audit.provider.async.queue.type", "ringbuffer");
+        props.setProperty("xasecure.audit.provider.async.queue.size", "2");
+
+        AuditRingBufferQueue ringBufferQueue = new AuditRingBufferQueue(null);
+
+        ringBufferQueue.init(props, "xasecure.audit.destination.test.ringbuffer");
+
+        assertEquals(AuditRingBuffer.WaitStrategy.YIELDING, ringBufferQueue.getWaitStrategy());
+        assertTrue(ringBufferQueue.isDropWhenFull());
+        assertTrue(ringBufferQueue.createQueue(ringBufferQueue.getMaxQueueSize()) instanceof AuditRingBuffer);
+
+        AuditAsyncQueue asyncQueue = new AuditAsyncQueue(null);
+
+        asyncQueue.init(props, "xasecure.audit.provider.async");
+
+        assertTrue(asyncQueue.queue instanceof AuditRingBuffer);
+        assertEquals(2, ((AuditRingBuffer<AuditEventBase>) asyncQueue.queue).getCapacity()); // at most queue.size
+
+        AuditEventBase event = new AuthzAuditEvent();
+
+        assertTrue(asyncQueue.log(event));
+        assertTrue(asyncQueue.log(event));
+        assertFalse("event must be dropped when the queue is full", asyncQueue.log(event));
+        assertEquals(2, asyncQueue.size());
+
+        // ring buffer is not sized as queue.size, which defaults to over a million events
+        props.remove("xasecure.audit.provider.async.queue.size");
+
+        asyncQueue = new AuditAsyncQueue(null);
+
+        asyncQueue.init(props, "xasecure.audit.provider.async");
+
+        assertEquals(AuditAsyncQueue.DEFAULT_RINGBUFFER_CAPACITY, ((AuditRingBuffer<AuditEventBase>) asyncQueue.queue).getCapacity());
+
+        props.setProperty("xasecure.audit.provider.async.ringbuffer.capacity", "1000");
+
+        asyncQueue = new AuditAsyncQueue(null);
+
+        asyncQueue.init(props, "xasecure.audit.provider.async");
+
+        assertEquals(1024, ((AuditRingBuffer<AuditEventBase>) asyncQueue.queue).getCapacity());
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AuditSummaryQueueTest {
+    private static final String PROP_PREFIX = "xasecure.audit.provider";
+
+    @Test
+    public void verifySummary() {
+        AuditHandler      consumer = createConsumer();
+        AuditSummaryQueue queue    = createQueue(consumer, 60000, 100, null);
+        AuthzAuditEvent   first    = createEvent("user1", "read", "/data/file1", 1000);
+
+        assertTrue(queue.log(first));
+        assertTrue(queue.log(createEvent("user1", "read", "/data/file1", 3500)));
+        assertTrue(queue.log(createEvent("user1", "read", "/data/file1", 2000)));
+        assertTrue(queue.log(createEvent("user2", "read", "/data/file1", 1000)));
+        assertTrue(queue.log(createEvent("user1", "write", "/data/file1", 1000)));
+
+        AuthzAuditEvent otherPolicy = createEvent("user1", "read", "/data/file1", 1000);
+
+        otherPolicy.setPolicyId(2);
+
+        assertTrue(queue.log(otherPolicy));
+        assertEquals(4, queue.getSummaryCount());
+
+        queue.sendSummaries(false); // windows have not ended
+
+        verify(consumer, never()).log(any(AuditEventBase.class));
+
+        queue.sendSummaries(true);
+
+        List<AuditEventBase> sent = getSentEvents(consumer, 4);
+
+        assertTrue(sent.contains(first));
+        assertEquals(3, first.getEventCount());
+        assertEquals(2500, first.getEventDurationMS());
+        assertEquals(0, queue.getSummaryCount());
+        assertTrue(queue.summaryMap.isEmpty());
+    }
+
+    @Test
+    public void verifyWindowPerAccessType() throws Exception {
+        AuditHandler      consumer = createConsumer();
+        AuditSummaryQueue queue    = createQueue(consumer, 60000, 100, "0");
+        AuthzAuditEvent   read     = createEvent("user1", "read", "/data/file1", 1000);
+        AuthzAuditEvent   write    = createEvent("user1", "write", "/data/file1", 1000);
+
+        queue.log(read);
+        queue.log(write);
+
+        Thread.sleep(5);
+
+        queue.sendSummaries(false);
+
+        assertSame(read, getSentEvents(consumer, 1).get(0));
+        assertEquals(1, read.getEventDurationMS());
+        assertEquals(1, queue.getSummaryCount());
+    }
+
+    @Test
+    public void verifyOverflow() {
+        AuditHandler      consumer = createConsumer();
+        AuditSummaryQueue queue    = createQueue(consumer, 60000, 2, null);
+
+        queue.log(createEvent("user1", "read", "/data/file1", 1000));
+        queue.log(createEvent("user1", "read", "/data/file2", 1000));
+
+        AuthzAuditEvent overflow = createEvent("user1", "read", "/data/file3", 1000);
+
+        assertTrue(queue.log(overflow));
+        assertTrue(queue.log(createEvent("user1", "read", "/data/file1", 1000))); // existing summary is updated
+
+        // overflow events are sent by the consumer thread, not by the caller
+        verify(consumer, never()).log(any(AuditEventBase.class));
+
+        queue.sendSummaries(false);
+
+        assertSame(overflow, getSentEvents(consumer, 1).get(0));
+        assertEquals(1, queue.getOverflowCount());
+        assertEquals(2, queue.getSummaryCount());
+
+        // up to summary.max.entries overflow events are queued; others are dropped
+        assertTrue(queue.log(createEvent("user1", "read", "/data/file4", 1000)));
+        assertTrue(queue.log(createEvent("user1", "read", "/data/file5", 1000)));
+        assertFalse(queue.log(createEvent("user1", "read", "/data/file6", 1000)));
+        assertEquals(4, queue.getOverflowCount());
+        assertEquals(1, queue.getTotalFailedCount());
+    }
+
+    @Test
+    public void verifyConcurrentLog() throws Exception {
+        final AuditHandler      consumer    = createConsumer();
+        final AuditSummaryQueue queue       = createQueue(consumer, 60000, 100, null);
+        final int               threadCount = 4;
+        final int               eventCount  = 10000;
+        final Thread[]          threads     = new Thread[threadCount];
+
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < eventCount; j++) {
+                    queue.log(createEvent("user" + (j % 2), "read", "/data/file1", j));
+                }
+            });
+
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        queue.sendSummaries(true);
+
+        long total = 0;
+
+        for (AuditEventBase event : getSentEvents(consumer, 2)) {
+            total += ((AuthzAuditEvent) event).getEventCount();
+        }
+
+        assertEquals(threadCount * eventCount, total);
+    }
+
+    @Test
+    public void verifySummariesSentOnStop() {
+        AuditHandler      consumer = createConsumer();
+        AuditSummaryQueue queue    = createQueue(consumer, 60000, 100, null);
+        AuthzAuditEvent   event    = createEvent("user1", "read", "/data/file1", 1000);
+
+        queue.start();
+        queue.log(event);
+        queue.log(createEvent("user1", "read", "/data/file1", 1000));
+        queue.stop();
+
+        verify(consumer, timeout(10000)).stop();
+        assertSame(event, getSentEvents(consumer, 1).get(0));
+        assertEquals(2, event.getEventCount());
+    }
+
+    private static AuditHandler createConsumer() {
+        AuditHandler ret = mock(AuditHandler.class);
+
+        when(ret.log(any(AuditEventBase.class))).thenReturn(true);
+
+        return ret;
+    }
+
+    private static AuditSummaryQueue createQueue(AuditHandler consumer, int intervalMs, int maxEntries, String readIntervalMs) {
+        Properties props = new Properties();
+
+        props.setProperty(PROP_PREFIX + "." + AuditSummaryQueue.PROP_SUMMARY_INTERVAL, Integer.toString(intervalMs));
+        props.setProperty(PROP_PREFIX + "." + AuditSummaryQueue.PROP_SUMMARY_MAX_ENTRIES, Integer.toString(maxEntries));
+
+        if (readIntervalMs != null) {
+            props.setProperty(PROP_PREFIX + "." + AuditSummaryQueue.PROP_SUMMARY_INTERVAL + ".read", readIntervalMs);
+        }
+
+        AuditSummaryQueue ret = new AuditSummaryQueue(consumer);
+
+        ret.init(props, PROP_PREFIX);
+
+        return ret;
+    }
+
+    private static AuthzAuditEvent createEvent(String user, String accessType, String resource, long eventTime) {
+        AuthzAuditEvent ret = new AuthzAuditEvent();
+
+        ret.setUser(user);
+        ret.setAccessType(accessType);
+        ret.setResourcePath(resource);
+        ret.setAccessResult((short) 1);
+        ret.setPolicyId(1);
+        ret.setEventTime(new Date(eventTime));
+
+        return ret;
+    }
+
+    private static List<AuditEventBase> getSentEvents(AuditHandler consumer, int expectedCount) {
+        ArgumentCaptor<AuditEventBase> captor = ArgumentCaptor.forClass(AuditEventBase.class);
+
+        verify(consumer, times(expectedCount)).log(captor.capture());
+
+        return captor.getAllValues();
+    }
+}
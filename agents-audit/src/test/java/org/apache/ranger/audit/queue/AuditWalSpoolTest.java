@@ -0,0 +1,355 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.utils.AuditEventJsonSerializer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AuditWalSpoolTest {
+    private static final String PROP_PREFIX = "xasecure.audit.destination.test.batch";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void verifyStashAndSend() throws Exception {
+        TestConsumer  consumer = new TestConsumer(0);
+        AuditWalSpool spool    = createSpool(consumer, 1024 * 1024, 1);
+        List<String>  expected = createEvents(spool, 25);
+
+        spool.start();
+
+        assertEquals(expected, consumer.waitForEvents(25));
+        assertEquals(3, consumer.batchCount.get()); // maxBatchSize is 10
+        waitForNotPending(spool);
+        assertEquals(1, getSegmentFiles().length);
+
+        spool.stop();
+    }
+
+    @Test
+    public void verifySegmentRollover() throws Exception {
+        TestConsumer  consumer = new TestConsumer(0);
+        AuditWalSpool spool    = createSpool(consumer, 1024, 1);
+
+        spool.start();
+
+        List<String> expected = createEvents(spool, 30);
+
+        assertEquals(expected, consumer.waitForEvents(30));
+        waitForNotPending(spool);
+        assertEquals(1, getSegmentFiles().length); // sent segments are deleted
+        assertTrue(AuditWalSpool.getSegment(spool.getWritePosition()) > 5);
+
+        spool.stop();
+    }
+
+    @Test
+    public void verifyDestinationDown() throws Exception {
+        TestConsumer  consumer = new TestConsumer(3);
+        AuditWalSpool spool    = createSpool(consumer, 1024, 1);
+        List<String>  expected = createEvents(spool, 15);
+
+        spool.start();
+
+        assertEquals(expected, consumer.waitForEvents(15));
+        waitForNotPending(spool);
+        assertTrue(spool.getLastAttemptTimeDelta() > 0);
+
+        spool.stop();
+    }
+
+    @Test
+    public void verifyParallelReplay() throws Exception {
+        AuditWalSpool spool1   = createSpool(new TestConsumer(0), 2048, 3);
+        List<String>  expected = createEvents(spool1, 50);
+
+        spool1.stop();
+
+        int segmentCount = getSegmentFiles().length;
+
+        assertTrue(segmentCount > 3);
+
+        TestConsumer  consumer = new TestConsumer(2);
+        AuditWalSpool spool2   = createSpool(consumer, 2048, 3);
+
+        assertEquals(segmentCount, spool2.recoverySegments.size());
+        assertTrue(spool2.isPending());
+
+        spool2.start();
+
+        assertEquals(new HashSet<>(expected), new HashSet<>(consumer.waitForEvents(50)));
+        waitForNotPending(spool2);
+        assertFalse(spool2.isRecovering());
+        assertEquals(0, getSegmentFiles().length);
+
+        spool2.stop();
+    }
+
+    @Test
+    public void verifyReplayCheckpoint() throws Exception {
+        AuditWalSpool spool1   = createSpool(new TestConsumer(0), 1024 * 1024, 1);
+        List<String>  expected = createEvents(spool1, 25);
+
+        spool1.stop();
+
+        File segmentFile = getSegmentFiles()[0];
+
+        // destination goes down after the first batch is replayed
+        TestConsumer  consumer2 = new TestConsumer(0, 1);
+        AuditWalSpool spool2    = createSpool(consumer2, 1024 * 1024, 1);
+
+        spool2.start();
+
+        assertEquals(expected.subList(0, 10), consumer2.waitForEvents(10));
+
+        spool2.stop();
+
+        File checkpointFile = new File(segmentFile.getPath() + ".checkpoint");
+
+        assertTrue(checkpointFile.exists());
+
+        // replay resumes after the batch sent
+        TestConsumer  consumer3 = new TestConsumer(0);
+        AuditWalSpool spool3    = createSpool(consumer3, 1024 * 1024, 1);
+
+        spool3.start();
+
+        assertEquals(expected.subList(10, 25), consumer3.waitForEvents(15));
+        waitForNotPending(spool3);
+        assertEquals(15, consumer3.getEvents().size());
+        assertFalse(segmentFile.exists());
+        assertFalse(checkpointFile.exists());
+
+        spool3.stop();
+    }
+
+    @Test
+    public void verifyCheckpoint() throws Exception {
+        TestConsumer  consumer1 = new TestConsumer(0);
+        AuditWalSpool spool1    = createSpool(consumer1, 1024 * 1024, 1);
+
+        spool1.start();
+
+        createEvents(spool1, 20);
+
+        consumer1.waitForEvents(20);
+        waitForNotPending(spool1);
+        spool1.stop();
+
+        // events already sent, as per the checkpoint, are not sent again
+        TestConsumer  consumer2 = new TestConsumer(0);
+        AuditWalSpool spool2    = createSpool(consumer2, 1024 * 1024, 1);
+
+        assertEquals(spool1.getReadPosition(), spool2.checkpointPosition);
+
+        spool2.start();
+
+        AuthzAuditEvent event = createEvent(100);
+
+        spool2.stashLogs(event);
+
+        assertEquals(Collections.singletonList(AuditEventJsonSerializer.toJson(event)), consumer2.waitForEvents(1));
+        waitForNotPending(spool2);
+        assertEquals(1, getSegmentFiles().length);
+
+        spool2.stop();
+    }
+
+    @Test
+    public void verifyCorruptRecord() throws Exception {
+        AuditWalSpool spool1   = createSpool(new TestConsumer(0), 1024 * 1024, 1);
+        List<String>  expected = createEvents(spool1, 3);
+
+        spool1.stop();
+
+        File[] segmentFiles = getSegmentFiles();
+
+        assertEquals(1, segmentFiles.length);
+
+        // corrupt the payload of the second record
+        try (RandomAccessFile file = new RandomAccessFile(segmentFiles[0], "rw")) {
+            long offset = AuditWalSpool.RECORD_HEADER_SIZE + file.readInt() + AuditWalSpool.RECORD_HEADER_SIZE + 10;
+
+            file.seek(offset);
+            file.writeByte(file.readByte() ^ 0x01);
+        }
+
+        TestConsumer  consumer = new TestConsumer(0);
+        AuditWalSpool spool2   = createSpool(consumer, 1024 * 1024, 1);
+
+        spool2.start();
+
+        assertEquals(expected.subList(0, 1), consumer.waitForEvents(1));
+        waitForNotPending(spool2);
+        assertEquals(1, consumer.getEvents().size());
+
+        spool2.stop();
+    }
+
+    @Test
+    public void verifyFileSpoolType() {
+        AuditBatchQueue queue = new AuditBatchQueue(new TestConsumer(0).handler);
+        Properties      props = createProperties(1024 * 1024, 1);
+
+        props.setProperty(PROP_PREFIX + "." + AuditQueue.PROP_FILE_SPOOL_TYPE, AuditWalSpool.SPOOL_TYPE);
+
+        queue.init(props, PROP_PREFIX);
+
+        assertTrue(queue.fileSpoolerEnabled);
+        assertTrue(queue.fileSpooler instanceof AuditWalSpool);
+    }
+
+    private AuditWalSpool createSpool(TestConsumer consumer, int segmentSize, int replayThreads) {
+        AuditQueue queue = mock(AuditQueue.class);
+
+        when(queue.getName()).thenReturn("batch");
+        when(queue.getMaxBatchSize()).thenReturn(10);
+
+        AuditWalSpool ret = new AuditWalSpool(queue, consumer.handler);
+
+        assertTrue(ret.init(createProperties(segmentSize, replayThreads), PROP_PREFIX));
+
+        return ret;
+    }
+
+    private Properties createProperties(int segmentSize, int replayThreads) {
+        Properties props = new Properties();
+
+        props.setProperty(PROP_PREFIX + "." + AuditFileSpool.PROP_FILE_SPOOL_LOCAL_DIR, folder.getRoot().getPath());
+        props.setProperty(PROP_PREFIX + "." + AuditFileSpool.PROP_FILE_SPOOL_DEST_RETRY_MS, "10");
+        props.setProperty(PROP_PREFIX + "." + AuditWalSpool.PROP_FILE_SPOOL_WAL_SEGMENT_SIZE, Integer.toString(segmentSize));
+        props.setProperty(PROP_PREFIX + "." + AuditWalSpool.PROP_FILE_SPOOL_WAL_REPLAY_THREADS, Integer.toString(replayThreads));
+
+        return props;
+    }
+
+    private File[] getSegmentFiles() {
+        return folder.getRoot().listFiles(file -> file.getName().endsWith(".wal"));
+    }
+
+    private static List<String> createEvents(AuditWalSpool spool, int count) {
+        List<AuditEventBase> events = new ArrayList<>();
+        List<String>         ret    = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            AuthzAuditEvent event = createEvent(i);
+
+            events.add(event);
+            ret.add(AuditEventJsonSerializer.toJson(event));
+        }
+
+        spool.stashLogs(events);
+
+        return ret;
+    }
+
+    private static AuthzAuditEvent createEvent(int id) {
+        AuthzAuditEvent ret = new AuthzAuditEvent();
+
+        ret.setEventId("event-" + id);
+        ret.setUser("user" + id);
+        ret.setAccessType("read");
+        ret.setResourcePath("/data/file" + id);
+        ret.setEventTime(new Date(1000L + id));
+
+        return ret;
+    }
+
+    private static void waitForNotPending(AuditWalSpool spool) throws InterruptedException {
+        for (int i = 0; i < 1000 && spool.isPending(); i++) {
+            Thread.sleep(10);
+        }
+
+        assertFalse(spool.isPending());
+    }
+
+    private static class TestConsumer {
+        final AuditHandler  handler    = mock(AuditHandler.class);
+        final List<String>  events     = new ArrayList<>();
+        final AtomicInteger batchCount = new AtomicInteger();
+        final AtomicInteger failCount;
+        final int           maxBatchCount;
+
+        TestConsumer(int failCount) {
+            this(failCount, Integer.MAX_VALUE);
+        }
+
+        // batches after maxBatchCount fail, as when the destination goes down
+        TestConsumer(int failCount, int maxBatchCount) {
+            this.failCount     = new AtomicInteger(failCount);
+            this.maxBatchCount = maxBatchCount;
+
+            when(handler.getName()).thenReturn("test");
+            when(handler.logJSON(anyCollection())).thenAnswer(invocation -> {
+                if (this.failCount.getAndDecrement() > 0 || batchCount.get() >= this.maxBatchCount) {
+                    return false;
+                }
+
+                Collection<String> batch = invocation.getArgument(0);
+
+                synchronized (events) {
+                    events.addAll(batch);
+                }
+
+                batchCount.incrementAndGet();
+
+                return true;
+            });
+        }
+
+        List<String> getEvents() {
+            synchronized (events) {
+                return new ArrayList<>(events);
+            }
+        }
+
+        List<String> waitForEvents(int count) throws InterruptedException {
+            for (int i = 0; i < 1000 && getEvents().size() < count; i++) {
+                Thread.sleep(10);
+            }
+
+            return getEvents();
+        }
+    }
+}
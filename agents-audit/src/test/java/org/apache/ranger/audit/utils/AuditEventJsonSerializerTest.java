@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AuditEventJsonSerializerTest {
+    private static final String FULL_EVENT_JSON = "{\"repoType\":1,\"repo\":\"dev_hive\",\"reqUser\":%s,\"evtTime\":%s,\"access\":\"select\",\"resource\":%s,"
+            + "\"resType\":\"@column\",\"action\":\"QUERY\",\"result\":1,\"agent\":\"hiveServer2\",\"policy\":%s,\"reason\":\"reason\",\"enforcer\":\"ranger-acl\","
+            + "\"sess\":\"sess-1\",\"cliType\":\"HIVESERVER2\",\"cliIP\":\"10.0.0.1\",\"reqData\":\"select * from tbl1\",\"agentHost\":\"host1\",\"logType\":\"RangerAudit\","
+            + "\"id\":\"event-1\",\"seq_num\":9223372036854775807,\"event_count\":3,\"event_dur_ms\":-1,\"tags\":%s,\"datasets\":[],\"projects\":[\"project1\",null],"
+            + "\"additional_info\":\"{\\\"remote-ip-address\\\":\\\"10.0.0.2\\\"}\",\"cluster_name\":\"cl1\",\"zone_name\":\"zone1\",\"policy_version\":%s}";
+
+    private static final String EMPTY_EVENT_JSON = "{\"repoType\":0,\"repo\":null,\"reqUser\":null,\"evtTime\":%s,\"access\":null,\"resource\":null,\"resType\":null,"
+            + "\"action\":null,\"result\":0,\"agent\":null,\"policy\":0,\"reason\":null,\"enforcer\":null,\"sess\":null,\"cliType\":null,\"cliIP\":null,\"reqData\":%s,"
+            + "\"agentHost\":null,\"logType\":null,\"id\":null,\"seq_num\":0,\"event_count\":1,\"event_dur_ms\":0,\"tags\":[],\"datasets\":null,\"projects\":null,"
+            + "\"additional_info\":null,\"cluster_name\":null,\"zone_name\":null,\"policy_version\":null}";
+
+    // output is compared with MiscUtil.getMapper().writeValueAsString(event), i.e. ObjectMapper serialization
+    @Test
+    public void verifyJson() throws Exception {
+        AuthzAuditEvent event = new AuthzAuditEvent(1, "dev_hive", "user1", new Date(1700000000123L), "select", "db1/tbl1/col1", "@column", "QUERY", (short) 1,
+                "hiveServer2", 42L, "reason", "ranger-acl", "sess-1", "HIVESERVER2", "10.0.0.1", "select * from tbl1", "cl1", "zone1", 7L);
+
+        event.setAgentHostname("host1");
+        event.setLogType("RangerAudit");
+        event.setEventId("event-1");
+        event.setSeqNum(Long.MAX_VALUE);
+        event.setEventCount(3);
+        event.setEventDurationMS(-1);
+        event.setTags(new LinkedHashSet<>(Arrays.asList("PII", "EXPIRES_ON")));
+        event.setDatasets(new LinkedHashSet<>());
+        event.setProjects(new LinkedHashSet<>(Arrays.asList("project1", null)));
+        event.setAdditionalInfo("{\"remote-ip-address\":\"10.0.0.2\"}");
+
+        verifyJson(String.format(FULL_EVENT_JSON, "\"user1\"", formatDate(event.getEventTime()), "\"db1/tbl1/col1\"", "42", "[\"PII\",\"EXPIRES_ON\"]", "7"), event);
+
+        // escapes, control characters and multi-byte characters
+        event.setUser("\"quoted\" back\\slash \b\t\n\f\r \u0001\u001f\u007f");
+        event.setResourcePath("caf\u00e9/\u65e5\u672c/\ud83d\ude00/ </script>");
+        event.setEventTime(new Date(-1L)); // before epoch
+
+        String user     = "\"\\\"quoted\\\" back\\\\slash \\b\\t\\n\\f\\r \\u0001\\u001F\u007f\"";
+        String resource = "\"caf\u00e9/\u65e5\u672c/\ud83d\ude00/ </script>\"";
+
+        verifyJson(String.format(FULL_EVENT_JSON, user, formatDate(event.getEventTime()), resource, "42", "[\"PII\",\"EXPIRES_ON\"]", "7"), event);
+
+        event.setEventTime(null);
+        event.setTags(null);
+        event.setPolicyVersion(null);
+        event.setPolicyId(Long.MIN_VALUE);
+
+        verifyJson(String.format(FULL_EVENT_JSON, user, "null", resource, "-9223372036854775808", "null", "null"), event);
+    }
+
+    @Test
+    public void verifyLargeEvent() throws Exception {
+        AuthzAuditEvent event       = new AuthzAuditEvent();
+        String          requestData = StringUtils.repeat("select \u00e9 ", 20000); // larger than the retained buffer
+
+        event.setRequestData(requestData);
+
+        verifyJson(String.format(EMPTY_EVENT_JSON, formatDate(event.getEventTime()), "\"" + requestData + "\""), event);
+
+        event.setRequestData("small");
+
+        verifyJson(String.format(EMPTY_EVENT_JSON, formatDate(event.getEventTime()), "\"small\""), event);
+    }
+
+    @Test
+    public void verifyWriteTo() throws Exception {
+        AuthzAuditEvent       event = new AuthzAuditEvent();
+        ByteArrayOutputStream out   = new ByteArrayOutputStream();
+
+        event.setRequestData("us\u00e9r");
+
+        AuditEventJsonSerializer serializer = AuditEventJsonSerializer.get().serialize(event);
+
+        serializer.writeTo(out);
+
+        assertEquals(serializer.size(), out.size());
+        assertEquals(String.format(EMPTY_EVENT_JSON, formatDate(event.getEventTime()), "\"us\u00e9r\""), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void verifyIsSupported() {
+        assertTrue(AuditEventJsonSerializer.isSupported(new AuthzAuditEvent()));
+        assertFalse(AuditEventJsonSerializer.isSupported(null));
+        assertFalse(AuditEventJsonSerializer.isSupported("event"));
+        assertFalse(AuditEventJsonSerializer.isSupported(new AuthzAuditEvent() {}));
+    }
+
+    private static String formatDate(Date date) {
+        return "\"" + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(date) + "\"";
+    }
+
+    private static void verifyJson(String expected, AuthzAuditEvent event) throws Exception {
+        assertEquals(expected, AuditEventJsonSerializer.toJson(event));
+        assertEquals(MiscUtil.getMapper().writeValueAsString(event), AuditEventJsonSerializer.toJson(event));
+        assertEquals(expected, MiscUtil.stringify(event));
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.column.Encoding;
+import org.apache.parquet.column.values.bloomfilter.BloomFilter;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.io.api.Binary;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.AuditWriterFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class RangerParquetAuditWriterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void verifyWriteAndRead() throws Exception {
+        RangerParquetAuditWriter writer = createWriter(new Properties());
+        List<AuthzAuditEvent>    events = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            events.add(createEvent(i));
+        }
+
+        assertTrue(writer.logAuditEvents(events.subList(0, 50)));
+        assertTrue(writer.logAuditEvents(events.subList(50, 100))); // written to the same file
+
+        String fileName = writer.currentFileName;
+
+        writer.stop();
+
+        List<File> files = getParquetFiles();
+
+        assertEquals(1, files.size());
+        assertTrue(fileName, fileName.contains("/dt=")); // partitioned by date
+
+        Path path = new Path(files.get(0).getPath());
+
+        try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(path, new Configuration()))) {
+            ParquetMetadata footer = reader.getFooter();
+
+            assertEquals(100, reader.getRecordCount());
+            assertEquals(RangerParquetAuditWriter.AUDIT_SCHEMA, footer.getFileMetaData().getSchema());
+
+            for (BlockMetaData block : footer.getBlocks()) {
+                for (ColumnChunkMetaData column : block.getColumns()) {
+                    String name = column.getPath().toDotString();
+
+                    assertEquals(CompressionCodecName.SNAPPY, column.getCodec());
+
+                    if (name.equals("reqUser") || name.equals("result")) {
+                        assertTrue(name, column.getEncodings().contains(Encoding.PLAIN_DICTIONARY));
+                        assertFalse(name, column.getStatistics().isEmpty()); // min/max, for predicate pushdown
+                    }
+                }
+            }
+        }
+
+        try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), path).build()) {
+            for (int i = 0; i < 100; i++) {
+                Group record = reader.read();
+
+                assertEquals("user" + (i % 5), record.getString("reqUser", 0));
+                assertEquals("/data/file" + i, record.getString("resource", 0));
+                assertEquals(i % 2, record.getInteger("result", 0));
+                assertEquals(1700000000000L + i, record.getLong("evtTime", 0));
+                assertEquals(i, record.getLong("policy", 0));
+                assertEquals(2, record.getGroup("tags", 0).getFieldRepetitionCount("list"));
+                assertEquals("PII", record.getGroup("tags", 0).getGroup("list", 0).getString("element", 0));
+                assertEquals(0, record.getFieldRepetitionCount("reqData")); // null
+                assertEquals(0, record.getFieldRepetitionCount("policy_version"));
+            }
+
+            assertEquals(null, reader.read());
+        }
+    }
+
+    @Test
+    public void verifyMaxRowsPerFile() throws Exception {
+        Properties props = new Properties();
+
+        props.setProperty("test." + RangerParquetAuditWriter.PROP_PARQUET_FILE_MAX_ROWS, "10");
+        props.setProperty("test." + RangerParquetAuditWriter.PROP_PARQUET_COMPRESSION, "gzip");
+
+        RangerParquetAuditWriter writer = createWriter(props);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(writer.logAuditEvents(Collections.nCopies(10, createEvent(i))));
+        }
+
+        String fileName = writer.currentFileName;
+
+        writer.stop();
+
+        List<File> files = getParquetFiles();
+
+        assertEquals(3, files.size());
+
+        for (File file : files) {
+            try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(new Path(file.getPath()), new Configuration()))) {
+                assertEquals(10, reader.getRecordCount());
+            }
+        }
+
+        assertTrue(fileName, fileName.endsWith(RangerParquetAuditWriter.PARQUET_FILE_EXTENSION));
+        assertEquals(CompressionCodecName.GZIP, writer.compressionCodec);
+    }
+
+    @Test
+    public void verifyBloomFilter() throws Exception {
+        Properties props = new Properties();
+
+        props.setProperty("test." + RangerParquetAuditWriter.PROP_PARQUET_DICTIONARY_ENABLED, "false");
+
+        RangerParquetAuditWriter writer = createWriter(props);
+        List<AuthzAuditEvent>    events = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            events.add(createEvent(i));
+        }
+
+        assertTrue(writer.logAuditEvents(events));
+
+        writer.stop();
+
+        Path path = new Path(getParquetFiles().get(0).getPath());
+
+        try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(path, new Configuration()))) {
+            BlockMetaData block = reader.getFooter().getBlocks().get(0);
+
+            for (ColumnChunkMetaData column : block.getColumns()) {
+                String      name        = column.getPath().toDotString();
+                BloomFilter bloomFilter = reader.readBloomFilter(column);
+
+                assertEquals(name, name.equals("reqUser") || name.equals("resource"), bloomFilter != null);
+
+                if (bloomFilter != null) {
+                    assertTrue(bloomFilter.findHash(bloomFilter.hash(Binary.fromString(name.equals("reqUser") ? "user3" : "/data/file42"))));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void verifyDefaultWriter() {
+        assertEquals(RangerParquetAuditWriter.class.getName(), AuditWriterFactory.getInstance().getDefaultWriter("parquet"));
+    }
+
+    private RangerParquetAuditWriter createWriter(Properties props) {
+        Map<String, String>      auditConfigs = new HashMap<>();
+        RangerParquetAuditWriter ret          = new RangerParquetAuditWriter();
+
+        props.setProperty("test." + AbstractRangerAuditWriter.PROP_FILESYSTEM_DIR, folder.getRoot().toURI().toString());
+
+        auditConfigs.put(FileSystem.FS_DEFAULT_NAME_KEY, FileSystem.DEFAULT_FS);
+        auditConfigs.put("fs.file.impl", "org.apache.hadoop.fs.RawLocalFileSystem");
+
+        ret.init(props, "test", "localfs", auditConfigs);
+
+        assertNotNull(ret.nextRollOverTime);
+
+        return ret;
+    }
+
+    private List<File> getParquetFiles() {
+        List<File> ret = new ArrayList<>();
+
+        collectParquetFiles(folder.getRoot(), ret);
+
+        return ret;
+    }
+
+    private static void collectParquetFiles(File dir, List<File> files) {
+        File[] children = dir.listFiles();
+
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    collectParquetFiles(child, files);
+                } else if (child.getName().endsWith(".parquet")) {
+                    files.add(child);
+                }
+            }
+        }
+    }
+
+    private static AuthzAuditEvent createEvent(int id) {
+        AuthzAuditEvent ret = new AuthzAuditEvent();
+
+        ret.setRepositoryName("dev_hdfs");
+        ret.setUser("user" + (id % 5));
+        ret.setAccessType("read");
+        ret.setResourcePath("/data/file" + id);
+        ret.setAccessResult((short) (id % 2));
+        ret.setPolicyId(id);
+        ret.setEventTime(new Date(1700000000000L + id));
+        ret.setTags(new LinkedHashSet<>(Arrays.asList("PII", "GDPR")));
+
+        return ret;
+    }
+}
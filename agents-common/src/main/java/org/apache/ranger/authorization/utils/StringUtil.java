@@ -504,6 +504,53 @@ public static String dedupString(String str, Map<String, String> strTbl) {
         return ret == null ? str : ret;
     }
 
+    /**
+     * @return unmodifiable list equal to the given list, shared with other lists having the same strings in the same order;
+     *         model objects replace such a list with a copy before adding to it
+     */
+    public static List<String> compactStringsList(List<String> value, Map<List<String>, List<String>> listTbl) {
+        final List<String> ret;
+
+        if (value == null) {
+            ret = null;
+        } else if (value.isEmpty()) {
+            ret = Collections.emptyList();
+        } else {
+            List<String> existing = listTbl.get(value);
+
+            if (existing == null) {
+                existing = Collections.unmodifiableList(new ArrayList<>(value));
+
+                listTbl.put(existing, existing);
+            }
+
+            ret = existing;
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return list with the same elements, without unused capacity; unlike compactStringsList(), the list is not shared
+     */
+    public static <T> List<T> compactList(List<T> value) {
+        final List<T> ret;
+
+        if (value == null) {
+            ret = null;
+        } else if (value.isEmpty()) {
+            ret = Collections.emptyList();
+        } else if (value instanceof ArrayList) {
+            ((ArrayList<T>) value).trimToSize();
+
+            ret = value;
+        } else {
+            ret = value;
+        }
+
+        return ret;
+    }
+
     public static String compressString(String input) throws IOException {
         final String ret;
 
@@ -24,22 +24,34 @@
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerRequestScriptEvaluator;
+import org.apache.ranger.plugin.policyengine.RangerRequestScriptExpression;
 import org.apache.ranger.plugin.util.ScriptEngineUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.script.Bindings;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 
 import java.util.List;
 import java.util.Map;
 
 import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_OPTION_ENABLE_JSON_CTX;
+import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_OPTION_ENABLE_NATIVE_EVAL;
+import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_OPTION_REUSE_BINDINGS;
 
 public class RangerScriptConditionEvaluator extends RangerAbstractConditionEvaluator {
     private static final Logger LOG = LoggerFactory.getLogger(RangerScriptConditionEvaluator.class);
 
-    private ScriptEngine scriptEngine;
-    private Boolean      enableJsonCtx;
+    private          String                        engineName;
+    private          Boolean                       enableJsonCtx;
+    private          boolean                       enableNativeEval = true;
+    private          boolean                       reuseBindings;
+    private          RangerRequestScriptExpression expression;
+    private          ScriptEngine                  scriptEngine;
+    private          CompiledScript                compiledScript;
+    private          ThreadLocal<Bindings>         threadBindings;
+    private volatile boolean                       scriptInitDone;
 
     @Override
     public void init() {
@@ -47,17 +59,23 @@ public void init() {
 
         super.init();
 
-        String              engineName  = "JavaScript";
         Map<String, String> evalOptions = conditionDef.getEvaluatorOptions();
 
         if (MapUtils.isNotEmpty(evalOptions)) {
             engineName = evalOptions.get("engineName");
 
-            String strEnableJsonCtx = evalOptions.get(SCRIPT_OPTION_ENABLE_JSON_CTX);
+            String strEnableJsonCtx    = evalOptions.get(SCRIPT_OPTION_ENABLE_JSON_CTX);
+            String strEnableNativeEval = evalOptions.get(SCRIPT_OPTION_ENABLE_NATIVE_EVAL);
 
             if (StringUtils.isNotEmpty(strEnableJsonCtx)) {
                 enableJsonCtx = Boolean.parseBoolean(strEnableJsonCtx);
             }
+
+            if (StringUtils.isNotEmpty(strEnableNativeEval)) {
+                enableNativeEval = Boolean.parseBoolean(strEnableNativeEval);
+            }
+
+            reuseBindings = Boolean.parseBoolean(evalOptions.get(SCRIPT_OPTION_REUSE_BINDINGS));
         }
 
         if (StringUtils.isBlank(engineName)) {
@@ -66,16 +84,6 @@ public void init() {
 
         LOG.debug("RangerScriptConditionEvaluator.init() - engineName={}", engineName);
 
-        scriptEngine = ScriptEngineUtil.createScriptEngine(serviceDef.getName());
-
-        if (scriptEngine == null) {
-            String conditionType = condition != null ? condition.getType() : null;
-
-            LOG.error("failed to initialize condition '{}': script engine '{}' was not created", conditionType, engineName);
-        } else {
-            LOG.info("ScriptEngine for engineName=[{}] is successfully created", engineName);
-        }
-
         LOG.debug("<== RangerScriptConditionEvaluator.init({})", condition);
     }
 
@@ -84,31 +92,41 @@ public boolean isMatched(RangerAccessRequest request) {
         LOG.debug("==> RangerScriptConditionEvaluator.isMatched()");
 
         boolean result = true;
+        String  script = getScript();
 
-        if (scriptEngine != null) {
-            String script = getScript();
+        if (StringUtils.isNotBlank(script)) {
+            LOG.debug("RangerScriptConditionEvaluator.isMatched(): script={{}}", script);
 
-            if (StringUtils.isNotBlank(script)) {
-                LOG.debug("RangerScriptConditionEvaluator.isMatched(): script={{}}", script);
+            if (!scriptInitDone) {
+                initScript(script);
+            }
 
-                if (enableJsonCtx == null) { // if not specified in evaluatorOptions, set it on first call to isMatched()
-                    enableJsonCtx = RangerRequestScriptEvaluator.needsJsonCtxEnabled(script);
-                }
+            if (expression != null) {
+                RangerRequestScriptEvaluator evaluator = new RangerRequestScriptEvaluator(request);
 
-                RangerRequestScriptEvaluator evaluator = new RangerRequestScriptEvaluator(request, scriptEngine, enableJsonCtx);
+                evaluator.evaluateConditionScript(expression);
 
-                evaluator.evaluateConditionScript(script);
+                result = evaluator.getResult();
+            } else if (scriptEngine != null) {
+                Bindings                     bindings  = threadBindings != null ? threadBindings.get() : null;
+                RangerRequestScriptEvaluator evaluator = new RangerRequestScriptEvaluator(request, scriptEngine, enableJsonCtx, bindings);
+
+                if (compiledScript != null) {
+                    evaluator.evaluateConditionScript(compiledScript);
+                } else {
+                    evaluator.evaluateConditionScript(script);
+                }
 
                 result = evaluator.getResult();
             } else {
                 String conditionType = condition != null ? condition.getType() : null;
 
-                LOG.error("failed to evaluate condition '{}': script is empty", conditionType);
+                LOG.error("failed to evaluate condition '{}': script engine not found", conditionType);
             }
         } else {
             String conditionType = condition != null ? condition.getType() : null;
 
-            LOG.error("failed to evaluate condition '{}': script engine not found", conditionType);
+            LOG.error("failed to evaluate condition '{}': script is empty", conditionType);
         }
 
         LOG.debug("<== RangerScriptConditionEvaluator.isMatched(), result={}", result);
@@ -116,6 +134,44 @@ public boolean isMatched(RangerAccessRequest request) {
         return result;
     }
 
+    /*
+     * called on first evaluation, as getScript() of subclasses returns null until their init() completes.
+     * A script engine is created only when the script is not supported by RangerRequestScriptExpression.
+     */
+    private synchronized void initScript(String script) {
+        if (!scriptInitDone) {
+            if (enableJsonCtx == null) { // if not specified in evaluatorOptions, set it based on the script
+                enableJsonCtx = RangerRequestScriptEvaluator.needsJsonCtxEnabled(script);
+            }
+
+            if (enableNativeEval) {
+                expression = RangerRequestScriptExpression.compile(script, enableJsonCtx);
+            }
+
+            if (expression == null) {
+                scriptEngine = ScriptEngineUtil.createScriptEngine(serviceDef.getName());
+
+                if (scriptEngine == null) {
+                    String conditionType = condition != null ? condition.getType() : null;
+
+                    LOG.error("failed to initialize condition '{}': script engine '{}' was not created", conditionType, engineName);
+                } else {
+                    LOG.info("ScriptEngine for engineName=[{}] is successfully created", engineName);
+
+                    compiledScript = RangerRequestScriptEvaluator.compileScript(scriptEngine, script, enableJsonCtx);
+
+                    if (reuseBindings) {
+                        threadBindings = ThreadLocal.withInitial(scriptEngine::createBindings);
+                    }
+                }
+            }
+
+            LOG.debug("RangerScriptConditionEvaluator.initScript(): script={{}}, native={}, compiled={}", script, expression != null, compiledScript != null);
+
+            scriptInitDone = true;
+        }
+    }
+
     protected String getScript() {
         String       ret    = null;
         List<String> values = condition.getValues();
@@ -211,6 +211,18 @@ public int getIntConfig(String configName, int defaultValue) {
         return ret;
     }
 
+    public long getLongConfig(String configName, long defaultValue) {
+        RangerPluginContext pluginContext = this.pluginContext;
+        long                ret           = defaultValue;
+        Configuration       config        = pluginContext != null ? pluginContext.getConfig() : null;
+
+        if (config != null) {
+            ret = config.getLong(configName, defaultValue);
+        }
+
+        return ret;
+    }
+
     public boolean getBooleanConfig(String configName, boolean defaultValue) {
         RangerPluginContext pluginContext = this.pluginContext;
         boolean             ret           = defaultValue;
@@ -90,6 +90,17 @@ public void init() {
         LOG.debug("<== RangerAbstractGeolocationProvider.init()");
     }
 
+    @Override
+    public boolean preCleanup() {
+        GeolocationStore store = this.store;
+
+        if (store != null) {
+            store.cleanup();
+        }
+
+        return super.preCleanup();
+    }
+
     @Override
     public void enrich(RangerAccessRequest request) {
         LOG.debug("==> RangerAbstractGeolocationProvider.enrich({})", request);
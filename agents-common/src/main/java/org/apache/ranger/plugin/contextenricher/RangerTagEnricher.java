@@ -23,7 +23,6 @@
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
-import org.apache.ranger.authorization.utils.JsonUtils;
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
 import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
@@ -44,7 +43,9 @@
 import org.apache.ranger.plugin.util.DownloadTrigger;
 import org.apache.ranger.plugin.util.DownloaderTask;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerCacheFileUtil;
 import org.apache.ranger.plugin.util.RangerCommonConstants;
+import org.apache.ranger.plugin.util.RangerMetricsUtil;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerReadWriteLock;
 import org.apache.ranger.plugin.util.RangerServiceNotFoundException;
@@ -54,16 +55,13 @@
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.Reader;
-import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -71,6 +69,9 @@
 import java.util.Timer;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 public class RangerTagEnricher extends RangerAbstractContextEnricher {
     private static final Logger LOG                            = LoggerFactory.getLogger(RangerTagEnricher.class);
@@ -84,13 +85,17 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 
     private final BlockingQueue<DownloadTrigger> tagDownloadQueue = new LinkedBlockingQueue<>();
     private final RangerReadWriteLock            lock             = new RangerReadWriteLock(false);
-    private final CachedResourceEvaluators       cache            = new CachedResourceEvaluators();
+    private final TagDeltaMetrics                deltaMetrics     = new TagDeltaMetrics();
+    private       CachedResourceEvaluators       cache            = new CachedResourceEvaluators();
+    private       Supplier<Map<String, Object>>  cacheMetricsSource;
     private       RangerTagRefresher             tagRefresher;
     private       RangerTagRetriever             tagRetriever;
     private       boolean                        disableTrieLookupPrefilter;
     private       EnrichedServiceTags            enrichedServiceTags;
     private       boolean                        disableCacheIfServiceNotFound = true;
+    private       boolean                        useBinaryCache;
     private       boolean                        dedupStrings                  = true;
+    private       boolean                        isCopyOnWriteTagUpdates;
     private       Timer                          tagDownloadTimer;
     private       RangerServiceDefHelper         serviceDefHelper;
 
@@ -154,6 +159,14 @@ public void init() {
         dedupStrings               = getBooleanConfig(propertyPrefix + ".dedup.strings", true);
         disableTrieLookupPrefilter = getBooleanOption(TAG_DISABLE_TRIE_PREFILTER_OPTION, false);
         serviceDefHelper           = new RangerServiceDefHelper(serviceDef, false);
+        isCopyOnWriteTagUpdates    = getBooleanConfig(propertyPrefix + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_COPY_ON_WRITE_TAGS, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_COPY_ON_WRITE_TAGS_DEFAULT);
+        cache                      = new CachedResourceEvaluators(getIntConfig(propertyPrefix + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_TAG_CACHE_MAX_ENTRIES, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_TAG_CACHE_MAX_ENTRIES_DEFAULT),
+                                                                  getLongConfig(propertyPrefix + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_TAG_CACHE_MAX_MEMORY, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_TAG_CACHE_MAX_MEMORY_DEFAULT),
+                                                                  getIntConfig(propertyPrefix + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_TAG_CACHE_MIN_FREQUENCY, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_TAG_CACHE_MIN_FREQUENCY_DEFAULT));
+
+        cacheMetricsSource         = cache::getMetricsValues;
+
+        RangerMetricsUtil.registerMetricsSource(getMetricsSourceName(), cacheMetricsSource);
 
         if (StringUtils.isNotBlank(tagRetrieverClassName)) {
             try {
@@ -173,6 +186,7 @@ public void init() {
 
             if (tagRetriever != null) {
                 disableCacheIfServiceNotFound = getBooleanConfig(propertyPrefix + ".disable.cache.if.servicenotfound", true);
+                useBinaryCache                = getBooleanConfig(propertyPrefix + RangerCacheFileUtil.PROP_SUFFIX_CACHE_BINARY_FORMAT, false);
 
                 String cacheDir      = getConfig(propertyPrefix + ".policy.cache.dir", null);
                 String cacheFilename = String.format("%s_%s_tag.json", appId, serviceName);
@@ -270,6 +284,10 @@ public boolean preCleanup() {
 
         super.preCleanup();
 
+        if (cacheMetricsSource != null) {
+            RangerMetricsUtil.unregisterMetricsSource(getMetricsSourceName(), cacheMetricsSource);
+        }
+
         Timer tagDownloadTimer = this.tagDownloadTimer;
 
         this.tagDownloadTimer = null;
@@ -324,11 +342,20 @@ public EnrichedServiceTags getEnrichedServiceTags() {
         return enrichedServiceTags;
     }
 
+    public TagDeltaMetrics getTagDeltaMetrics() {
+        return deltaMetrics;
+    }
+
+    public CachedResourceEvaluators.CacheMetrics getEvaluatorsCacheMetrics() {
+        return cache.getMetrics();
+    }
+
     protected void setServiceTags(final ServiceTags serviceTags, final boolean rebuildOnlyIndex) {
         LOG.debug("==> RangerTagEnricher.setServiceTags(serviceTags={}, rebuildOnlyIndex={})", serviceTags, rebuildOnlyIndex);
 
         final EnrichedServiceTags localEnrichedServiceTags;
         final Set<String>         keysToRemoveFromCache = new HashSet<>();
+        final long                startTimeNanos        = System.nanoTime();
 
         try (RangerReadWriteLock.RangerLock writeLock = this.lock.getWriteLock()) {
             if (writeLock.isLockingEnabled()) {
@@ -375,7 +402,7 @@ protected void setServiceTags(final ServiceTags serviceTags, final boolean rebui
                             if (enrichedServiceTags == null) {
                                 trieMap = new HashMap<>();
                             } else {
-                                trieMap = writeLock.isLockingEnabled() ? enrichedServiceTags.getServiceResourceTrie() : copyServiceResourceTrie();
+                                trieMap = writeLock.isLockingEnabled() ? enrichedServiceTags.getServiceResourceTrie() : copyServiceResourceTrie(isCopyOnWriteTagUpdates);
                             }
 
                             localEnrichedServiceTags = processServiceTagDeltas(serviceTags, allServiceTags, trieMap, keysToRemoveFromCache);
@@ -395,18 +422,35 @@ protected void setServiceTags(final ServiceTags serviceTags, final boolean rebui
                 enrichedServiceTags = localEnrichedServiceTags;
 
                 if (serviceTags != null) {
-                    if (serviceTags.getIsDelta()) {
-                        cache.removeCacheEvaluators(keysToRemoveFromCache);
+                    if (serviceTags.getIsDelta() && !keysToRemoveFromCache.contains(null)) {
+                        int removedCount = cache.removeCacheEvaluatorsForResources(keysToRemoveFromCache);
+
+                        deltaMetrics.cacheEntriesRemoved.add(removedCount);
 
                         keysToRemoveFromCache.clear();
                     } else {
                         cache.clearCache();
+
+                        if (serviceTags.getIsDelta()) {
+                            deltaMetrics.cacheClears.increment();
+                        }
                     }
                 }
 
                 setEnrichedServiceTagsInPlugin();
             }
 
+            if (serviceTags != null && serviceTags.getIsDelta()) {
+                long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
+
+                deltaMetrics.deltasApplied.increment();
+                deltaMetrics.deltaApplyTimeMs.add(elapsedMs);
+
+                deltaMetrics.lastDeltaApplyTimeMs = elapsedMs;
+
+                LOG.debug("Applied tag-deltas for tagVersion={} in {} ms: {}", serviceTags.getTagVersion(), elapsedMs, deltaMetrics);
+            }
+
             RangerPerfTracer.logAlways(perf);
         }
 
@@ -480,6 +524,7 @@ private EnrichedServiceTags processServiceTagDeltas(ServiceTags deltas, ServiceT
         boolean                            isInError        = false;
         ResourceHierarchies                hierarchies      = new ResourceHierarchies();
         List<RangerServiceResourceMatcher> resourceMatchers = new ArrayList<>();
+        Set<RangerServiceResourceMatcher>  removedMatchers  = Collections.newSetFromMap(new IdentityHashMap<>());
 
         if (enrichedServiceTags != null) {
             resourceMatchers.addAll(enrichedServiceTags.getServiceResourceMatchers());
@@ -488,7 +533,7 @@ private EnrichedServiceTags processServiceTagDeltas(ServiceTags deltas, ServiceT
         List<RangerServiceResource> changedServiceResources = deltas.getServiceResources();
 
         for (RangerServiceResource serviceResource : changedServiceResources) {
-            final RangerAccessResource removedAccessResource = MapUtils.isEmpty(serviceResource.getResourceElements()) ? null : removeOldServiceResource(serviceResource, resourceMatchers, serviceResourceTrie);
+            final RangerAccessResource removedAccessResource = MapUtils.isEmpty(serviceResource.getResourceElements()) ? null : removeOldServiceResource(serviceResource, removedMatchers, serviceResourceTrie);
 
             if (removedAccessResource != null) {
                 if (!StringUtils.isEmpty(serviceResource.getResourceSignature())) {
@@ -526,7 +571,8 @@ private EnrichedServiceTags processServiceTagDeltas(ServiceTags deltas, ServiceT
                     LOG.debug("Service-resource:[id={}] is deleted as its resource-signature is empty. No need to create it!", serviceResource.getId());
                 }
 
-                keysToRemoveFromCache.add(removedAccessResource.getCacheKey());
+                // null key, for a resource that doesn't have a single literal value for each element, results in clearing the entire cache
+                keysToRemoveFromCache.add(getCacheKey(serviceResource));
             } else {
                 isInError = true;
             }
@@ -546,6 +592,11 @@ private EnrichedServiceTags processServiceTagDeltas(ServiceTags deltas, ServiceT
 
             ret = enrichedServiceTags;
         } else {
+            // removed together, instead of once for each resource, as removal from the list is linear in its size
+            if (!removedMatchers.isEmpty()) {
+                resourceMatchers.removeIf(removedMatchers::contains);
+            }
+
             for (Map.Entry<String, RangerResourceTrie<RangerServiceResourceMatcher>> entry : serviceResourceTrie.entrySet()) {
                 entry.getValue().wrapUpUpdate();
             }
@@ -556,7 +607,7 @@ private EnrichedServiceTags processServiceTagDeltas(ServiceTags deltas, ServiceT
         return ret;
     }
 
-    private RangerAccessResource removeOldServiceResource(RangerServiceResource serviceResource, List<RangerServiceResourceMatcher> resourceMatchers, Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> resourceTries) {
+    private RangerAccessResource removeOldServiceResource(RangerServiceResource serviceResource, Set<RangerServiceResourceMatcher> removedMatchers, Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> resourceTries) {
         final RangerAccessResource ret;
         boolean                    result = true;
 
@@ -577,7 +628,8 @@ private RangerAccessResource removeOldServiceResource(RangerServiceResource serv
 
             request.setResource(accessResource);
 
-            Collection<RangerServiceResourceMatcher> oldMatchers = CachedResourceEvaluators.getEvaluators(request, enrichedServiceTags.getServiceResourceTrie(), cache);
+            // copied, as the returned collection can be a set held in a trie node (or in the cache) - which is shared with copy-on-write tries
+            Collection<RangerServiceResourceMatcher> oldMatchers = new ArrayList<>(CachedResourceEvaluators.getEvaluators(request, enrichedServiceTags.getServiceResourceTrie(), cache));
 
             LOG.debug("Found [{}] matchers for service-resource[{}]", oldMatchers, serviceResource);
 
@@ -618,7 +670,7 @@ private RangerAccessResource removeOldServiceResource(RangerServiceResource serv
             }
 
             if (result) {
-                resourceMatchers.removeAll(oldMatchers);
+                removedMatchers.addAll(oldMatchers);
 
                 LOG.debug("Found and removed [{}] matchers for service-resource[{}] from trie-map", oldMatchers, serviceResource);
 
@@ -740,12 +792,49 @@ private static Set<RangerTagForEval> getTagsForServiceResource(Date accessTime,
         return ret;
     }
 
-    private Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> copyServiceResourceTrie() {
+    private String getMetricsSourceName() {
+        return "tagEnricher.evaluatorsCache." + serviceName;
+    }
+
+    // returns the key used by CachedResourceEvaluators for the given resource; null if an element has multiple values, wildcards or excludes
+    private String getCacheKey(RangerServiceResource serviceResource) {
+        StringBuilder sb = new StringBuilder();
+
+        for (RangerResourceDef resourceDef : serviceDef.getResources()) {
+            RangerPolicyResource policyResource = serviceResource.getResourceElements().get(resourceDef.getName());
+
+            if (policyResource == null) {
+                continue;
+            }
+
+            List<String> values = policyResource.getValues();
+
+            if (Boolean.TRUE.equals(policyResource.getIsExcludes()) || values == null || values.size() != 1 || StringUtils.containsAny(values.get(0), "*?{")) {
+                sb = null;
+
+                break;
+            }
+
+            if (sb.length() > 0) {
+                sb.append(RangerAccessResource.RESOURCE_SEP);
+            }
+
+            sb.append(resourceDef.getName()).append(RangerAccessResource.RESOURCE_NAME_VAL_SEP).append(values.get(0));
+        }
+
+        return sb != null ? sb.toString() : null;
+    }
+
+    /*
+     * with isCopyOnWrite, the returned tries share the unchanged nodes with the current tries - instead of copying all
+     * the nodes - so that applying tag-deltas doesn't need time and memory proportional to the number of tagged resources
+     */
+    private Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> copyServiceResourceTrie(boolean isCopyOnWrite) {
         Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> ret = new HashMap<>();
 
         if (enrichedServiceTags != null) {
             for (Map.Entry<String, RangerResourceTrie<RangerServiceResourceMatcher>> entry : enrichedServiceTags.getServiceResourceTrie().entrySet()) {
-                RangerResourceTrie<RangerServiceResourceMatcher> resourceTrie = new RangerResourceTrie<>(entry.getValue());
+                RangerResourceTrie<RangerServiceResourceMatcher> resourceTrie = new RangerResourceTrie<>(entry.getValue(), isCopyOnWrite);
 
                 ret.put(entry.getKey(), resourceTrie);
             }
@@ -789,6 +878,39 @@ void addHierarchy(int policyType, Collection<String> resourceKeys, Boolean isVal
         }
     }
 
+    public static class TagDeltaMetrics {
+        private final LongAdder     deltasApplied       = new LongAdder();
+        private final LongAdder     deltaApplyTimeMs    = new LongAdder();
+        private final LongAdder     cacheEntriesRemoved = new LongAdder();
+        private final LongAdder     cacheClears         = new LongAdder();
+        private volatile long       lastDeltaApplyTimeMs;
+
+        public long getDeltasAppliedCount() {
+            return deltasApplied.sum();
+        }
+
+        public long getDeltaApplyTimeMs() {
+            return deltaApplyTimeMs.sum();
+        }
+
+        public long getLastDeltaApplyTimeMs() {
+            return lastDeltaApplyTimeMs;
+        }
+
+        public long getCacheEntriesRemovedCount() {
+            return cacheEntriesRemoved.sum();
+        }
+
+        public long getCacheClearCount() {
+            return cacheClears.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "TagDeltaMetrics={deltasApplied=" + getDeltasAppliedCount() + ", deltaApplyTimeMs=" + getDeltaApplyTimeMs() + ", lastDeltaApplyTimeMs=" + getLastDeltaApplyTimeMs() + ", cacheEntriesRemoved=" + getCacheEntriesRemovedCount() + ", cacheClears=" + getCacheClearCount() + "}";
+        }
+    }
+
     public static final class EnrichedServiceTags {
         private final ServiceTags                                                   serviceTags;
         private final List<RangerServiceResourceMatcher>                            serviceResourceMatchers;
@@ -920,12 +1042,8 @@ final ServiceTags loadFromCache() {
             File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
 
             if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
-                Reader reader = null;
-
                 try {
-                    reader = new FileReader(cacheFile);
-
-                    serviceTags = JsonUtils.jsonToObject(reader, ServiceTags.class);
+                    serviceTags = RangerCacheFileUtil.loadFromFile(cacheFile, ServiceTags.class);
 
                     if (serviceTags != null && !StringUtils.equals(tagEnricher.getServiceName(), serviceTags.getServiceName())) {
                         LOG.warn("ignoring unexpected serviceName '{}' in cache file '{}'", serviceTags.getServiceName(), cacheFile.getAbsolutePath());
@@ -934,14 +1052,6 @@ final ServiceTags loadFromCache() {
                     }
                 } catch (Exception excp) {
                     LOG.error("failed to load service-tags from cache file {}", cacheFile.getAbsolutePath(), excp);
-                } finally {
-                    if (reader != null) {
-                        try {
-                            reader.close();
-                        } catch (Exception excp) {
-                            LOG.error("error while closing opened cache file {}", cacheFile.getAbsolutePath(), excp);
-                        }
-                    }
                 }
             } else {
                 LOG.warn("cache file does not exist or not readable '{}'", (cacheFile == null ? null : cacheFile.getAbsolutePath()));
@@ -959,22 +1069,10 @@ final void saveToCache(ServiceTags serviceTags) {
                 File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
 
                 if (cacheFile != null) {
-                    Writer writer = null;
-
                     try {
-                        writer = new FileWriter(cacheFile);
-
-                        JsonUtils.objectToWriter(writer, serviceTags);
+                        RangerCacheFileUtil.saveToFile(cacheFile, serviceTags, tagEnricher.useBinaryCache);
                     } catch (Exception excp) {
                         LOG.error("failed to save service-tags to cache file '{}'", cacheFile.getAbsolutePath(), excp);
-                    } finally {
-                        if (writer != null) {
-                            try {
-                                writer.close();
-                            } catch (Exception excp) {
-                                LOG.error("error while closing opened cache file '{}'", cacheFile.getAbsolutePath(), excp);
-                            }
-                        }
                     }
                 }
             } else {
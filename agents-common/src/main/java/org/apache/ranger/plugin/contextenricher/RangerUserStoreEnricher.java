@@ -25,6 +25,7 @@
 import org.apache.ranger.plugin.util.DownloadTrigger;
 import org.apache.ranger.plugin.util.DownloaderTask;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerCacheFileUtil;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerUserStore;
 import org.slf4j.Logger;
@@ -47,6 +48,7 @@ public class RangerUserStoreEnricher extends RangerAbstractContextEnricher {
     private       RangerUserStoreRetriever       userStoreRetriever;
     private       RangerUserStore                rangerUserStore;
     private       boolean                        disableCacheIfServiceNotFound = true;
+    private       boolean                        useBinaryCache;
     private       boolean                        dedupStrings                  = true;
     private       Timer                          userStoreDownloadTimer;
 
@@ -80,6 +82,7 @@ public void init() {
 
             if (userStoreRetriever != null) {
                 disableCacheIfServiceNotFound = getBooleanConfig(propertyPrefix + ".disable.cache.if.servicenotfound", true);
+                useBinaryCache                = getBooleanConfig(propertyPrefix + RangerCacheFileUtil.PROP_SUFFIX_CACHE_BINARY_FORMAT, false);
 
                 String cacheDir      = getConfig(propertyPrefix + ".policy.cache.dir", null);
                 String cacheFilename = String.format("%s_%s_userstore.json", appId, serviceName);
@@ -184,6 +187,10 @@ public boolean isDisableCacheIfServiceNotFound() {
         return disableCacheIfServiceNotFound;
     }
 
+    public boolean isUseBinaryCache() {
+        return useBinaryCache;
+    }
+
     public RangerUserStore getRangerUserStore() {
         return this.rangerUserStore;
     }
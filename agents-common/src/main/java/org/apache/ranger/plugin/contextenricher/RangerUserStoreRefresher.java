@@ -23,9 +23,9 @@
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.ranger.admin.client.datatype.RESTResponse;
 import org.apache.ranger.audit.provider.MiscUtil;
-import org.apache.ranger.authorization.utils.JsonUtils;
 import org.apache.ranger.plugin.util.DownloadTrigger;
 import org.apache.ranger.plugin.util.JsonUtilsV2;
+import org.apache.ranger.plugin.util.RangerCacheFileUtil;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerRESTClient;
 import org.apache.ranger.plugin.util.RangerRESTUtils;
@@ -37,10 +37,6 @@
 import javax.servlet.http.HttpServletResponse;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.Reader;
-import java.io.Writer;
 import java.nio.channels.ClosedByInterruptException;
 import java.security.PrivilegedExceptionAction;
 import java.util.HashMap;
@@ -245,22 +241,10 @@ public void saveToCache(RangerUserStore rangerUserStore) {
             File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
 
             if (cacheFile != null) {
-                Writer writer = null;
-
                 try {
-                    writer = new FileWriter(cacheFile);
-
-                    JsonUtils.objectToWriter(writer, rangerUserStore);
+                    RangerCacheFileUtil.saveToFile(cacheFile, rangerUserStore, userStoreEnricher.isUseBinaryCache());
                 } catch (Exception excp) {
                     LOG.error("failed to save userstore information to cache file '{}'", cacheFile.getAbsolutePath(), excp);
-                } finally {
-                    if (writer != null) {
-                        try {
-                            writer.close();
-                        } catch (Exception excp) {
-                            LOG.error("error while closing opened cache file '{}'", cacheFile.getAbsolutePath(), excp);
-                        }
-                    }
                 }
             }
         } else {
@@ -278,22 +262,10 @@ private RangerUserStore loadFromCache() {
         File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
 
         if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
-            Reader reader = null;
-
             try {
-                reader = new FileReader(cacheFile);
-
-                rangerUserStore = JsonUtils.jsonToObject(reader, RangerUserStore.class);
+                rangerUserStore = RangerCacheFileUtil.loadFromFile(cacheFile, RangerUserStore.class);
             } catch (Exception excp) {
                 LOG.error("failed to load userstore information from cache file {}", cacheFile.getAbsolutePath(), excp);
-            } finally {
-                if (reader != null) {
-                    try {
-                        reader.close();
-                    } catch (Exception excp) {
-                        LOG.error("error while closing opened cache file {}", cacheFile.getAbsolutePath(), excp);
-                    }
-                }
             }
         } else {
             LOG.warn("cache file does not exist or not readable '{}'", (cacheFile == null ? null : cacheFile.getAbsolutePath()));
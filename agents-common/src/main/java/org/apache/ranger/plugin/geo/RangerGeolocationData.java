@@ -28,47 +28,64 @@
 import java.util.Arrays;
 import java.util.Objects;
 
-public class RangerGeolocationData implements Comparable<RangerGeolocationData>, RangeChecker<Long> {
+/**
+ * A range of IP addresses and its location data. Addresses in an IPv6 range are held as 2 longs each - high and low
+ * 64 bits, compared as unsigned values; an IPv4 range uses only the low value.
+ */
+public class RangerGeolocationData implements Comparable<RangerGeolocationData> {
     private static final Logger LOG = LoggerFactory.getLogger(RangerGeolocationData.class);
 
     private static final Character IPSegmentsSeparator = '.';
+    private static final int       IPV4_ADDRESS_LENGTH = 4;
+    private static final int       IPV6_ADDRESS_LENGTH = 16;
+    private static final long      MAX_IPV4_ADDRESS    = 0xFFFFFFFFL;
 
+    private final boolean  isIPv6;
+    private final long     fromIPAddressHigh;
     private final long     fromIPAddress;
+    private final long     toIPAddressHigh;
     private final long     toIPAddress;
     private final String[] locationData;
     private       int      hash;
 
-    private RangerGeolocationData(final long fromIPAddress, final long toIPAddress, final String[] locationData) {
-        this.fromIPAddress = fromIPAddress;
-        this.toIPAddress   = toIPAddress;
-        this.locationData  = locationData;
+    RangerGeolocationData(final long fromIPAddress, final long toIPAddress, final String[] locationData) {
+        this(false, 0, fromIPAddress, 0, toIPAddress, locationData);
+    }
+
+    RangerGeolocationData(final boolean isIPv6, final long fromIPAddressHigh, final long fromIPAddress, final long toIPAddressHigh, final long toIPAddress, final String[] locationData) {
+        this.isIPv6            = isIPv6;
+        this.fromIPAddressHigh = fromIPAddressHigh;
+        this.fromIPAddress     = fromIPAddress;
+        this.toIPAddressHigh   = toIPAddressHigh;
+        this.toIPAddress       = toIPAddress;
+        this.locationData      = locationData;
     }
 
     public static RangerGeolocationData create(String[] fields, int index, boolean useDotFormat) {
         RangerGeolocationData data = null;
 
         if (fields.length > 2) {
-            String startAddress = fields[0];
-            String endAddress   = fields[1];
+            byte[] startIP = ipAddressToBytes(fields[0], useDotFormat);
+            byte[] endIP   = ipAddressToBytes(fields[1], useDotFormat);
 
-            if (RangerGeolocationData.validateAsIP(startAddress, useDotFormat) && RangerGeolocationData.validateAsIP(endAddress, useDotFormat)) {
-                if (!useDotFormat) {
-                    startAddress = RangerGeolocationData.unsignedIntToIPAddress(Long.parseLong(startAddress));
-                    endAddress   = RangerGeolocationData.unsignedIntToIPAddress(Long.parseLong(endAddress));
-                }
+            if (startIP != null && endIP != null && startIP.length == endIP.length) {
+                boolean isIPv6    = startIP.length == IPV6_ADDRESS_LENGTH;
+                long    startHigh = isIPv6 ? bytesToLong(startIP, 0, 8) : 0;
+                long    start     = isIPv6 ? bytesToLong(startIP, 8, 8) : bytesToLong(startIP, 0, IPV4_ADDRESS_LENGTH);
+                long    endHigh   = isIPv6 ? bytesToLong(endIP, 0, 8) : 0;
+                long    end       = isIPv6 ? bytesToLong(endIP, 8, 8) : bytesToLong(endIP, 0, IPV4_ADDRESS_LENGTH);
 
-                long startIP = RangerGeolocationData.ipAddressToLong(startAddress);
-                long endIP   = RangerGeolocationData.ipAddressToLong(endAddress);
-
-                if ((endIP - startIP) >= 0) {
+                if (compareIPAddress(startHigh, start, endHigh, end) <= 0) {
                     String[] locationData = new String[fields.length - 2];
 
                     for (int i = 2; i < fields.length; i++) {
                         locationData[i - 2] = fields[i];
                     }
 
-                    data = new RangerGeolocationData(startIP, endIP, locationData);
+                    data = new RangerGeolocationData(isIPv6, startHigh, start, endHigh, end, locationData);
                 }
+            } else if (startIP != null && endIP != null) {
+                LOG.error("RangerGeolocationData.create() - start and end addresses are of different IP versions at {}", index);
             }
         } else {
             LOG.error("GeolocationMetadata.createMetadata() - Not enough fields specified, need {start, end, location} at {}", index);
@@ -97,6 +114,41 @@ public static long ipAddressToLong(final String ipAddress) {
         return ret;
     }
 
+    /**
+     * Returns the address in network byte order - 4 bytes for an IPv4 address, 16 bytes for an IPv6 address; null if the
+     * given value is not a valid address. IPv4-mapped IPv6 addresses are returned as IPv4 addresses.
+     */
+    public static byte[] ipAddressToBytes(final String ipAddress, final boolean ipInDotNotation) {
+        byte[] ret = null;
+
+        if (!ipInDotNotation) {
+            if (StringUtils.isNumeric(ipAddress) && ipAddress.length() <= 10) {
+                long val = Long.parseLong(ipAddress);
+
+                if (val <= MAX_IPV4_ADDRESS) {
+                    ret = new byte[IPV4_ADDRESS_LENGTH];
+
+                    for (int i = IPV4_ADDRESS_LENGTH - 1; i >= 0; i--) {
+                        ret[i] = (byte) val;
+                        val  >>>= 8;
+                    }
+                }
+            }
+
+            if (ret == null) {
+                LOG.error("RangerGeolocationData.ipAddressToBytes() - Invalid address {}", ipAddress);
+            }
+        } else {
+            try {
+                ret = InetAddress.getByName(ipAddress).getAddress();
+            } catch (UnknownHostException exception) {
+                LOG.error("RangerGeolocationData.ipAddressToBytes() - Invalid address {}", ipAddress);
+            }
+        }
+
+        return ret;
+    }
+
     public static String unsignedIntToIPAddress(final long val) {
         if (val <= 0) {
             return "";
@@ -138,15 +190,55 @@ public String[] getLocationData() {
         return locationData;
     }
 
+    public boolean isIPv6() {
+        return isIPv6;
+    }
+
+    static long bytesToLong(byte[] bytes, int offset, int length) {
+        long ret = 0;
+
+        for (int i = offset; i < offset + length; i++) {
+            ret = (ret << 8) | (bytes[i] & 0xFF);
+        }
+
+        return ret;
+    }
+
+    static int compareIPAddress(long high1, long low1, long high2, long low2) {
+        int ret = Long.compareUnsigned(high1, high2);
+
+        return ret != 0 ? ret : Long.compareUnsigned(low1, low2);
+    }
+
+    long getFromIPAddressHigh() {
+        return fromIPAddressHigh;
+    }
+
+    long getFromIPAddress() {
+        return fromIPAddress;
+    }
+
+    long getToIPAddressHigh() {
+        return toIPAddressHigh;
+    }
+
+    long getToIPAddress() {
+        return toIPAddress;
+    }
+
     @Override
     public int compareTo(final RangerGeolocationData other) {
         int ret = (other == null) ? 1 : 0;
 
         if (ret == 0) {
-            ret = Long.compare(fromIPAddress, other.fromIPAddress);
+            ret = Boolean.compare(isIPv6, other.isIPv6);
+        }
+
+        if (ret == 0) {
+            ret = compareIPAddress(fromIPAddressHigh, fromIPAddress, other.fromIPAddressHigh, other.fromIPAddress);
 
             if (ret == 0) {
-                ret = Long.compare(toIPAddress, other.toIPAddress);
+                ret = compareIPAddress(toIPAddressHigh, toIPAddress, other.toIPAddressHigh, other.toIPAddress);
 
                 if (ret == 0) {
                     ret = Integer.compare(locationData.length, other.locationData.length);
@@ -163,7 +255,7 @@ public int compareTo(final RangerGeolocationData other) {
     @Override
     public int hashCode() {
         if (hash == 0) {
-            hash = Objects.hash(fromIPAddress, toIPAddress, Arrays.hashCode(locationData));
+            hash = Objects.hash(fromIPAddressHigh, fromIPAddress, toIPAddressHigh, toIPAddress, Arrays.hashCode(locationData));
         }
 
         return hash;
@@ -189,19 +281,23 @@ public String toString() {
         return sb.toString();
     }
 
-    @Override
-    public int compareToRange(final Long ip) {
-        int ret = Long.compare(fromIPAddress, ip);
+    private String toIPAddressString(long high, long low) {
+        if (!isIPv6) {
+            return RangerGeolocationData.unsignedIntToIPAddress(low);
+        }
 
-        if (ret < 0) {
-            ret = Long.compare(toIPAddress, ip);
+        byte[] bytes = new byte[IPV6_ADDRESS_LENGTH];
 
-            if (ret > 0) {
-                ret = 0;
-            }
+        for (int i = 0; i < 8; i++) {
+            bytes[i]     = (byte) (high >>> (56 - 8 * i));
+            bytes[i + 8] = (byte) (low >>> (56 - 8 * i));
         }
 
-        return ret;
+        try {
+            return InetAddress.getByAddress(bytes).getHostAddress();
+        } catch (UnknownHostException exception) {
+            return "";
+        }
     }
 
     private static int stringCompareTo(String str1, String str2) {
@@ -219,9 +315,9 @@ private static int stringCompareTo(String str1, String str2) {
     private StringBuilder toString(StringBuilder sb) {
         sb.append("{")
                 .append("from=")
-                .append(RangerGeolocationData.unsignedIntToIPAddress(fromIPAddress))
+                .append(toIPAddressString(fromIPAddressHigh, fromIPAddress))
                 .append(", to=")
-                .append(RangerGeolocationData.unsignedIntToIPAddress(toIPAddress))
+                .append(toIPAddressString(toIPAddressHigh, toIPAddress))
                 .append(", location={");
 
         for (String data : locationData) {
@@ -23,11 +23,183 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Geolocation data, held as arrays of IP address ranges sorted by start address and searched with binary search. An IPv4
+ * range takes 2 longs (from, to), an IPv6 range 4 longs (from-high, from-low, to-high, to-low). Location data shared
+ * by ranges is held once, and ranges refer to it by index.
+ *
+ * Ranges added with add() become visible to find() after optimize(). Ranges are expected not to overlap; for an
+ * address in overlapping ranges, the range with the largest start address is found.
+ *
+ * A database can be saved to a binary file with saveToFile(). loadFromFile() reads the range arrays directly from the
+ * memory-mapped file, so that a large database is loaded without parsing each range.
+ */
 public class RangerGeolocationDatabase {
     private static final Logger LOG = LoggerFactory.getLogger(RangerGeolocationDatabase.class);
 
-    private BinarySearchTree<RangerGeolocationData, Long> data     = new BinarySearchTree<>();
-    private GeolocationMetadata                           metadata = new GeolocationMetadata();
+    private static final byte[] MAGIC          = {'R', 'G', 'E', 'O'};
+    private static final int    FORMAT_VERSION = 1;
+    private static final int    IPV4_RANGE_LEN = 2;
+    private static final int    IPV6_RANGE_LEN = 4;
+
+    private GeolocationMetadata metadata      = new GeolocationMetadata();
+    private String[][]          locations     = new String[0][];
+    private LongBuffer          ipv4Ranges    = LongBuffer.allocate(0);
+    private IntBuffer           ipv4Locations = IntBuffer.allocate(0);
+    private LongBuffer          ipv6Ranges    = LongBuffer.allocate(0);
+    private IntBuffer           ipv6Locations = IntBuffer.allocate(0);
+    private RangesBuilder       builder;
+
+    public static boolean isBinaryFile(File file) {
+        boolean ret = false;
+
+        if (file.isFile() && file.length() > MAGIC.length) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(MAGIC.length);
+
+                while (header.hasRemaining() && channel.read(header) > 0) {
+                    // read the header
+                }
+
+                ret = Arrays.equals(MAGIC, header.array());
+            } catch (IOException excp) {
+                LOG.warn("RangerGeolocationDatabase.isBinaryFile() - failed to read file {}", file, excp);
+            }
+        }
+
+        return ret;
+    }
+
+    public static RangerGeolocationDatabase loadFromFile(File file) throws IOException {
+        RangerGeolocationDatabase ret = new RangerGeolocationDatabase();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + ": file is too large");
+            }
+
+            // the mapping remains valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            try {
+                byte[] magic = new byte[MAGIC.length];
+
+                buffer.get(magic);
+
+                if (!Arrays.equals(MAGIC, magic)) {
+                    throw new IOException(file + ": not a geolocation database file");
+                }
+
+                int version = buffer.getInt();
+
+                if (version != FORMAT_VERSION) {
+                    throw new IOException(file + ": unsupported geolocation database format version " + version);
+                }
+
+                ret.metadata  = new GeolocationMetadata(readStrings(buffer));
+                ret.locations = new String[buffer.getInt()][];
+
+                for (int i = 0; i < ret.locations.length; i++) {
+                    ret.locations[i] = readStrings(buffer);
+                }
+
+                int ipv4Count = buffer.getInt();
+                int ipv6Count = buffer.getInt();
+
+                buffer.position(align(buffer.position(), Long.BYTES));
+
+                ret.ipv4Ranges    = slice(buffer, Math.multiplyExact(ipv4Count, IPV4_RANGE_LEN * Long.BYTES)).asLongBuffer();
+                ret.ipv6Ranges    = slice(buffer, Math.multiplyExact(ipv6Count, IPV6_RANGE_LEN * Long.BYTES)).asLongBuffer();
+                ret.ipv4Locations = slice(buffer, Math.multiplyExact(ipv4Count, Integer.BYTES)).asIntBuffer();
+                ret.ipv6Locations = slice(buffer, Math.multiplyExact(ipv6Count, Integer.BYTES)).asIntBuffer();
+
+                validateLocations(ret.ipv4Locations, ret.locations.length);
+                validateLocations(ret.ipv6Locations, ret.locations.length);
+            } catch (RuntimeException excp) {
+                throw new IOException(file + ": invalid geolocation database file", excp);
+            }
+        }
+
+        LOG.info("RangerGeolocationDatabase.loadFromFile({}): loaded {} IPv4 ranges, {} IPv6 ranges, {} locations", file, ret.ipv4Locations.limit(), ret.ipv6Locations.limit(), ret.locations.length);
+
+        return ret;
+    }
+
+    public void saveToFile(File file) throws IOException {
+        File tmpFile = File.createTempFile("ranger_geo_", ".tmp", file.getAbsoluteFile().getParentFile());
+
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                int ipv4Count = ipv4Locations.limit();
+                int ipv6Count = ipv6Locations.limit();
+
+                out.write(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+
+                writeStrings(out, metadata.getLocationDataItemNames());
+
+                out.writeInt(locations.length);
+
+                for (String[] location : locations) {
+                    writeStrings(out, location);
+                }
+
+                out.writeInt(ipv4Count);
+                out.writeInt(ipv6Count);
+
+                for (int i = out.size(); i < align(out.size(), Long.BYTES); i++) {
+                    out.write(0);
+                }
+
+                for (int i = 0; i < ipv4Count * IPV4_RANGE_LEN; i++) {
+                    out.writeLong(ipv4Ranges.get(i));
+                }
+
+                for (int i = 0; i < ipv6Count * IPV6_RANGE_LEN; i++) {
+                    out.writeLong(ipv6Ranges.get(i));
+                }
+
+                for (int i = 0; i < ipv4Count; i++) {
+                    out.writeInt(ipv4Locations.get(i));
+                }
+
+                for (int i = 0; i < ipv6Count; i++) {
+                    out.writeInt(ipv6Locations.get(i));
+                }
+            }
+
+            try {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException excp) {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            if (tmpFile.exists() && !tmpFile.delete()) {
+                LOG.warn("RangerGeolocationDatabase.saveToFile() - failed to delete temporary file {}", tmpFile.getAbsolutePath());
+            }
+        }
+    }
 
     public String getValue(final RangerGeolocationData geolocationData, final String attributeName) {
         String value = null;
@@ -54,21 +226,47 @@ public String getValue(final RangerGeolocationData geolocationData, final String
     public RangerGeolocationData find(final String ipAddressStr) {
         RangerGeolocationData ret = null;
 
-        if (StringUtils.isNotBlank(ipAddressStr) && RangerGeolocationData.validateAsIP(ipAddressStr, true)) {
-            ret = data.find(RangerGeolocationData.ipAddressToLong(ipAddressStr));
+        if (StringUtils.isNotBlank(ipAddressStr)) {
+            byte[] address = RangerGeolocationData.ipAddressToBytes(ipAddressStr, true);
+
+            if (address != null) {
+                if (address.length > Long.BYTES) {
+                    ret = findIPv6(RangerGeolocationData.bytesToLong(address, 0, Long.BYTES), RangerGeolocationData.bytesToLong(address, Long.BYTES, Long.BYTES));
+                } else {
+                    ret = findIPv4(RangerGeolocationData.bytesToLong(address, 0, address.length));
+                }
+            }
         }
 
         return ret;
     }
 
+    public void add(final RangerGeolocationData geolocationData) {
+        if (builder == null) {
+            builder = new RangesBuilder(this);
+        }
+
+        builder.add(geolocationData);
+    }
+
     public void optimize() {
         long start = System.currentTimeMillis();
-        data.rebalance();
+
+        if (builder != null) {
+            builder.build(this);
+
+            builder = null;
+        }
+
         long end = System.currentTimeMillis();
 
         LOG.debug("RangerGeolocationDatabase.optimize() - Time taken for optimizing database = {} milliseconds", (end - start));
     }
 
+    public int size() {
+        return ipv4Locations.limit() + ipv6Locations.limit();
+    }
+
     public GeolocationMetadata getMetadata() {
         return metadata;
     }
@@ -77,26 +275,270 @@ public void setMetadata(final GeolocationMetadata metadataArg) {
         metadata = metadataArg != null ? metadataArg : new GeolocationMetadata();
     }
 
-    public BinarySearchTree<RangerGeolocationData, Long> getData() {
-        return data;
-    }
-
-    public void setData(final BinarySearchTree<RangerGeolocationData, Long> dataArg) {
-        data = dataArg != null ? dataArg : new BinarySearchTree<>();
-    }
-
     public void dump(ValuePrinter<RangerGeolocationData> processor) {
-        BinarySearchTree<RangerGeolocationData, Long> geoDatabase = getData();
-        GeolocationMetadata                           metadata    = getMetadata();
         processor.build();
 
         processor.print("#================== Geolocation metadata ==================");
         processor.print(metadata.toString());
 
         processor.print("#================== Dump of geoDatabase - START ==================");
-        geoDatabase.preOrderTraverseTree(processor);
+
+        for (int i = 0; i < size(); i++) {
+            processor.process(getRange(i));
+        }
+
         processor.print("#================== Dump of geoDatabase - END   ==================");
 
         processor.close();
     }
+
+    private RangerGeolocationData findIPv4(long address) {
+        LongBuffer ranges = ipv4Ranges;
+        int        low    = 0;
+        int        high   = ipv4Locations.limit() - 1;
+        int        found  = -1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+
+            if (ranges.get(mid * IPV4_RANGE_LEN) <= address) {
+                found = mid;
+                low   = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return found != -1 && ranges.get(found * IPV4_RANGE_LEN + 1) >= address ? getRange(found) : null;
+    }
+
+    private RangerGeolocationData findIPv6(long addressHigh, long addressLow) {
+        LongBuffer ranges = ipv6Ranges;
+        int        low    = 0;
+        int        high   = ipv6Locations.limit() - 1;
+        int        found  = -1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int idx = mid * IPV6_RANGE_LEN;
+
+            if (RangerGeolocationData.compareIPAddress(ranges.get(idx), ranges.get(idx + 1), addressHigh, addressLow) <= 0) {
+                found = mid;
+                low   = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        if (found != -1) {
+            int idx = found * IPV6_RANGE_LEN;
+
+            if (RangerGeolocationData.compareIPAddress(ranges.get(idx + 2), ranges.get(idx + 3), addressHigh, addressLow) < 0) {
+                found = -1;
+            }
+        }
+
+        return found != -1 ? getRange(ipv4Locations.limit() + found) : null;
+    }
+
+    // ranges are numbered IPv4 ranges first, followed by IPv6 ranges
+    private RangerGeolocationData getRange(int rangeIdx) {
+        final RangerGeolocationData ret;
+        final int                   ipv4Count = ipv4Locations.limit();
+
+        if (rangeIdx < ipv4Count) {
+            int idx = rangeIdx * IPV4_RANGE_LEN;
+
+            ret = new RangerGeolocationData(ipv4Ranges.get(idx), ipv4Ranges.get(idx + 1), locations[ipv4Locations.get(rangeIdx)]);
+        } else {
+            int idx = (rangeIdx - ipv4Count) * IPV6_RANGE_LEN;
+
+            ret = new RangerGeolocationData(true, ipv6Ranges.get(idx), ipv6Ranges.get(idx + 1), ipv6Ranges.get(idx + 2), ipv6Ranges.get(idx + 3), locations[ipv6Locations.get(rangeIdx - ipv4Count)]);
+        }
+
+        return ret;
+    }
+
+    private static int align(int position, int alignment) {
+        return ((position + alignment - 1) / alignment) * alignment;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int length) {
+        ByteBuffer ret = buffer.slice();
+
+        ret.limit(length);
+
+        buffer.position(buffer.position() + length);
+
+        return ret;
+    }
+
+    private static void validateLocations(IntBuffer rangeLocations, int locationCount) {
+        for (int i = 0; i < rangeLocations.limit(); i++) {
+            int location = rangeLocations.get(i);
+
+            if (location < 0 || location >= locationCount) {
+                throw new IllegalArgumentException("invalid location index " + location + " for range #" + i);
+            }
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+
+        for (String value : values) {
+            if (value == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer buffer) {
+        String[] ret = new String[buffer.getInt()];
+
+        for (int i = 0; i < ret.length; i++) {
+            int len = buffer.getInt();
+
+            if (len >= 0) {
+                byte[] bytes = new byte[len];
+
+                buffer.get(bytes);
+
+                ret[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+
+        return ret;
+    }
+
+    /*
+     * collects ranges in growable arrays until optimize() - to avoid holding an object per range while loading a large
+     * database. Location data is deduplicated as it is added.
+     */
+    private static class RangesBuilder {
+        private final Map<List<String>, Integer> locationIndexes = new HashMap<>();
+        private final List<String[]>             locations       = new ArrayList<>();
+        private       long[]                     ipv4Ranges      = new long[1024];
+        private       int[]                      ipv4Locations   = new int[ipv4Ranges.length / IPV4_RANGE_LEN];
+        private       int                        ipv4Count;
+        private       long[]                     ipv6Ranges      = new long[0];
+        private       int[]                      ipv6Locations   = new int[0];
+        private       int                        ipv6Count;
+
+        RangesBuilder(RangerGeolocationDatabase database) {
+            for (int i = 0; i < database.size(); i++) {
+                add(database.getRange(i));
+            }
+        }
+
+        void add(RangerGeolocationData data) {
+            int location = locationIndexes.computeIfAbsent(Arrays.asList(data.getLocationData()), k -> {
+                locations.add(data.getLocationData());
+
+                return locations.size() - 1;
+            });
+
+            if (data.isIPv6()) {
+                if (ipv6Count == ipv6Locations.length) {
+                    ipv6Locations = Arrays.copyOf(ipv6Locations, Math.max(16, ipv6Count * 2));
+                    ipv6Ranges    = Arrays.copyOf(ipv6Ranges, ipv6Locations.length * IPV6_RANGE_LEN);
+                }
+
+                int idx = ipv6Count * IPV6_RANGE_LEN;
+
+                ipv6Ranges[idx]          = data.getFromIPAddressHigh();
+                ipv6Ranges[idx + 1]      = data.getFromIPAddress();
+                ipv6Ranges[idx + 2]      = data.getToIPAddressHigh();
+                ipv6Ranges[idx + 3]      = data.getToIPAddress();
+                ipv6Locations[ipv6Count] = location;
+
+                ipv6Count++;
+            } else {
+                if (ipv4Count == ipv4Locations.length) {
+                    ipv4Locations = Arrays.copyOf(ipv4Locations, ipv4Count * 2);
+                    ipv4Ranges    = Arrays.copyOf(ipv4Ranges, ipv4Locations.length * IPV4_RANGE_LEN);
+                }
+
+                int idx = ipv4Count * IPV4_RANGE_LEN;
+
+                ipv4Ranges[idx]          = data.getFromIPAddress();
+                ipv4Ranges[idx + 1]      = data.getToIPAddress();
+                ipv4Locations[ipv4Count] = location;
+
+                ipv4Count++;
+            }
+        }
+
+        void build(RangerGeolocationDatabase database) {
+            int[] ipv4Order = sortedOrder(ipv4Ranges, ipv4Count, IPV4_RANGE_LEN);
+            int[] ipv6Order = sortedOrder(ipv6Ranges, ipv6Count, IPV6_RANGE_LEN);
+
+            database.locations     = locations.toArray(new String[0][]);
+            database.ipv4Ranges    = LongBuffer.wrap(reorder(ipv4Ranges, ipv4Order, IPV4_RANGE_LEN));
+            database.ipv4Locations = IntBuffer.wrap(reorder(ipv4Locations, ipv4Order));
+            database.ipv6Ranges    = LongBuffer.wrap(reorder(ipv6Ranges, ipv6Order, IPV6_RANGE_LEN));
+            database.ipv6Locations = IntBuffer.wrap(reorder(ipv6Locations, ipv6Order));
+        }
+
+        // returns the order of ranges sorted by (from, to), in which ranges with the same from/to are removed
+        private static int[] sortedOrder(long[] ranges, int count, int rangeLen) {
+            Integer[] order = new Integer[count];
+
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+
+            Arrays.sort(order, (r1, r2) -> compareRanges(ranges, r1, r2, rangeLen));
+
+            int[] ret  = new int[count];
+            int   size = 0;
+
+            for (int i = 0; i < count; i++) {
+                if (size > 0 && compareRanges(ranges, ret[size - 1], order[i], rangeLen) == 0) {
+                    LOG.warn("RangerGeolocationDatabase.optimize() - ignoring duplicate range {}", order[i]);
+
+                    continue;
+                }
+
+                ret[size++] = order[i];
+            }
+
+            return Arrays.copyOf(ret, size);
+        }
+
+        private static int compareRanges(long[] ranges, int range1, int range2, int rangeLen) {
+            int ret = 0;
+
+            for (int i = 0; ret == 0 && i < rangeLen; i++) {
+                ret = Long.compareUnsigned(ranges[range1 * rangeLen + i], ranges[range2 * rangeLen + i]);
+            }
+
+            return ret;
+        }
+
+        private static long[] reorder(long[] ranges, int[] order, int rangeLen) {
+            long[] ret = new long[order.length * rangeLen];
+
+            for (int i = 0; i < order.length; i++) {
+                System.arraycopy(ranges, order[i] * rangeLen, ret, i * rangeLen, rangeLen);
+            }
+
+            return ret;
+        }
+
+        private static int[] reorder(int[] values, int[] order) {
+            int[] ret = new int[order.length];
+
+            for (int i = 0; i < order.length; i++) {
+                ret[i] = values[order[i]];
+            }
+
+            return ret;
+        }
+    }
 }
@@ -557,6 +557,33 @@ public void dedupStrings(Map<String, String> strTbl) {
         }
     }
 
+    /**
+     * Reduces the memory used by the collections in this policy, for policies held by a policy-engine: lists of users, groups,
+     * roles, labels and resource values are replaced with unmodifiable lists shared with other policies having the same values,
+     * empty lists with an immutable empty list, and other lists are trimmed to their size. Lists are not modified in place;
+     * addXXX() methods replace a shared list with a copy before adding to it.
+     */
+    public void compact(Map<List<String>, List<String>> listTbl) {
+        policyLabels         = StringUtil.compactStringsList(policyLabels, listTbl);
+        additionalResources  = StringUtil.compactList(additionalResources);
+        conditions           = compactConditions(conditions);
+        validitySchedules    = StringUtil.compactList(validitySchedules);
+        policyItems          = compactPolicyItems(policyItems, listTbl);
+        denyPolicyItems      = compactPolicyItems(denyPolicyItems, listTbl);
+        allowExceptions      = compactPolicyItems(allowExceptions, listTbl);
+        denyExceptions       = compactPolicyItems(denyExceptions, listTbl);
+        dataMaskPolicyItems  = compactPolicyItems(dataMaskPolicyItems, listTbl);
+        rowFilterPolicyItems = compactPolicyItems(rowFilterPolicyItems, listTbl);
+
+        compactResources(resources, listTbl);
+
+        if (additionalResources != null) {
+            for (Map<String, RangerPolicyResource> additionalResource : additionalResources) {
+                compactResources(additionalResource, listTbl);
+            }
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -712,6 +739,36 @@ public StringBuilder toString(StringBuilder sb) {
         return sb;
     }
 
+    private static <T extends RangerPolicyItem> List<T> compactPolicyItems(List<T> policyItems, Map<List<String>, List<String>> listTbl) {
+        if (policyItems != null) {
+            for (RangerPolicyItem policyItem : policyItems) {
+                policyItem.compact(listTbl);
+            }
+        }
+
+        return StringUtil.compactList(policyItems);
+    }
+
+    private static List<RangerPolicyItemCondition> compactConditions(List<RangerPolicyItemCondition> conditions) {
+        if (conditions != null) {
+            for (RangerPolicyItemCondition condition : conditions) {
+                condition.compact();
+            }
+        }
+
+        return StringUtil.compactList(conditions);
+    }
+
+    private static void compactResources(Map<String, RangerPolicyResource> resources, Map<List<String>, List<String>> listTbl) {
+        if (resources != null) {
+            for (RangerPolicyResource resource : resources.values()) {
+                if (resource != null) {
+                    resource.compact(listTbl);
+                }
+            }
+        }
+    }
+
     static class PolicyIdComparator implements Comparator<RangerPolicy>, java.io.Serializable {
         @Override
         public int compare(RangerPolicy me, RangerPolicy other) {
@@ -826,6 +883,10 @@ public void dedupStrings(Map<String, String> strTbl) {
             values = StringUtil.dedupStringsList(values, strTbl);
         }
 
+        public void compact(Map<List<String>, List<String>> listTbl) {
+            values = StringUtil.compactStringsList(values, listTbl);
+        }
+
         public StringBuilder toString(StringBuilder sb) {
             sb.append("RangerPolicyResource={");
             sb.append("values={");
@@ -1107,6 +1168,14 @@ public void dedupStrings(Map<String, String> strTbl) {
             }
         }
 
+        public void compact(Map<List<String>, List<String>> listTbl) {
+            accesses   = StringUtil.compactList(accesses);
+            users      = StringUtil.compactStringsList(users, listTbl);
+            groups     = StringUtil.compactStringsList(groups, listTbl);
+            roles      = StringUtil.compactStringsList(roles, listTbl);
+            conditions = compactConditions(conditions);
+        }
+
         public StringBuilder toString(StringBuilder sb) {
             sb.append("RangerPolicyItem={");
 
@@ -1607,6 +1676,10 @@ public void dedupStrings(Map<String, String> strTbl) {
             values = StringUtil.dedupStringsList(values, strTbl);
         }
 
+        public void compact() {
+            values = StringUtil.compactList(values); // not shared, as addValue() adds to a non-empty list in place
+        }
+
         public StringBuilder toString(StringBuilder sb) {
             sb.append("RangerPolicyCondition={");
             sb.append("type={").append(type).append("} ");
@@ -43,12 +43,22 @@ public class RangerZoneResourceMatcher implements RangerResourceEvaluator {
     private final Map<String, RangerPolicyResource>  policyResource;
     private final RangerPolicyResourceMatcher        policyResourceMatcher;
     private final RangerServiceDef.RangerResourceDef leafResourceDef;
+    private final int                                zoneId;
+    private final int                                index;
 
     public RangerZoneResourceMatcher(final String securityZoneName, final Map<String, RangerPolicyResource> policyResource, final RangerServiceDef serviceDef, RangerPluginContext pluginContext) {
         this(securityZoneName, policyResource, new RangerServiceDefHelper(serviceDef), pluginContext);
     }
 
     public RangerZoneResourceMatcher(final String securityZoneName, final Map<String, RangerPolicyResource> policyResource, final RangerServiceDefHelper serviceDefHelper, RangerPluginContext pluginContext) {
+        this(securityZoneName, policyResource, serviceDefHelper, pluginContext, -1, -1);
+    }
+
+    /**
+     * @param zoneId dense id of the zone, assigned by the caller to map matches to zones without comparing names
+     * @param index  dense index of this matcher, used by resource-tries to keep matcher sets as sorted int arrays
+     */
+    public RangerZoneResourceMatcher(final String securityZoneName, final Map<String, RangerPolicyResource> policyResource, final RangerServiceDefHelper serviceDefHelper, RangerPluginContext pluginContext, int zoneId, int index) {
         final RangerServiceDef                   serviceDef   = serviceDefHelper.getServiceDef();
         final Collection<String>                 resourceKeys = policyResource.keySet();
         final RangerDefaultPolicyResourceMatcher matcher      = new RangerDefaultPolicyResourceMatcher();
@@ -87,17 +97,28 @@ public RangerZoneResourceMatcher(final String securityZoneName, final Map<String
         this.policyResourceMatcher = matcher;
         this.policyResource        = policyResource;
         this.leafResourceDef       = ServiceDefUtil.getLeafResourceDef(serviceDef, getPolicyResource());
+        this.zoneId                = zoneId;
+        this.index                 = index;
     }
 
     public String getSecurityZoneName() {
         return securityZoneName;
     }
 
+    public int getZoneId() {
+        return zoneId;
+    }
+
     @Override
     public long getId() {
         return securityZoneName.hashCode();
     }
 
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
     @Override
     public RangerPolicyResourceMatcher getPolicyResourceMatcher() {
         return policyResourceMatcher;
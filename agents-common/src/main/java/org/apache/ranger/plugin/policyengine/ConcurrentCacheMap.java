@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe alternative to Collections.synchronizedMap(new CacheMap(capacity)), with approximate-LRU eviction.
+ *
+ * Reads don't lock: an entry records the time of its last access, which is written only when it changes, so that
+ * frequent reads of a hot entry don't keep invalidating the cache line holding it. Time is measured by a logical clock
+ * that advances when an entry is added, instead of the system clock, which is costlier to read. Once the map grows beyond
+ * its capacity, the thread that wins a try-lock estimates - from the access times of a sample of entries - the access
+ * time below which entries are to be removed to bring the size down to 7/8th of the capacity, and removes them in one
+ * pass; other threads don't wait for eviction to complete.
+ */
+public class ConcurrentCacheMap<K, V> extends AbstractMap<K, V> {
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrentCacheMap.class);
+
+    private static final int EVICTION_SAMPLE_SIZE = 64;
+
+    private final int                                 capacity;
+    private final ConcurrentHashMap<K, CacheEntry<V>> map;
+    private final AtomicLong                          clock        = new AtomicLong(); // number of entries added so far
+    private final ReentrantLock                       evictionLock = new ReentrantLock();
+
+    public ConcurrentCacheMap(int capacity) {
+        this.capacity = capacity;
+        this.map      = new ConcurrentHashMap<>();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public V get(Object key) {
+        CacheEntry<V> entry = map.get(key);
+
+        if (entry == null) {
+            return null;
+        }
+
+        entry.touch(clock.get());
+
+        return entry.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        CacheEntry<V> prev = map.put(key, new CacheEntry<>(value, clock.incrementAndGet()));
+
+        if (prev == null && map.size() > capacity) {
+            evict();
+        }
+
+        return prev != null ? prev.value : null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        CacheEntry<V> prev = map.remove(key);
+
+        return prev != null ? prev.value : null;
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+    }
+
+    /**
+     * @return snapshot of the entries in the map; changes to the snapshot are not reflected in the map
+     */
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        Map<K, V> ret = new HashMap<>();
+
+        for (Entry<K, CacheEntry<V>> entry : map.entrySet()) {
+            ret.put(entry.getKey(), entry.getValue().value);
+        }
+
+        return ret.entrySet();
+    }
+
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return; // another thread is evicting
+        }
+
+        try {
+            while (map.size() > capacity) { // entries might have been added while evicting
+                evictLeastRecentlyAccessed(capacity - (capacity / 8));
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void evictLeastRecentlyAccessed(int targetSize) {
+        int evictCount = map.size() - targetSize;
+
+        if (evictCount <= 0) {
+            return;
+        }
+
+        long[] sample     = new long[EVICTION_SAMPLE_SIZE];
+        int    sampleSize = 0;
+
+        for (CacheEntry<V> entry : map.values()) {
+            if (sampleSize == sample.length) {
+                break;
+            }
+
+            sample[sampleSize++] = entry.lastAccessTime;
+        }
+
+        Arrays.sort(sample, 0, sampleSize);
+
+        // entries accessed at or before the cutoff are about evictCount/size of the map
+        int  cutoffIdx   = Math.min(sampleSize - 1, (int) ((long) evictCount * sampleSize / (targetSize + evictCount)));
+        long cutoffTime  = sampleSize > 0 ? sample[cutoffIdx] : Long.MAX_VALUE;
+        int  removeCount = 0;
+
+        for (Iterator<CacheEntry<V>> iter = map.values().iterator(); iter.hasNext() && removeCount < evictCount; ) {
+            if (iter.next().lastAccessTime <= cutoffTime) {
+                iter.remove();
+
+                removeCount++;
+            }
+        }
+
+        // when many entries have the same access time as the cutoff, the pass above might not remove enough
+        for (Iterator<CacheEntry<V>> iter = map.values().iterator(); iter.hasNext() && map.size() > capacity; ) {
+            iter.next();
+            iter.remove();
+
+            removeCount++;
+        }
+
+        LOG.debug("ConcurrentCacheMap.evictLeastRecentlyAccessed(): capacity={}, removed {} entries accessed at or before {}", capacity, removeCount, cutoffTime);
+    }
+
+    private static final class CacheEntry<V> {
+        final V       value;
+        volatile long lastAccessTime;
+
+        CacheEntry(V value, long accessTime) {
+            this.value          = value;
+            this.lastAccessTime = accessTime;
+        }
+
+        void touch(long now) {
+            if (lastAccessTime != now) {
+                lastAccessTime = now;
+            }
+        }
+    }
+}
@@ -49,6 +49,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
 public class PolicyEngine {
     private static final Logger LOG = LoggerFactory.getLogger(PolicyEngine.class);
@@ -61,14 +62,23 @@ public class PolicyEngine {
     private final RangerPolicyRepository              tagPolicyRepository;
     private final List<RangerContextEnricher>         allContextEnrichers;
     private final RangerPluginContext                 pluginContext;
-    private final Map<String, RangerPolicyRepository> zonePolicyRepositories = new HashMap<>();
+    private final RangerZonePolicyRepositories        zonePolicyRepositories;
     private final RangerSecurityZoneMatcher           zoneMatcher;
-    private final Map<String, StringTokenReplacer>    tokenReplacers         = new HashMap<>();
+    private final Map<String, StringTokenReplacer>    tokenReplacers = new HashMap<>();
     private final RangerReadWriteLock                 lock;
+    private final boolean                             isCopyOnWrite;
     private       boolean                             useForwardedIPAddress;
     private       String[]                            trustedProxyAddresses;
 
     public PolicyEngine(ServicePolicies servicePolicies, RangerPluginContext pluginContext, RangerRoles roles, boolean isUseReadWriteLock) {
+        this(servicePolicies, pluginContext, roles, isUseReadWriteLock, false);
+    }
+
+    /**
+     * @param isCopyOnWrite when true, policy-deltas are applied to a copy of this engine that shares the unchanged
+     *                      parts of the resource tries with this engine; see cloneWithDelta()
+     */
+    public PolicyEngine(ServicePolicies servicePolicies, RangerPluginContext pluginContext, RangerRoles roles, boolean isUseReadWriteLock, boolean isCopyOnWrite) {
         LOG.debug("==> PolicyEngine({}, {})", servicePolicies, pluginContext);
 
         RangerPerfTracer perf = null;
@@ -87,6 +97,7 @@ public PolicyEngine(ServicePolicies servicePolicies, RangerPluginContext pluginC
 
         this.pluginContext = pluginContext;
         this.lock          = new RangerReadWriteLock(isUseReadWriteLock);
+        this.isCopyOnWrite = isCopyOnWrite;
         this.zoneMatcher   = new RangerSecurityZoneMatcher(servicePolicies.getSecurityZones(), servicePolicies.getServiceDef(), pluginContext);
 
         Boolean hasPolicyDeltas = RangerPolicyDeltaUtil.hasPolicyDeltas(servicePolicies);
@@ -94,6 +105,7 @@ public PolicyEngine(ServicePolicies servicePolicies, RangerPluginContext pluginC
         if (hasPolicyDeltas != null) {
             if (hasPolicyDeltas.equals(Boolean.TRUE)) {
                 LOG.info("Policy engine will{}perform in place update while processing policy-deltas.", (isUseReadWriteLock ? " " : " not "));
+                LOG.info("Policy engine will{}perform copy-on-write update while processing policy-deltas.", (isCopyOnWrite ? " " : " not "));
             } else {
                 LOG.info("Policy engine will{}perform in place update while processing policies.", (isUseReadWriteLock ? " " : " not "));
             }
@@ -114,18 +126,40 @@ public PolicyEngine(ServicePolicies servicePolicies, RangerPluginContext pluginC
         policyRepository = new RangerPolicyRepository(servicePolicies, this.pluginContext);
         serviceDefHelper = new RangerServiceDefHelper(policyRepository.getServiceDef(), false);
 
-        ServicePolicies.TagPolicies tagPolicies = servicePolicies.getTagPolicies();
+        ServicePolicies.TagPolicies tagPolicies    = servicePolicies.getTagPolicies();
+        boolean                     hasTagPolicies = !options.disableTagPolicyEvaluation && tagPolicies != null && !StringUtils.isEmpty(tagPolicies.getServiceName()) && tagPolicies.getServiceDef() != null;
+        RangerZonePolicyRepositories zoneRepositories = new RangerZonePolicyRepositories(this.pluginContext, servicePolicies.getServiceDef());
+
+        if (MapUtils.isNotEmpty(servicePolicies.getSecurityZones())) {
+            for (Map.Entry<String, SecurityZoneInfo> entry : servicePolicies.getSecurityZones().entrySet()) {
+                zoneRepositories.addZone(entry.getKey(), servicePolicies, entry.getValue().getPolicies());
+            }
+        }
+
+        this.zonePolicyRepositories = zoneRepositories;
 
-        if (!options.disableTagPolicyEvaluation && tagPolicies != null && !StringUtils.isEmpty(tagPolicies.getServiceName()) && tagPolicies.getServiceDef() != null) {
+        // with lazyZoneRepositories, only repositories of prewarm zones are built here; others are built on first access
+        List<String> zoneNames = zoneRepositories.getZonesToBuild();
+
+        // tag-policy repository and zone repositories are built concurrently. The service-def, shared by zone repositories, has been normalized above
+        List<Supplier<RangerPolicyRepository>> repositoryBuilders = new ArrayList<>(zoneNames.size() + 1);
+
+        if (hasTagPolicies) {
             LOG.debug("PolicyEngine : Building tag-policy-repository for tag-service {}", tagPolicies.getServiceName());
 
-            tagPolicyRepository = new RangerPolicyRepository(tagPolicies, this.pluginContext, servicePolicies.getServiceDef(), servicePolicies.getServiceName());
+            repositoryBuilders.add(() -> new RangerPolicyRepository(tagPolicies, pluginContext, servicePolicies.getServiceDef(), servicePolicies.getServiceName()));
         } else {
             LOG.debug("PolicyEngine : No tag-policy-repository for service {}", servicePolicies.getServiceName());
+        }
 
-            tagPolicyRepository = null;
+        for (String zoneName : zoneNames) {
+            repositoryBuilders.add(() -> zoneRepositories.get(zoneName));
         }
 
+        List<RangerPolicyRepository> repositories = RangerParallelBuilder.map(repositoryBuilders, Supplier::get, options.builderThreadCount, 1);
+
+        tagPolicyRepository = hasTagPolicies ? repositories.get(0) : null;
+
         List<RangerContextEnricher> tmpList;
         List<RangerContextEnricher> tagContextEnrichers      = tagPolicyRepository == null ? null : tagPolicyRepository.getContextEnrichers();
         List<RangerContextEnricher> resourceContextEnrichers = policyRepository.getContextEnrichers();
@@ -142,14 +176,6 @@ public PolicyEngine(ServicePolicies servicePolicies, RangerPluginContext pluginC
 
         this.allContextEnrichers = tmpList;
 
-        if (MapUtils.isNotEmpty(servicePolicies.getSecurityZones())) {
-            for (Map.Entry<String, SecurityZoneInfo> zone : servicePolicies.getSecurityZones().entrySet()) {
-                RangerPolicyRepository policyRepository = new RangerPolicyRepository(servicePolicies, this.pluginContext, zone.getKey());
-
-                zonePolicyRepositories.put(zone.getKey(), policyRepository);
-            }
-        }
-
         for (RangerServiceDef.RangerResourceDef resourceDef : getServiceDef().getResources()) {
             Map<String, String> matchOptions = resourceDef.getMatcherOptions();
 
@@ -183,8 +209,11 @@ private PolicyEngine(final PolicyEngine other, ServicePolicies servicePolicies)
         this.serviceDefHelper      = other.serviceDefHelper;
         this.pluginContext         = other.pluginContext;
         this.lock                  = other.lock;
+        this.isCopyOnWrite         = other.isCopyOnWrite;
         this.zoneMatcher           = new RangerSecurityZoneMatcher(servicePolicies.getSecurityZones(), servicePolicies.getServiceDef(), pluginContext);
 
+        this.zonePolicyRepositories = new RangerZonePolicyRepositories(other.zonePolicyRepositories);
+
         long                    policyVersion                   = servicePolicies.getPolicyVersion() != null ? servicePolicies.getPolicyVersion() : -1L;
         List<RangerPolicyDelta> defaultZoneDeltas               = new ArrayList<>();
         List<RangerPolicyDelta> defaultZoneDeltasForTagPolicies = new ArrayList<>();
@@ -192,7 +221,7 @@ private PolicyEngine(final PolicyEngine other, ServicePolicies servicePolicies)
         getDeltasSortedByZones(other, servicePolicies, defaultZoneDeltas, defaultZoneDeltasForTagPolicies);
 
         if (other.policyRepository != null && CollectionUtils.isNotEmpty(defaultZoneDeltas)) {
-            this.policyRepository = new RangerPolicyRepository(other.policyRepository, defaultZoneDeltas, policyVersion);
+            this.policyRepository = new RangerPolicyRepository(other.policyRepository, defaultZoneDeltas, policyVersion, isCopyOnWrite);
         } else {
             this.policyRepository = shareWith(other.policyRepository);
         }
@@ -200,13 +229,10 @@ private PolicyEngine(final PolicyEngine other, ServicePolicies servicePolicies)
         if (MapUtils.isEmpty(zonePolicyRepositories) && MapUtils.isNotEmpty(other.zonePolicyRepositories)) {
             LOG.debug("Existing engine contains some zonePolicyRepositories and new engine contains no zonePolicyRepositories");
 
-            for (Map.Entry<String, RangerPolicyRepository> entry : other.zonePolicyRepositories.entrySet()) {
-                LOG.debug("Copying over zoneRepository for zone :[{}]", entry.getKey());
-
-                RangerPolicyRepository otherZonePolicyRepository = entry.getValue();
-                RangerPolicyRepository zonePolicyRepository      = shareWith(otherZonePolicyRepository);
+            for (String zoneName : other.zonePolicyRepositories.keySet()) {
+                LOG.debug("Copying over zoneRepository for zone :[{}]", zoneName);
 
-                this.zonePolicyRepositories.put(entry.getKey(), zonePolicyRepository);
+                this.zonePolicyRepositories.shareZone(zoneName, other.zonePolicyRepositories);
             }
         } else {
             LOG.debug("Existing engine contains no zonePolicyRepositories or new engine contains some zonePolicyRepositories");
@@ -234,7 +260,7 @@ private PolicyEngine(final PolicyEngine other, ServicePolicies servicePolicies)
             } else {
                 LOG.debug("Current policy-engine has a tagPolicyRepository");
 
-                this.tagPolicyRepository = new RangerPolicyRepository(other.tagPolicyRepository, defaultZoneDeltasForTagPolicies, policyVersion);
+                this.tagPolicyRepository = new RangerPolicyRepository(other.tagPolicyRepository, defaultZoneDeltasForTagPolicies, policyVersion, isCopyOnWrite);
             }
         } else {
             LOG.debug("Either no associated tag repository or no changes to tag policies");
@@ -321,6 +347,14 @@ public Map<String, RangerPolicyRepository> getZonePolicyRepositories() {
         return zonePolicyRepositories;
     }
 
+    /**
+     * Returns repositories of all security zones, to evaluate a request against every zone, without evicting repositories
+     * of lazily built zones.
+     */
+    Iterable<Map.Entry<String, RangerPolicyRepository>> getZonePolicyRepositoriesForScan() {
+        return zonePolicyRepositories.getAllForScan();
+    }
+
     public List<RangerContextEnricher> getAllContextEnrichers() {
         return allContextEnrichers;
     }
@@ -376,9 +410,9 @@ public StringBuilder toString(StringBuilder sb) {
     }
 
     public List<RangerPolicy> getResourcePolicies(String zoneName) {
-        RangerPolicyRepository zoneResourceRepository = zonePolicyRepositories.get(zoneName);
+        List<RangerPolicy> ret = zonePolicyRepositories.getPolicies(zoneName);
 
-        return zoneResourceRepository == null ? Collections.emptyList() : zoneResourceRepository.getPolicies();
+        return ret == null ? Collections.emptyList() : ret;
     }
 
     public PolicyEngine cloneWithDelta(ServicePolicies servicePolicies) {
@@ -528,10 +562,8 @@ public void preCleanup(boolean isForced) {
             tagPolicyRepository.preCleanup(isForced);
         }
 
-        if (MapUtils.isNotEmpty(this.zonePolicyRepositories)) {
-            for (Map.Entry<String, RangerPolicyRepository> entry : this.zonePolicyRepositories.entrySet()) {
-                entry.getValue().preCleanup(isForced);
-            }
+        for (RangerPolicyRepository zonePolicyRepository : zonePolicyRepositories.getBuiltRepositories()) {
+            zonePolicyRepository.preCleanup(isForced);
         }
 
         LOG.debug("<== PolicyEngine.preCleanup(isForced={})", isForced);
@@ -625,10 +657,8 @@ private void cleanup() {
             tagPolicyRepository.cleanup();
         }
 
-        if (MapUtils.isNotEmpty(this.zonePolicyRepositories)) {
-            for (Map.Entry<String, RangerPolicyRepository> entry : this.zonePolicyRepositories.entrySet()) {
-                entry.getValue().cleanup();
-            }
+        for (RangerPolicyRepository zonePolicyRepository : zonePolicyRepositories.getBuiltRepositories()) {
+            zonePolicyRepository.cleanup();
         }
 
         RangerPerfTracer.log(perf);
@@ -673,17 +703,17 @@ private void getDeltasSortedByZones(PolicyEngine current, ServicePolicies servic
             LOG.debug("Security zones found in the service-policies:[{}]", zoneDeltasMap.keySet());
 
             for (Map.Entry<String, List<RangerPolicyDelta>> entry : zoneDeltasMap.entrySet()) {
-                final String                  zoneName        = entry.getKey();
-                final List<RangerPolicyDelta> zoneDeltas      = entry.getValue();
-                final RangerPolicyRepository  otherRepository = current.zonePolicyRepositories.get(zoneName);
-                final RangerPolicyRepository  policyRepository;
+                final String                  zoneName           = entry.getKey();
+                final List<RangerPolicyDelta> zoneDeltas         = entry.getValue();
+                final boolean                 doesOtherZoneExist = current.zonePolicyRepositories.containsKey(zoneName);
+                final RangerPolicyRepository  otherRepository    = current.zonePolicyRepositories.getIfBuilt(zoneName);
 
                 if (LOG.isDebugEnabled()) {
-                    LOG.debug("zoneName:[{}], zoneDeltas:[{}], doesOtherRepositoryExist:[{}]", zoneName, Arrays.toString(zoneDeltas.toArray()), (otherRepository != null));
+                    LOG.debug("zoneName:[{}], zoneDeltas:[{}], doesOtherZoneExist:[{}], doesOtherRepositoryExist:[{}]", zoneName, Arrays.toString(zoneDeltas.toArray()), doesOtherZoneExist, (otherRepository != null));
                 }
 
                 if (CollectionUtils.isNotEmpty(zoneDeltas)) {
-                    if (otherRepository == null) {
+                    if (!doesOtherZoneExist) {
                         List<RangerPolicy> policies = new ArrayList<>();
 
                         for (RangerPolicyDelta delta : zoneDeltas) {
@@ -696,15 +726,22 @@ private void getDeltasSortedByZones(PolicyEngine current, ServicePolicies servic
 
                         servicePolicies.getSecurityZones().get(zoneName).setPolicies(policies);
 
-                        policyRepository = new RangerPolicyRepository(servicePolicies, current.pluginContext, zoneName);
+                        zonePolicyRepositories.addZone(zoneName, servicePolicies, policies);
+
+                        if (zonePolicyRepositories.isBuiltEagerly(zoneName)) {
+                            zonePolicyRepositories.get(zoneName);
+                        }
+                    } else if (otherRepository != null) {
+                        zonePolicyRepositories.addZone(zoneName, servicePolicies, new RangerPolicyRepository(otherRepository, zoneDeltas, policyVersion, isCopyOnWrite));
                     } else {
-                        policyRepository = new RangerPolicyRepository(otherRepository, zoneDeltas, policyVersion);
+                        // repository of the zone is not built (lazyZoneRepositories); only its policies are updated, the repository is built on next access
+                        List<RangerPolicy> policies = RangerPolicyDeltaUtil.applyDeltas(current.zonePolicyRepositories.getPolicies(zoneName), zoneDeltas, servicePolicies.getServiceDef().getName());
+
+                        zonePolicyRepositories.addZone(zoneName, servicePolicies, policies);
                     }
                 } else {
-                    policyRepository = shareWith(otherRepository);
+                    zonePolicyRepositories.shareZone(zoneName, current.zonePolicyRepositories);
                 }
-
-                zonePolicyRepositories.put(zoneName, policyRepository);
             }
         }
 
@@ -0,0 +1,465 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
+import org.apache.ranger.plugin.contextenricher.RangerContextEnricher;
+import org.apache.ranger.plugin.contextenricher.RangerTagEnricher;
+import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.apache.ranger.plugin.contextenricher.RangerUserStoreEnricher;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceElementMatchingScope;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceMatchingScope;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of access results, keyed on the request attributes that the result of access-policy evaluation depends on:
+ * user, groups, roles, resource, owner, matching scope, access type and tags.
+ *
+ * This holds only when policies don't have conditions or validity schedules, as these can depend on any request
+ * attribute or on the time of access; hence the cache is not used for such policy engines. Requests whose evaluation
+ * depends on additional context - like GDS results, tags with validity periods, multiple requested access types - are
+ * not cached either.
+ *
+ * Entries are spread across stripes by key hash. Each stripe is an LRU map with its own lock, so threads contend only
+ * when they access the same stripe. All entries are discarded when the version of policies, roles, tags or userstore
+ * changes.
+ */
+public class RangerAccessResultCache {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerAccessResultCache.class);
+
+    private static final Set<String> STANDARD_TOKENS = new HashSet<>(Arrays.asList(
+            RangerAccessRequestUtil.KEY_TOKEN_NAMESPACE + RangerAccessRequestUtil.KEY_USER,
+            RangerAccessRequestUtil.KEY_TOKEN_NAMESPACE + RangerAccessRequestUtil.KEY_OWNER,
+            RangerAccessRequestUtil.KEY_TOKEN_NAMESPACE + RangerAccessRequestUtil.KEY_ROLES));
+
+    private final int          capacity;
+    private final Stripe[]     stripes;
+    private final CacheMetrics metrics;
+    private volatile Versions  versions;
+
+    public RangerAccessResultCache(int capacity, int stripeCount, CacheMetrics metrics) {
+        int count = Integer.highestOneBit(Math.max(1, Math.min(stripeCount, capacity))); // power of 2, for hash masking
+
+        this.capacity = capacity;
+        this.stripes  = new Stripe[count];
+        this.metrics  = metrics != null ? metrics : new CacheMetrics();
+
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe((capacity + count - 1) / count, this.metrics);
+        }
+    }
+
+    public RangerAccessResultCache(RangerAccessResultCache other) {
+        this(other.capacity, other.stripes.length, other.metrics);
+    }
+
+    public CacheMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int size() {
+        int ret = 0;
+
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                ret += stripe.size();
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * to be called before the request is preprocessed, so that results computed with data newer than the returned
+     * versions are discarded later, on version change
+     *
+     * @return versions of data the results depend on, to be passed to put(); null if the results of the policy engine must not be cached
+     */
+    public Versions getVersions(PolicyEngine policyEngine) {
+        long     policyVersion    = policyEngine.getPolicyVersion();
+        long     roleVersion      = policyEngine.getRoleVersion();
+        long     tagVersion       = -1;
+        long     userStoreVersion = -1;
+        Versions ret              = versions;
+
+        for (RangerContextEnricher enricher : policyEngine.getAllContextEnrichers()) {
+            if (enricher instanceof RangerTagEnricher) {
+                Long version = ((RangerTagEnricher) enricher).getServiceTagsVersion();
+
+                tagVersion = version != null ? version : -1;
+            } else if (enricher instanceof RangerUserStoreEnricher) {
+                Long version = ((RangerUserStoreEnricher) enricher).getUserStoreVersion();
+
+                userStoreVersion = version != null ? version : -1;
+            }
+        }
+
+        if (ret == null || !ret.isSame(policyVersion, roleVersion, tagVersion, userStoreVersion)) {
+            synchronized (this) {
+                ret = versions;
+
+                if (ret == null || !ret.isSame(policyVersion, roleVersion, tagVersion, userStoreVersion)) {
+                    LOG.debug("RangerAccessResultCache.getVersions(): versions changed from {}; discarding cached results", ret);
+
+                    ret = new Versions(policyVersion, roleVersion, tagVersion, userStoreVersion, isCacheable(policyEngine));
+
+                    if (versions != null) {
+                        metrics.invalidations.increment();
+                    }
+
+                    versions = ret; // set before clearing stripes, so that put() with older versions is rejected
+
+                    for (Stripe stripe : stripes) {
+                        synchronized (stripe) {
+                            stripe.clear();
+                        }
+                    }
+                }
+            }
+        }
+
+        return ret.isCacheable ? ret : null;
+    }
+
+    /**
+     * @return cache key for the given request; null if the result of the request must not be cached
+     */
+    public static Key getKey(RangerAccessRequest request) {
+        RangerAccessResource resource = request.getResource();
+        Map<String, Object>  context  = request.getContext();
+
+        if (resource == null || request.isAccessTypeAny() || context == null) {
+            return null;
+        }
+
+        if (context.containsKey(RangerAccessRequestUtil.KEY_CONTEXT_ALL_ACCESSTYPES) ||
+                context.containsKey(RangerAccessRequestUtil.KEY_CONTEXT_ALL_ACCESSTYPE_GROUPS) ||
+                context.containsKey(RangerAccessRequestUtil.KEY_CONTEXT_IGNORE_IF_NOT_DENIED_ACCESSTYPES) ||
+                RangerAccessRequestUtil.getGdsResultFromContext(context) != null) {
+            return null;
+        }
+
+        Set<RangerTagForEval> tags = RangerAccessRequestUtil.getRequestTagsFromContext(context);
+
+        if (tags != null) {
+            for (RangerTagForEval tag : tags) {
+                if (CollectionUtils.isNotEmpty(tag.getValidityPeriods()) || MapUtils.isNotEmpty(tag.getOptions())) {
+                    return null;
+                }
+            }
+        }
+
+        Map<String, Object> tokens = null;
+
+        for (Map.Entry<String, Object> entry : context.entrySet()) {
+            if (entry.getKey().startsWith(RangerAccessRequestUtil.KEY_TOKEN_NAMESPACE) && !STANDARD_TOKENS.contains(entry.getKey())) {
+                if (tokens == null) {
+                    tokens = new HashMap<>();
+                }
+
+                tokens.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return new Key(request.getUser(), request.getUserGroups(), RangerAccessRequestUtil.getUserRoles(request), resource.getCacheKey(), resource.getOwnerUser(),
+                request.getResourceMatchingScope(), request.getResourceElementMatchingScopes(), request.getAccessType(), tags, tokens);
+    }
+
+    /**
+     * @return cached result for the key, not associated with any request; null if not found
+     */
+    public RangerAccessResult get(Key key) {
+        Stripe             stripe = getStripe(key);
+        RangerAccessResult ret;
+
+        synchronized (stripe) {
+            ret = stripe.get(key);
+        }
+
+        if (ret != null) {
+            metrics.hits.increment();
+        } else {
+            metrics.misses.increment();
+        }
+
+        return ret;
+    }
+
+    public void put(Key key, RangerAccessResult result, Versions versions) {
+        RangerAccessResult value  = new RangerAccessResult(result.getPolicyType(), result.getServiceName(), result.getServiceDef(), null);
+        Key                copy   = key.copyOf();
+        Stripe             stripe = getStripe(key);
+
+        value.setAccessResultFrom(result);
+        value.setAuditResultFrom(result);
+
+        synchronized (stripe) {
+            if (versions == this.versions) { // results computed for older versions are not cached
+                stripe.put(copy, value);
+            }
+        }
+    }
+
+    private Stripe getStripe(Key key) {
+        int hash = key.hashCode();
+
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static boolean isCacheable(PolicyEngine policyEngine) {
+        List<RangerPolicyRepository> repositories = new ArrayList<>();
+
+        repositories.add(policyEngine.getPolicyRepository());
+        repositories.add(policyEngine.getTagPolicyRepository());
+
+        // policies of zones are checked without building repositories of zones, which might be built lazily
+        if (policyEngine.getZonePolicyRepositories() != null) {
+            for (String zoneName : policyEngine.getZonePolicyRepositories().keySet()) {
+                for (RangerPolicy policy : policyEngine.getResourcePolicies(zoneName)) {
+                    if (isContextSensitive(policy)) {
+                        LOG.info("RangerAccessResultCache: policy(id={}) in zone {} has conditions or validity schedules; access results will not be cached", policy.getId(), zoneName);
+
+                        return false;
+                    }
+                }
+            }
+        }
+
+        for (RangerPolicyRepository repository : repositories) {
+            if (repository == null) {
+                continue;
+            }
+
+            for (RangerPolicyEvaluator evaluator : repository.getPolicyEvaluators()) {
+                if (isContextSensitive(evaluator)) {
+                    LOG.info("RangerAccessResultCache: policy(id={}) has conditions or validity schedules; access results will not be cached", evaluator.getPolicyId());
+
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isContextSensitive(RangerPolicyEvaluator evaluator) {
+        RangerPolicy policy = evaluator.getPolicy();
+
+        return evaluator.getPolicyConditionsCount() > 0 || evaluator.getValidityScheduleEvaluatorsCount() > 0 ||
+                hasConditions(policy.getPolicyItems()) || hasConditions(policy.getDenyPolicyItems()) ||
+                hasConditions(policy.getAllowExceptions()) || hasConditions(policy.getDenyExceptions());
+    }
+
+    private static boolean isContextSensitive(RangerPolicy policy) {
+        return CollectionUtils.isNotEmpty(policy.getConditions()) || CollectionUtils.isNotEmpty(policy.getValiditySchedules()) ||
+                hasConditions(policy.getPolicyItems()) || hasConditions(policy.getDenyPolicyItems()) ||
+                hasConditions(policy.getAllowExceptions()) || hasConditions(policy.getDenyExceptions());
+    }
+
+    private static boolean hasConditions(List<? extends RangerPolicyItem> policyItems) {
+        if (policyItems != null) {
+            for (RangerPolicyItem policyItem : policyItems) {
+                if (CollectionUtils.isNotEmpty(policyItem.getConditions())) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    public static class CacheMetrics {
+        private final LongAdder hits          = new LongAdder();
+        private final LongAdder misses        = new LongAdder();
+        private final LongAdder evictions     = new LongAdder();
+        private final LongAdder invalidations = new LongAdder();
+
+        public long getHitCount() {
+            return hits.sum();
+        }
+
+        public long getMissCount() {
+            return misses.sum();
+        }
+
+        public long getEvictionCount() {
+            return evictions.sum();
+        }
+
+        public long getInvalidationCount() {
+            return invalidations.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "CacheMetrics={hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + ", invalidations=" + getInvalidationCount() + "}";
+        }
+    }
+
+    public static final class Versions {
+        private final long    policyVersion;
+        private final long    roleVersion;
+        private final long    tagVersion;
+        private final long    userStoreVersion;
+        private final boolean isCacheable;
+
+        Versions(long policyVersion, long roleVersion, long tagVersion, long userStoreVersion, boolean isCacheable) {
+            this.policyVersion    = policyVersion;
+            this.roleVersion      = roleVersion;
+            this.tagVersion       = tagVersion;
+            this.userStoreVersion = userStoreVersion;
+            this.isCacheable      = isCacheable;
+        }
+
+        boolean isSame(long policyVersion, long roleVersion, long tagVersion, long userStoreVersion) {
+            return this.policyVersion == policyVersion && this.roleVersion == roleVersion && this.tagVersion == tagVersion && this.userStoreVersion == userStoreVersion;
+        }
+
+        @Override
+        public String toString() {
+            return "Versions={policyVersion=" + policyVersion + ", roleVersion=" + roleVersion + ", tagVersion=" + tagVersion + ", userStoreVersion=" + userStoreVersion + ", isCacheable=" + isCacheable + "}";
+        }
+    }
+
+    public static final class Key {
+        private final String                                    user;
+        private final Set<String>                               userGroups;
+        private final Set<String>                               userRoles;
+        private final String                                    resource;
+        private final String                                    owner;
+        private final ResourceMatchingScope                     matchingScope;
+        private final Map<String, ResourceElementMatchingScope> elementMatchingScopes;
+        private final String                                    accessType;
+        private final Set<RangerTagForEval>                     tags;
+        private final Map<String, Object>                       tokens;
+        private final int                                       hashCode;
+
+        Key(String user, Set<String> userGroups, Set<String> userRoles, String resource, String owner, ResourceMatchingScope matchingScope,
+                Map<String, ResourceElementMatchingScope> elementMatchingScopes, String accessType, Set<RangerTagForEval> tags, Map<String, Object> tokens) {
+            this.user                  = user;
+            this.userGroups            = userGroups != null ? userGroups : Collections.emptySet();
+            this.userRoles             = userRoles != null ? userRoles : Collections.emptySet();
+            this.resource              = resource;
+            this.owner                 = owner;
+            this.matchingScope         = matchingScope != null ? matchingScope : ResourceMatchingScope.SELF;
+            this.elementMatchingScopes = elementMatchingScopes != null ? elementMatchingScopes : Collections.emptyMap();
+            this.accessType            = accessType;
+            this.tags                  = tags != null ? tags : Collections.emptySet();
+            this.tokens                = tokens != null ? tokens : Collections.emptyMap();
+            this.hashCode              = Objects.hash(this.user, this.userGroups, this.userRoles, this.resource, this.owner, this.matchingScope, this.elementMatchingScopes, this.accessType, this.tags, this.tokens);
+        }
+
+        private Key(Key other) {
+            this.user                  = other.user;
+            this.userGroups            = other.userGroups.isEmpty() ? Collections.emptySet() : new HashSet<>(other.userGroups);
+            this.userRoles             = other.userRoles.isEmpty() ? Collections.emptySet() : new HashSet<>(other.userRoles);
+            this.resource              = other.resource;
+            this.owner                 = other.owner;
+            this.matchingScope         = other.matchingScope;
+            this.elementMatchingScopes = other.elementMatchingScopes.isEmpty() ? Collections.emptyMap() : new HashMap<>(other.elementMatchingScopes);
+            this.accessType            = other.accessType;
+            this.tags                  = other.tags.isEmpty() ? Collections.emptySet() : new HashSet<>(other.tags);
+            this.tokens                = other.tokens;
+            this.hashCode              = other.hashCode;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) obj;
+
+            return hashCode == other.hashCode &&
+                    Objects.equals(user, other.user) &&
+                    Objects.equals(resource, other.resource) &&
+                    Objects.equals(accessType, other.accessType) &&
+                    Objects.equals(owner, other.owner) &&
+                    matchingScope == other.matchingScope &&
+                    userGroups.equals(other.userGroups) &&
+                    userRoles.equals(other.userRoles) &&
+                    elementMatchingScopes.equals(other.elementMatchingScopes) &&
+                    tags.equals(other.tags) &&
+                    tokens.equals(other.tokens);
+        }
+
+        @Override
+        public String toString() {
+            return "Key={user=" + user + ", userGroups=" + userGroups + ", userRoles=" + userRoles + ", resource=" + resource + ", owner=" + owner + ", matchingScope=" + matchingScope +
+                    ", elementMatchingScopes=" + elementMatchingScopes + ", accessType=" + accessType + ", tags=" + tags + ", tokens=" + tokens + "}";
+        }
+
+        // keys used for lookup refer to collections in the request; entries in the cache must not
+        Key copyOf() {
+            return new Key(this);
+        }
+    }
+
+    private static final class Stripe extends LinkedHashMap<Key, RangerAccessResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final int                    capacity;
+        private final transient CacheMetrics metrics;
+
+        Stripe(int capacity, CacheMetrics metrics) {
+            super(16, 0.75f, true); // true for access-order
+
+            this.capacity = capacity;
+            this.metrics  = metrics;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, RangerAccessResult> eldest) {
+            boolean ret = size() > capacity;
+
+            if (ret) {
+                metrics.evictions.increment();
+            }
+
+            return ret;
+        }
+    }
+}
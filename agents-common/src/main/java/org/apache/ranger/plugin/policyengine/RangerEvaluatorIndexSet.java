@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.collections.Predicate;
+import org.apache.ranger.plugin.policyresourcematcher.RangerResourceEvaluator;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Set of resource evaluators, kept in arrays sorted by evaluator index (see RangerResourceEvaluator.getIndex()), so
+ * that sets can be merged and intersected by scanning int arrays - without hashing or allocating per operation.
+ *
+ * Resource-trie nodes keep immutable instances built from their evaluator sets; lookups merge these into a mutable
+ * instance, which is reused across lookups and hence must be used by one thread at a time.
+ */
+public class RangerEvaluatorIndexSet<T extends RangerResourceEvaluator> {
+    private static final int[]    EMPTY_INDEXES    = new int[0];
+    private static final Object[] EMPTY_EVALUATORS = new Object[0];
+
+    private static final Comparator<RangerResourceEvaluator> INDEX_COMPARATOR = Comparator.comparingInt(RangerResourceEvaluator::getIndex);
+
+    private int[]     indexes;
+    private Object[]  evaluators;
+    private int       size;
+    private int[]     mergedIndexes;
+    private Object[]  mergedEvaluators;
+    private boolean[] isRetained;
+    private int       retainedCount;
+
+    public RangerEvaluatorIndexSet() {
+        this(EMPTY_INDEXES, EMPTY_EVALUATORS, 0);
+    }
+
+    private RangerEvaluatorIndexSet(int[] indexes, Object[] evaluators, int size) {
+        this.indexes          = indexes;
+        this.evaluators       = evaluators;
+        this.size             = size;
+        this.mergedIndexes    = EMPTY_INDEXES;
+        this.mergedEvaluators = EMPTY_EVALUATORS;
+        this.isRetained       = new boolean[0];
+    }
+
+    /**
+     * @return set of the given evaluators; null if an evaluator doesn't have an index, or shares its index with another
+     */
+    public static <T extends RangerResourceEvaluator> RangerEvaluatorIndexSet<T> of(Collection<T> evaluators) {
+        RangerResourceEvaluator[] sorted  = evaluators.toArray(new RangerResourceEvaluator[0]);
+        int[]                     indexes = new int[sorted.length];
+
+        Arrays.sort(sorted, INDEX_COMPARATOR);
+
+        for (int i = 0; i < sorted.length; i++) {
+            indexes[i] = sorted[i].getIndex();
+
+            if (indexes[i] < 0 || (i > 0 && indexes[i] == indexes[i - 1])) {
+                return null;
+            }
+        }
+
+        return new RangerEvaluatorIndexSet<>(indexes, sorted, sorted.length);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked") // evaluators holds only instances of T; it is an Object[], as arrays of T can't be created
+    public T get(int i) {
+        return (T) evaluators[i];
+    }
+
+    public void clear() {
+        Arrays.fill(evaluators, 0, size, null);
+
+        size = 0;
+    }
+
+    /**
+     * adds evaluators in the given set that satisfy the predicate
+     */
+    public void addAll(RangerEvaluatorIndexSet<T> other, Predicate predicate) {
+        if (other.size == 0) {
+            return;
+        }
+
+        int capacity = size + other.size;
+
+        if (mergedIndexes.length < capacity) {
+            mergedIndexes    = new int[capacity];
+            mergedEvaluators = new Object[capacity];
+        }
+
+        int i     = 0;
+        int j     = 0;
+        int count = 0;
+
+        while (i < size && j < other.size) {
+            int index      = indexes[i];
+            int otherIndex = other.indexes[j];
+
+            if (index <= otherIndex) {
+                mergedIndexes[count]    = index;
+                mergedEvaluators[count] = evaluators[i];
+                count++;
+                i++;
+
+                if (index == otherIndex) {
+                    j++;
+                }
+            } else {
+                if (predicate == null || predicate.evaluate(other.evaluators[j])) {
+                    mergedIndexes[count]    = otherIndex;
+                    mergedEvaluators[count] = other.evaluators[j];
+                    count++;
+                }
+
+                j++;
+            }
+        }
+
+        for (; i < size; i++, count++) {
+            mergedIndexes[count]    = indexes[i];
+            mergedEvaluators[count] = evaluators[i];
+        }
+
+        for (; j < other.size; j++) {
+            if (predicate == null || predicate.evaluate(other.evaluators[j])) {
+                mergedIndexes[count]    = other.indexes[j];
+                mergedEvaluators[count] = other.evaluators[j];
+                count++;
+            }
+        }
+
+        int[]    tmpIndexes    = indexes;
+        Object[] tmpEvaluators = evaluators;
+
+        Arrays.fill(tmpEvaluators, 0, size, null);
+
+        indexes          = mergedIndexes;
+        evaluators       = mergedEvaluators;
+        size             = count;
+        mergedIndexes    = tmpIndexes;
+        mergedEvaluators = tmpEvaluators;
+    }
+
+    /**
+     * starts an intersection: evaluators not marked by subsequent calls to retain() are removed by endRetain()
+     */
+    public void beginRetain() {
+        if (isRetained.length < size) {
+            isRetained = new boolean[size];
+        } else {
+            Arrays.fill(isRetained, 0, size, false);
+        }
+
+        retainedCount = 0;
+    }
+
+    /**
+     * marks evaluators that are in the given set as well
+     *
+     * @return true if all evaluators in this set have been marked
+     */
+    public boolean retain(RangerEvaluatorIndexSet<T> other) {
+        if (other.size > size * 8) { // much larger set: binary-search for each evaluator in this set
+            for (int i = 0; i < size; i++) {
+                if (!isRetained[i] && Arrays.binarySearch(other.indexes, 0, other.size, indexes[i]) >= 0) {
+                    isRetained[i] = true;
+                    retainedCount++;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+
+            while (i < size && j < other.size) {
+                int index      = indexes[i];
+                int otherIndex = other.indexes[j];
+
+                if (index < otherIndex) {
+                    i++;
+                } else if (index > otherIndex) {
+                    j++;
+                } else {
+                    if (!isRetained[i]) {
+                        isRetained[i] = true;
+                        retainedCount++;
+                    }
+
+                    i++;
+                    j++;
+                }
+            }
+        }
+
+        return retainedCount == size;
+    }
+
+    public void endRetain() {
+        if (retainedCount != size) {
+            int count = 0;
+
+            for (int i = 0; i < size; i++) {
+                if (isRetained[i]) {
+                    indexes[count]    = indexes[i];
+                    evaluators[count] = evaluators[i];
+                    count++;
+                }
+            }
+
+            Arrays.fill(evaluators, count, size, null);
+
+            size = count;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("RangerEvaluatorIndexSet={indexes=[");
+
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+
+            sb.append(indexes[i]);
+        }
+
+        sb.append("]}");
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Function;
+
+/**
+ * Runs parts of policy-engine construction - building policy evaluators, resource tries and policy repositories - on a
+ * ForkJoinPool. Results are returned in the order of the input, so that the engine built is the same as when built
+ * on a single thread.
+ *
+ * Pools are shared by all engines in the JVM, one per thread count; their worker threads are daemon threads and exit
+ * when idle. Calls made from a worker of the pool, for example to build evaluators of a repository that is itself built
+ * in the pool, run their tasks in the same pool.
+ */
+final class RangerParallelBuilder {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerParallelBuilder.class);
+
+    private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    private RangerParallelBuilder() {
+        // to block instantiation
+    }
+
+    /**
+     * Applies mapper to each item, in up to threadCount threads; items are processed in chunks of at least minChunkSize.
+     * Tasks run with the context class loader of the caller. A RuntimeException thrown by the mapper is rethrown to the caller.
+     *
+     * @return results of the mapper, in the order of items
+     */
+    static <T, R> List<R> map(List<T> items, Function<? super T, ? extends R> mapper, int threadCount, int minChunkSize) {
+        final List<R> ret;
+
+        if (items == null || items.isEmpty()) {
+            ret = Collections.emptyList();
+        } else {
+            int chunkSize  = Math.max(Math.max(1, minChunkSize), (items.size() + threadCount * 4 - 1) / (threadCount * 4));
+            int chunkCount = (items.size() + chunkSize - 1) / chunkSize;
+
+            if (threadCount <= 1 || chunkCount <= 1) {
+                ret = new ArrayList<>(items.size());
+
+                for (T item : items) {
+                    ret.add(mapper.apply(item));
+                }
+            } else {
+                LOG.debug("RangerParallelBuilder.map(items={}, threadCount={}, chunkSize={})", items.size(), threadCount, chunkSize);
+
+                List<R>               results     = new ArrayList<>(Collections.nCopies(items.size(), null)); // set by index, from tasks
+                ClassLoader           classLoader = Thread.currentThread().getContextClassLoader();
+                List<ForkJoinTask<?>> tasks       = new ArrayList<>(chunkCount);
+
+                for (int start = 0; start < items.size(); start += chunkSize) {
+                    int from = start;
+                    int to   = Math.min(start + chunkSize, items.size());
+
+                    tasks.add(ForkJoinTask.adapt(() -> {
+                        Thread      thread         = Thread.currentThread();
+                        ClassLoader oldClassLoader = thread.getContextClassLoader();
+
+                        thread.setContextClassLoader(classLoader);
+
+                        try {
+                            for (int i = from; i < to; i++) {
+                                results.set(i, mapper.apply(items.get(i)));
+                            }
+                        } finally {
+                            thread.setContextClassLoader(oldClassLoader);
+                        }
+                    }));
+                }
+
+                invokeAll(getPool(threadCount), tasks);
+
+                ret = results;
+            }
+        }
+
+        return ret;
+    }
+
+    private static void invokeAll(ForkJoinPool pool, List<ForkJoinTask<?>> tasks) {
+        Thread currentThread = Thread.currentThread();
+
+        if (currentThread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) currentThread).getPool() == pool) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            for (ForkJoinTask<?> task : tasks) {
+                pool.execute(task);
+            }
+
+            RuntimeException failure = null;
+
+            for (ForkJoinTask<?> task : tasks) {
+                try {
+                    task.join();
+                } catch (RuntimeException excp) {
+                    if (failure == null) {
+                        failure = excp;
+                    }
+                }
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private static ForkJoinPool getPool(int threadCount) {
+        return POOLS.computeIfAbsent(threadCount, ForkJoinPool::new);
+    }
+}
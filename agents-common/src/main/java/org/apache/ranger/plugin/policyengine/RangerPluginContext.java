@@ -40,6 +40,7 @@ public class RangerPluginContext {
     private final RangerPluginConfig                                                         config;
     private final Map<String, Map<RangerPolicy.RangerPolicyResource, RangerResourceMatcher>> resourceMatchers = new HashMap<>();
     private final ReentrantReadWriteLock                                                     lock             = new ReentrantReadWriteLock(true); // fair lock
+    private final RangerAccessResultCache.CacheMetrics                                       resultCacheStats = new RangerAccessResultCache.CacheMetrics();
     private       RangerAuthContext                                                          authContext;
     private       RangerAuthContextListener                                                  authContextListener;
     private       RangerAdminClient                                                          adminClient;
@@ -119,6 +120,13 @@ public void notifyAuthContextChanged() {
         }
     }
 
+    /**
+     * @return hit/miss/eviction counts of access-result caches of policy engines created with this context
+     */
+    public RangerAccessResultCache.CacheMetrics getAccessResultCacheMetrics() {
+        return resultCacheStats;
+    }
+
     public RangerAdminClient getAdminClient() {
         return adminClient;
     }
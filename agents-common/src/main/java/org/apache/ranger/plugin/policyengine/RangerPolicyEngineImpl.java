@@ -66,29 +66,42 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
     private final PolicyEngine                 policyEngine;
     private final RangerAccessRequestProcessor requestProcessor;
     private final ServiceConfig                serviceConfig;
+    private final RangerAccessResultCache      accessResultCache;
 
     public RangerPolicyEngineImpl(ServicePolicies servicePolicies, RangerPluginContext pluginContext, RangerRoles roles) {
         final boolean isUseReadWriteLock;
+        final boolean isCopyOnWrite;
+        final int     resultCacheSize;
+        final int     resultCacheStripes;
 
         Configuration config = pluginContext != null ? pluginContext.getConfig() : null;
 
         if (config != null) {
             boolean isDeltasSupported = config.getBoolean(pluginContext.getConfig().getPropertyPrefix() + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_POLICY_DELTA, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_POLICY_DELTA_DEFAULT);
 
-            isUseReadWriteLock = isDeltasSupported && config.getBoolean(pluginContext.getConfig().getPropertyPrefix() + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_IN_PLACE_POLICY_UPDATES, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_IN_PLACE_POLICY_UPDATES_DEFAULT);
+            // copy-on-write updates take precedence over in-place updates, as the readers then don't need a lock
+            isCopyOnWrite      = isDeltasSupported && config.getBoolean(pluginContext.getConfig().getPropertyPrefix() + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_COPY_ON_WRITE_UPDATES, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_COPY_ON_WRITE_UPDATES_DEFAULT);
+            isUseReadWriteLock = isDeltasSupported && !isCopyOnWrite && config.getBoolean(pluginContext.getConfig().getPropertyPrefix() + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_IN_PLACE_POLICY_UPDATES, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_IN_PLACE_POLICY_UPDATES_DEFAULT);
+            resultCacheSize    = config.getInt(pluginContext.getConfig().getPropertyPrefix() + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_RESULT_CACHE_SIZE, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_RESULT_CACHE_SIZE_DEFAULT);
+            resultCacheStripes = config.getInt(pluginContext.getConfig().getPropertyPrefix() + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_RESULT_CACHE_STRIPES, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_RESULT_CACHE_STRIPES_DEFAULT);
         } else {
             isUseReadWriteLock = false;
+            isCopyOnWrite      = false;
+            resultCacheSize    = 0;
+            resultCacheStripes = 0;
         }
 
-        policyEngine     = new PolicyEngine(servicePolicies, pluginContext, roles, isUseReadWriteLock);
-        serviceConfig    = new ServiceConfig(servicePolicies.getServiceConfig());
-        requestProcessor = new RangerDefaultRequestProcessor(policyEngine);
+        policyEngine      = new PolicyEngine(servicePolicies, pluginContext, roles, isUseReadWriteLock, isCopyOnWrite);
+        serviceConfig     = new ServiceConfig(servicePolicies.getServiceConfig());
+        requestProcessor  = new RangerDefaultRequestProcessor(policyEngine);
+        accessResultCache = resultCacheSize > 0 ? new RangerAccessResultCache(resultCacheSize, resultCacheStripes, pluginContext.getAccessResultCacheMetrics()) : null;
     }
 
     private RangerPolicyEngineImpl(final PolicyEngine policyEngine, RangerPolicyEngineImpl other) {
-        this.policyEngine     = policyEngine;
-        this.requestProcessor = new RangerDefaultRequestProcessor(policyEngine);
-        this.serviceConfig    = new ServiceConfig(other.serviceConfig);
+        this.policyEngine      = policyEngine;
+        this.requestProcessor  = new RangerDefaultRequestProcessor(policyEngine);
+        this.serviceConfig     = new ServiceConfig(other.serviceConfig);
+        this.accessResultCache = other.accessResultCache != null ? new RangerAccessResultCache(other.accessResultCache) : null;
     }
 
     public static RangerPolicyEngine getPolicyEngine(final RangerPolicyEngineImpl other, final ServicePolicies servicePolicies) {
@@ -215,9 +228,7 @@ public RangerAccessResult evaluatePolicies(RangerAccessRequest request, int poli
                 LOG.debug("Acquired lock - {}", readLock);
             }
 
-            requestProcessor.preProcess(request);
-
-            ret = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+            ret = preProcessAndEvaluate(request, policyType);
 
             if (resultProcessor != null) {
                 RangerPerfTracer perfAuditTracer = null;
@@ -253,12 +264,20 @@ public Collection<RangerAccessResult> evaluatePolicies(Collection<RangerAccessRe
             }
 
             if (requests != null) {
-                for (RangerAccessRequest request : requests) {
-                    requestProcessor.preProcess(request);
+                // requests in a batch often share resource-prefixes - like columns of a table; policy evaluators matching
+                // a prefix are looked up once for the batch, instead of once per request
+                boolean isBatchStarted = RangerPolicyRepository.beginBatch();
 
-                    RangerAccessResult result = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+                try {
+                    for (RangerAccessRequest request : requests) {
+                        RangerAccessResult result = preProcessAndEvaluate(request, policyType);
 
-                    ret.add(result);
+                        ret.add(result);
+                    }
+                } finally {
+                    if (isBatchStarted) {
+                        RangerPolicyRepository.endBatch();
+                    }
                 }
             }
 
@@ -554,6 +573,33 @@ public RangerAccessRequestProcessor getRequestProcessor() {
         return requestProcessor;
     }
 
+    private RangerAccessResult preProcessAndEvaluate(RangerAccessRequest request, int policyType) {
+        RangerAccessResultCache.Versions cacheVersions = accessResultCache != null && policyType == RangerPolicy.POLICY_TYPE_ACCESS ? accessResultCache.getVersions(policyEngine) : null;
+
+        requestProcessor.preProcess(request);
+
+        RangerAccessResultCache.Key cacheKey = cacheVersions != null ? RangerAccessResultCache.getKey(request) : null;
+        RangerAccessResult          cached   = cacheKey != null ? accessResultCache.get(cacheKey) : null;
+        RangerAccessResult          ret;
+
+        if (cached != null) {
+            LOG.debug("RangerPolicyEngineImpl.preProcessAndEvaluate({}, policyType={}): found in cache {}", request, policyType, cached);
+
+            ret = createAccessResult(request, policyType);
+
+            ret.setAccessResultFrom(cached);
+            ret.setAuditResultFrom(cached);
+        } else {
+            ret = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+
+            if (cacheKey != null) {
+                accessResultCache.put(cacheKey, ret, cacheVersions);
+            }
+        }
+
+        return ret;
+    }
+
     private RangerAccessResult zoneAwareAccessEvaluationWithNoAudit(RangerAccessRequest request, int policyType) {
         LOG.debug("==> RangerPolicyEngineImpl.zoneAwareAccessEvaluationWithNoAudit({}, policyType={})", request, policyType);
 
@@ -593,7 +639,7 @@ private RangerAccessResult zoneAwareAccessEvaluationWithNoAudit(RangerAccessRequ
 
             RangerAccessResult accessResult;
 
-            for (Map.Entry<String, RangerPolicyRepository> entry : policyEngine.getZonePolicyRepositories().entrySet()) {
+            for (Map.Entry<String, RangerPolicyRepository> entry : policyEngine.getZonePolicyRepositoriesForScan()) {
                 String                 someZone         = entry.getKey();
                 RangerPolicyRepository policyRepository = entry.getValue();
 
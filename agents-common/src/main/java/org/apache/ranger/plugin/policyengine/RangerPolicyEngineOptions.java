@@ -22,7 +22,13 @@
 import org.apache.ranger.plugin.model.validation.RangerServiceDefHelper;
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
 
+import java.util.Objects;
+
 public class RangerPolicyEngineOptions {
+    public static final int DEFAULT_POLICY_ITEM_INDEX_MIN_ITEMS = 16;
+    public static final int DEFAULT_BUILDER_THREAD_COUNT        = 1; // serial, unless <propertyPrefix>.policyengine.option.builder.thread.count is set
+    public static final int DEFAULT_ZONE_MATCHER_CACHE_SIZE     = 1024;
+
     public String evaluatorType = RangerPolicyEvaluator.EVALUATOR_TYPE_AUTO;
 
     public boolean disableContextEnrichers;
@@ -45,6 +51,14 @@ public class RangerPolicyEngineOptions {
     public boolean optimizeTrieForSpace;
     public boolean optimizeTagTrieForRetrieval;
     public boolean optimizeTagTrieForSpace;
+    public boolean compileResourceMatchers;
+    public int     policyItemIndexMinItems                     = DEFAULT_POLICY_ITEM_INDEX_MIN_ITEMS;
+    public int     builderThreadCount                          = DEFAULT_BUILDER_THREAD_COUNT;
+    public boolean lazyZoneRepositories;
+    public int     zoneRepositoryMaxCount;
+    public int     zoneRepositoryIdleTimeoutSecs;
+    public String  zoneRepositoryPrewarmZones;
+    public int     zoneMatcherCacheSize                        = DEFAULT_ZONE_MATCHER_CACHE_SIZE;
 
     private RangerServiceDefHelper serviceDefHelper;
 
@@ -71,6 +85,14 @@ public RangerPolicyEngineOptions(final RangerPolicyEngineOptions other) {
         this.optimizeTrieForSpace                      = other.optimizeTrieForSpace;
         this.optimizeTagTrieForRetrieval               = other.optimizeTagTrieForRetrieval;
         this.optimizeTagTrieForSpace                   = other.optimizeTagTrieForSpace;
+        this.compileResourceMatchers                   = other.compileResourceMatchers;
+        this.policyItemIndexMinItems                   = other.policyItemIndexMinItems;
+        this.builderThreadCount                        = other.builderThreadCount;
+        this.lazyZoneRepositories                      = other.lazyZoneRepositories;
+        this.zoneRepositoryMaxCount                    = other.zoneRepositoryMaxCount;
+        this.zoneRepositoryIdleTimeoutSecs             = other.zoneRepositoryIdleTimeoutSecs;
+        this.zoneRepositoryPrewarmZones                = other.zoneRepositoryPrewarmZones;
+        this.zoneMatcherCacheSize                      = other.zoneMatcherCacheSize;
     }
 
     public RangerPolicyEngineOptions(final RangerPolicyEngineOptions other, RangerServiceDefHelper serviceDefHelper) {
@@ -103,6 +125,14 @@ public void configureForPlugin(Configuration conf, String propertyPrefix) {
         optimizeTrieForSpace                      = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.trie.for.space", false);
         optimizeTagTrieForRetrieval               = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.tag.trie.for.retrieval", false);
         optimizeTagTrieForSpace                   = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.tag.trie.for.space", false);
+        compileResourceMatchers                   = conf.getBoolean(propertyPrefix + ".policyengine.option.compile.resource.matchers", false);
+        policyItemIndexMinItems                   = conf.getInt(propertyPrefix + ".policyengine.option.policyitem.index.min.items", DEFAULT_POLICY_ITEM_INDEX_MIN_ITEMS);
+        builderThreadCount                        = conf.getInt(propertyPrefix + ".policyengine.option.builder.thread.count", DEFAULT_BUILDER_THREAD_COUNT);
+        lazyZoneRepositories                      = conf.getBoolean(propertyPrefix + ".policyengine.option.lazy.zone.repositories", false);
+        zoneRepositoryMaxCount                    = conf.getInt(propertyPrefix + ".policyengine.option.zone.repository.max.count", 0);
+        zoneRepositoryIdleTimeoutSecs             = conf.getInt(propertyPrefix + ".policyengine.option.zone.repository.idle.timeout.secs", 0);
+        zoneRepositoryPrewarmZones                = conf.get(propertyPrefix + ".policyengine.option.zone.repository.prewarm.zones");
+        zoneMatcherCacheSize                      = conf.getInt(propertyPrefix + ".policyengine.option.zone.matcher.cache.size", DEFAULT_ZONE_MATCHER_CACHE_SIZE);
     }
 
     public void configureDefaultRangerAdmin(Configuration conf, String propertyPrefix) {
@@ -216,6 +246,21 @@ public int hashCode() {
         ret *= 2;
         ret += enableResourceMatcherReuse ? 1 : 0;
         ret *= 2;
+        ret += compileResourceMatchers ? 1 : 0;
+        ret *= 2;
+        ret += policyItemIndexMinItems;
+        ret *= 2;
+        ret += builderThreadCount;
+        ret *= 2;
+        ret += lazyZoneRepositories ? 1 : 0;
+        ret *= 2;
+        ret += zoneRepositoryMaxCount;
+        ret *= 2;
+        ret += zoneRepositoryIdleTimeoutSecs;
+        ret *= 2;
+        ret += Objects.hashCode(zoneRepositoryPrewarmZones);
+        ret *= 2;
+        ret += zoneMatcherCacheSize;
         return ret;
     }
 
@@ -241,7 +286,15 @@ public boolean equals(Object other) {
                     && this.optimizeTrieForSpace == that.optimizeTrieForSpace
                     && this.optimizeTagTrieForRetrieval == that.optimizeTagTrieForRetrieval
                     && this.optimizeTagTrieForSpace == that.optimizeTagTrieForSpace
-                    && this.enableResourceMatcherReuse == that.enableResourceMatcherReuse;
+                    && this.enableResourceMatcherReuse == that.enableResourceMatcherReuse
+                    && this.compileResourceMatchers == that.compileResourceMatchers
+                    && this.policyItemIndexMinItems == that.policyItemIndexMinItems
+                    && this.builderThreadCount == that.builderThreadCount
+                    && this.lazyZoneRepositories == that.lazyZoneRepositories
+                    && this.zoneRepositoryMaxCount == that.zoneRepositoryMaxCount
+                    && this.zoneRepositoryIdleTimeoutSecs == that.zoneRepositoryIdleTimeoutSecs
+                    && Objects.equals(this.zoneRepositoryPrewarmZones, that.zoneRepositoryPrewarmZones)
+                    && this.zoneMatcherCacheSize == that.zoneMatcherCacheSize;
         }
         return ret;
     }
@@ -268,6 +321,14 @@ public String toString() {
                 ", optimizeTagTrieForRetrieval: " + optimizeTagTrieForRetrieval +
                 ", optimizeTagTrieForSpace: " + optimizeTagTrieForSpace +
                 ", enableResourceMatcherReuse: " + enableResourceMatcherReuse +
+                ", compileResourceMatchers: " + compileResourceMatchers +
+                ", policyItemIndexMinItems: " + policyItemIndexMinItems +
+                ", builderThreadCount: " + builderThreadCount +
+                ", lazyZoneRepositories: " + lazyZoneRepositories +
+                ", zoneRepositoryMaxCount: " + zoneRepositoryMaxCount +
+                ", zoneRepositoryIdleTimeoutSecs: " + zoneRepositoryIdleTimeoutSecs +
+                ", zoneRepositoryPrewarmZones: " + zoneRepositoryPrewarmZones +
+                ", zoneMatcherCacheSize: " + zoneMatcherCacheSize +
                 " }";
     }
 }
@@ -38,6 +38,7 @@
 import org.apache.ranger.plugin.model.RangerPolicyDelta;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.model.validation.RangerServiceDefHelper;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceElementMatchingScope;
 import org.apache.ranger.plugin.policyevaluator.RangerAbstractPolicyEvaluator;
 import org.apache.ranger.plugin.policyevaluator.RangerAuditPolicyEvaluator;
 import org.apache.ranger.plugin.policyevaluator.RangerCachedPolicyEvaluator;
@@ -53,6 +54,7 @@
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -61,7 +63,9 @@
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import static org.apache.ranger.plugin.contextenricher.RangerGdsEnricher.RETRIEVER_CLASSNAME_OPTION;
 import static org.apache.ranger.plugin.contextenricher.RangerTagEnricher.TAG_RETRIEVER_CLASSNAME_OPTION;
@@ -73,7 +77,14 @@ public class RangerPolicyRepository {
     private static final Logger PERF_CONTEXTENRICHER_INIT_LOG = RangerPerfTracer.getPerfLogger("contextenricher.init");
     private static final Logger PERF_TRIE_OP_LOG              = RangerPerfTracer.getPerfLogger("resourcetrie.retrieval");
 
-    private static final int RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE = 64 * 1024;
+    private static final int    RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE       = 64 * 1024;
+    private static final String RANGER_POLICYENGINE_AUDITRESULT_CACHE_CONCURRENT = "concurrent";
+    private static final int    EVALUATOR_BUILDER_MIN_CHUNK_SIZE                 = 32;
+
+    private static final ThreadLocal<RangerEvaluatorIndexSet<RangerPolicyResourceEvaluator>> LIKELY_MATCH_EVALUATORS = ThreadLocal.withInitial(RangerEvaluatorIndexSet::new);
+
+    // evaluators matching resource-prefixes of requests in the batch being evaluated by this thread; see beginBatch()
+    private static final ThreadLocal<Map<PrefixKey, RangerEvaluatorIndexSet<RangerPolicyResourceEvaluator>>> BATCH_PREFIX_EVALUATORS = new ThreadLocal<>();
 
     private final String                                                         serviceName;
     private final String                                                         zoneName;
@@ -99,8 +110,9 @@ public class RangerPolicyRepository {
     private       Map<Long, RangerPolicyEvaluator>                               policyEvaluatorsMap;
     private       boolean                                                        isContextEnrichersShared;
     private       boolean                                                        isPreCleaned;
+    private       int                                                            nextEvaluatorIndex;
 
-    RangerPolicyRepository(final RangerPolicyRepository other, final List<RangerPolicyDelta> deltas, long policyVersion) {
+    RangerPolicyRepository(final RangerPolicyRepository other, final List<RangerPolicyDelta> deltas, long policyVersion, boolean isCopyOnWrite) {
         this.serviceName               = other.serviceName;
         this.zoneName                  = other.zoneName;
         this.appId                     = other.appId;
@@ -116,12 +128,13 @@ public class RangerPolicyRepository {
         this.componentServiceName      = other.componentServiceName;
         this.componentServiceDef       = other.componentServiceDef;
         this.policyEvaluatorsMap       = new HashMap<>(other.policyEvaluatorsMap);
+        this.nextEvaluatorIndex        = other.nextEvaluatorIndex;
 
         if (other.policyResourceTrie != null) {
             this.policyResourceTrie = new HashMap<>();
 
             for (Map.Entry<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> entry : other.policyResourceTrie.entrySet()) {
-                policyResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue()));
+                policyResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue(), isCopyOnWrite));
             }
         } else {
             this.policyResourceTrie = null;
@@ -131,7 +144,7 @@ public class RangerPolicyRepository {
             this.dataMaskResourceTrie = new HashMap<>();
 
             for (Map.Entry<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> entry : other.dataMaskResourceTrie.entrySet()) {
-                dataMaskResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue()));
+                dataMaskResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue(), isCopyOnWrite));
             }
         } else {
             this.dataMaskResourceTrie = null;
@@ -141,7 +154,7 @@ public class RangerPolicyRepository {
             this.rowFilterResourceTrie = new HashMap<>();
 
             for (Map.Entry<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> entry : other.rowFilterResourceTrie.entrySet()) {
-                rowFilterResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue()));
+                rowFilterResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue(), isCopyOnWrite));
             }
         } else {
             this.rowFilterResourceTrie = null;
@@ -151,13 +164,15 @@ public class RangerPolicyRepository {
             this.auditFilterResourceTrie = new HashMap<>();
 
             for (Map.Entry<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> entry : other.auditFilterResourceTrie.entrySet()) {
-                auditFilterResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue()));
+                auditFilterResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue(), isCopyOnWrite));
             }
         } else {
             this.auditFilterResourceTrie = null;
         }
 
-        if (other.accessAuditCache != null) {
+        if (other.accessAuditCache instanceof ConcurrentCacheMap) {
+            this.accessAuditCache = new ConcurrentCacheMap<>(((ConcurrentCacheMap<String, AuditInfo>) other.accessAuditCache).getCapacity());
+        } else if (other.accessAuditCache != null) {
             int auditResultCacheSize = other.accessAuditCache.size();
 
             this.accessAuditCache = Collections.synchronizedMap(new CacheMap<>(auditResultCacheSize));
@@ -185,10 +200,18 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
     }
 
     RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginContext pluginContext, String zoneName) {
+        this(servicePolicies, pluginContext, zoneName, true);
+    }
+
+    /**
+     * @param normalizeServiceDef should be false when the service-def is shared with repositories being built concurrently;
+     *                            the caller is then expected to have normalized it, as normalization updates the service-def
+     */
+    RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginContext pluginContext, String zoneName, boolean normalizeServiceDef) {
         super();
 
         this.serviceName          = servicePolicies.getServiceName();
-        this.serviceDef           = ServiceDefUtil.normalize(servicePolicies.getServiceDef());
+        this.serviceDef           = normalizeServiceDef ? ServiceDefUtil.normalize(servicePolicies.getServiceDef()) : servicePolicies.getServiceDef();
         this.componentServiceName = this.serviceName;
         this.componentServiceDef  = this.serviceDef;
         this.zoneName             = zoneName;
@@ -218,9 +241,14 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
             String propertyName = "ranger.plugin." + serviceName + ".policyengine.auditcachesize";
 
             if (options.cacheAuditResults) {
-                int auditResultCacheSize = pluginContext.getConfig().getInt(propertyName, RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE);
+                int    auditResultCacheSize = pluginContext.getConfig().getInt(propertyName, RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE);
+                String auditResultCacheType = pluginContext.getConfig().get(propertyName + ".type");
 
-                accessAuditCache = Collections.synchronizedMap(new CacheMap<>(auditResultCacheSize));
+                if (StringUtils.equalsIgnoreCase(auditResultCacheType, RANGER_POLICYENGINE_AUDITRESULT_CACHE_CONCURRENT)) {
+                    accessAuditCache = new ConcurrentCacheMap<>(auditResultCacheSize);
+                } else {
+                    accessAuditCache = Collections.synchronizedMap(new CacheMap<>(auditResultCacheSize));
+                }
             } else {
                 accessAuditCache = null;
             }
@@ -246,10 +274,12 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
             rowFilterResourceTrie   = null;
             auditFilterResourceTrie = null;
         } else {
-            policyResourceTrie      = createResourceTrieMap(policyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
-            dataMaskResourceTrie    = createResourceTrieMap(dataMaskPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
-            rowFilterResourceTrie   = createResourceTrieMap(rowFilterPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
-            auditFilterResourceTrie = createResourceTrieMap(auditPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
+            List<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>> trieMaps = createResourceTrieMaps(Arrays.asList(policyEvaluators, dataMaskPolicyEvaluators, rowFilterPolicyEvaluators, auditPolicyEvaluators), options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
+
+            policyResourceTrie      = trieMaps.get(0);
+            dataMaskResourceTrie    = trieMaps.get(1);
+            rowFilterResourceTrie   = trieMaps.get(2);
+            auditFilterResourceTrie = trieMaps.get(3);
         }
     }
 
@@ -297,10 +327,12 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
             rowFilterResourceTrie   = null;
             auditFilterResourceTrie = null;
         } else {
-            policyResourceTrie      = createResourceTrieMap(policyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
-            dataMaskResourceTrie    = createResourceTrieMap(dataMaskPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
-            rowFilterResourceTrie   = createResourceTrieMap(rowFilterPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
-            auditFilterResourceTrie = createResourceTrieMap(auditPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
+            List<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>> trieMaps = createResourceTrieMaps(Arrays.asList(policyEvaluators, dataMaskPolicyEvaluators, rowFilterPolicyEvaluators, auditPolicyEvaluators), options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
+
+            policyResourceTrie      = trieMaps.get(0);
+            dataMaskResourceTrie    = trieMaps.get(1);
+            rowFilterResourceTrie   = trieMaps.get(2);
+            auditFilterResourceTrie = trieMaps.get(3);
         }
     }
 
@@ -735,15 +767,128 @@ private List<RangerPolicyEvaluator> getLikelyMatchRowFilterPolicyEvaluators(Rang
     }
 
     private List<RangerPolicyEvaluator> getLikelyMatchPolicyEvaluators(Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> resourceTrie, RangerAccessRequest request) {
-        List<RangerPolicyEvaluator> ret      = Collections.emptyList();
-        RangerAccessResource        resource = request.getResource();
-        RangerPerfTracer            perf     = null;
+        final List<RangerPolicyEvaluator> ret;
+        RangerAccessResource              resource = request.getResource();
+        RangerPerfTracer                  perf     = null;
 
         if (RangerPerfTracer.isPerfTraceEnabled(PERF_TRIE_OP_LOG)) {
             perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_OP_LOG, "RangerPolicyRepository.getLikelyMatchEvaluators(resource=" + resource.getAsString() + ")");
         }
 
-        Collection<RangerPolicyResourceEvaluator> smallestList = RangerResourceEvaluatorsRetriever.getEvaluators(resourceTrie, resource.getAsMap(), request.getResourceElementMatchingScopes());
+        RangerEvaluatorIndexSet<RangerPolicyResourceEvaluator> evaluators = LIKELY_MATCH_EVALUATORS.get();
+
+        try {
+            Map<PrefixKey, RangerEvaluatorIndexSet<RangerPolicyResourceEvaluator>> prefixEvaluators = BATCH_PREFIX_EVALUATORS.get();
+
+            boolean isCollected = prefixEvaluators != null ? collectEvaluatorsInBatch(resourceTrie, request, prefixEvaluators, evaluators)
+                                                           : RangerResourceEvaluatorsRetriever.collectEvaluators(resourceTrie, resource.getAsMap(), request.getResourceElementMatchingScopes(), null, evaluators);
+
+            if (isCollected) {
+                ret = getPolicyEvaluators(evaluators);
+            } else {
+                ret = getPolicyEvaluators(RangerResourceEvaluatorsRetriever.getEvaluators(resourceTrie, resource.getAsMap(), request.getResourceElementMatchingScopes()));
+            }
+        } finally {
+            evaluators.clear();
+        }
+
+        RangerPerfTracer.logAlways(perf);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("<== RangerPolicyRepository.getLikelyMatchPolicyEvaluators({}): evaluatorCount={}", resource.getAsString(), ret.size());
+        }
+
+        return ret;
+    }
+
+    /**
+     * Starts evaluation of a batch of requests by the current thread. Until endBatch(), evaluators matching the resource
+     * of a request, except its leaf element, are remembered; for other requests having the same resource-prefix - like
+     * requests for columns of a table - only the evaluators matching the leaf element are to be looked up and intersected.
+     *
+     * @return false if a batch is already being evaluated by the current thread; in such case, endBatch() must not be called
+     */
+    static boolean beginBatch() {
+        if (BATCH_PREFIX_EVALUATORS.get() != null) {
+            return false;
+        }
+
+        BATCH_PREFIX_EVALUATORS.set(new HashMap<>());
+
+        return true;
+    }
+
+    static void endBatch() {
+        BATCH_PREFIX_EVALUATORS.remove();
+    }
+
+    private static boolean collectEvaluatorsInBatch(Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> resourceTrie, RangerAccessRequest request, Map<PrefixKey, RangerEvaluatorIndexSet<RangerPolicyResourceEvaluator>> prefixEvaluators, RangerEvaluatorIndexSet<RangerPolicyResourceEvaluator> result) {
+        RangerAccessResource                              resource = request.getResource();
+        Map<String, Object>                               resMap   = resource.getAsMap();
+        Map<String, ResourceElementMatchingScope>         scopes   = request.getResourceElementMatchingScopes();
+        String                                            leafName = resMap.size() > 1 ? resource.getLeafName() : null;
+        RangerResourceTrie<RangerPolicyResourceEvaluator> leafTrie = leafName != null && resMap.containsKey(leafName) ? resourceTrie.get(leafName) : null;
+        Map<String, Object>                               prefix   = null;
+
+        if (leafTrie != null) {
+            prefix = new HashMap<>(resMap);
+
+            prefix.remove(leafName);
+
+            if (!CollectionUtils.containsAny(prefix.keySet(), resourceTrie.keySet())) { // no evaluators to share
+                prefix = null;
+            }
+        }
+
+        if (prefix == null) {
+            return RangerResourceEvaluatorsRetriever.collectEvaluators(resourceTrie, resMap, scopes, null, result);
+        }
+
+        PrefixKey key = new PrefixKey(resourceTrie, prefix, scopes);
+
+        if (!prefixEvaluators.containsKey(key)) {
+            RangerEvaluatorIndexSet<RangerPolicyResourceEvaluator> matches = new RangerEvaluatorIndexSet<>();
+
+            // null when evaluators are not indexed; these are then to be retrieved without RangerEvaluatorIndexSet
+            prefixEvaluators.put(key, RangerResourceEvaluatorsRetriever.collectEvaluators(resourceTrie, prefix, scopes, null, matches) ? matches : null);
+        }
+
+        RangerEvaluatorIndexSet<RangerPolicyResourceEvaluator> prefixMatches = prefixEvaluators.get(key);
+
+        if (prefixMatches == null) {
+            return false;
+        }
+
+        result.clear();
+        result.addAll(prefixMatches, null);
+
+        return result.isEmpty() || leafTrie.retainEvaluatorsForResource(resMap.get(leafName), scopes != null ? scopes.get(leafName) : null, result);
+    }
+
+    private List<RangerPolicyEvaluator> getPolicyEvaluators(RangerEvaluatorIndexSet<RangerPolicyResourceEvaluator> resourceEvaluators) {
+        List<RangerPolicyEvaluator> ret       = new ArrayList<>(resourceEvaluators.size());
+        RangerPolicyEvaluator       lastAdded = null;
+
+        // resource evaluators of a policy are given consecutive indexes, hence are next to each other in the set
+        for (int i = 0; i < resourceEvaluators.size(); i++) {
+            RangerPolicyEvaluator policyEvaluator = resourceEvaluators.get(i).getPolicyEvaluator();
+
+            if (policyEvaluator != lastAdded) {
+                ret.add(policyEvaluator);
+
+                lastAdded = policyEvaluator;
+            }
+        }
+
+        if (ret.size() > 1) {
+            ret.sort(RangerPolicyEvaluator.EVAL_ORDER_COMPARATOR);
+        }
+
+        return ret;
+    }
+
+    private List<RangerPolicyEvaluator> getPolicyEvaluators(Collection<RangerPolicyResourceEvaluator> smallestList) {
+        List<RangerPolicyEvaluator> ret = Collections.emptyList();
 
         if (smallestList != null) {
             if (smallestList.isEmpty()) {
@@ -773,12 +918,6 @@ private List<RangerPolicyEvaluator> getLikelyMatchPolicyEvaluators(Map<String, R
             }
         }
 
-        RangerPerfTracer.logAlways(perf);
-
-        if (LOG.isDebugEnabled()) {
-            LOG.debug("<== RangerPolicyRepository.getLikelyMatchPolicyEvaluators({}): evaluatorCount={}", resource.getAsString(), ret.size());
-        }
-
         return ret;
     }
 
@@ -927,13 +1066,19 @@ private void init(RangerPolicyEngineOptions options) {
         List<RangerPolicyEvaluator> policyEvaluators          = new ArrayList<>();
         List<RangerPolicyEvaluator> dataMaskPolicyEvaluators  = new ArrayList<>();
         List<RangerPolicyEvaluator> rowFilterPolicyEvaluators = new ArrayList<>();
+        List<RangerPolicy>          policiesToBuild           = new ArrayList<>(policies.size());
 
         for (RangerPolicy policy : policies) {
-            if (skipBuildingPolicyEvaluator(policy, options)) {
-                continue;
+            if (!skipBuildingPolicyEvaluator(policy, options)) {
+                policiesToBuild.add(policy);
             }
+        }
 
-            RangerPolicyEvaluator evaluator = buildPolicyEvaluator(policy, serviceDef, options);
+        List<RangerPolicyEvaluator> evaluators = RangerParallelBuilder.map(policiesToBuild, policy -> buildPolicyEvaluator(policy, serviceDef, options), options.builderThreadCount, EVALUATOR_BUILDER_MIN_CHUNK_SIZE);
+
+        for (int i = 0; i < policiesToBuild.size(); i++) {
+            RangerPolicy          policy    = policiesToBuild.get(i);
+            RangerPolicyEvaluator evaluator = evaluators.get(i);
 
             if (evaluator != null) {
                 if (policy.getPolicyType() == null || policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ACCESS) {
@@ -1205,22 +1350,54 @@ private List<RangerPolicyEvaluator> getReorderedPolicyEvaluators(List<RangerPoli
         return ret;
     }
 
-    private Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> createResourceTrieMap(List<? extends RangerPolicyEvaluator> evaluators, boolean optimizeTrieForRetrieval, boolean optimizeTrieForSpace) {
-        final Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> ret;
+    // returns a trie-map for each list of evaluators; tries of all lists and resources are built concurrently
+    private List<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>> createResourceTrieMaps(List<List<? extends RangerPolicyEvaluator>> evaluatorLists, boolean optimizeTrieForRetrieval, boolean optimizeTrieForSpace) {
+        final List<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>> ret;
 
         if (serviceDef != null && CollectionUtils.isNotEmpty(serviceDef.getResources())) {
-            ret = new HashMap<>();
+            List<RangerServiceDef.RangerResourceDef>                          resourceDefs = serviceDef.getResources();
+            List<Supplier<RangerResourceTrie<RangerPolicyResourceEvaluator>>> trieBuilders = new ArrayList<>(evaluatorLists.size() * resourceDefs.size());
+
+            for (List<? extends RangerPolicyEvaluator> evaluators : evaluatorLists) {
+                // indexes are assigned before building tries in parallel, so that they are the same as in sequential build
+                for (RangerPolicyEvaluator evaluator : evaluators) {
+                    setEvaluatorIndexes(evaluator);
+                }
 
-            for (RangerServiceDef.RangerResourceDef resourceDef : serviceDef.getResources()) {
-                ret.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, evaluators, optimizeTrieForRetrieval, optimizeTrieForSpace, pluginContext));
+                for (RangerServiceDef.RangerResourceDef resourceDef : resourceDefs) {
+                    trieBuilders.add(() -> new RangerResourceTrie<>(resourceDef, evaluators, optimizeTrieForRetrieval, optimizeTrieForSpace, pluginContext));
+                }
+            }
+
+            Iterator<RangerResourceTrie<RangerPolicyResourceEvaluator>> tries = RangerParallelBuilder.map(trieBuilders, Supplier::get, options.builderThreadCount, 1).iterator();
+
+            ret = new ArrayList<>(evaluatorLists.size());
+
+            for (int i = 0; i < evaluatorLists.size(); i++) {
+                Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> trieMap = new HashMap<>();
+
+                for (RangerServiceDef.RangerResourceDef resourceDef : resourceDefs) {
+                    trieMap.put(resourceDef.getName(), tries.next());
+                }
+
+                ret.add(trieMap);
             }
         } else {
-            ret = null;
+            ret = Collections.nCopies(evaluatorLists.size(), null);
         }
 
         return ret;
     }
 
+    // indexes are assigned in the order of evaluators in the list, so that lookups find evaluators mostly in evaluation order
+    private void setEvaluatorIndexes(RangerPolicyEvaluator evaluator) {
+        for (RangerPolicyResourceEvaluator resourceEvaluator : evaluator.getResourceEvaluators()) {
+            if (resourceEvaluator.getIndex() < 0) {
+                resourceEvaluator.setIndex(nextEvaluatorIndex++);
+            }
+        }
+    }
+
     private void updateTrie(Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> trieMap, Integer policyDeltaType, RangerPolicyEvaluator oldEvaluator, RangerPolicyEvaluator newEvaluator) {
         LOG.debug("==> RangerPolicyRepository.updateTrie(policyDeltaType={})", policyDeltaType);
 
@@ -1303,6 +1480,8 @@ private RangerPolicyEvaluator addPolicy(RangerPolicy policy) {
                 ret = buildPolicyEvaluator(policy, serviceDef, options);
 
                 if (ret != null) {
+                    setEvaluatorIndexes(ret);
+
                     if (policy.getPolicyType() == null || policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ACCESS) {
                         policyEvaluators.add(ret);
                     } else if (policy.getPolicyType() == RangerPolicy.POLICY_TYPE_DATAMASK) {
@@ -1517,6 +1696,38 @@ enum AuditModeEnum {
         AUDIT_ALL, AUDIT_NONE, AUDIT_DEFAULT
     }
 
+    private static final class PrefixKey {
+        private final Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> resourceTrie;
+        private final Map<String, Object>                                            prefix;
+        private final Map<String, ResourceElementMatchingScope>                      scopes;
+        private final int                                                            hashCode;
+
+        PrefixKey(Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> resourceTrie, Map<String, Object> prefix, Map<String, ResourceElementMatchingScope> scopes) {
+            this.resourceTrie = resourceTrie;
+            this.prefix       = prefix;
+            this.scopes       = MapUtils.isEmpty(scopes) ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(scopes)); // copied, as the request can modify its scopes later
+            this.hashCode     = Objects.hash(System.identityHashCode(resourceTrie), this.prefix, this.scopes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof PrefixKey)) {
+                return false;
+            }
+
+            PrefixKey other = (PrefixKey) obj;
+
+            return resourceTrie == other.resourceTrie && hashCode == other.hashCode && prefix.equals(other.prefix) && scopes.equals(other.scopes);
+        }
+    }
+
     private static final class AuditInfo {
         final boolean isAudited;
         final long    auditPolicyId;
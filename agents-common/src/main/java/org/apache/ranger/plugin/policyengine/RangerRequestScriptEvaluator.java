@@ -35,6 +35,8 @@
 import org.slf4j.LoggerFactory;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 
@@ -204,7 +206,9 @@ public final class RangerRequestScriptEvaluator {
     private final RangerAccessRequest                 accessRequest;
     private final ScriptEngine                        scriptEngine;
     private final Bindings                            bindings;
+    private final boolean                             enableJsonCtx;
     private       boolean                             initDone;
+    private       boolean                             jsonCtxInitDone;
     private       Map<String, String>                 userAttrs  = Collections.emptyMap();
     private       Map<String, Map<String, String>>    groupAttrs = Collections.emptyMap();
     private       Map<String, Map<String, Object>>    tags       = Collections.emptyMap();
@@ -219,32 +223,65 @@ public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest, ScriptEng
     }
 
     public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest, ScriptEngine scriptEngine, boolean enableJsonCtx) {
+        this(accessRequest, scriptEngine, enableJsonCtx, null);
+    }
+
+    /*
+     * bindings, when not null, are cleared and reused instead of creating new bindings, which is expensive in script engines
+     * like Nashorn. Note that clearing bindings doesn't remove variables declared with 'var' by an earlier evaluation.
+     */
+    public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest, ScriptEngine scriptEngine, boolean enableJsonCtx, Bindings bindings) {
+        if (bindings != null) {
+            bindings.clear();
+        } else if (scriptEngine != null) {
+            bindings = scriptEngine.createBindings();
+        }
+
         this.accessRequest = accessRequest.getReadOnlyCopy();
         this.scriptEngine  = scriptEngine;
-        this.bindings      = scriptEngine.createBindings();
+        this.bindings      = bindings;
+        this.enableJsonCtx = enableJsonCtx;
 
-        RangerTagForEval    currentTag = this.getCurrentTag();
-        Map<String, String> tagAttribs = currentTag != null ? currentTag.getAttributes() : Collections.emptyMap();
+        if (bindings != null) {
+            RangerTagForEval    currentTag = this.getCurrentTag();
+            Map<String, String> tagAttribs = currentTag != null ? currentTag.getAttributes() : Collections.emptyMap();
 
-        bindings.put(SCRIPT_VAR_ctx, this);
-        bindings.put(SCRIPT_VAR_tag, currentTag);
-        bindings.put(SCRIPT_VAR_tagAttr, tagAttribs);
+            bindings.put(SCRIPT_VAR_ctx, this);
+            bindings.put(SCRIPT_VAR_tag, currentTag);
+            bindings.put(SCRIPT_VAR_tagAttr, tagAttribs);
+        }
+    }
 
-        String preExecScript = "";
+    // for evaluation of RangerRequestScriptExpression only, which doesn't need a script engine
+    public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest) {
+        this(accessRequest, null, false, null);
+    }
 
-        if (enableJsonCtx) {
-            bindings.put(SCRIPT_VAR__CTX_JSON, this.toJson());
+    /*
+     * compiles the script, after expanding macros, for evaluation with evaluateScript(CompiledScript) by evaluators created
+     * with the same scriptEngine and enableJsonCtx. The compiled script can be shared across threads.
+     * Returns null if the script engine doesn't support compilation or the script fails to compile.
+     */
+    public static CompiledScript compileScript(ScriptEngine scriptEngine, String script, boolean enableJsonCtx) {
+        CompiledScript ret = null;
 
-            preExecScript += SCRIPT_PREEXEC;
-        }
+        if (scriptEngine instanceof Compilable && script != null) {
+            String scriptToEval = getScriptToEval(expandMacros(script));
+
+            if (enableJsonCtx) {
+                scriptToEval = SCRIPT_PREEXEC + scriptToEval;
+            }
 
-        if (StringUtils.isNotBlank(preExecScript)) {
             try {
-                scriptEngine.eval(preExecScript, bindings);
+                ret = ((Compilable) scriptEngine).compile(scriptToEval);
             } catch (ScriptException excp) {
-                LOG.error("RangerRequestScriptEvaluator(): initialization failed", excp);
+                LOG.error("RangerRequestScriptEvaluator.compileScript(): failed to compile script {}", script, excp);
+            } catch (Throwable t) {
+                LOG.error("RangerRequestScriptEvaluator.compileScript(): failed to compile script {}", script, t);
             }
         }
+
+        return ret;
     }
 
     public static boolean needsJsonCtxEnabled(String script) {
@@ -345,6 +382,74 @@ public Object evaluateConditionScript(String script) {
         return ret;
     }
 
+    public Object evaluateScript(CompiledScript script) {
+        Object           ret  = null;
+        RangerPerfTracer perf = null;
+
+        try {
+            if (RangerPerfTracer.isPerfTraceEnabled(PERF_POLICY_CONDITION_SCRIPT_EVAL)) {
+                perf = RangerPerfTracer.getPerfTracer(PERF_POLICY_CONDITION_SCRIPT_EVAL, "RangerRequestScriptEvaluator.evaluateScript(requestHash=" + accessRequest.hashCode() + ")");
+            }
+
+            if (enableJsonCtx && !bindings.containsKey(SCRIPT_VAR__CTX_JSON)) {
+                bindings.put(SCRIPT_VAR__CTX_JSON, this.toJson());
+            }
+
+            ret = script.eval(bindings);
+        } catch (NullPointerException nullp) {
+            LOG.error("RangerRequestScriptEvaluator.evaluateScript(): eval called with NULL argument(s)", nullp);
+        } catch (ScriptException excp) {
+            LOG.error("RangerRequestScriptEvaluator.evaluateScript(): failed to evaluate script", excp);
+        } catch (Throwable t) {
+            LOG.error("RangerRequestScriptEvaluator.evaluateScript(): failed to evaluate script", t);
+        } finally {
+            RangerPerfTracer.log(perf);
+        }
+
+        return ret;
+    }
+
+    public Object evaluateConditionScript(CompiledScript script) {
+        Object ret = evaluateScript(script);
+
+        if (ret == null) {
+            ret = getResult();
+        }
+
+        if (ret instanceof Boolean) {
+            result = (Boolean) ret;
+        }
+
+        return ret;
+    }
+
+    public Object evaluateConditionScript(RangerRequestScriptExpression script) {
+        Object           ret  = null;
+        RangerPerfTracer perf = null;
+
+        try {
+            if (RangerPerfTracer.isPerfTraceEnabled(PERF_POLICY_CONDITION_SCRIPT_EVAL)) {
+                perf = RangerPerfTracer.getPerfTracer(PERF_POLICY_CONDITION_SCRIPT_EVAL, "RangerRequestScriptEvaluator.evaluateScript(requestHash=" + accessRequest.hashCode() + ")");
+            }
+
+            ret = script.evaluate(this);
+        } catch (Throwable t) {
+            LOG.error("RangerRequestScriptEvaluator.evaluateConditionScript(): failed to evaluate script {}", script.getScript(), t);
+        } finally {
+            RangerPerfTracer.log(perf);
+        }
+
+        if (ret == null) {
+            ret = getResult();
+        }
+
+        if (ret instanceof Boolean) {
+            result = (Boolean) ret;
+        }
+
+        return ret;
+    }
+
     public String getResource() {
         String               ret = null;
         RangerAccessResource val = RangerAccessRequestUtil.getCurrentResourceFromContext(getRequestContext());
@@ -564,6 +669,22 @@ public String getAttributeValue(final String attributeName) {
         return ret;
     }
 
+    // value of USER[attrName] in scripts
+    String getUserAttributeValue(String attrName) {
+        init();
+
+        return userAttrs.get(attrName);
+    }
+
+    // value of TAG[fieldName] in scripts
+    String getCurrentTagFieldValue(String fieldName) {
+        init();
+
+        Object ret = tag.get(fieldName);
+
+        return ret != null ? ret.toString() : null;
+    }
+
     public boolean getResult() {
         return result;
     }
@@ -959,21 +1080,9 @@ private Object evaluateScriptImpl(String script) {
                 perf = RangerPerfTracer.getPerfTracer(PERF_POLICY_CONDITION_SCRIPT_EVAL, "RangerRequestScriptEvaluator.evaluateScript(requestHash=" + accessRequest.hashCode() + ")");
             }
 
-            String preExec = SCRIPT_SAFE_PREEXEC;
-
-            if (script.contains(".includes(")) {
-                preExec += SCRIPT_POLYFILL_INCLUDES;
-            }
+            initJsonCtx();
 
-            if (script.contains(".intersects(")) {
-                preExec += SCRIPT_POLYFILL_INTERSECTS;
-            }
-
-            if (JavaScriptEdits.hasDoubleBrackets(script)) {
-                script = JavaScriptEdits.replaceDoubleBrackets(script);
-            }
-
-            ret = scriptEngine.eval(preExec + script, bindings);
+            ret = scriptEngine.eval(getScriptToEval(script), bindings);
         } catch (NullPointerException nullp) {
             LOG.error("RangerRequestScriptEvaluator.evaluateScript(): eval called with NULL argument(s)", nullp);
         } catch (ScriptException excp) {
@@ -987,6 +1096,38 @@ private Object evaluateScriptImpl(String script) {
         return ret;
     }
 
+    private void initJsonCtx() {
+        if (enableJsonCtx && !jsonCtxInitDone) {
+            jsonCtxInitDone = true;
+
+            bindings.put(SCRIPT_VAR__CTX_JSON, this.toJson());
+
+            try {
+                scriptEngine.eval(SCRIPT_PREEXEC, bindings);
+            } catch (ScriptException excp) {
+                LOG.error("RangerRequestScriptEvaluator.initJsonCtx(): initialization failed", excp);
+            }
+        }
+    }
+
+    private static String getScriptToEval(String script) {
+        String preExec = SCRIPT_SAFE_PREEXEC;
+
+        if (script.contains(".includes(")) {
+            preExec += SCRIPT_POLYFILL_INCLUDES;
+        }
+
+        if (script.contains(".intersects(")) {
+            preExec += SCRIPT_POLYFILL_INTERSECTS;
+        }
+
+        if (JavaScriptEdits.hasDoubleBrackets(script)) {
+            script = JavaScriptEdits.replaceDoubleBrackets(script);
+        }
+
+        return preExec + script;
+    }
+
     private String toJson() {
         RangerPerfTracer perf = null;
 
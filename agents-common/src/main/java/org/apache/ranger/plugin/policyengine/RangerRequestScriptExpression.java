@@ -0,0 +1,715 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.plugin.util.JavaScriptEdits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_VAR_TAG;
+import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_VAR_USER;
+import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_VAR_ctx;
+import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_VAR_tagAttr;
+
+/**
+ * Evaluates condition scripts of a commonly used form without a script engine. The script, after macro expansion, is
+ * compiled into a tree of Java predicates when it consists only of:
+ *   - boolean operators &&, || and !, with parentheses
+ *   - calls to methods of ctx that take string arguments and return boolean or String, like ctx.isInGroup('g1')
+ *   - attributes of USER, TAG and tagAttr, like USER.dept or TAG['level']
+ *   - comparisons (==, !=, ===, !==) of the above with string literals, null, true or false
+ *   - ['v1', 'v2'].includes(value)
+ * compile() returns null for any other script, which must then be evaluated by a script engine.
+ */
+public final class RangerRequestScriptExpression {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerRequestScriptExpression.class);
+
+    private static final Map<String, Method> CTX_METHODS      = getCtxMethods();
+    private static final Set<String>         MAP_METHOD_NAMES = getMapMethodNames();
+
+    private final String script;
+    private final Node   root;
+
+    private RangerRequestScriptExpression(String script, Node root) {
+        this.script = script;
+        this.root   = root;
+    }
+
+    /*
+     * enableJsonCtx: when false, references to USER and TAG are not supported, as these variables are initialized only
+     * when JSON context is enabled
+     */
+    public static RangerRequestScriptExpression compile(String script, boolean enableJsonCtx) {
+        RangerRequestScriptExpression ret = null;
+
+        if (script != null) {
+            String expandedScript = RangerRequestScriptEvaluator.expandMacros(script);
+
+            if (!JavaScriptEdits.hasDoubleBrackets(expandedScript)) {
+                try {
+                    ret = new RangerRequestScriptExpression(script, new Parser(expandedScript, enableJsonCtx).parse());
+                } catch (UnsupportedExpressionException excp) {
+                    LOG.debug("RangerRequestScriptExpression.compile({}): not supported - {}", script, excp.getMessage());
+                }
+            }
+        }
+
+        LOG.debug("RangerRequestScriptExpression.compile({}, enableJsonCtx={}): ret={}", script, enableJsonCtx, ret);
+
+        return ret;
+    }
+
+    public String getScript() {
+        return script;
+    }
+
+    public Boolean evaluate(RangerRequestScriptEvaluator ctx) {
+        return (Boolean) root.eval(ctx);
+    }
+
+    @Override
+    public String toString() {
+        return "RangerRequestScriptExpression={script=" + script + "; root=" + root + "}";
+    }
+
+    // public methods of RangerRequestScriptEvaluator that take only String arguments and return boolean or String
+    private static Map<String, Method> getCtxMethods() {
+        Map<String, Method> ret = new HashMap<>();
+
+        for (Method method : RangerRequestScriptEvaluator.class.getMethods()) {
+            if (method.getDeclaringClass() != RangerRequestScriptEvaluator.class || Modifier.isStatic(method.getModifiers()) || method.isVarArgs()) {
+                continue;
+            }
+
+            if (method.getReturnType() != boolean.class && method.getReturnType() != String.class) {
+                continue;
+            }
+
+            boolean isStringArgs = true;
+
+            for (Class<?> paramType : method.getParameterTypes()) {
+                if (paramType != String.class) {
+                    isStringArgs = false;
+
+                    break;
+                }
+            }
+
+            if (isStringArgs && !"getResult".equals(method.getName())) {
+                String key = getMethodKey(method.getName(), method.getParameterCount());
+
+                if (ret.containsKey(key)) { // overloaded with same number of arguments: not supported
+                    ret.put(key, null);
+                } else {
+                    ret.put(key, method);
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    // tagAttr is a java.util.Map; script engines resolve tagAttr.size to the method, not to the attribute
+    private static Set<String> getMapMethodNames() {
+        Set<String> ret = new HashSet<>();
+
+        for (Method method : Map.class.getMethods()) {
+            ret.add(method.getName());
+        }
+
+        return ret;
+    }
+
+    private static String getMethodKey(String name, int argCount) {
+        return name + "/" + argCount;
+    }
+
+    private enum ValueType { BOOLEAN, STRING, NULL }
+
+    private abstract static class Node {
+        final ValueType type;
+
+        Node(ValueType type) {
+            this.type = type;
+        }
+
+        abstract Object eval(RangerRequestScriptEvaluator ctx);
+    }
+
+    private static final class Literal extends Node {
+        final Object value;
+
+        Literal(Object value, ValueType type) {
+            super(type);
+
+            this.value = value;
+        }
+
+        @Override
+        Object eval(RangerRequestScriptEvaluator ctx) {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return value instanceof String ? ("'" + value + "'") : String.valueOf(value);
+        }
+    }
+
+    private static final class Not extends Node {
+        final Node operand;
+
+        Not(Node operand) {
+            super(ValueType.BOOLEAN);
+
+            this.operand = operand;
+        }
+
+        @Override
+        Object eval(RangerRequestScriptEvaluator ctx) {
+            return !(Boolean) operand.eval(ctx);
+        }
+
+        @Override
+        public String toString() {
+            return "!" + operand;
+        }
+    }
+
+    private static final class AndOr extends Node {
+        final boolean isAnd;
+        final Node[]  operands;
+
+        AndOr(boolean isAnd, List<Node> operands) {
+            super(ValueType.BOOLEAN);
+
+            this.isAnd    = isAnd;
+            this.operands = operands.toArray(new Node[0]);
+        }
+
+        @Override
+        Object eval(RangerRequestScriptEvaluator ctx) {
+            for (Node operand : operands) {
+                if ((Boolean) operand.eval(ctx) != isAnd) {
+                    return !isAnd;
+                }
+            }
+
+            return isAnd;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("(");
+
+            for (int i = 0; i < operands.length; i++) {
+                if (i > 0) {
+                    sb.append(isAnd ? " && " : " || ");
+                }
+
+                sb.append(operands[i]);
+            }
+
+            return sb.append(")").toString();
+        }
+    }
+
+    private static final class Equals extends Node {
+        final Node    left;
+        final Node    right;
+        final boolean negate;
+
+        Equals(Node left, Node right, boolean negate) {
+            super(ValueType.BOOLEAN);
+
+            this.left   = left;
+            this.right  = right;
+            this.negate = negate;
+        }
+
+        @Override
+        Object eval(RangerRequestScriptEvaluator ctx) {
+            return Objects.equals(left.eval(ctx), right.eval(ctx)) != negate;
+        }
+
+        @Override
+        public String toString() {
+            return left + (negate ? " != " : " == ") + right;
+        }
+    }
+
+    private static final class Includes extends Node {
+        final Set<String> values;
+        final Node        value;
+
+        Includes(Set<String> values, Node value) {
+            super(ValueType.BOOLEAN);
+
+            this.values = values;
+            this.value  = value;
+        }
+
+        @Override
+        Object eval(RangerRequestScriptEvaluator ctx) {
+            Object val = value.eval(ctx);
+
+            return val != null && values.contains(val);
+        }
+
+        @Override
+        public String toString() {
+            return values + ".includes(" + value + ")";
+        }
+    }
+
+    private static final class CtxCall extends Node {
+        final Method   method;
+        final Object[] args;
+
+        CtxCall(Method method, List<String> args) {
+            super(method.getReturnType() == boolean.class ? ValueType.BOOLEAN : ValueType.STRING);
+
+            this.method = method;
+            this.args   = args.toArray();
+        }
+
+        @Override
+        Object eval(RangerRequestScriptEvaluator ctx) {
+            try {
+                return method.invoke(ctx, args);
+            } catch (InvocationTargetException excp) {
+                Throwable cause = excp.getCause();
+
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+            } catch (IllegalAccessException excp) {
+                throw new IllegalStateException(excp);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return SCRIPT_VAR_ctx + "." + method.getName() + "(" + args.length + " args)";
+        }
+    }
+
+    private static final class VarAttr extends Node {
+        final String varName;
+        final String attrName;
+
+        VarAttr(String varName, String attrName) {
+            super(ValueType.STRING);
+
+            this.varName  = varName;
+            this.attrName = attrName;
+        }
+
+        @Override
+        Object eval(RangerRequestScriptEvaluator ctx) {
+            switch (varName) {
+                case SCRIPT_VAR_USER:
+                    return ctx.getUserAttributeValue(attrName);
+                case SCRIPT_VAR_TAG:
+                    return ctx.getCurrentTagFieldValue(attrName);
+                default:
+                    return ctx.getAttributeValue(attrName);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return varName + "['" + attrName + "']";
+        }
+    }
+
+    private static final class UnsupportedExpressionException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedExpressionException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private static final class Parser {
+        private final String  str;
+        private final boolean enableJsonCtx;
+        private       int     pos;
+
+        Parser(String str, boolean enableJsonCtx) {
+            this.str           = str;
+            this.enableJsonCtx = enableJsonCtx;
+        }
+
+        Node parse() throws UnsupportedExpressionException {
+            Node ret = parseOr();
+
+            skipSpaces();
+
+            if (peek(';')) {
+                pos++;
+
+                skipSpaces();
+            }
+
+            if (pos != str.length()) {
+                throw unsupported("unexpected input");
+            }
+
+            return requireType(ret, ValueType.BOOLEAN);
+        }
+
+        private Node parseOr() throws UnsupportedExpressionException {
+            List<Node> operands = new ArrayList<>();
+
+            operands.add(parseAnd());
+
+            while (match("||")) {
+                operands.add(parseAnd());
+            }
+
+            return operands.size() == 1 ? operands.get(0) : new AndOr(false, requireType(operands, ValueType.BOOLEAN));
+        }
+
+        private Node parseAnd() throws UnsupportedExpressionException {
+            List<Node> operands = new ArrayList<>();
+
+            operands.add(parseUnary());
+
+            while (match("&&")) {
+                operands.add(parseUnary());
+            }
+
+            return operands.size() == 1 ? operands.get(0) : new AndOr(true, requireType(operands, ValueType.BOOLEAN));
+        }
+
+        private Node parseUnary() throws UnsupportedExpressionException {
+            skipSpaces();
+
+            if (isNot()) {
+                Node ret = parseNot();
+
+                skipSpaces();
+
+                // '!' binds tighter than '==' in JavaScript: '!a == b' is '(!a) == b', not '!(a == b)'
+                if (str.startsWith("==", pos) || str.startsWith("!=", pos)) {
+                    throw unsupported("comparison of a negated value");
+                }
+
+                return ret;
+            }
+
+            return parseComparison();
+        }
+
+        private Node parseNot() throws UnsupportedExpressionException {
+            skipSpaces();
+
+            if (isNot()) {
+                pos++;
+
+                return new Not(requireType(parseNot(), ValueType.BOOLEAN));
+            }
+
+            return parseValue();
+        }
+
+        private boolean isNot() {
+            return peek('!') && !str.startsWith("!=", pos);
+        }
+
+        private Node parseComparison() throws UnsupportedExpressionException {
+            Node left = parseValue();
+
+            skipSpaces();
+
+            final boolean isStrict;
+            final boolean negate;
+
+            if (match("===")) {
+                isStrict = true;
+                negate   = false;
+            } else if (match("!==")) {
+                isStrict = true;
+                negate   = true;
+            } else if (match("==")) {
+                isStrict = false;
+                negate   = false;
+            } else if (match("!=")) {
+                isStrict = false;
+                negate   = true;
+            } else {
+                return left;
+            }
+
+            Node right = parseValue();
+
+            if (left.type == ValueType.NULL || right.type == ValueType.NULL) {
+                // null == undefined in JavaScript, but not null === undefined
+                if (isStrict || (left.type != ValueType.STRING && right.type != ValueType.STRING)) {
+                    throw unsupported("comparison with null");
+                }
+            } else if (left.type != right.type) {
+                throw unsupported("comparison of different types");
+            } else if (left.type == ValueType.STRING && !(left instanceof Literal) && !(right instanceof Literal)) {
+                // both values might be absent: undefined == null in JavaScript
+                throw unsupported("comparison of two variables");
+            }
+
+            return new Equals(left, right, negate);
+        }
+
+        private Node parseValue() throws UnsupportedExpressionException {
+            skipSpaces();
+
+            if (pos >= str.length()) {
+                throw unsupported("unexpected end of script");
+            }
+
+            char c = str.charAt(pos);
+
+            if (c == '(') {
+                pos++;
+
+                Node ret = parseOr();
+
+                expect(")");
+
+                return ret;
+            } else if (c == '\'' || c == '"') {
+                return new Literal(parseString(), ValueType.STRING);
+            } else if (c == '[') {
+                return parseIncludes();
+            }
+
+            String name = parseIdentifier();
+
+            switch (name) {
+                case "true":
+                    return new Literal(Boolean.TRUE, ValueType.BOOLEAN);
+                case "false":
+                    return new Literal(Boolean.FALSE, ValueType.BOOLEAN);
+                case "null":
+                    return new Literal(null, ValueType.NULL);
+                case SCRIPT_VAR_ctx:
+                    return parseCtxCall();
+                case SCRIPT_VAR_USER:
+                case SCRIPT_VAR_TAG:
+                    if (!enableJsonCtx) {
+                        throw unsupported(name + " without JSON context");
+                    }
+
+                    return new VarAttr(name, parseAttrName());
+                case SCRIPT_VAR_tagAttr: {
+                    String attrName = parseAttrName();
+
+                    if (MAP_METHOD_NAMES.contains(attrName)) {
+                        throw unsupported("tagAttr." + attrName);
+                    }
+
+                    return new VarAttr(name, attrName);
+                }
+                default:
+                    throw unsupported("identifier " + name);
+            }
+        }
+
+        // ['v1', 'v2'].includes(value)
+        private Node parseIncludes() throws UnsupportedExpressionException {
+            Set<String> values = new HashSet<>();
+
+            expect("[");
+
+            do {
+                skipSpaces();
+
+                values.add(parseString());
+            } while (match(","));
+
+            expect("]");
+            expect(".");
+
+            if (!"includes".equals(parseIdentifier())) {
+                throw unsupported("array method");
+            }
+
+            expect("(");
+
+            Node value = requireType(parseValue(), ValueType.STRING);
+
+            expect(")");
+
+            return new Includes(Collections.unmodifiableSet(values), value);
+        }
+
+        private Node parseCtxCall() throws UnsupportedExpressionException {
+            expect(".");
+
+            String       methodName = parseIdentifier();
+            List<String> args       = new ArrayList<>();
+
+            expect("(");
+
+            if (!match(")")) {
+                do {
+                    skipSpaces();
+
+                    args.add(parseString());
+                } while (match(","));
+
+                expect(")");
+            }
+
+            Method method = CTX_METHODS.get(getMethodKey(methodName, args.size()));
+
+            if (method == null) {
+                throw unsupported("method " + methodName);
+            }
+
+            return new CtxCall(method, args);
+        }
+
+        // .name or ['name']
+        private String parseAttrName() throws UnsupportedExpressionException {
+            final String ret;
+
+            if (match(".")) {
+                ret = parseIdentifier();
+            } else if (match("[")) {
+                skipSpaces();
+
+                ret = parseString();
+
+                expect("]");
+            } else {
+                throw unsupported("variable without attribute");
+            }
+
+            return ret;
+        }
+
+        private String parseIdentifier() throws UnsupportedExpressionException {
+            skipSpaces();
+
+            int start = pos;
+
+            while (pos < str.length() && (Character.isLetterOrDigit(str.charAt(pos)) || str.charAt(pos) == '_' || str.charAt(pos) == '$')) {
+                pos++;
+            }
+
+            if (start == pos || Character.isDigit(str.charAt(start))) {
+                throw unsupported("identifier expected");
+            }
+
+            return str.substring(start, pos);
+        }
+
+        private String parseString() throws UnsupportedExpressionException {
+            char          quote = pos < str.length() ? str.charAt(pos) : 0;
+            StringBuilder sb    = new StringBuilder();
+
+            if (quote != '\'' && quote != '"') {
+                throw unsupported("string expected");
+            }
+
+            for (pos++; pos < str.length(); pos++) {
+                char c = str.charAt(pos);
+
+                if (c == quote) {
+                    pos++;
+
+                    return sb.toString();
+                } else if (c == '\\') {
+                    char next = ++pos < str.length() ? str.charAt(pos) : 0;
+
+                    if (next != '\\' && next != '\'' && next != '"') {
+                        throw unsupported("escape sequence");
+                    }
+
+                    sb.append(next);
+                } else if (c == '\n' || c == '\r') {
+                    break;
+                } else {
+                    sb.append(c);
+                }
+            }
+
+            throw unsupported("unterminated string");
+        }
+
+        private void expect(String token) throws UnsupportedExpressionException {
+            if (!match(token)) {
+                throw unsupported("'" + token + "' expected");
+            }
+        }
+
+        private boolean match(String token) {
+            skipSpaces();
+
+            boolean ret = str.startsWith(token, pos);
+
+            if (ret) {
+                pos += token.length();
+            }
+
+            return ret;
+        }
+
+        private boolean peek(char c) {
+            return pos < str.length() && str.charAt(pos) == c;
+        }
+
+        private void skipSpaces() {
+            while (pos < str.length() && Character.isWhitespace(str.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private Node requireType(Node node, ValueType type) throws UnsupportedExpressionException {
+            if (node.type != type) {
+                throw unsupported(type + " expected");
+            }
+
+            return node;
+        }
+
+        private List<Node> requireType(List<Node> nodes, ValueType type) throws UnsupportedExpressionException {
+            for (Node node : nodes) {
+                requireType(node, type);
+            }
+
+            return nodes;
+        }
+
+        private UnsupportedExpressionException unsupported(String message) {
+            return new UnsupportedExpressionException(message + " at position " + pos);
+        }
+    }
+}
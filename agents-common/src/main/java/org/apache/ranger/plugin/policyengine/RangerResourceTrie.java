@@ -41,6 +41,7 @@
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -60,6 +61,10 @@
     private static final String DEFAULT_WILDCARD_CHARS    = "*?";
     private static final String TRIE_BUILDER_THREAD_COUNT = "ranger.policyengine.trie.builder.thread.count";
 
+    // number of successive copy-on-write copies after which a full copy is made, so that the tries being
+    // replaced are not kept around by the nodes shared with them
+    private static final int MAX_COPY_ON_WRITE_GENERATIONS = 16;
+
     private final RangerResourceDef resourceDef;
     private final boolean           optIgnoreCase;
     private final boolean           optWildcard;
@@ -68,6 +73,8 @@
     private final boolean           isOptimizedForSpace;
     private final Character         separatorChar;
     private final TrieNode<T>       root;
+    private final boolean           isCopyOnWrite;
+    private final int               copyOnWriteGeneration;
     private       Set<T>            inheritedEvaluators;
 
     public RangerResourceTrie(RangerResourceDef resourceDef, List<T> evaluators) {
@@ -75,6 +82,17 @@ public RangerResourceTrie(RangerResourceDef resourceDef, List<T> evaluators) {
     }
 
     public RangerResourceTrie(RangerResourceTrie<T> other) {
+        this(other, false);
+    }
+
+    /**
+     * Creates a copy of the given trie, to be updated with add()/delete() while the given trie continues to be used.
+     *
+     * @param isCopyOnWrite when true, only the root is copied and the rest of the nodes are shared with the given trie;
+     *                      a shared node is copied when an update reaches it, and a change to wildcard-evaluators of
+     *                      a node copies its subtree, as these evaluators are propagated to the descendants on setup
+     */
+    public RangerResourceTrie(RangerResourceTrie<T> other, boolean isCopyOnWrite) {
         RangerPerfTracer perf = null;
 
         if (RangerPerfTracer.isPerfTraceEnabled(PERF_TRIE_INIT_LOG)) {
@@ -88,12 +106,24 @@ public RangerResourceTrie(RangerResourceTrie<T> other) {
         this.isOptimizedForSpace     = other.isOptimizedForSpace;
         this.isOptimizedForRetrieval = other.isOptimizedForRetrieval;
         this.separatorChar           = other.separatorChar;
-        this.inheritedEvaluators     = other.inheritedEvaluators != null ? new HashSet<>(other.inheritedEvaluators) : null;
-        this.root                    = copyTrieSubtree(other.root, null);
+        this.inheritedEvaluators     = other.inheritedEvaluators != null ? new EvaluatorSet<>(other.inheritedEvaluators) : null;
+        this.isCopyOnWrite           = isCopyOnWrite;
+
+        final boolean isShareNodes = isCopyOnWrite && other.copyOnWriteGeneration < MAX_COPY_ON_WRITE_GENERATIONS;
+
+        if (isShareNodes) {
+            this.copyOnWriteGeneration = other.copyOnWriteGeneration + 1;
+            this.root                  = new TrieNode<>(null);
+
+            root.copyOf(other.root, true);
+        } else {
+            this.copyOnWriteGeneration = 0;
+            this.root                  = copyTrieSubtree(other.root, null);
+        }
 
         wrapUpUpdate();
 
-        if (!isOptimizedForRetrieval) {
+        if (!isOptimizedForRetrieval && !isShareNodes) {
             LOG.debug("Trie for {} is not optimized for retrieval. Resetting isSetup flag by calling undoSetup() on the root", this.resourceDef.getName());
 
             root.undoSetup();
@@ -160,6 +190,8 @@ public <E> RangerResourceTrie(RangerResourceDef resourceDef, List<E> evaluators,
         this.isOptimizedForSpace     = isOptimizedForSpace;
         this.isOptimizedForRetrieval = !isOptimizedForSpace && isOptimizedForRetrieval;  // isOptimizedForSpace takes precedence
         this.separatorChar           = ServiceDefUtil.getCharOption(matcherOptions, OPTION_PATH_SEPARATOR, DEFAULT_PATH_SEPARATOR_CHAR);
+        this.isCopyOnWrite           = false;
+        this.copyOnWriteGeneration   = 0;
 
         final TrieNode<T> tmpRoot = buildTrie(resourceDef, evaluators, builderThreadCount);
 
@@ -212,6 +244,30 @@ public Set<T> getEvaluatorsForResource(Object resource, ResourceElementMatchingS
         return ret.getResult();
     }
 
+    // adds evaluators for the given resource to the result. Returns false if the trie has evaluators without an
+    // index, in which case the content of the result is undefined and getEvaluatorsForResource() should be used
+    public boolean collectEvaluatorsForResource(Object resource, ResourceElementMatchingScope scope, Predicate predicate, RangerEvaluatorIndexSet<T> result) {
+        EvalIndexCollector<T> collector = new EvalIndexCollector<>(result, predicate);
+
+        traverse(resource, scope, collector);
+
+        return collector.isIndexed();
+    }
+
+    // removes evaluators from the result that are not applicable to the given resource. Returns false if the trie has
+    // evaluators without an index, in which case the content of the result is undefined
+    public boolean retainEvaluatorsForResource(Object resource, ResourceElementMatchingScope scope, RangerEvaluatorIndexSet<T> result) {
+        EvalIndexSubsetCollector<T> collector = new EvalIndexSubsetCollector<>(result);
+
+        result.beginRetain();
+
+        traverse(resource, scope, collector);
+
+        result.endRetain();
+
+        return collector.isIndexed();
+    }
+
     public int getEvaluatorsCountForResource(Object resource, ResourceElementMatchingScope scope) {
         return getEvaluatorsCountForResource(resource, scope, null);
     }
@@ -385,13 +441,15 @@ public void traverse(String resource, ResourceElementMatchingScope scope, Traver
             final boolean resourceEndsWithSep = resource.charAt(resource.length() - 1) == separatorChar;
 
             if (isSelfMatch) { // resource == path(curr)
+                final TrieNode<T> self = curr;
+
                 if (resourceEndsWithSep) { // ex: resource=/tmp/
-                    curr.getChildren().values().forEach(c -> c.collectChildEvaluators(separatorChar, 0, handler));
+                    self.getChildren().values().forEach(c -> c.collectChildEvaluators(self, separatorChar, 0, handler));
                 } else { // ex: resource=/tmp
-                    curr = curr.getChild(separatorChar);
+                    curr = self.getChild(separatorChar);
 
                     if (curr != null) {
-                        curr.collectChildEvaluators(separatorChar, 1, handler);
+                        curr.collectChildEvaluators(self, separatorChar, 1, handler);
                     }
                 }
             } else if (child != null) { // resource != path(child) ex: (resource=/tmp, path(child)=/tmp/test.txt or path(child)=/tmpdir)
@@ -400,9 +458,9 @@ public void traverse(String resource, ResourceElementMatchingScope scope, Traver
 
                 if (isPrefixMatch) {
                     if (resourceEndsWithSep) { // ex: resource=/tmp/
-                        child.collectChildEvaluators(separatorChar, remainingLen, handler);
+                        child.collectChildEvaluators(curr, separatorChar, remainingLen, handler);
                     } else if (child.getStr().charAt(remainingLen) == separatorChar) { //  ex: resource=/tmp
-                        child.collectChildEvaluators(separatorChar, remainingLen + 1, handler);
+                        child.collectChildEvaluators(curr, separatorChar, remainingLen + 1, handler);
                     }
                 }
             }
@@ -443,7 +501,7 @@ TrieNode<T> getRoot() {
 
     private void addInheritedEvaluator(T evaluator) {
         if (inheritedEvaluators == null) {
-            inheritedEvaluators = new HashSet<>();
+            inheritedEvaluators = new EvaluatorSet<>();
         }
 
         inheritedEvaluators.add(evaluator);
@@ -474,34 +532,7 @@ private TrieNode<T> copyTrieSubtree(final TrieNode<T> source, final TrieNode<T>
             parent.addChild(dest);
         }
 
-        synchronized (source.children) {
-            dest.isSetup                           = source.isSetup;
-            dest.isSharingParentWildcardEvaluators = source.isSharingParentWildcardEvaluators;
-
-            if (source.isSharingParentWildcardEvaluators) {
-                if (dest.getParent() != null) {
-                    dest.wildcardEvaluators = dest.getParent().getWildcardEvaluators();
-                } else {
-                    dest.wildcardEvaluators = null;
-                }
-            } else {
-                if (source.wildcardEvaluators != null) {
-                    dest.wildcardEvaluators = new HashSet<>(source.wildcardEvaluators);
-                } else {
-                    dest.wildcardEvaluators = null;
-                }
-            }
-
-            if (source.evaluators != null) {
-                if (source.evaluators == source.wildcardEvaluators) {
-                    dest.evaluators = dest.wildcardEvaluators;
-                } else {
-                    dest.evaluators = new HashSet<>(source.evaluators);
-                }
-            } else {
-                dest.evaluators = null;
-            }
-        }
+        dest.copyOf(source, false);
 
         Map<Character, TrieNode<T>> children = source.getChildren();
 
@@ -719,8 +750,16 @@ private void insert(TrieNode<T> currentRoot, String resource, boolean isRecursiv
         }
 
         if (isWildcard || isRecursive) {
+            if (isCopyOnWrite) {
+                curr.prepareForWildcardUpdate();
+            }
+
             curr.addWildcardEvaluator(evaluator);
         } else {
+            if (isCopyOnWrite) {
+                curr.prepareForUpdate();
+            }
+
             curr.addEvaluator(evaluator);
         }
     }
@@ -759,7 +798,7 @@ private TrieNode<T> getNodeForResource(String resource) {
         int         i    = 0;
 
         while (i < len) {
-            final TrieNode<T> child = curr.getChild(getLookupChar(resource, i));
+            final TrieNode<T> child = isCopyOnWrite ? curr.getOwnedChild(getLookupChar(resource, i)) : curr.getChild(getLookupChar(resource, i));
 
             if (child == null) {
                 break;
@@ -928,6 +967,174 @@ public boolean process(Set<T> evaluators) {
         }
     }
 
+    public static class EvalIndexCollector<T extends RangerResourceEvaluator> implements TraverseMatchHandler<T> {
+        private final RangerEvaluatorIndexSet<T> result;
+        private final Predicate                  predicate;
+        private       boolean                    isIndexed = true;
+
+        public EvalIndexCollector(RangerEvaluatorIndexSet<T> result, Predicate predicate) {
+            this.result    = result;
+            this.predicate = predicate;
+        }
+
+        public boolean isIndexed() {
+            return isIndexed;
+        }
+
+        @Override
+        public boolean process(Set<T> evaluators) {
+            if (isIndexed && evaluators != null && !evaluators.isEmpty()) {
+                RangerEvaluatorIndexSet<T> indexSet = EvaluatorSet.getIndexSet(evaluators);
+
+                if (indexSet != null) {
+                    result.addAll(indexSet, predicate);
+                } else {
+                    isIndexed = false;
+                }
+            }
+
+            return !isIndexed; // continue traverse, unless evaluators are not indexed
+        }
+    }
+
+    public static class EvalIndexSubsetCollector<T extends RangerResourceEvaluator> implements TraverseMatchHandler<T> {
+        private final RangerEvaluatorIndexSet<T> result;
+        private       boolean                    isIndexed = true;
+
+        public EvalIndexSubsetCollector(RangerEvaluatorIndexSet<T> result) {
+            this.result = result;
+        }
+
+        public boolean isIndexed() {
+            return isIndexed;
+        }
+
+        @Override
+        public boolean process(Set<T> evaluators) {
+            boolean ret = !isIndexed;
+
+            if (isIndexed && evaluators != null && !evaluators.isEmpty()) {
+                RangerEvaluatorIndexSet<T> indexSet = EvaluatorSet.getIndexSet(evaluators);
+
+                if (indexSet != null) {
+                    ret = result.retain(indexSet); // stop traverse once all entries in the result are retained
+                } else {
+                    isIndexed = false;
+                    ret       = true;
+                }
+            }
+
+            return ret;
+        }
+    }
+
+    // evaluators of a trie node. Along with the HashSet, content is kept as RangerEvaluatorIndexSet as well - built on
+    // first use by a lookup and discarded on update - for lookups to merge evaluators of nodes without hashing
+    static class EvaluatorSet<U extends RangerResourceEvaluator> extends HashSet<U> {
+        private static final RangerEvaluatorIndexSet<?> NOT_INDEXED = new RangerEvaluatorIndexSet<>();
+
+        private transient volatile RangerEvaluatorIndexSet<U> indexSet;
+
+        EvaluatorSet() {
+            super();
+        }
+
+        EvaluatorSet(Collection<U> evaluators) {
+            super(evaluators);
+        }
+
+        @SuppressWarnings("unchecked") // NOT_INDEXED is empty, hence is a set of any evaluator type
+        private static <U extends RangerResourceEvaluator> RangerEvaluatorIndexSet<U> notIndexed() {
+            return (RangerEvaluatorIndexSet<U>) NOT_INDEXED;
+        }
+
+        static <U extends RangerResourceEvaluator> RangerEvaluatorIndexSet<U> getIndexSet(Set<U> evaluators) {
+            return evaluators instanceof EvaluatorSet ? ((EvaluatorSet<U>) evaluators).getIndexSet() : null;
+        }
+
+        RangerEvaluatorIndexSet<U> getIndexSet() {
+            RangerEvaluatorIndexSet<U> ret = indexSet;
+
+            if (ret == null) {
+                ret = RangerEvaluatorIndexSet.of(this);
+
+                if (ret == null) {
+                    ret = notIndexed();
+                }
+
+                indexSet = ret;
+            }
+
+            return ret == NOT_INDEXED ? null : ret;
+        }
+
+        @Override
+        public boolean add(U evaluator) {
+            indexSet = null;
+
+            return super.add(evaluator);
+        }
+
+        @Override
+        public boolean remove(Object evaluator) {
+            indexSet = null;
+
+            return super.remove(evaluator);
+        }
+
+        @Override
+        public void clear() {
+            indexSet = null;
+
+            super.clear();
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> evaluators) {
+            indexSet = null;
+
+            return super.removeAll(evaluators);
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> evaluators) {
+            indexSet = null;
+
+            return super.retainAll(evaluators);
+        }
+
+        @Override
+        public boolean removeIf(java.util.function.Predicate<? super U> filter) {
+            indexSet = null;
+
+            return super.removeIf(filter);
+        }
+
+        @Override
+        public Iterator<U> iterator() {
+            Iterator<U> iter = super.iterator();
+
+            return new Iterator<U>() {
+                @Override
+                public boolean hasNext() {
+                    return iter.hasNext();
+                }
+
+                @Override
+                public U next() {
+                    return iter.next();
+                }
+
+                @Override
+                public void remove() {
+                    indexSet = null;
+
+                    iter.remove();
+                }
+            };
+        }
+    }
+
     class ResourceTrieBuilderThread extends Thread {
         private final TrieNode<T>             thisRoot  = new TrieNode<>(null);
         private final BlockingQueue<WorkItem> workQueue = new LinkedBlockingQueue<>();
@@ -1094,7 +1301,7 @@ int getMaxDepth() {
 
         TrieNode<U> getOrCreateChild(String str) {
             int         len   = str.length();
-            TrieNode<U> child = children.get(getLookupChar(str, 0));
+            TrieNode<U> child = isCopyOnWrite ? getOwnedChild(getLookupChar(str, 0)) : children.get(getLookupChar(str, 0));
 
             if (child == null) {
                 child = new TrieNode<>(str);
@@ -1125,6 +1332,10 @@ TrieNode<U> getOrCreateChild(String str) {
                             child.setStr(childStr.substring(index));
                             newChild.addChild(child);
 
+                            if (isCopyOnWrite) {
+                                newChild.setupLike(child);
+                            }
+
                             child = newChild;
                         } else {
                             // This is a longer string, build a child with leftover string
@@ -1139,6 +1350,10 @@ TrieNode<U> getOrCreateChild(String str) {
                         child.setStr(childStr.substring(index));
                         newChild.addChild(child);
 
+                        if (isCopyOnWrite) {
+                            newChild.setupLike(child);
+                        }
+
                         child = newChild.getOrCreateChild(str.substring(index));
                     }
                 }
@@ -1149,7 +1364,7 @@ TrieNode<U> getOrCreateChild(String str) {
 
         void addEvaluator(U evaluator) {
             if (evaluators == null) {
-                evaluators = new HashSet<>();
+                evaluators = new EvaluatorSet<>();
             }
 
             evaluators.add(evaluator);
@@ -1157,7 +1372,7 @@ void addEvaluator(U evaluator) {
 
         void addWildcardEvaluator(U evaluator) {
             if (wildcardEvaluators == null) {
-                wildcardEvaluators = new HashSet<>();
+                wildcardEvaluators = new EvaluatorSet<>();
             }
 
             wildcardEvaluators.add(evaluator);
@@ -1183,6 +1398,81 @@ void removeWildcardEvaluator(U evaluator) {
             }
         }
 
+        // copies evaluators of the source node, which is at the same position in the trie being copied. Parent of
+        // this node must be set before this call, for it to share parent's wildcard-evaluators like the source does
+        void copyOf(TrieNode<U> source, boolean isShareChildren) {
+            synchronized (source.children) {
+                isSetup                           = source.isSetup;
+                isSharingParentWildcardEvaluators = source.isSharingParentWildcardEvaluators;
+
+                if (source.isSharingParentWildcardEvaluators) {
+                    if (getParent() != null) {
+                        wildcardEvaluators = getParent().getWildcardEvaluators();
+                    } else {
+                        wildcardEvaluators = null;
+                    }
+                } else {
+                    if (source.wildcardEvaluators != null) {
+                        wildcardEvaluators = new EvaluatorSet<>(source.wildcardEvaluators);
+                    } else {
+                        wildcardEvaluators = null;
+                    }
+                }
+
+                if (source.evaluators != null) {
+                    if (source.evaluators == source.wildcardEvaluators) {
+                        evaluators = wildcardEvaluators;
+                    } else {
+                        evaluators = new EvaluatorSet<>(source.evaluators);
+                    }
+                } else {
+                    evaluators = null;
+                }
+
+                if (isShareChildren) {
+                    children.putAll(source.children);
+                }
+            }
+        }
+
+        // returns the child, after replacing it with a copy if the child is shared with another trie. Must be called
+        // only on a node owned by this trie i.e. the root or a node returned by an earlier call
+        TrieNode<U> getOwnedChild(Character ch) {
+            TrieNode<U> ret = children.get(ch);
+
+            if (ret != null && ret.getTrie() != getTrie()) {
+                ret = copyChild(ret);
+            }
+
+            return ret;
+        }
+
+        // readies this node for an update to its evaluators
+        void prepareForUpdate() {
+            if (evaluators != null && evaluators == wildcardEvaluators) {
+                evaluators = new EvaluatorSet<>(evaluators);
+            }
+        }
+
+        // readies this node for an update to its wildcard-evaluators. As the setup of descendants include these
+        // evaluators, the subtree is copied (if shared) and its setup undone, to be redone after the update
+        void prepareForWildcardUpdate() {
+            if (!isOptimizedForSpace) {
+                copySharedSubtree();
+
+                if (isSetup) {
+                    undoSetup();
+                }
+            }
+        }
+
+        // a node inserted above a child that is setup, must be setup as well - for undoSetup() of the child to work
+        void setupLike(TrieNode<U> child) {
+            if (child.isSetup && !isSetup) {
+                setup(getParent() == null ? null : getParent().getWildcardEvaluators());
+            }
+        }
+
         void undoSetup() {
             for (TrieNode<U> child : children.values()) {
                 child.undoSetup();
@@ -1315,9 +1605,9 @@ void setup(Set<U> parentWildcardEvaluators) {
             }
         }
 
-        void collectChildEvaluators(Character sep, int startIdx, TraverseMatchHandler<U> handler) {
+        void collectChildEvaluators(TrieNode<U> parent, Character sep, int startIdx, TraverseMatchHandler<U> handler) {
             if (!isOptimizedForSpace) {
-                setupIfNeeded(getParent());
+                setupIfNeeded(parent);
             }
 
             final int sepPos = startIdx < str.length() ? str.indexOf(sep, startIdx) : -1;
@@ -1329,7 +1619,7 @@ void collectChildEvaluators(Character sep, int startIdx, TraverseMatchHandler<U>
 
                 handler.process(this.evaluators);
 
-                children.values().forEach(c -> c.collectChildEvaluators(sep, 0, handler));
+                children.values().forEach(c -> c.collectChildEvaluators(this, sep, 0, handler));
             } else if (sepPos == (str.length() - 1)) { // ex: str=/tmp/test/, startIdx=5
                 if (isOptimizedForSpace) {
                     handler.process(this.wildcardEvaluators);
@@ -1348,7 +1638,7 @@ void collectChildEvaluators(String resource, int startIndex, TraverseMatchHandle
 
                 if (childNode != null) {
                     if (!isOptimizedForSpace) {
-                        childNode.setupIfNeeded(childNode.getParent());
+                        childNode.setupIfNeeded(this);
                     }
 
                     String childStr   = childNode.getStr();
@@ -1415,28 +1705,56 @@ private void addChild(TrieNode<U> child) {
             child.setParent(this);
         }
 
+        private RangerResourceTrie<T> getTrie() {
+            return RangerResourceTrie.this;
+        }
+
+        private TrieNode<U> copyChild(TrieNode<U> source) {
+            TrieNode<U> ret = new TrieNode<>(source.str);
+
+            addChild(ret);
+
+            ret.copyOf(source, true);
+
+            return ret;
+        }
+
+        private void copySharedSubtree() {
+            for (TrieNode<U> child : new ArrayList<>(children.values())) {
+                TrieNode<U> ownedChild = child.getTrie() != getTrie() ? copyChild(child) : child;
+
+                ownedChild.copySharedSubtree();
+            }
+        }
+
         private void collectChildEvaluators(TraverseMatchHandler<U> childEvaluators) {
             Stack<TrieNode<U>> nodes = new Stack<>();
 
-            nodes.addAll(children.values());
+            nodes.push(this);
 
             while (!nodes.isEmpty()) {
-                TrieNode<U> childNode = nodes.pop();
+                TrieNode<U> parentNode = nodes.pop();
 
-                if (!isOptimizedForSpace) {
-                    childNode.setupIfNeeded(childNode.getParent());
-                }
+                for (TrieNode<U> childNode : parentNode.children.values()) {
+                    if (!isOptimizedForSpace) {
+                        childNode.setupIfNeeded(parentNode);
+                    }
 
-                childEvaluators.process(childNode.wildcardEvaluators);
-                childEvaluators.process(childNode.evaluators);
+                    childEvaluators.process(childNode.wildcardEvaluators);
+                    childEvaluators.process(childNode.evaluators);
 
-                nodes.addAll(childNode.children.values());
+                    nodes.push(childNode);
+                }
             }
         }
 
         private void removeEvaluatorFromSubtree(U evaluator) {
             LOG.debug("==> removeEvaluatorFromSubtree({})", evaluator.getId());
 
+            if (isCopyOnWrite && CollectionUtils.isNotEmpty(wildcardEvaluators) && wildcardEvaluators.contains(evaluator)) {
+                prepareForWildcardUpdate();
+            }
+
             if (CollectionUtils.isNotEmpty(wildcardEvaluators) && wildcardEvaluators.contains(evaluator)) {
                 removeWildcardEvaluator(evaluator);
             } else {
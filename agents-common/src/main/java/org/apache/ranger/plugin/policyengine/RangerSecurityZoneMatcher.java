@@ -19,11 +19,11 @@
 
 package org.apache.ranger.plugin.policyengine;
 
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.model.validation.RangerServiceDefHelper;
 import org.apache.ranger.plugin.model.validation.RangerZoneResourceMatcher;
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher.MatchType;
@@ -34,27 +34,53 @@
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
+/**
+ * Finds security zones of a resource. Each zone is given a dense id, and each zone-resource matcher a dense index, so
+ * that candidate matchers are collected from resource-tries by intersecting sorted int arrays, and matched zones are
+ * tracked in a bitset; zone names are looked up only to build the result. Results are cached per resource, in a cache
+ * of size RangerPolicyEngineOptions.zoneMatcherCacheSize, as zones are looked up for every access request and
+ * the same resources tend to be accessed repeatedly. Services without zones return without any lookup.
+ *
+ * Sets returned are not modifiable.
+ */
 public class RangerSecurityZoneMatcher {
     private static final Logger LOG = LoggerFactory.getLogger(RangerSecurityZoneMatcher.class);
 
+    private static final Set<String> UNZONED    = Collections.singleton("");
+    private static final Set<String> NULL_ZONES = Collections.unmodifiableSet(new HashSet<>()); // cached for resources without candidate matchers, for which null is returned
+
+    private static final ThreadLocal<RangerEvaluatorIndexSet<RangerZoneResourceMatcher>> CANDIDATE_MATCHERS = ThreadLocal.withInitial(RangerEvaluatorIndexSet::new);
+
     private final Map<String, RangerResourceTrie<RangerZoneResourceMatcher>> resourceZoneTrie;
     private final Set<String>                                                zonesWithTagService;
     private final RangerServiceDef                                           serviceDef;
+    private final List<String>                                               zoneNames;
+    private final List<Set<String>>                                          singleZoneNames;
+    private final Map<Map<String, ?>, Set<String>>                           resourceZonesCache;
 
     public RangerSecurityZoneMatcher(Map<String, SecurityZoneInfo> securityZones, RangerServiceDef serviceDef, RangerPluginContext pluginContext) {
         this.resourceZoneTrie    = new HashMap<>();
         this.zonesWithTagService = new HashSet<>();
         this.serviceDef          = serviceDef;
+        this.zoneNames           = new ArrayList<>();
+        this.singleZoneNames     = new ArrayList<>();
 
         buildZoneTrie(securityZones, serviceDef, pluginContext);
+
+        int cacheSize = zoneNames.isEmpty() ? 0 : pluginContext.getConfig().getPolicyEngineOptions().zoneMatcherCacheSize;
+
+        this.resourceZonesCache = cacheSize > 0 ? new ConcurrentCacheMap<>(cacheSize) : null;
     }
 
     public boolean hasTagService(String zoneName) {
@@ -62,11 +88,11 @@ public boolean hasTagService(String zoneName) {
     }
 
     public Set<String> getZonesForResourceAndChildren(Map<String, ?> resource) {
-        return getZonesForResourceAndChildren(resource, convertToAccessResource(resource));
+        return zoneNames.isEmpty() ? null : getZonesForResourceAndChildren(resource, null);
     }
 
     public Set<String> getZonesForResourceAndChildren(RangerAccessResource resource) {
-        return getZonesForResourceAndChildren(resource.getAsMap(), resource);
+        return zoneNames.isEmpty() ? null : getZonesForResourceAndChildren(resource.getAsMap(), resource);
     }
 
     @Override
@@ -89,44 +115,101 @@ public boolean equals(Object obj) {
     }
 
     private Set<String> getZonesForResourceAndChildren(Map<String, ?> resource, RangerAccessResource accessResource) {
-        LOG.debug("==> RangerSecurityZoneMatcher.getZonesForResourceAndChildren({})", accessResource);
+        LOG.debug("==> RangerSecurityZoneMatcher.getZonesForResourceAndChildren({})", resource);
+
+        Set<String> ret = resourceZonesCache != null ? resourceZonesCache.get(resource) : null;
+
+        if (ret == null) {
+            ret = getMatchedZones(resource, accessResource != null ? accessResource : convertToAccessResource(resource));
+
+            if (resourceZonesCache != null) {
+                resourceZonesCache.put(new HashMap<>(resource), ret != null ? ret : NULL_ZONES);
+            }
+        } else if (ret == NULL_ZONES) {
+            ret = null;
+        }
 
-        Set<String> ret = null;
+        LOG.debug("<== RangerSecurityZoneMatcher.getZonesForResourceAndChildren({}): ret={}", resource, ret);
 
-        if (MapUtils.isNotEmpty(this.resourceZoneTrie)) {
-            Collection<RangerZoneResourceMatcher> matchers = RangerResourceEvaluatorsRetriever.getEvaluators(resourceZoneTrie, resource);
+        return ret;
+    }
 
-            if (CollectionUtils.isNotEmpty(matchers)) {
-                LOG.debug("Resource:[{}], matchers:[{}]", resource, matchers);
+    private Set<String> getMatchedZones(Map<String, ?> resource, RangerAccessResource accessResource) {
+        Set<String>                                        ret        = null;
+        RangerEvaluatorIndexSet<RangerZoneResourceMatcher> candidates = CANDIDATE_MATCHERS.get();
+        Collection<RangerZoneResourceMatcher>              matchers   = null;
 
-                ret = new HashSet<>(matchers.size());
+        if (!RangerResourceEvaluatorsRetriever.collectEvaluators(resourceZoneTrie, resource, null, null, candidates)) {
+            matchers = RangerResourceEvaluatorsRetriever.getEvaluators(resourceZoneTrie, resource);
+        }
 
-                // These are potential matches. Try to really match them
-                for (RangerZoneResourceMatcher matcher : matchers) {
-                    LOG.debug("Trying to match resource:[{}] using matcher:[{}]", accessResource, matcher);
+        int matcherCount = matchers != null ? matchers.size() : candidates.size();
 
-                    RangerPolicyResourceMatcher policyResourceMatcher = matcher.getPolicyResourceMatcher();
-                    MatchType                   matchType             = policyResourceMatcher.getMatchType(accessResource, null);
+        if (matcherCount > 0) {
+            LOG.debug("Resource:[{}], matcherCount:[{}]", resource, matcherCount);
 
-                    if (matchType == MatchType.DESCENDANT) { // add unzoned name
-                        ret.add("");
-                    }
+            BitSet                              matchedZones     = new BitSet(zoneNames.size());
+            boolean                             isUnzonedMatched = false;
+            Iterator<RangerZoneResourceMatcher> iter             = matchers != null ? matchers.iterator() : null;
 
-                    if (matchType != MatchType.NONE) {
-                        LOG.debug("Matched resource:[{}] using matcher:[{}]", accessResource, matcher);
+            // These are potential matches. Try to really match them
+            for (int i = 0; i < matcherCount; i++) {
+                RangerZoneResourceMatcher matcher = iter != null ? iter.next() : candidates.get(i);
 
-                        // Actual match happened
-                        ret.add(matcher.getSecurityZoneName());
-                    } else {
-                        LOG.debug("Did not match resource:[{}] using matcher:[{}]", accessResource, matcher);
-                    }
+                if (isUnzonedMatched && matchedZones.get(matcher.getZoneId())) { // another match can't add to the result
+                    continue;
+                }
+
+                LOG.debug("Trying to match resource:[{}] using matcher:[{}]", accessResource, matcher);
+
+                RangerPolicyResourceMatcher policyResourceMatcher = matcher.getPolicyResourceMatcher();
+                MatchType                   matchType             = policyResourceMatcher.getMatchType(accessResource, null);
+
+                if (matchType == MatchType.DESCENDANT) { // add unzoned name
+                    isUnzonedMatched = true;
                 }
 
-                LOG.debug("zone-names matched resource:[{}]: {}", accessResource, ret);
+                if (matchType != MatchType.NONE) {
+                    LOG.debug("Matched resource:[{}] using matcher:[{}]", accessResource, matcher);
+
+                    // Actual match happened
+                    matchedZones.set(matcher.getZoneId());
+                } else {
+                    LOG.debug("Did not match resource:[{}] using matcher:[{}]", accessResource, matcher);
+                }
             }
+
+            candidates.clear();
+
+            ret = toZoneNames(matchedZones, isUnzonedMatched);
+
+            LOG.debug("zone-names matched resource:[{}]: {}", accessResource, ret);
         }
 
-        LOG.debug("<== RangerSecurityZoneMatcher.getZonesForResourceAndChildren({}): ret={}", accessResource, ret);
+        return ret;
+    }
+
+    private Set<String> toZoneNames(BitSet matchedZones, boolean isUnzonedMatched) {
+        int         zoneCount = matchedZones.cardinality();
+        Set<String> ret;
+
+        if (zoneCount == 0) {
+            ret = isUnzonedMatched ? UNZONED : Collections.emptySet();
+        } else if (zoneCount == 1 && !isUnzonedMatched) {
+            ret = singleZoneNames.get(matchedZones.nextSetBit(0));
+        } else {
+            Set<String> zones = new HashSet<>(zoneCount + 1);
+
+            if (isUnzonedMatched) {
+                zones.add("");
+            }
+
+            for (int zoneId = matchedZones.nextSetBit(0); zoneId >= 0; zoneId = matchedZones.nextSetBit(zoneId + 1)) {
+                zones.add(zoneNames.get(zoneId));
+            }
+
+            ret = Collections.unmodifiableSet(zones);
+        }
 
         return ret;
     }
@@ -137,11 +220,16 @@ private void buildZoneTrie(Map<String, SecurityZoneInfo> securityZones, RangerSe
         Map<String, Boolean> resourceIsRecursive = new HashMap<>();
 
         if (MapUtils.isNotEmpty(securityZones)) {
-            List<RangerZoneResourceMatcher> matchers = new ArrayList<>();
+            List<RangerZoneResourceMatcher> matchers         = new ArrayList<>();
+            RangerServiceDefHelper          serviceDefHelper = new RangerServiceDefHelper(serviceDef);
 
             for (Map.Entry<String, SecurityZoneInfo> securityZone : securityZones.entrySet()) {
                 String           zoneName    = securityZone.getKey();
                 SecurityZoneInfo zoneDetails = securityZone.getValue();
+                int              zoneId      = zoneNames.size();
+
+                zoneNames.add(zoneName);
+                singleZoneNames.add(Collections.singleton(zoneName));
 
                 LOG.debug("Building matchers for zone:[{}]", zoneName);
 
@@ -158,7 +246,7 @@ private void buildZoneTrie(Map<String, SecurityZoneInfo> securityZones, RangerSe
                         policyResources.put(resourceDefName, new RangerPolicyResource(resourceValues, false, isRecursive));
                     }
 
-                    matchers.add(new RangerZoneResourceMatcher(zoneName, policyResources, serviceDef, pluginContext));
+                    matchers.add(new RangerZoneResourceMatcher(zoneName, policyResources, serviceDefHelper, pluginContext, zoneId, matchers.size()));
 
                     LOG.debug("Built matcher for resource:[{}] in zone:[{}]", resource, zoneName);
                 }
@@ -0,0 +1,455 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.plugin.util.ServicePolicies.SecurityZoneInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Policy repositories of security zones of a policy engine, keyed by zone name.
+ *
+ * When RangerPolicyEngineOptions.lazyZoneRepositories is set, the repository of a zone is built on first access, for
+ * example on the first request routed to the zone; zones listed in zoneRepositoryPrewarmZones are built along with the
+ * policy engine and are never evicted. Other repositories are evicted when not accessed for zoneRepositoryIdleTimeoutSecs,
+ * and the least recently accessed ones when more than zoneRepositoryMaxCount are built. An evicted repository is rebuilt
+ * on next access, from policies of the zone retained here. Otherwise, all repositories are built along with the engine.
+ *
+ * As a Map, get() and entrySet() build repositories as needed; entrySet() hence builds repositories of all zones.
+ * Requests evaluated against every zone use getAllForScan() instead, which neither counts as an access nor evicts.
+ * The set of zones is updated only while the policy engine is built or updated under its write-lock.
+ */
+final class RangerZonePolicyRepositories extends AbstractMap<String, RangerPolicyRepository> {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerZonePolicyRepositories.class);
+
+    private static final long ACCESS_TIME_GRANULARITY_MS = 1000;
+
+    private final    RangerPluginContext                        pluginContext;
+    private final    RangerServiceDef                           serviceDef;
+    private final    boolean                                    isLazy;
+    private final    int                                        maxCount;
+    private final    long                                       idleTimeoutMs;
+    private final    Set<String>                                prewarmZones;
+    private final    Map<String, ZoneEntry>                     zones     = new HashMap<>();
+    private final    LongAdder                                  builds    = new LongAdder();
+    private final    LongAdder                                  evictions = new LongAdder();
+    private final    Set<Entry<String, RangerPolicyRepository>> entrySet  = new EntrySet();
+    private volatile long                                       nextIdleCheckTime;
+
+    /**
+     * @param serviceDef normalized service-def, shared by repositories of all zones
+     */
+    RangerZonePolicyRepositories(RangerPluginContext pluginContext, RangerServiceDef serviceDef) {
+        RangerPolicyEngineOptions options = pluginContext.getConfig().getPolicyEngineOptions();
+
+        this.pluginContext = pluginContext;
+        this.serviceDef    = serviceDef;
+        this.isLazy        = options.lazyZoneRepositories;
+        this.maxCount      = isLazy ? Math.max(0, options.zoneRepositoryMaxCount) : 0;
+        this.idleTimeoutMs = isLazy ? TimeUnit.SECONDS.toMillis(Math.max(0, options.zoneRepositoryIdleTimeoutSecs)) : 0;
+        this.prewarmZones  = toSet(options.zoneRepositoryPrewarmZones);
+    }
+
+    /**
+     * Creates an empty instance with the configuration of other; zones are then added or shared from other.
+     */
+    RangerZonePolicyRepositories(RangerZonePolicyRepositories other) {
+        this.pluginContext = other.pluginContext;
+        this.serviceDef    = other.serviceDef;
+        this.isLazy        = other.isLazy;
+        this.maxCount      = other.maxCount;
+        this.idleTimeoutMs = other.idleTimeoutMs;
+        this.prewarmZones  = other.prewarmZones;
+    }
+
+    boolean isLazy() {
+        return isLazy;
+    }
+
+    /**
+     * Adds a zone, whose repository is to be built from the given policies.
+     */
+    void addZone(String zoneName, ServicePolicies servicePolicies, List<RangerPolicy> policies) {
+        zones.put(zoneName, new ZoneEntry(zoneName, createZoneServicePolicies(servicePolicies, zoneName, policies)));
+    }
+
+    /**
+     * Adds a zone with a repository already built, for example by applying policy-deltas to the repository of an earlier
+     * version of the engine.
+     */
+    void addZone(String zoneName, ServicePolicies servicePolicies, RangerPolicyRepository repository) {
+        ZoneEntry entry = new ZoneEntry(zoneName, createZoneServicePolicies(servicePolicies, zoneName, repository.getPolicies()));
+
+        entry.repository     = repository;
+        entry.lastAccessTime = System.currentTimeMillis();
+
+        zones.put(zoneName, entry);
+    }
+
+    /**
+     * Shares the zone, and its repository if built, with the given repositories of another version of the engine.
+     */
+    void shareZone(String zoneName, RangerZonePolicyRepositories other) {
+        ZoneEntry entry = other.zones.get(zoneName);
+
+        if (entry != null) {
+            RangerPolicyRepository repository = entry.repository;
+
+            if (repository != null) {
+                repository.setShared();
+            }
+
+            zones.put(zoneName, entry);
+        }
+    }
+
+    /**
+     * Returns true if the repository of the zone is to be built along with the policy engine: all zones, unless lazy.
+     */
+    boolean isBuiltEagerly(String zoneName) {
+        return !isLazy || prewarmZones.contains(zoneName);
+    }
+
+    List<String> getZonesToBuild() {
+        List<String> ret = new ArrayList<>();
+
+        for (String zoneName : zones.keySet()) {
+            if (isBuiltEagerly(zoneName)) {
+                ret.add(zoneName);
+            }
+        }
+
+        return ret;
+    }
+
+    RangerPolicyRepository getIfBuilt(String zoneName) {
+        ZoneEntry entry = zones.get(zoneName);
+
+        return entry != null ? entry.repository : null;
+    }
+
+    List<RangerPolicyRepository> getBuiltRepositories() {
+        List<RangerPolicyRepository> ret = new ArrayList<>();
+
+        for (ZoneEntry entry : zones.values()) {
+            RangerPolicyRepository repository = entry.repository;
+
+            if (repository != null) {
+                ret.add(repository);
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns policies of the zone, without building its repository.
+     */
+    List<RangerPolicy> getPolicies(String zoneName) {
+        ZoneEntry entry = zones.get(zoneName);
+
+        return entry != null ? entry.servicePolicies.getSecurityZones().get(zoneName).getPolicies() : null;
+    }
+
+    /**
+     * Returns repositories of all zones, to evaluate a request against every zone: built repositories first, then those
+     * of other zones, built as the iteration reaches them. Unlike get(), this neither counts as an access nor evicts
+     * repositories: a repository built here is retained only while fewer than zoneRepositoryMaxCount are built, else it
+     * is used for this iteration only.
+     */
+    Iterable<Entry<String, RangerPolicyRepository>> getAllForScan() {
+        List<ZoneEntry> entries = new ArrayList<>(zones.size());
+
+        for (ZoneEntry entry : zones.values()) {
+            if (entry.repository != null) {
+                entries.add(entry);
+            }
+        }
+
+        for (ZoneEntry entry : zones.values()) {
+            if (entry.repository == null) {
+                entries.add(entry);
+            }
+        }
+
+        return () -> {
+            Iterator<ZoneEntry> iter = entries.iterator();
+
+            return new Iterator<Entry<String, RangerPolicyRepository>>() {
+                @Override
+                public boolean hasNext() {
+                    return iter.hasNext();
+                }
+
+                @Override
+                public Entry<String, RangerPolicyRepository> next() {
+                    ZoneEntry entry = iter.next();
+
+                    return new SimpleImmutableEntry<>(entry.zoneName, getRepositoryForScan(entry));
+                }
+            };
+        };
+    }
+
+    long getBuildCount() {
+        return builds.sum();
+    }
+
+    long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public RangerPolicyRepository get(Object zoneName) {
+        ZoneEntry entry = zones.get(zoneName);
+
+        return entry != null ? getRepository(entry) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object zoneName) {
+        return zones.containsKey(zoneName);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return Collections.unmodifiableSet(zones.keySet());
+    }
+
+    @Override
+    public int size() {
+        return zones.size();
+    }
+
+    @Override
+    public Set<Entry<String, RangerPolicyRepository>> entrySet() {
+        return entrySet;
+    }
+
+    @Override
+    public String toString() {
+        return "RangerZonePolicyRepositories={zones=" + zones.size() + ", built=" + getBuiltRepositories().size() + ", isLazy=" + isLazy + ", maxCount=" + maxCount + ", idleTimeoutMs=" + idleTimeoutMs + ", prewarmZones=" + prewarmZones + ", builds=" + builds.sum() + ", evictions=" + evictions.sum() + "}";
+    }
+
+    private RangerPolicyRepository getRepository(ZoneEntry entry) {
+        long                   now = System.currentTimeMillis();
+        RangerPolicyRepository ret = entry.repository;
+
+        if (ret == null) {
+            synchronized (entry) {
+                ret = entry.repository;
+
+                if (ret == null) {
+                    ret = buildRepository(entry);
+
+                    entry.lastAccessTime = now;
+                    entry.repository     = ret;
+                }
+            }
+
+            if (maxCount > 0) {
+                evictLeastRecentlyUsed(entry);
+            }
+        } else if (isLazy && now - entry.lastAccessTime > ACCESS_TIME_GRANULARITY_MS) {
+            entry.lastAccessTime = now;
+        }
+
+        if (idleTimeoutMs > 0 && now >= nextIdleCheckTime) {
+            evictIdle(now);
+        }
+
+        return ret;
+    }
+
+    private RangerPolicyRepository getRepositoryForScan(ZoneEntry entry) {
+        RangerPolicyRepository ret = entry.repository;
+
+        if (ret == null) {
+            synchronized (this) { // to not exceed maxCount by concurrent scans
+                synchronized (entry) {
+                    ret = entry.repository;
+
+                    if (ret == null) {
+                        ret = buildRepository(entry);
+
+                        if (maxCount == 0 || getEvictableCount() < maxCount) {
+                            entry.lastAccessTime = System.currentTimeMillis();
+                            entry.repository     = ret;
+                        }
+                    }
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private RangerPolicyRepository buildRepository(ZoneEntry entry) {
+        LOG.info("Building policy-repository for zone {}", entry.zoneName);
+
+        // service-def, shared with repositories of other zones, is normalized when the policy engine is built
+        RangerPolicyRepository ret = new RangerPolicyRepository(entry.servicePolicies, pluginContext, entry.zoneName, false);
+
+        builds.increment();
+
+        return ret;
+    }
+
+    private int getEvictableCount() {
+        int ret = 0;
+
+        for (ZoneEntry entry : zones.values()) {
+            if (entry.repository != null && !prewarmZones.contains(entry.zoneName)) {
+                ret++;
+            }
+        }
+
+        return ret;
+    }
+
+    private synchronized void evictLeastRecentlyUsed(ZoneEntry justBuilt) {
+        int builtCount = getEvictableCount();
+
+        while (builtCount > maxCount) {
+            ZoneEntry lru = null;
+
+            for (ZoneEntry entry : zones.values()) {
+                if (entry != justBuilt && entry.repository != null && !prewarmZones.contains(entry.zoneName) && (lru == null || entry.lastAccessTime < lru.lastAccessTime)) {
+                    lru = entry;
+                }
+            }
+
+            if (lru == null) {
+                break;
+            }
+
+            evict(lru, "least recently used");
+
+            builtCount--;
+        }
+    }
+
+    private synchronized void evictIdle(long now) {
+        if (now >= nextIdleCheckTime) {
+            nextIdleCheckTime = now + Math.max(ACCESS_TIME_GRANULARITY_MS, idleTimeoutMs / 2);
+
+            for (ZoneEntry entry : zones.values()) {
+                if (entry.repository != null && !prewarmZones.contains(entry.zoneName) && now - entry.lastAccessTime > idleTimeoutMs) {
+                    evict(entry, "idle");
+                }
+            }
+        }
+    }
+
+    // requests being evaluated continue to use the repository; it is released once they complete
+    private void evict(ZoneEntry entry, String reason) {
+        LOG.info("Evicting policy-repository for zone {}: {}", entry.zoneName, reason);
+
+        entry.repository = null;
+
+        evictions.increment();
+    }
+
+    private ServicePolicies createZoneServicePolicies(ServicePolicies servicePolicies, String zoneName, List<RangerPolicy> policies) {
+        ServicePolicies  ret  = new ServicePolicies();
+        SecurityZoneInfo zone = new SecurityZoneInfo();
+
+        zone.setZoneName(zoneName);
+        zone.setPolicies(policies != null ? policies : new ArrayList<>());
+
+        ret.setServiceId(servicePolicies.getServiceId());
+        ret.setServiceName(servicePolicies.getServiceName());
+        ret.setServiceDef(serviceDef);
+        ret.setAuditMode(servicePolicies.getAuditMode());
+        ret.setPolicyVersion(servicePolicies.getPolicyVersion());
+        ret.setSecurityZones(Collections.singletonMap(zoneName, zone));
+
+        return ret;
+    }
+
+    private static Set<String> toSet(String zoneNames) {
+        Set<String> ret = new HashSet<>();
+
+        if (StringUtils.isNotBlank(zoneNames)) {
+            for (String zoneName : zoneNames.split(",")) {
+                if (StringUtils.isNotBlank(zoneName)) {
+                    ret.add(zoneName.trim());
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private static final class ZoneEntry {
+        private final    String                 zoneName;
+        private final    ServicePolicies        servicePolicies;
+        private volatile RangerPolicyRepository repository;
+        private volatile long                   lastAccessTime;
+
+        ZoneEntry(String zoneName, ServicePolicies servicePolicies) {
+            this.zoneName        = zoneName;
+            this.servicePolicies = servicePolicies;
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, RangerPolicyRepository>> {
+        @Override
+        public Iterator<Entry<String, RangerPolicyRepository>> iterator() {
+            Iterator<ZoneEntry> iter = zones.values().iterator();
+
+            return new Iterator<Entry<String, RangerPolicyRepository>>() {
+                @Override
+                public boolean hasNext() {
+                    return iter.hasNext();
+                }
+
+                @Override
+                public Entry<String, RangerPolicyRepository> next() {
+                    ZoneEntry entry = iter.next();
+
+                    return new SimpleImmutableEntry<>(entry.zoneName, getRepository(entry));
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return zones.size();
+        }
+    }
+}
@@ -531,6 +531,7 @@ public class RangerDefaultPolicyResourceEvaluator implements RangerPolicyResourc
         private final    RangerDefaultPolicyResourceMatcher resourceMatcher;
         private final    RangerResourceDef                  leafResourceDef;
         private volatile RangerDefaultPolicyResourceMatcher macrosReplacedWithWildcardMatcher;
+        private          int                                index = -1;
 
         public RangerDefaultPolicyResourceEvaluator(long id, Map<String, RangerPolicyResource> resource, int policyType, RangerServiceDef serviceDef, RangerServiceDefHelper serviceDefHelper) {
             this.id              = id;
@@ -585,6 +586,16 @@ public long getId() {
             return id;
         }
 
+        @Override
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
         @Override
         public RangerPolicyResourceMatcher getPolicyResourceMatcher() {
             return resourceMatcher;
@@ -37,28 +37,36 @@
 import org.apache.ranger.plugin.policyengine.RangerAccessRequestWrapper;
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
 import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.policyengine.RangerPluginContext;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
 import org.apache.ranger.plugin.policyengine.RangerResourceAccessInfo;
 import org.apache.ranger.plugin.policyengine.RangerTagAccessRequest;
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher.MatchType;
+import org.apache.ranger.plugin.service.RangerAuthContext;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
+import org.apache.ranger.plugin.util.RangerPrincipalIndex;
 import org.apache.ranger.plugin.util.RangerRolesUtil;
 import org.apache.ranger.plugin.util.ServiceDefUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator {
     private static final Logger LOG = LoggerFactory.getLogger(RangerDefaultPolicyEvaluator.class);
@@ -68,18 +76,19 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
     private static final Logger PERF_POLICY_REQUEST_LOG          = RangerPerfTracer.getPerfLogger("policy.request");
     private static final Logger PERF_POLICYCONDITION_REQUEST_LOG = RangerPerfTracer.getPerfLogger("policycondition.request");
 
-    private List<RangerValidityScheduleEvaluator>    validityScheduleEvaluators;
-    private List<RangerPolicyItemEvaluator>          allowEvaluators;
-    private List<RangerPolicyItemEvaluator>          denyEvaluators;
-    private List<RangerPolicyItemEvaluator>          allowExceptionEvaluators;
-    private List<RangerPolicyItemEvaluator>          denyExceptionEvaluators;
-    private int                                      customConditionsCount;
-    private List<RangerDataMaskPolicyItemEvaluator>  dataMaskEvaluators;
-    private List<RangerRowFilterPolicyItemEvaluator> rowFilterEvaluators;
-    private List<RangerConditionEvaluator>           conditionEvaluators;
-    private String                                   perfTag;
-    private PolicyACLSummary                         aclSummary;
-    private boolean                                  disableRoleResolution = true;
+    private List<RangerValidityScheduleEvaluator>        validityScheduleEvaluators;
+    private List<RangerPolicyItemEvaluator>              allowEvaluators;
+    private List<RangerPolicyItemEvaluator>              denyEvaluators;
+    private List<RangerPolicyItemEvaluator>              allowExceptionEvaluators;
+    private List<RangerPolicyItemEvaluator>              denyExceptionEvaluators;
+    private int                                          customConditionsCount;
+    private List<RangerDataMaskPolicyItemEvaluator>      dataMaskEvaluators;
+    private List<RangerRowFilterPolicyItemEvaluator>     rowFilterEvaluators;
+    private List<RangerConditionEvaluator>               conditionEvaluators;
+    private String                                       perfTag;
+    private PolicyACLSummary                             aclSummary;
+    private boolean                                      disableRoleResolution = true;
+    private Map<List<?>, RangerPolicyItemEvaluatorIndex> itemEvaluatorIndexes  = Collections.emptyMap();
 
     static RangerPolicyItemAccess getAccess(RangerPolicyItem policyItem, String accessType) {
         RangerPolicyItemAccess ret = null;
@@ -157,6 +166,8 @@ public void init(RangerPolicy policy, RangerServiceDef serviceDef, RangerPolicyE
         allowExceptionEvaluators.sort(comparator);
         denyExceptionEvaluators.sort(comparator);
 
+        itemEvaluatorIndexes = createItemEvaluatorIndexes(options);
+
         /* dataMask, rowFilter policyItems must be evaulated in the order given in the policy; hence no sort
         Collections.sort(dataMaskEvaluators);
         Collections.sort(rowFilterEvaluators);
@@ -1185,6 +1196,15 @@ private void getResourceAccessInfo(RangerAccessRequest request, List<? extends R
         LOG.debug("<== RangerDefaultPolicyEvaluator.getResourceAccessInfo({}, {}, {}, {})", request, policyItems, users, groups);
     }
 
+    // group and role ids in policy items are interned in the id space of the auth context this policy is evaluated with
+    private RangerPrincipalIndex.IdSpace getPrincipalIdSpace() {
+        RangerPluginContext  pluginContext  = getPluginContext();
+        RangerAuthContext    authContext    = pluginContext != null ? pluginContext.getAuthContext() : null;
+        RangerPrincipalIndex principalIndex = authContext != null ? authContext.getPrincipalIndex() : null;
+
+        return principalIndex != null ? principalIndex.getIdSpace() : null;
+    }
+
     private List<RangerValidityScheduleEvaluator> createValidityScheduleEvaluators(RangerPolicy policy) {
         List<RangerValidityScheduleEvaluator> ret;
 
@@ -1220,10 +1240,11 @@ private List<RangerPolicyItemEvaluator> createPolicyItemEvaluators(RangerPolicy
         if (CollectionUtils.isNotEmpty(policyItems)) {
             ret = new ArrayList<>();
 
-            int policyItemCounter = 1;
+            int                          policyItemCounter = 1;
+            RangerPrincipalIndex.IdSpace idSpace           = getPrincipalIdSpace();
 
             for (RangerPolicyItem policyItem : policyItems) {
-                RangerPolicyItemEvaluator itemEvaluator = new RangerDefaultPolicyItemEvaluator(serviceDef, policy, policyItem, policyItemType, policyItemCounter++, options);
+                RangerPolicyItemEvaluator itemEvaluator = new RangerDefaultPolicyItemEvaluator(serviceDef, policy, policyItem, policyItemType, policyItemCounter++, options, idSpace);
 
                 itemEvaluator.init();
 
@@ -1327,27 +1348,15 @@ private static boolean hasNonPublicGroupOrConditions(List<RangerPolicyItem> poli
     private <T extends RangerPolicyItemEvaluator> T getMatchingPolicyItem(RangerAccessRequest request, List<T> evaluators, List<T> exceptionEvaluators) {
         LOG.debug("==> RangerDefaultPolicyEvaluator.getMatchingPolicyItem({})", request);
 
-        T ret = null;
-
-        if (CollectionUtils.isNotEmpty(evaluators)) {
-            for (T evaluator : evaluators) {
-                if (evaluator.isMatch(request)) {
-                    ret = evaluator;
-
-                    break;
-                }
-            }
-        }
+        T ret = getFirstMatchingPolicyItem(evaluators, request.getUser(), request.getUserGroups(), () -> RangerAccessRequestUtil.getUserRoles(request), evaluator -> evaluator.isMatch(request));
 
-        if (ret != null && CollectionUtils.isNotEmpty(exceptionEvaluators)) {
-            for (T exceptionEvaluator : exceptionEvaluators) {
-                if (exceptionEvaluator.isMatch(request)) {
-                    LOG.debug("RangerDefaultPolicyEvaluator.getMatchingPolicyItem({}): found exception policyItem({}); ignoring the matchedPolicyItem({})", request, exceptionEvaluator.getPolicyItem(), ret.getPolicyItem());
+        if (ret != null) {
+            T exceptionEvaluator = getFirstMatchingPolicyItem(exceptionEvaluators, request.getUser(), request.getUserGroups(), () -> RangerAccessRequestUtil.getUserRoles(request), evaluator -> evaluator.isMatch(request));
 
-                    ret = null;
+            if (exceptionEvaluator != null) {
+                LOG.debug("RangerDefaultPolicyEvaluator.getMatchingPolicyItem({}): found exception policyItem({}); ignoring the matchedPolicyItem({})", request, exceptionEvaluator.getPolicyItem(), ret.getPolicyItem());
 
-                    break;
-                }
+                ret = null;
             }
         }
 
@@ -1359,33 +1368,77 @@ private <T extends RangerPolicyItemEvaluator> T getMatchingPolicyItem(RangerAcce
     private <T extends RangerPolicyItemEvaluator> T getMatchingPolicyItem(String user, Set<String> userGroups, Set<String> roles, String owner, String accessType, List<T> evaluators, List<T> exceptionEvaluators) {
         LOG.debug("==> RangerDefaultPolicyEvaluator.getMatchingPolicyItem({}, {}, {}, {}, {})", user, userGroups, roles, owner, accessType);
 
+        T ret = getFirstMatchingPolicyItem(evaluators, user, userGroups, () -> roles, evaluator -> evaluator.matchUserGroupAndOwner(user, userGroups, roles, owner) && evaluator.matchAccessType(accessType));
+
+        if (ret != null) {
+            T exceptionEvaluator = getFirstMatchingPolicyItem(exceptionEvaluators, user, userGroups, () -> roles, evaluator -> evaluator.matchUserGroupAndOwner(user, userGroups, roles, owner) && evaluator.matchAccessType(accessType));
+
+            if (exceptionEvaluator != null) {
+                LOG.debug("RangerDefaultPolicyEvaluator.getMatchingPolicyItem({}, {}, {}): found exception policyItem({}); ignoring the matchedPolicyItem({})", user, userGroups, accessType, exceptionEvaluator.getPolicyItem(), ret.getPolicyItem());
+
+                ret = null;
+            }
+        }
+
+        LOG.debug("<== RangerDefaultPolicyEvaluator.getMatchingPolicyItem({}, {}, {}, {}, {}): {}", user, userGroups, roles, owner, accessType, ret);
+
+        return ret;
+    }
+
+    // when the evaluators are indexed, only those that name the given principal are visited - in the same order
+    private <T extends RangerPolicyItemEvaluator> T getFirstMatchingPolicyItem(List<T> evaluators, String user, Set<String> userGroups, Supplier<Set<String>> roles, Predicate<T> matcher) {
         T ret = null;
 
         if (CollectionUtils.isNotEmpty(evaluators)) {
-            for (T evaluator : evaluators) {
-                if (evaluator.matchUserGroupAndOwner(user, userGroups, roles, owner) && evaluator.matchAccessType(accessType)) {
-                    ret = evaluator;
+            RangerPolicyItemEvaluatorIndex index = itemEvaluatorIndexes.get(evaluators);
 
-                    break;
+            if (index == null) {
+                for (T evaluator : evaluators) {
+                    if (matcher.test(evaluator)) {
+                        ret = evaluator;
+
+                        break;
+                    }
+                }
+            } else {
+                BitSet candidates = index.getCandidates(user, userGroups, index.hasRoleItems() ? roles.get() : null);
+
+                for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                    T evaluator = evaluators.get(i);
+
+                    if (matcher.test(evaluator)) {
+                        ret = evaluator;
+
+                        break;
+                    }
                 }
             }
         }
 
-        if (ret != null && CollectionUtils.isNotEmpty(exceptionEvaluators)) {
-            for (T exceptionEvaluator : exceptionEvaluators) {
-                if (exceptionEvaluator.matchUserGroupAndOwner(user, userGroups, roles, owner) && exceptionEvaluator.matchAccessType(accessType)) {
-                    LOG.debug("RangerDefaultPolicyEvaluator.getMatchingPolicyItem({}, {}, {}): found exception policyItem({}); ignoring the matchedPolicyItem({})", user, userGroups, accessType, exceptionEvaluator.getPolicyItem(), ret.getPolicyItem());
+        return ret;
+    }
+
+    private Map<List<?>, RangerPolicyItemEvaluatorIndex> createItemEvaluatorIndexes(RangerPolicyEngineOptions options) {
+        Map<List<?>, RangerPolicyItemEvaluatorIndex> ret      = null;
+        int                                          minItems = options != null ? options.policyItemIndexMinItems : RangerPolicyEngineOptions.DEFAULT_POLICY_ITEM_INDEX_MIN_ITEMS;
 
-                    ret = null;
+        if (minItems > 0) {
+            for (List<? extends RangerPolicyItemEvaluator> evaluators : Arrays.asList(allowEvaluators, denyEvaluators, allowExceptionEvaluators, denyExceptionEvaluators, dataMaskEvaluators, rowFilterEvaluators)) {
+                RangerPolicyItemEvaluatorIndex index = RangerPolicyItemEvaluatorIndex.create(evaluators, minItems);
 
-                    break;
+                if (index != null) {
+                    if (ret == null) {
+                        ret = new IdentityHashMap<>();
+                    }
+
+                    ret.put(evaluators, index);
+
+                    LOG.debug("policyId={}: created {}", getPolicyId(), index);
                 }
             }
         }
 
-        LOG.debug("<== RangerDefaultPolicyEvaluator.getMatchingPolicyItem({}, {}, {}, {}, {}): {}", user, userGroups, roles, owner, accessType, ret);
-
-        return ret;
+        return ret != null ? ret : Collections.emptyMap();
     }
 
     // Policy Level Condition evaluator
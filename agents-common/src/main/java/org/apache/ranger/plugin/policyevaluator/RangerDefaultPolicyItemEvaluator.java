@@ -34,9 +34,11 @@
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
+import org.apache.ranger.plugin.util.RangerPrincipalIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -49,9 +51,20 @@ public class RangerDefaultPolicyItemEvaluator extends RangerAbstractPolicyItemEv
 
     private boolean hasCurrentUser;
     private boolean hasResourceOwner;
+    private boolean hasPublicGroup;
+    private BitSet  groupIds;
+    private BitSet  roleIds;
+
+    private final RangerPrincipalIndex.IdSpace idSpace;
 
     public RangerDefaultPolicyItemEvaluator(RangerServiceDef serviceDef, RangerPolicy policy, RangerPolicyItem policyItem, int policyItemType, int policyItemIndex, RangerPolicyEngineOptions options) {
+        this(serviceDef, policy, policyItem, policyItemType, policyItemIndex, options, null);
+    }
+
+    public RangerDefaultPolicyItemEvaluator(RangerServiceDef serviceDef, RangerPolicy policy, RangerPolicyItem policyItem, int policyItemType, int policyItemIndex, RangerPolicyEngineOptions options, RangerPrincipalIndex.IdSpace idSpace) {
         super(serviceDef, policy, policyItem, policyItemType, policyItemIndex, options);
+
+        this.idSpace = idSpace != null ? idSpace : new RangerPrincipalIndex.IdSpace();
     }
 
     public void init() {
@@ -62,6 +75,9 @@ public void init() {
         List<String> users = policyItem.getUsers();
         this.hasCurrentUser   = CollectionUtils.isNotEmpty(users) && users.contains(RangerPolicyEngine.USER_CURRENT);
         this.hasResourceOwner = CollectionUtils.isNotEmpty(users) && users.contains(RangerPolicyEngine.RESOURCE_OWNER);
+        this.hasPublicGroup   = policyItem.getGroups() != null && policyItem.getGroups().contains(RangerPolicyEngine.GROUP_PUBLIC);
+        this.groupIds         = idSpace.internGroups(policyItem.getGroups());
+        this.roleIds          = idSpace.internRoles(policyItem.getRoles());
 
         LOG.debug("<== RangerDefaultPolicyItemEvaluator(policyId={}, conditionsCount={})", policyId, getConditionEvaluators().size());
     }
@@ -235,24 +251,49 @@ public void updateAccessResult(RangerPolicyEvaluator policyEvaluator, RangerAcce
     private boolean matchUserGroupAndOwner(RangerAccessRequest request) {
         LOG.debug("==> RangerDefaultPolicyItemEvaluator.matchUserGroupAndOwner({})", request);
 
-        boolean ret = false;
-
-        String      user       = request.getUser();
-        Set<String> userGroups = request.getUserGroups();
+        final boolean ret;
 
+        String               user             = request.getUser();
         RangerAccessResource accessedResource = request.getResource();
         String               resourceOwner    = accessedResource != null ? accessedResource.getOwnerUser() : null;
 
-        if (!ret) {
+        if (groupIds == null || roleIds == null) { // not initialized
             Set<String> roles = null;
             if (CollectionUtils.isNotEmpty(policyItem.getRoles())) {
                 roles = RangerAccessRequestUtil.getUserRoles(request);
             }
-            ret = matchUserGroupAndOwner(user, userGroups, roles, resourceOwner);
+            ret = matchUserGroupAndOwner(user, request.getUserGroups(), roles, resourceOwner);
+        } else {
+            ret = matchUserGroupAndOwner(user, request, resourceOwner);
         }
 
         LOG.debug("<== RangerDefaultPolicyItemEvaluator.matchUserGroupAndOwner({}): {}", request, ret);
 
         return ret;
     }
+
+    // groups and roles are matched by intersecting ids in the policy item with ids in the request, computed once per request
+    private boolean matchUserGroupAndOwner(String user, RangerAccessRequest request, String owner) {
+        boolean ret = false;
+
+        if (user != null && policyItem.getUsers() != null) {
+            ret = hasCurrentUser || policyItem.getUsers().contains(user);
+        }
+
+        if (!ret && hasPublicGroup) {
+            ret = request.getUserGroups() != null;
+        }
+
+        if (!ret && (!groupIds.isEmpty() || !roleIds.isEmpty())) {
+            RangerPrincipalIndex.PrincipalIds principalIds = RangerAccessRequestUtil.getPrincipalIds(request, idSpace);
+
+            ret = groupIds.intersects(principalIds.getGroupIds()) || roleIds.intersects(principalIds.getRoleIds());
+        }
+
+        if (!ret && hasResourceOwner) {
+            ret = user != null && user.equals(owner);
+        }
+
+        return ret;
+    }
 }
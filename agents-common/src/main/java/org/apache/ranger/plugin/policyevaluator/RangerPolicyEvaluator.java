@@ -247,6 +247,8 @@ default long getPolicyId() {
         RangerPolicyEvaluator getPolicyEvaluator();
 
         RangerPolicyResourceMatcher getMacrosReplaceWithWildcardMatcher(PolicyEngine policyEngine);
+
+        void setIndex(int index);
     }
 
     class PolicyEvalOrderComparator implements Comparator<RangerPolicyEvaluator>, Serializable {
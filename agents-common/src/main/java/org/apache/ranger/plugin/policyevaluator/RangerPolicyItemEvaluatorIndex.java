@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyevaluator;
+
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index of policy item evaluators by the users, groups and roles named in their policy items. For a given
+ * principal, getCandidates() returns positions of evaluators that can possibly match - in the order of the evaluator
+ * list, so that the first matching candidate is the same as the first matching evaluator in the list.
+ *
+ * Items that don't depend on the principal - public group, {USER}, {OWNER} - are candidates for every principal. Items
+ * that name no user, group or role are never candidates, as they can't match any principal.
+ */
+final class RangerPolicyItemEvaluatorIndex {
+    private final Map<String, BitSet> userItems;
+    private final Map<String, BitSet> groupItems;
+    private final Map<String, BitSet> roleItems;
+    private final BitSet              anyPrincipalItems;
+
+    private RangerPolicyItemEvaluatorIndex(List<? extends RangerPolicyItemEvaluator> evaluators) {
+        Map<String, BitSet> userItems         = new HashMap<>();
+        Map<String, BitSet> groupItems        = new HashMap<>();
+        Map<String, BitSet> roleItems         = new HashMap<>();
+        BitSet              anyPrincipalItems = new BitSet();
+
+        for (int i = 0; i < evaluators.size(); i++) {
+            RangerPolicyItem policyItem = evaluators.get(i).getPolicyItem();
+            List<String>     users      = policyItem.getUsers();
+            List<String>     groups     = policyItem.getGroups();
+
+            if ((users != null && (users.contains(RangerPolicyEngine.USER_CURRENT) || users.contains(RangerPolicyEngine.RESOURCE_OWNER))) ||
+                    (groups != null && groups.contains(RangerPolicyEngine.GROUP_PUBLIC))) {
+                anyPrincipalItems.set(i);
+            } else {
+                addItem(userItems, users, i);
+                addItem(groupItems, groups, i);
+                addItem(roleItems, policyItem.getRoles(), i);
+            }
+        }
+
+        this.userItems         = userItems.isEmpty() ? Collections.emptyMap() : userItems;
+        this.groupItems        = groupItems.isEmpty() ? Collections.emptyMap() : groupItems;
+        this.roleItems         = roleItems.isEmpty() ? Collections.emptyMap() : roleItems;
+        this.anyPrincipalItems = anyPrincipalItems;
+    }
+
+    /**
+     * Returns an index for the given evaluators, or null when the list is too short to benefit from it, or has evaluators
+     * that might match principals other than those in their policy items.
+     */
+    static RangerPolicyItemEvaluatorIndex create(List<? extends RangerPolicyItemEvaluator> evaluators, int minItems) {
+        RangerPolicyItemEvaluatorIndex ret = null;
+
+        if (evaluators != null && evaluators.size() >= minItems) {
+            boolean isIndexable = true;
+
+            for (RangerPolicyItemEvaluator evaluator : evaluators) {
+                if (!isIndexable(evaluator)) {
+                    isIndexable = false;
+
+                    break;
+                }
+            }
+
+            if (isIndexable) {
+                ret = new RangerPolicyItemEvaluatorIndex(evaluators);
+            }
+        }
+
+        return ret;
+    }
+
+    BitSet getCandidates(String user, Collection<String> userGroups, Collection<String> roles) {
+        BitSet ret = (BitSet) anyPrincipalItems.clone();
+
+        if (user != null) {
+            or(ret, userItems.get(user));
+        }
+
+        if (userGroups != null && !groupItems.isEmpty()) {
+            for (String group : userGroups) {
+                or(ret, groupItems.get(group));
+            }
+        }
+
+        if (roles != null && !roleItems.isEmpty()) {
+            for (String role : roles) {
+                or(ret, roleItems.get(role));
+            }
+        }
+
+        return ret;
+    }
+
+    boolean hasRoleItems() {
+        return !roleItems.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "RangerPolicyItemEvaluatorIndex={users=" + userItems.size() + ", groups=" + groupItems.size() + ", roles=" + roleItems.size() + ", anyPrincipalItems=" + anyPrincipalItems.cardinality() + "}";
+    }
+
+    // evaluators of these types match a principal only if it is named in the policy item
+    private static boolean isIndexable(RangerPolicyItemEvaluator evaluator) {
+        Class<?> evaluatorClass = evaluator.getClass();
+
+        return (evaluatorClass == RangerDefaultPolicyItemEvaluator.class || evaluatorClass == RangerDefaultDataMaskPolicyItemEvaluator.class || evaluatorClass == RangerDefaultRowFilterPolicyItemEvaluator.class) && evaluator.getPolicyItem() != null;
+    }
+
+    private static void addItem(Map<String, BitSet> items, List<String> names, int position) {
+        if (names != null) {
+            for (String name : names) {
+                if (name != null) {
+                    items.computeIfAbsent(name, k -> new BitSet()).set(position);
+                }
+            }
+        }
+    }
+
+    private static void or(BitSet target, BitSet source) {
+        if (source != null) {
+            target.or(source);
+        }
+    }
+}
@@ -806,6 +806,10 @@ private RangerResourceMatcher createResourceMatcher(RangerResourceDef resourceDe
                     ret = new RangerDefaultResourceMatcher();
                 }
 
+                if (ret instanceof RangerDefaultResourceMatcher && pluginContext != null && pluginContext.getConfig() != null) {
+                    ((RangerDefaultResourceMatcher) ret).setCompileMatchers(pluginContext.getConfig().getPolicyEngineOptions().compileResourceMatchers);
+                }
+
                 if (forceEnableWildcardMatch && !Boolean.parseBoolean(resourceDef.getMatcherOptions().get(OPTION_WILD_CARD))) {
                     resourceDef = serviceDefHelper.getWildcardEnabledResourceDef(resourceDef.getName(), policyType);
                 }
@@ -37,4 +37,11 @@ public interface RangerResourceEvaluator {
     boolean isAncestorOf(RangerServiceDef.RangerResourceDef resourceDef);
 
     boolean isLeaf(String resourceName);
+
+    /**
+     * @return dense index of this evaluator, used by resource-tries to keep evaluator sets as sorted int arrays; -1 if not assigned
+     */
+    default int getIndex() {
+        return -1;
+    }
 }
@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.resourcematcher;
+
+import org.apache.ranger.plugin.resourcematcher.RangerAbstractResourceMatcher.CaseInsensitiveEndsWithMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerAbstractResourceMatcher.CaseInsensitiveStartsWithMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerAbstractResourceMatcher.CaseInsensitiveStringMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerAbstractResourceMatcher.CaseInsensitiveWildcardMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerAbstractResourceMatcher.CaseSensitiveEndsWithMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerAbstractResourceMatcher.CaseSensitiveStartsWithMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerAbstractResourceMatcher.CaseSensitiveStringMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerAbstractResourceMatcher.CaseSensitiveWildcardMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerAbstractResourceMatcher.QuotedCaseSensitiveEndsWithMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerAbstractResourceMatcher.QuotedCaseSensitiveStartsWithMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerAbstractResourceMatcher.QuotedCaseSensitiveStringMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerAbstractResourceMatcher.QuotedCaseSensitiveWildcardMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher.AbstractPathResourceMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher.PathEndsWithResourceMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher.PathResourceMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher.PathStartsWithResourceMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher.RecursivePathResourceMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher.RecursiveWildcardResourceMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher.WildcardResourceMatcher;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Matches a resource value against all values of a policy resource in one call, instead of calling ResourceMatcher of
+ * each value in turn. Built when the resource matcher is initialized:
+ * - values without wildcards are looked up in a hash set
+ * - values with only trailing (or only leading) '*' are compared with String.startsWith() (or endsWith())
+ * - values with other wildcards are matched by a WildcardAutomaton, in one scan of the resource value
+ * - for case-insensitive matching, values are converted to lower case here, and the resource value once per call
+ *
+ * Values of RangerPathResourceMatcher are compiled likewise: a recursive path is looked up in the hash set, and with
+ * the path separator appended, in the prefixes; recursive wildcard paths are matched by a WildcardAutomaton that
+ * matches path elements.
+ *
+ * Values that need dynamic evaluation (macros, request expressions) are matched by their ResourceMatcher; so are all
+ * values when a case-insensitive match is to be done for a resource value with non-ASCII characters, whose case
+ * conversion is not equivalent to String.equalsIgnoreCase(), and recursive wildcard paths for a resource value that
+ * ends with the path separator.
+ */
+final class CompiledResourceMatcher {
+    private final boolean               optIgnoreCase;
+    private final String                optQuoteChars;      // null unless quoted values are to be matched case-sensitively
+    private final CompiledValues        values      = new CompiledValues();
+    private final CompiledValues        lowerValues = new CompiledValues();
+    private final Character             pathSeparatorChar;  // of recursive wildcard paths
+    private final List<ResourceMatcher> compiledMatchers;   // matchers of the values above
+    private final List<ResourceMatcher> recursiveWildcardMatchers;
+    private final List<ResourceMatcher> otherMatchers;
+
+    CompiledResourceMatcher(List<ResourceMatcher> resourceMatchers, boolean optIgnoreCase, boolean optQuotedCaseSensitive, String optQuoteChars) {
+        this.optIgnoreCase             = optIgnoreCase;
+        this.optQuoteChars             = optIgnoreCase && optQuotedCaseSensitive ? optQuoteChars : null;
+        this.compiledMatchers          = new ArrayList<>();
+        this.recursiveWildcardMatchers = new ArrayList<>();
+        this.otherMatchers             = new ArrayList<>();
+
+        boolean   needsCaseSensitive   = !optIgnoreCase || this.optQuoteChars != null;
+        boolean   needsCaseInsensitive = optIgnoreCase;
+        Character pathSeparatorChar    = null;
+
+        for (ResourceMatcher matcher : resourceMatchers) {
+            String  value      = matcher.value;
+            String  lowerValue = toLowerCaseAscii(value);
+            boolean isCompiled = true;
+
+            if (matcher.getNeedsDynamicEval() || (needsCaseInsensitive && lowerValue == null)) {
+                isCompiled = false;
+            } else if (matcher instanceof CaseSensitiveStringMatcher || matcher instanceof CaseInsensitiveStringMatcher || matcher instanceof QuotedCaseSensitiveStringMatcher) {
+                addValue(needsCaseSensitive, needsCaseInsensitive, value, lowerValue);
+            } else if (matcher instanceof CaseSensitiveStartsWithMatcher || matcher instanceof CaseInsensitiveStartsWithMatcher || matcher instanceof QuotedCaseSensitiveStartsWithMatcher) {
+                addPrefix(needsCaseSensitive, needsCaseInsensitive, value, lowerValue);
+            } else if (matcher instanceof CaseSensitiveEndsWithMatcher || matcher instanceof CaseInsensitiveEndsWithMatcher || matcher instanceof QuotedCaseSensitiveEndsWithMatcher) {
+                addSuffix(needsCaseSensitive, needsCaseInsensitive, value, lowerValue);
+            } else if (matcher instanceof CaseSensitiveWildcardMatcher || matcher instanceof CaseInsensitiveWildcardMatcher || matcher instanceof QuotedCaseSensitiveWildcardMatcher) {
+                addWildcard(needsCaseSensitive, needsCaseInsensitive, value, lowerValue);
+            } else if (matcher instanceof AbstractPathResourceMatcher && this.optQuoteChars == null) { // path matchers don't support quoted values
+                if (matcher instanceof PathResourceMatcher) {
+                    addValue(needsCaseSensitive, needsCaseInsensitive, value, lowerValue);
+                } else if (matcher instanceof PathStartsWithResourceMatcher) {
+                    addPrefix(needsCaseSensitive, needsCaseInsensitive, value, lowerValue);
+                } else if (matcher instanceof PathEndsWithResourceMatcher) {
+                    addSuffix(needsCaseSensitive, needsCaseInsensitive, value, lowerValue);
+                } else if (matcher instanceof WildcardResourceMatcher) {
+                    addWildcard(needsCaseSensitive, needsCaseInsensitive, value, lowerValue);
+                } else if (matcher instanceof RecursivePathResourceMatcher) {
+                    String noSeparator      = ((RecursivePathResourceMatcher) matcher).getStringToCompare(value);
+                    String lowerNoSeparator = toLowerCaseAscii(noSeparator);
+                    char   separator        = ((RecursivePathResourceMatcher) matcher).pathSeparatorChar;
+
+                    addValue(needsCaseSensitive, needsCaseInsensitive, noSeparator, lowerNoSeparator);
+                    addPrefix(needsCaseSensitive, needsCaseInsensitive, noSeparator + separator, lowerNoSeparator + separator);
+                } else if (matcher instanceof RecursiveWildcardResourceMatcher && (pathSeparatorChar == null || pathSeparatorChar == ((RecursiveWildcardResourceMatcher) matcher).pathSeparatorChar)) {
+                    pathSeparatorChar = ((RecursiveWildcardResourceMatcher) matcher).pathSeparatorChar;
+
+                    if (needsCaseSensitive) {
+                        values.recursiveWildcards.add(value);
+                    }
+
+                    if (needsCaseInsensitive) {
+                        lowerValues.recursiveWildcards.add(lowerValue);
+                    }
+
+                    recursiveWildcardMatchers.add(matcher);
+                } else {
+                    isCompiled = false;
+                }
+            } else {
+                isCompiled = false;
+            }
+
+            if (isCompiled) {
+                compiledMatchers.add(matcher);
+            } else {
+                otherMatchers.add(matcher);
+            }
+        }
+
+        this.pathSeparatorChar = pathSeparatorChar;
+
+        values.compile(pathSeparatorChar);
+        lowerValues.compile(pathSeparatorChar);
+    }
+
+    boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
+        final boolean ret;
+
+        if (!optIgnoreCase || (optQuoteChars != null && ResourceMatcher.startsWithAnyChar(resourceValue, optQuoteChars))) {
+            ret = isMatch(values, resourceValue, evalContext);
+        } else {
+            String lowerValue = toLowerCaseAscii(resourceValue);
+
+            if (lowerValue != null) {
+                ret = isMatch(lowerValues, lowerValue, evalContext);
+            } else {
+                ret = isAnyMatch(compiledMatchers, resourceValue, evalContext);
+            }
+        }
+
+        return ret || isAnyMatch(otherMatchers, resourceValue, evalContext);
+    }
+
+    // ASCII-only lower-casing: for ASCII strings, comparison in lower case is equivalent to String.equalsIgnoreCase()
+    static String toLowerCaseAscii(String value) {
+        char[] chars = null;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c >= 0x80) {
+                return null;
+            } else if (c >= 'A' && c <= 'Z') {
+                if (chars == null) {
+                    chars = value.toCharArray();
+                }
+
+                chars[i] = (char) (c + ('a' - 'A'));
+            }
+        }
+
+        return chars == null ? value : new String(chars);
+    }
+
+    private boolean isMatch(CompiledValues compiledValues, String resourceValue, Map<String, Object> evalContext) {
+        if (compiledValues.isMatch(resourceValue)) {
+            return true;
+        }
+
+        if (compiledValues.recursiveWildcardAutomaton != null) {
+            if (resourceValue.isEmpty() || resourceValue.charAt(resourceValue.length() - 1) == pathSeparatorChar) {
+                return isAnyMatch(recursiveWildcardMatchers, resourceValue, evalContext);
+            } else {
+                return compiledValues.recursiveWildcardAutomaton.isMatch(resourceValue);
+            }
+        }
+
+        return false;
+    }
+
+    private void addValue(boolean needsCaseSensitive, boolean needsCaseInsensitive, String value, String lowerValue) {
+        if (needsCaseSensitive) {
+            values.values.add(value);
+        }
+
+        if (needsCaseInsensitive) {
+            lowerValues.values.add(lowerValue);
+        }
+    }
+
+    private void addPrefix(boolean needsCaseSensitive, boolean needsCaseInsensitive, String value, String lowerValue) {
+        if (needsCaseSensitive) {
+            values.prefixes.add(value);
+        }
+
+        if (needsCaseInsensitive) {
+            lowerValues.prefixes.add(lowerValue);
+        }
+    }
+
+    private void addSuffix(boolean needsCaseSensitive, boolean needsCaseInsensitive, String value, String lowerValue) {
+        if (needsCaseSensitive) {
+            values.suffixes.add(value);
+        }
+
+        if (needsCaseInsensitive) {
+            lowerValues.suffixes.add(lowerValue);
+        }
+    }
+
+    private void addWildcard(boolean needsCaseSensitive, boolean needsCaseInsensitive, String value, String lowerValue) {
+        if (needsCaseSensitive) {
+            values.wildcards.add(value);
+        }
+
+        if (needsCaseInsensitive) {
+            lowerValues.wildcards.add(lowerValue);
+        }
+    }
+
+    private static boolean isAnyMatch(List<ResourceMatcher> matchers, String resourceValue, Map<String, Object> evalContext) {
+        for (int i = 0; i < matchers.size(); i++) {
+            if (matchers.get(i).isMatch(resourceValue, evalContext)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static final class CompiledValues {
+        final Set<String>  values             = new HashSet<>();
+        final List<String> prefixes           = new ArrayList<>();
+        final List<String> suffixes           = new ArrayList<>();
+        final List<String> wildcards          = new ArrayList<>();
+        final List<String> recursiveWildcards = new ArrayList<>();
+        WildcardAutomaton  wildcardAutomaton;
+        WildcardAutomaton  recursiveWildcardAutomaton;
+
+        void compile(Character pathSeparatorChar) {
+            wildcardAutomaton          = wildcards.isEmpty() ? null : new WildcardAutomaton(wildcards, null);
+            recursiveWildcardAutomaton = recursiveWildcards.isEmpty() ? null : new WildcardAutomaton(recursiveWildcards, pathSeparatorChar);
+        }
+
+        boolean isMatch(String resourceValue) {
+            if (values.contains(resourceValue)) {
+                return true;
+            }
+
+            for (int i = 0; i < prefixes.size(); i++) {
+                if (resourceValue.startsWith(prefixes.get(i))) {
+                    return true;
+                }
+            }
+
+            for (int i = 0; i < suffixes.size(); i++) {
+                if (resourceValue.endsWith(suffixes.get(i))) {
+                    return true;
+                }
+            }
+
+            return wildcardAutomaton != null && wildcardAutomaton.isMatch(resourceValue);
+        }
+    }
+}
@@ -32,6 +32,31 @@
 public class RangerDefaultResourceMatcher extends RangerAbstractResourceMatcher {
     private static final Logger LOG = LoggerFactory.getLogger(RangerDefaultResourceMatcher.class);
 
+    // with fewer values, calling the matcher of each value is about as fast
+    private static final int MIN_VALUE_COUNT_TO_COMPILE = 4;
+
+    private boolean                 compileMatchers;
+    private CompiledResourceMatcher compiledMatcher;
+
+    /**
+     * @param compileMatchers when true, init() builds a CompiledResourceMatcher to match values of the policy resource in one call;
+     *                        only for policy resources having at least MIN_VALUE_COUNT_TO_COMPILE values
+     */
+    public void setCompileMatchers(boolean compileMatchers) {
+        this.compileMatchers = compileMatchers;
+    }
+
+    @Override
+    public void init() {
+        super.init();
+
+        if (compileMatchers && !isMatchAny && resourceMatchers.getResourceMatchers().size() >= MIN_VALUE_COUNT_TO_COMPILE) {
+            compiledMatcher = new CompiledResourceMatcher(resourceMatchers.getResourceMatchers(), optIgnoreCase, optQuotedCaseSensitive, optQuoteChars);
+        } else {
+            compiledMatcher = null;
+        }
+    }
+
     @Override
     public ResourceElementMatchType getMatchType(Object resource, ResourceElementMatchingScope matchingScope, Map<String, Object> evalContext) {
         LOG.debug("==> RangerDefaultResourceMatcher.getMatchType({}, {})", resource, evalContext);
@@ -43,7 +68,12 @@ public ResourceElementMatchType getMatchType(Object resource, ResourceElementMat
         if (isMatchAny || (allValuesRequested && !isPrefixMatch)) {
             ret = isMatchAny ? ResourceElementMatchType.SELF : NONE;
         } else {
-            if (resource instanceof String) {
+            // with compiledMatcher, matchers are called only to find PREFIX/CHILD matches when no value matches SELF
+            boolean isCompiledMatch = compiledMatcher != null && isCompiledMatch(resource, evalContext);
+
+            if (isCompiledMatch || (compiledMatcher != null && (matchingScope == null || matchingScope == ResourceElementMatchingScope.SELF))) {
+                ret = isCompiledMatch ? ResourceElementMatchType.SELF : NONE;
+            } else if (resource instanceof String) {
                 String strValue = (String) resource;
 
                 for (ResourceMatcher resourceMatcher : resourceMatchers.getResourceMatchers()) {
@@ -115,6 +145,20 @@ public boolean isMatch(Object resource, ResourceElementMatchingScope matchingSco
         return ret;
     }
 
+    private boolean isCompiledMatch(Object resource, Map<String, Object> evalContext) {
+        if (resource instanceof String) {
+            return compiledMatcher.isMatch((String) resource, evalContext);
+        } else if (resource instanceof Collection) {
+            for (Object resourceValue : (Collection<?>) resource) {
+                if (resourceValue instanceof String && compiledMatcher.isMatch((String) resourceValue, evalContext)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
     public StringBuilder toString(StringBuilder sb) {
         sb.append("RangerDefaultResourceMatcher={");
 
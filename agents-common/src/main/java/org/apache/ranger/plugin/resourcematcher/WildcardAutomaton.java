@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.resourcematcher;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Matches a string against a set of wildcard patterns - '*' matching any sequence of characters and '?' any one
+ * character, as in FilenameUtils.wildcardMatch() - in one scan of the string, irrespective of the number of patterns.
+ * Like FilenameUtils.wildcardMatch(), a '*' followed by '?' is ignored: "*?" matches exactly one character.
+ *
+ * Patterns are compiled into an NFA, whose states are positions in the patterns. A DFA is built from it lazily: a DFA
+ * state - the set of NFA states reachable after the characters seen so far - and its transitions are created when first
+ * needed, and reused by later calls. Transitions are cached for ASCII characters only; the number of DFA states is
+ * bounded by MAX_STATE_COUNT, beyond which states are computed for each call but not cached.
+ *
+ * DFA states are immutable other than their transitions table, which is updated without locks: a thread that doesn't
+ * see the transition added by another thread computes it again, and gets an equivalent state.
+ *
+ * When a path separator is given, the string is matched as a path by RangerPathResourceMatcher.isRecursiveWildCardMatch():
+ * the string matches if a pattern matches the path up to the end of any of its elements, with runs of separators
+ * treated as one. Such a path must not end with the separator - which isRecursiveWildCardMatch() treats differently.
+ */
+final class WildcardAutomaton {
+    private static final int  MAX_STATE_COUNT = 1024;
+    private static final int  ASCII_SIZE      = 128;
+    private static final byte CHAR            = 0;
+    private static final byte ANY_CHAR        = 1; // '?'
+    private static final byte ANY_CHARS       = 2; // '*'
+    private static final byte END             = 3; // end of a pattern
+
+    private final char[]            chars;      // characters of the patterns, for CHAR tokens
+    private final byte[]            tokens;     // tokens of the patterns, each followed by END
+    private final Character         pathSeparatorChar;
+    private final Map<State, State> states = new ConcurrentHashMap<>();
+    private final State             initialState;
+
+    WildcardAutomaton(List<String> patterns, Character pathSeparatorChar) {
+        int length = 0;
+
+        for (String pattern : patterns) {
+            length += pattern.length() + 1;
+        }
+
+        this.chars             = new char[length];
+        this.tokens            = new byte[length];
+        this.pathSeparatorChar = pathSeparatorChar;
+
+        int[] startPositions = new int[patterns.size()];
+        int   pos            = 0;
+
+        for (int i = 0; i < patterns.size(); i++) {
+            String pattern = patterns.get(i);
+
+            startPositions[i] = pos;
+
+            for (int j = 0; j < pattern.length(); j++, pos++) {
+                char c = pattern.charAt(j);
+
+                if (c == '?') { // like FilenameUtils.wildcardMatch(), ignore '*' before '?'
+                    while (pos > startPositions[i] && tokens[pos - 1] == ANY_CHARS) {
+                        pos--;
+                    }
+                }
+
+                chars[pos]  = c;
+                tokens[pos] = c == '*' ? ANY_CHARS : (c == '?' ? ANY_CHAR : CHAR);
+            }
+
+            tokens[pos++] = END;
+        }
+
+        PositionSet initial = new PositionSet(length);
+
+        for (int startPosition : startPositions) {
+            addPosition(initial, startPosition);
+        }
+
+        this.initialState = getState(initial);
+    }
+
+    int getStateCount() {
+        return states.size();
+    }
+
+    boolean isMatch(String value) {
+        State state = initialState;
+
+        if (pathSeparatorChar == null) {
+            for (int i = 0; i < value.length() && state.hasPositions; i++) {
+                state = state.next(value.charAt(i));
+            }
+
+            return state.isMatch;
+        } else {
+            final char sep        = pathSeparatorChar;
+            boolean    inElement  = false;
+            boolean    prevWasSep = false;
+
+            for (int i = 0; i < value.length() && state.hasPositions; i++) {
+                char c = value.charAt(i);
+
+                if (c == sep) {
+                    if (inElement) { // end of an element
+                        if (state.isMatch) {
+                            return true;
+                        }
+
+                        inElement = false;
+                    } else if (prevWasSep) {
+                        continue;
+                    }
+
+                    prevWasSep = true;
+                } else {
+                    inElement  = true;
+                    prevWasSep = false;
+                }
+
+                state = state.next(c);
+            }
+
+            return inElement && state.isMatch;
+        }
+    }
+
+    private void addPosition(PositionSet positions, int pos) {
+        // a '*' matches no character as well: add following positions too
+        while (positions.add(pos) && tokens[pos] == ANY_CHARS) {
+            pos++;
+        }
+    }
+
+    private State getState(PositionSet positions) {
+        State state = new State(positions.toArray());
+        State ret   = states.get(state);
+
+        if (ret == null) {
+            if (states.size() < MAX_STATE_COUNT) {
+                State existing = states.putIfAbsent(state, state);
+
+                ret = existing != null ? existing : state;
+            } else {
+                ret = state; // not cached
+            }
+        }
+
+        return ret;
+    }
+
+    private State computeNext(State state, char c) {
+        PositionSet next = new PositionSet(tokens.length);
+
+        for (int pos : state.positions) {
+            switch (tokens[pos]) {
+                case CHAR:
+                    if (chars[pos] == c) {
+                        addPosition(next, pos + 1);
+                    }
+                    break;
+
+                case ANY_CHAR:
+                    addPosition(next, pos + 1);
+                    break;
+
+                case ANY_CHARS:
+                    addPosition(next, pos);
+                    break;
+
+                default: // END
+                    break;
+            }
+        }
+
+        return getState(next);
+    }
+
+    private final class State {
+        final int[]   positions;
+        final boolean isMatch;
+        final boolean hasPositions;
+        final State[] asciiTransitions = new State[ASCII_SIZE];
+
+        State(int[] positions) {
+            boolean isMatch = false;
+
+            for (int pos : positions) {
+                if (tokens[pos] == END) {
+                    isMatch = true;
+                    break;
+                }
+            }
+
+            this.positions    = positions;
+            this.isMatch      = isMatch;
+            this.hasPositions = positions.length > 0;
+        }
+
+        State next(char c) {
+            State ret = c < ASCII_SIZE ? asciiTransitions[c] : null;
+
+            if (ret == null) {
+                ret = computeNext(this, c);
+
+                if (c < ASCII_SIZE && states.containsKey(ret)) {
+                    asciiTransitions[c] = ret;
+                }
+            }
+
+            return ret;
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(positions);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof State && Arrays.equals(positions, ((State) obj).positions);
+        }
+    }
+
+    // set of positions, kept in the order they are added; DFA states are compared after sorting the positions
+    private static final class PositionSet {
+        private final boolean[] contains;
+        private int[]           positions = new int[8];
+        private int             size;
+
+        PositionSet(int capacity) {
+            this.contains = new boolean[capacity];
+        }
+
+        boolean add(int pos) {
+            if (contains[pos]) {
+                return false;
+            }
+
+            contains[pos] = true;
+
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+
+            positions[size++] = pos;
+
+            return true;
+        }
+
+        int[] toArray() {
+            int[] ret = Arrays.copyOf(positions, size);
+
+            Arrays.sort(ret);
+
+            return ret;
+        }
+    }
+}
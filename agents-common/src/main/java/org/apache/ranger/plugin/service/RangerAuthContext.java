@@ -19,18 +19,14 @@
 
 package org.apache.ranger.plugin.service;
 
-import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.collections.MapUtils;
-import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.plugin.contextenricher.RangerContextEnricher;
-import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
 import org.apache.ranger.plugin.policyengine.RangerSecurityZoneMatcher;
+import org.apache.ranger.plugin.util.RangerPrincipalIndex;
 import org.apache.ranger.plugin.util.RangerRoles;
 import org.apache.ranger.plugin.util.RangerRolesUtil;
 import org.apache.ranger.plugin.util.RangerUserStore;
 import org.apache.ranger.plugin.util.RangerUserStoreUtil;
 
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -40,6 +36,7 @@ public class RangerAuthContext {
     private final RangerSecurityZoneMatcher          zoneMatcher;
     private       RangerRolesUtil                    rolesUtil;
     private       RangerUserStoreUtil                userStoreUtil;
+    private       RangerPrincipalIndex               principalIndex;
 
     public RangerAuthContext(Map<RangerContextEnricher, Object> requestContextEnrichers, RangerSecurityZoneMatcher zoneMatcher, RangerRoles roles, RangerUserStore userStore) {
         this.requestContextEnrichers = requestContextEnrichers != null ? requestContextEnrichers : new ConcurrentHashMap<>();
@@ -72,42 +69,12 @@ public void cleanupRequestContextEnricher(RangerContextEnricher enricher) {
     }
 
     public void setRoles(RangerRoles roles) {
-        this.rolesUtil = new RangerRolesUtil(roles);
+        this.rolesUtil      = new RangerRolesUtil(roles);
+        this.principalIndex = new RangerPrincipalIndex(rolesUtil, principalIndex);
     }
 
     public Set<String> getRolesForUserAndGroups(String user, Set<String> groups) {
-        RangerRolesUtil          rolesUtil        = this.rolesUtil;
-        Map<String, Set<String>> userRoleMapping  = rolesUtil.getUserRoleMapping();
-        Map<String, Set<String>> groupRoleMapping = rolesUtil.getGroupRoleMapping();
-        Set<String>              allRoles         = new HashSet<>();
-
-        if (MapUtils.isNotEmpty(userRoleMapping) && StringUtils.isNotEmpty(user)) {
-            Set<String> userRoles = userRoleMapping.get(user);
-
-            if (CollectionUtils.isNotEmpty(userRoles)) {
-                allRoles.addAll(userRoles);
-            }
-        }
-
-        if (MapUtils.isNotEmpty(groupRoleMapping)) {
-            if (CollectionUtils.isNotEmpty(groups)) {
-                for (String group : groups) {
-                    Set<String> groupRoles = groupRoleMapping.get(group);
-
-                    if (CollectionUtils.isNotEmpty(groupRoles)) {
-                        allRoles.addAll(groupRoles);
-                    }
-                }
-            }
-
-            Set<String> publicGroupRoles = groupRoleMapping.get(RangerPolicyEngine.GROUP_PUBLIC);
-
-            if (CollectionUtils.isNotEmpty(publicGroupRoles)) {
-                allRoles.addAll(publicGroupRoles);
-            }
-        }
-
-        return allRoles;
+        return principalIndex.getRolesForUserAndGroups(user, groups);
     }
 
     public long getRoleVersion() {
@@ -129,4 +96,8 @@ public RangerUserStoreUtil getUserStoreUtil() {
     public void setUserStore(RangerUserStore userStore) {
         this.userStoreUtil = new RangerUserStoreUtil(userStore);
     }
+
+    public RangerPrincipalIndex getPrincipalIndex() {
+        return this.principalIndex;
+    }
 }
@@ -88,20 +88,21 @@
 public class RangerBasePlugin {
     private static final Logger LOG = LoggerFactory.getLogger(RangerBasePlugin.class);
 
-    private final RangerPluginConfig          pluginConfig;
-    private final RangerPluginContext         pluginContext;
-    private final Map<String, LogHistory>     logHistoryList = new Hashtable<>();
-    private final int                         logInterval    = 30000; // 30 seconds
-    private final DownloadTrigger             accessTrigger  = new DownloadTrigger();
-    private final List<RangerChainedPlugin>   chainedPlugins;
-    private final boolean                     dedupStrings;
-    private       PolicyRefresher             refresher;
-    private       RangerPolicyEngine          policyEngine;
-    private       RangerAuthContext           currentAuthContext;
-    private       RangerAccessResultProcessor resultProcessor;
-    private       RangerRoles                 roles;
-    private       boolean                     isUserStoreEnricherAddedImplcitly;
-    private       Map<String, String>         serviceConfigs;
+    private final    RangerPluginConfig          pluginConfig;
+    private final    RangerPluginContext         pluginContext;
+    private final    Map<String, LogHistory>     logHistoryList = new Hashtable<>();
+    private final    int                         logInterval    = 30000; // 30 seconds
+    private final    DownloadTrigger             accessTrigger  = new DownloadTrigger();
+    private final    List<RangerChainedPlugin>   chainedPlugins;
+    private final    boolean                     dedupStrings;
+    private final    boolean                     compactPolicies;
+    private          PolicyRefresher             refresher;
+    private volatile RangerPolicyEngine          policyEngine;
+    private          RangerAuthContext           currentAuthContext;
+    private          RangerAccessResultProcessor resultProcessor;
+    private          RangerRoles                 roles;
+    private          boolean                     isUserStoreEnricherAddedImplcitly;
+    private          Map<String, String>         serviceConfigs;
 
     public RangerBasePlugin(String serviceType, String appId) {
         this(new RangerPluginConfig(serviceType, null, appId, null, null, null));
@@ -192,8 +193,9 @@ public RangerBasePlugin(RangerPluginConfig pluginConfig) {
 
         RangerRequestScriptEvaluator.init(pluginConfig);
 
-        this.dedupStrings   = pluginConfig.getBoolean(pluginConfig.getPropertyPrefix() + ".dedup.strings", true);
-        this.chainedPlugins = initChainedPlugins();
+        this.dedupStrings    = pluginConfig.getBoolean(pluginConfig.getPropertyPrefix() + ".dedup.strings", true);
+        this.compactPolicies = pluginConfig.getBoolean(pluginConfig.getPropertyPrefix() + ".compact.policies", false);
+        this.chainedPlugins  = initChainedPlugins();
     }
 
     public RangerBasePlugin(RangerPluginConfig pluginConfig, ServicePolicies policies, ServiceTags tags, RangerRoles roles) {
@@ -485,6 +487,10 @@ public void setPolicies(ServicePolicies policies) {
                     policies.dedupStrings();
                 }
 
+                if (compactPolicies) {
+                    policies.compact();
+                }
+
                 Boolean hasPolicyDeltas = RangerPolicyDeltaUtil.hasPolicyDeltas(policies);
 
                 if (hasPolicyDeltas == null) {
@@ -30,4 +30,7 @@ public interface GeolocationStore {
     RangerGeolocationData getGeoLocation(String ipAddress);
 
     RangerGeolocationDatabase getGeoDatabase();
+
+    default void cleanup() {
+    }
 }
@@ -35,23 +35,37 @@
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.util.HashMap;
 import java.util.Map;
-
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads geolocation data from a CSV file, or from a binary file saved by RangerGeolocationDatabase.saveToFile(). When
+ * CompiledFilePath is specified, the database built from the CSV file is saved to this binary file; later loads read
+ * the binary file - memory-mapped - until the CSV file is modified.
+ *
+ * When ReloadIntervalMs is specified, the files are checked for modification in a background thread and a modified
+ * database replaces the current one after it is fully loaded; lookups continue to use the current database meanwhile.
+ */
 public class GeolocationFileStore implements GeolocationStore {
     private static final Logger LOG = LoggerFactory.getLogger(GeolocationFileStore.class);
 
-    public static final String    GeoLineCommentIdentifier          = "#";
-    public static final Character GeoFieldsSeparator                = ',';
-    public static final String    PROP_GEOLOCATION_FILE_LOCATION    = "FilePath";
-    public static final String    PROP_GEOLOCATION_FILE_REINIT      = "ForceRead";
-    public static final String    PROP_GEOLOCATION_IP_IN_DOT_FORMAT = "IPInDotFormat";
+    public static final String    GeoLineCommentIdentifier                = "#";
+    public static final Character GeoFieldsSeparator                      = ',';
+    public static final String    PROP_GEOLOCATION_FILE_LOCATION          = "FilePath";
+    public static final String    PROP_GEOLOCATION_FILE_REINIT            = "ForceRead";
+    public static final String    PROP_GEOLOCATION_IP_IN_DOT_FORMAT       = "IPInDotFormat";
+    public static final String    PROP_GEOLOCATION_COMPILED_FILE_LOCATION = "CompiledFilePath";
+    public static final String    PROP_GEOLOCATION_RELOAD_INTERVAL_MS     = "ReloadIntervalMs";
 
-    private static final Map<String, RangerGeolocationDatabase> GEOLOCATION_DB_MAP = new HashMap<>();
+    private static final Map<String, RangerGeolocationDatabase> GEOLOCATION_DB_MAP = new ConcurrentHashMap<>();
 
-    private RangerGeolocationDatabase geolocationDatabase;
-    private boolean                   isMetalineProcessed;
-    private boolean                   useDotFormat;
+    private volatile RangerGeolocationDatabase geolocationDatabase;
+    private          boolean                   isMetalineProcessed;
+    private          boolean                   useDotFormat;
+    private          String                    compiledFilePath;
+    private          Timer                     reloadTimer;
 
     @Override
     public void init(final Map<String, String> context) {
@@ -67,10 +81,17 @@ public void init(final Map<String, String> context) {
         String ipInDotFormat = context.get(PROP_GEOLOCATION_IP_IN_DOT_FORMAT);
         useDotFormat = ipInDotFormat == null || Boolean.parseBoolean(ipInDotFormat);
 
+        compiledFilePath = StringUtils.trimToNull(context.get(PROP_GEOLOCATION_COMPILED_FILE_LOCATION));
+
+        String reloadInterval   = context.get(PROP_GEOLOCATION_RELOAD_INTERVAL_MS);
+        long   reloadIntervalMs = StringUtils.isNumeric(reloadInterval) ? Long.parseLong(reloadInterval) : 0;
+
         if (LOG.isDebugEnabled()) {
             LOG.debug("GeolocationFileStore.init() - Geolocation file location={}", filePathToGeolocationFile);
             LOG.debug("GeolocationFileStore.init() - Reinitialize flag ={}", reinitialize);
             LOG.debug("GeolocationFileStore.init() - UseDotFormat flag ={}", useDotFormat);
+            LOG.debug("GeolocationFileStore.init() - Compiled file location={}", compiledFilePath);
+            LOG.debug("GeolocationFileStore.init() - Reload interval ={} milliseconds", reloadIntervalMs);
         }
 
         RangerGeolocationDatabase database = GEOLOCATION_DB_MAP.get(filePathToGeolocationFile);
@@ -89,6 +110,21 @@ public void init(final Map<String, String> context) {
         if (geolocationDatabase == null) {
             LOG.error("GeolocationFileStore.init() - Cannot build Geolocation database from file {}", filePathToGeolocationFile);
         }
+
+        if (reloadIntervalMs > 0) {
+            startReloadTimer(filePathToGeolocationFile, reloadIntervalMs);
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        Timer reloadTimer = this.reloadTimer;
+
+        this.reloadTimer = null;
+
+        if (reloadTimer != null) {
+            reloadTimer.cancel();
+        }
     }
 
     @Override
@@ -129,6 +165,21 @@ public RangerGeolocationDatabase getGeoDatabase() {
     RangerGeolocationDatabase build(String dataFileName) {
         RangerGeolocationDatabase database = null;
         long                      start    = System.currentTimeMillis();
+        File                      dataFile = new File(dataFileName);
+
+        if (RangerGeolocationDatabase.isBinaryFile(dataFile)) {
+            return loadCompiledFile(dataFile);
+        }
+
+        File compiledFile = compiledFilePath != null ? new File(compiledFilePath) : null;
+
+        if (compiledFile != null && compiledFile.lastModified() >= dataFile.lastModified() && RangerGeolocationDatabase.isBinaryFile(compiledFile)) {
+            database = loadCompiledFile(compiledFile);
+
+            if (database != null) {
+                return database;
+            }
+        }
 
         try (BufferedReader bufferedReader = new BufferedReader(getReader(dataFileName))) {
             database = new RangerGeolocationDatabase();
@@ -160,11 +211,69 @@ RangerGeolocationDatabase build(String dataFileName) {
 
         if (database != null) {
             database.optimize();
+
+            if (compiledFile != null) {
+                try {
+                    database.saveToFile(compiledFile);
+
+                    LOG.info("GeolocationFileStore: saved location data from '{}' to compiled file '{}'", dataFileName, compiledFile);
+                } catch (IOException excp) {
+                    LOG.warn("GeolocationFileStore.build() - failed to save compiled file '{}'", compiledFile, excp);
+                }
+            }
         }
 
         return database;
     }
 
+    private RangerGeolocationDatabase loadCompiledFile(File file) {
+        RangerGeolocationDatabase ret = null;
+
+        try {
+            LOG.info("GeolocationFileStore: reading location data from compiled file '{}'", file);
+
+            ret = RangerGeolocationDatabase.loadFromFile(file);
+        } catch (IOException excp) {
+            LOG.error("GeolocationFileStore.loadCompiledFile() - failed to load file '{}'", file, excp);
+        }
+
+        return ret;
+    }
+
+    private void startReloadTimer(String dataFileName, long reloadIntervalMs) {
+        cleanup();
+
+        reloadTimer = new Timer("geolocationReloadTimer", true);
+
+        reloadTimer.schedule(new TimerTask() {
+            private long lastModified = getLastModified(dataFileName);
+
+            @Override
+            public void run() {
+                long modified = getLastModified(dataFileName);
+
+                if (modified != lastModified) {
+                    LOG.info("GeolocationFileStore: location data file '{}' is modified; reloading", dataFileName);
+
+                    RangerGeolocationDatabase database = build(dataFileName);
+
+                    if (database != null) {
+                        GEOLOCATION_DB_MAP.put(dataFileName, database);
+
+                        geolocationDatabase = database;
+                        lastModified        = modified;
+                    } else {
+                        LOG.error("GeolocationFileStore: failed to reload location data from '{}'. Continuing with old database", dataFileName);
+                    }
+                }
+            }
+        }, reloadIntervalMs, reloadIntervalMs);
+    }
+
+    private long getLastModified(String dataFileName) {
+        return new File(dataFileName).lastModified();
+    }
+
     private Reader getReader(String dataFileName) throws IOException {
         Reader ret = null;
 
@@ -215,7 +324,7 @@ private boolean processLine(int lineNumber, String line, RangerGeolocationDataba
                 } else {
                     RangerGeolocationData data = RangerGeolocationData.create(fields, lineNumber, useDotFormat);
                     if (data != null) {
-                        database.getData().insert(data);
+                        database.add(data);
                     } else {
                         LOG.error("GeolocationFileStore.processLine() - Invalid data specification {}:{}", lineNumber, line);
                     }
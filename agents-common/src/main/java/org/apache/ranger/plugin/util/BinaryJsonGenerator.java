@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.base.GeneratorBase;
+import com.fasterxml.jackson.core.json.JsonWriteContext;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the JSON token stream in a binary format read by BinaryJsonParser: a header - MAGIC and FORMAT_VERSION - followed
+ * by one tag byte per token, with numbers as varints or 8-byte doubles, and strings - field names and values - as UTF-8
+ * bytes prefixed with their length. A string is written once: later occurrences refer to its index in the dictionary
+ * of strings written so far. Strings longer than MAX_DICTIONARY_STRING_LENGTH bytes are not added to the dictionary.
+ */
+class BinaryJsonGenerator extends GeneratorBase {
+    static final byte[] MAGIC          = {'R', 'N', 'G', 'B'};
+    static final byte   FORMAT_VERSION = 1;
+
+    static final byte START_OBJECT   = 1;
+    static final byte END_OBJECT     = 2;
+    static final byte START_ARRAY    = 3;
+    static final byte END_ARRAY      = 4;
+    static final byte FIELD_NAME     = 5;
+    static final byte VALUE_STRING   = 6;
+    static final byte VALUE_INT      = 7; // zigzag varint
+    static final byte VALUE_BIG_INT  = 8; // string
+    static final byte VALUE_DOUBLE   = 9; // 8 bytes
+    static final byte VALUE_DECIMAL  = 10; // string
+    static final byte VALUE_TRUE     = 11;
+    static final byte VALUE_FALSE    = 12;
+    static final byte VALUE_NULL     = 13;
+
+    // string encoding: a varint, followed by length and UTF-8 bytes for new strings
+    static final int STRING_NEW_DICTIONARY = 0;
+    static final int STRING_NEW            = 1;
+    static final int STRING_REF_BASE       = 2; // STRING_REF_BASE + index in the dictionary
+
+    static final int MAX_DICTIONARY_STRING_LENGTH = 256;
+
+    private final DataOutputStream     out;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    BinaryJsonGenerator(OutputStream out, ObjectCodec codec) throws IOException {
+        super(0, codec);
+
+        this.out = new DataOutputStream(out);
+
+        this.out.write(MAGIC);
+        this.out.writeByte(FORMAT_VERSION);
+    }
+
+    @Override
+    public void writeStartArray() throws IOException {
+        _verifyValueWrite("start an array");
+
+        _writeContext = _writeContext.createChildArrayContext();
+
+        out.writeByte(START_ARRAY);
+    }
+
+    @Override
+    public void writeEndArray() throws IOException {
+        if (!_writeContext.inArray()) {
+            _reportError("Current context not Array but " + _writeContext.typeDesc());
+        }
+
+        _writeContext = _writeContext.clearAndGetParent();
+
+        out.writeByte(END_ARRAY);
+    }
+
+    @Override
+    public void writeStartObject() throws IOException {
+        _verifyValueWrite("start an object");
+
+        _writeContext = _writeContext.createChildObjectContext();
+
+        out.writeByte(START_OBJECT);
+    }
+
+    @Override
+    public void writeEndObject() throws IOException {
+        if (!_writeContext.inObject()) {
+            _reportError("Current context not Object but " + _writeContext.typeDesc());
+        }
+
+        _writeContext = _writeContext.clearAndGetParent();
+
+        out.writeByte(END_OBJECT);
+    }
+
+    @Override
+    public void writeFieldName(String name) throws IOException {
+        if (_writeContext.writeFieldName(name) == JsonWriteContext.STATUS_EXPECT_VALUE) {
+            _reportError("Can not write a field name, expecting a value");
+        }
+
+        out.writeByte(FIELD_NAME);
+        writeStr(name);
+    }
+
+    @Override
+    public void writeString(String text) throws IOException {
+        if (text == null) {
+            writeNull();
+        } else {
+            _verifyValueWrite("write a string");
+
+            out.writeByte(VALUE_STRING);
+            writeStr(text);
+        }
+    }
+
+    @Override
+    public void writeString(char[] text, int offset, int len) throws IOException {
+        writeString(new String(text, offset, len));
+    }
+
+    @Override
+    public void writeRawUTF8String(byte[] text, int offset, int length) throws IOException {
+        writeString(new String(text, offset, length, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeUTF8String(byte[] text, int offset, int length) throws IOException {
+        writeString(new String(text, offset, length, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeRaw(String text) throws IOException {
+        _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeRaw(String text, int offset, int len) throws IOException {
+        _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeRaw(char[] text, int offset, int len) throws IOException {
+        _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeRaw(char c) throws IOException {
+        _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeBinary(Base64Variant bv, byte[] data, int offset, int len) throws IOException {
+        writeString(bv.encode(Arrays.copyOfRange(data, offset, offset + len)));
+    }
+
+    @Override
+    public void writeNumber(int v) throws IOException {
+        writeNumber((long) v);
+    }
+
+    @Override
+    public void writeNumber(long v) throws IOException {
+        _verifyValueWrite("write a number");
+
+        out.writeByte(VALUE_INT);
+        writeVarLong((v << 1) ^ (v >> 63));
+    }
+
+    @Override
+    public void writeNumber(BigInteger v) throws IOException {
+        if (v == null) {
+            writeNull();
+        } else if (v.bitLength() < 64) {
+            writeNumber(v.longValue());
+        } else {
+            _verifyValueWrite("write a number");
+
+            out.writeByte(VALUE_BIG_INT);
+            writeStr(v.toString());
+        }
+    }
+
+    @Override
+    public void writeNumber(double v) throws IOException {
+        _verifyValueWrite("write a number");
+
+        out.writeByte(VALUE_DOUBLE);
+        out.writeDouble(v);
+    }
+
+    @Override
+    public void writeNumber(float v) throws IOException {
+        writeNumber((double) v);
+    }
+
+    @Override
+    public void writeNumber(BigDecimal v) throws IOException {
+        if (v == null) {
+            writeNull();
+        } else {
+            writeNumber(v.toString());
+        }
+    }
+
+    @Override
+    public void writeNumber(String encodedValue) throws IOException {
+        if (encodedValue == null) {
+            writeNull();
+        } else {
+            _verifyValueWrite("write a number");
+
+            out.writeByte(VALUE_DECIMAL);
+            writeStr(encodedValue);
+        }
+    }
+
+    @Override
+    public void writeBoolean(boolean state) throws IOException {
+        _verifyValueWrite("write a boolean value");
+
+        out.writeByte(state ? VALUE_TRUE : VALUE_FALSE);
+    }
+
+    @Override
+    public void writeNull() throws IOException {
+        _verifyValueWrite("write a null");
+
+        out.writeByte(VALUE_NULL);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!isClosed()) {
+            super.close();
+
+            out.close();
+        }
+    }
+
+    @Override
+    protected void _releaseBuffers() {
+    }
+
+    @Override
+    protected void _verifyValueWrite(String typeMsg) throws IOException {
+        if (_writeContext.writeValue() == JsonWriteContext.STATUS_EXPECT_NAME) {
+            _reportError("Can not " + typeMsg + ", expecting field name");
+        }
+    }
+
+    private void writeStr(String str) throws IOException {
+        Integer index = dictionary.get(str);
+
+        if (index != null) {
+            writeVarLong(STRING_REF_BASE + index);
+        } else {
+            byte[]  bytes          = str.getBytes(StandardCharsets.UTF_8);
+            boolean addToDictionary = bytes.length <= MAX_DICTIONARY_STRING_LENGTH;
+
+            if (addToDictionary) {
+                dictionary.put(str, dictionary.size());
+            }
+
+            writeVarLong(addToDictionary ? STRING_NEW_DICTIONARY : STRING_NEW);
+            writeVarLong(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private void writeVarLong(long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+
+            v >>>= 7;
+        }
+
+        out.writeByte((int) v);
+    }
+}
@@ -0,0 +1,457 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.core.base.ParserMinimalBase;
+import com.fasterxml.jackson.core.json.JsonReadContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.ranger.plugin.util.BinaryJsonGenerator.END_ARRAY;
+import static org.apache.ranger.plugin.util.BinaryJsonGenerator.END_OBJECT;
+import static org.apache.ranger.plugin.util.BinaryJsonGenerator.FIELD_NAME;
+import static org.apache.ranger.plugin.util.BinaryJsonGenerator.FORMAT_VERSION;
+import static org.apache.ranger.plugin.util.BinaryJsonGenerator.MAGIC;
+import static org.apache.ranger.plugin.util.BinaryJsonGenerator.START_ARRAY;
+import static org.apache.ranger.plugin.util.BinaryJsonGenerator.START_OBJECT;
+import static org.apache.ranger.plugin.util.BinaryJsonGenerator.STRING_NEW;
+import static org.apache.ranger.plugin.util.BinaryJsonGenerator.STRING_NEW_DICTIONARY;
+import static org.apache.ranger.plugin.util.BinaryJsonGenerator.STRING_REF_BASE;
+import static org.apache.ranger.plugin.util.BinaryJsonGenerator.VALUE_BIG_INT;
+import static org.apache.ranger.plugin.util.BinaryJsonGenerator.VALUE_DECIMAL;
+import static org.apache.ranger.plugin.util.BinaryJsonGenerator.VALUE_DOUBLE;
+import static org.apache.ranger.plugin.util.BinaryJsonGenerator.VALUE_FALSE;
+import static org.apache.ranger.plugin.util.BinaryJsonGenerator.VALUE_INT;
+import static org.apache.ranger.plugin.util.BinaryJsonGenerator.VALUE_NULL;
+import static org.apache.ranger.plugin.util.BinaryJsonGenerator.VALUE_STRING;
+import static org.apache.ranger.plugin.util.BinaryJsonGenerator.VALUE_TRUE;
+
+/**
+ * Reads the JSON token stream written by BinaryJsonGenerator from a buffer - typically a memory-mapped file. A string in
+ * the dictionary is decoded once, and the same String instance is returned for its later occurrences.
+ */
+class BinaryJsonParser extends ParserMinimalBase {
+    private final ByteBuffer      buffer;
+    private final List<String>    dictionary = new ArrayList<>();
+    private       ObjectCodec     codec;
+    private       JsonReadContext parsingContext;
+    private       boolean         closed;
+    private       String          text;        // value of current FIELD_NAME, VALUE_STRING and non-long numbers
+    private       long            longValue;   // value of current VALUE_NUMBER_INT, if text is null
+    private       double          doubleValue; // value of current VALUE_NUMBER_FLOAT, if text is null
+
+    BinaryJsonParser(ByteBuffer buffer, ObjectCodec codec) throws IOException {
+        super(0);
+
+        this.buffer         = buffer;
+        this.codec          = codec;
+        this.parsingContext = JsonReadContext.createRootContext(null);
+
+        if (!isBinaryJson(buffer)) {
+            _reportError("not in binary JSON format");
+        }
+
+        buffer.position(MAGIC.length);
+
+        byte version = buffer.get();
+
+        if (version != FORMAT_VERSION) {
+            _reportError("unsupported binary JSON format version " + version + "; expected " + FORMAT_VERSION);
+        }
+    }
+
+    static boolean isBinaryJson(ByteBuffer buffer) {
+        if (buffer.remaining() < MAGIC.length + 1) {
+            return false;
+        }
+
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(buffer.position() + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+        if (closed || !buffer.hasRemaining()) {
+            _handleEOF();
+
+            _currToken = null;
+
+            return null;
+        }
+
+        text = null;
+
+        try {
+            byte tag = buffer.get();
+
+            switch (tag) {
+                case START_OBJECT:
+                    parsingContext = parsingContext.createChildObjectContext(-1, -1);
+                    _currToken     = JsonToken.START_OBJECT;
+                    break;
+
+                case END_OBJECT:
+                    parsingContext = parsingContext.clearAndGetParent();
+                    _currToken     = JsonToken.END_OBJECT;
+                    break;
+
+                case START_ARRAY:
+                    parsingContext = parsingContext.createChildArrayContext(-1, -1);
+                    _currToken     = JsonToken.START_ARRAY;
+                    break;
+
+                case END_ARRAY:
+                    parsingContext = parsingContext.clearAndGetParent();
+                    _currToken     = JsonToken.END_ARRAY;
+                    break;
+
+                case FIELD_NAME:
+                    text       = readStr();
+                    _currToken = JsonToken.FIELD_NAME;
+
+                    parsingContext.setCurrentName(text);
+                    break;
+
+                case VALUE_STRING:
+                    text       = readStr();
+                    _currToken = JsonToken.VALUE_STRING;
+                    break;
+
+                case VALUE_INT: {
+                    long v = readVarLong();
+
+                    longValue  = (v >>> 1) ^ -(v & 1);
+                    _currToken = JsonToken.VALUE_NUMBER_INT;
+                    break;
+                }
+
+                case VALUE_BIG_INT:
+                    text       = readStr();
+                    _currToken = JsonToken.VALUE_NUMBER_INT;
+                    break;
+
+                case VALUE_DOUBLE:
+                    doubleValue = buffer.getDouble();
+                    _currToken  = JsonToken.VALUE_NUMBER_FLOAT;
+                    break;
+
+                case VALUE_DECIMAL:
+                    text       = readStr();
+                    _currToken = JsonToken.VALUE_NUMBER_FLOAT;
+                    break;
+
+                case VALUE_TRUE:
+                    _currToken = JsonToken.VALUE_TRUE;
+                    break;
+
+                case VALUE_FALSE:
+                    _currToken = JsonToken.VALUE_FALSE;
+                    break;
+
+                case VALUE_NULL:
+                    _currToken = JsonToken.VALUE_NULL;
+                    break;
+
+                default:
+                    _reportError("invalid tag " + tag + " at offset " + (buffer.position() - 1));
+            }
+        } catch (BufferUnderflowException excp) {
+            _reportInvalidEOF();
+        }
+
+        return _currToken;
+    }
+
+    @Override
+    public String getCurrentName() throws IOException {
+        if (_currToken == JsonToken.START_OBJECT || _currToken == JsonToken.START_ARRAY) {
+            JsonReadContext parent = parsingContext.getParent();
+
+            return parent != null ? parent.getCurrentName() : null;
+        }
+
+        return parsingContext.getCurrentName();
+    }
+
+    @Override
+    public void overrideCurrentName(String name) {
+        JsonReadContext ctx = parsingContext;
+
+        if (_currToken == JsonToken.START_OBJECT || _currToken == JsonToken.START_ARRAY) {
+            ctx = ctx.getParent();
+        }
+
+        try {
+            ctx.setCurrentName(name);
+        } catch (JsonProcessingException excp) {
+            throw new IllegalStateException(excp);
+        }
+    }
+
+    @Override
+    public String getText() throws IOException {
+        if (_currToken == null) {
+            return null;
+        }
+
+        switch (_currToken) {
+            case FIELD_NAME:
+            case VALUE_STRING:
+                return text;
+
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return getNumberValue().toString();
+
+            default:
+                return _currToken.asString();
+        }
+    }
+
+    @Override
+    public char[] getTextCharacters() throws IOException {
+        String str = getText();
+
+        return str != null ? str.toCharArray() : null;
+    }
+
+    @Override
+    public boolean hasTextCharacters() {
+        return false;
+    }
+
+    @Override
+    public int getTextLength() throws IOException {
+        String str = getText();
+
+        return str != null ? str.length() : 0;
+    }
+
+    @Override
+    public int getTextOffset() {
+        return 0;
+    }
+
+    @Override
+    public byte[] getBinaryValue(Base64Variant bv) throws IOException {
+        if (_currToken != JsonToken.VALUE_STRING) {
+            _reportError("Current token (" + _currToken + ") not VALUE_STRING, can not access as binary");
+        }
+
+        return bv.decode(text);
+    }
+
+    @Override
+    public Object getEmbeddedObject() {
+        return null;
+    }
+
+    @Override
+    public Number getNumberValue() throws IOException {
+        if (_currToken == JsonToken.VALUE_NUMBER_INT) {
+            if (text != null) {
+                return new BigInteger(text);
+            }
+
+            return longValue == (int) longValue ? (Number) (int) longValue : (Number) longValue;
+        } else if (_currToken == JsonToken.VALUE_NUMBER_FLOAT) {
+            return text != null ? new BigDecimal(text) : (Number) doubleValue;
+        }
+
+        _reportError("Current token (" + _currToken + ") not numeric, can not use numeric value accessors");
+
+        return null;
+    }
+
+    @Override
+    public NumberType getNumberType() throws IOException {
+        Number number = getNumberValue();
+
+        if (number instanceof Integer) {
+            return NumberType.INT;
+        } else if (number instanceof Long) {
+            return NumberType.LONG;
+        } else if (number instanceof BigInteger) {
+            return NumberType.BIG_INTEGER;
+        } else if (number instanceof BigDecimal) {
+            return NumberType.BIG_DECIMAL;
+        }
+
+        return NumberType.DOUBLE;
+    }
+
+    @Override
+    public int getIntValue() throws IOException {
+        return getNumberValue().intValue();
+    }
+
+    @Override
+    public long getLongValue() throws IOException {
+        return getNumberValue().longValue();
+    }
+
+    @Override
+    public BigInteger getBigIntegerValue() throws IOException {
+        Number number = getNumberValue();
+
+        if (number instanceof BigInteger) {
+            return (BigInteger) number;
+        } else if (number instanceof BigDecimal) {
+            return ((BigDecimal) number).toBigInteger();
+        } else if (number instanceof Double) {
+            return BigDecimal.valueOf(number.doubleValue()).toBigInteger();
+        }
+
+        return BigInteger.valueOf(number.longValue());
+    }
+
+    @Override
+    public float getFloatValue() throws IOException {
+        return getNumberValue().floatValue();
+    }
+
+    @Override
+    public double getDoubleValue() throws IOException {
+        return getNumberValue().doubleValue();
+    }
+
+    @Override
+    public BigDecimal getDecimalValue() throws IOException {
+        Number number = getNumberValue();
+
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        } else if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        } else if (number instanceof Double) {
+            return BigDecimal.valueOf(number.doubleValue());
+        }
+
+        return BigDecimal.valueOf(number.longValue());
+    }
+
+    @Override
+    public ObjectCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public void setCodec(ObjectCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public Version version() {
+        return Version.unknownVersion();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public JsonStreamContext getParsingContext() {
+        return parsingContext;
+    }
+
+    @Override
+    public JsonLocation getCurrentLocation() {
+        return JsonLocation.NA;
+    }
+
+    @Override
+    public JsonLocation getTokenLocation() {
+        return JsonLocation.NA;
+    }
+
+    @Override
+    protected void _handleEOF() throws JsonParseException {
+        if (!parsingContext.inRoot()) {
+            _reportInvalidEOF();
+        }
+    }
+
+    private String readStr() throws IOException {
+        long   v = readVarLong();
+        String ret;
+
+        if (v == STRING_NEW_DICTIONARY || v == STRING_NEW) {
+            byte[] bytes = new byte[(int) readVarLong()];
+
+            buffer.get(bytes);
+
+            ret = new String(bytes, StandardCharsets.UTF_8);
+
+            if (v == STRING_NEW_DICTIONARY) {
+                dictionary.add(ret);
+            }
+        } else {
+            long index = v - STRING_REF_BASE;
+
+            if (index >= dictionary.size()) {
+                _reportError("invalid string reference " + index + "; dictionary size is " + dictionary.size());
+            }
+
+            ret = dictionary.get((int) index);
+        }
+
+        return ret;
+    }
+
+    private long readVarLong() {
+        long ret   = 0;
+        int  shift = 0;
+        byte b;
+
+        do {
+            b      = buffer.get();
+            ret   |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return ret;
+    }
+}
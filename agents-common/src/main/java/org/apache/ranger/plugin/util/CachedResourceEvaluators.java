@@ -34,21 +34,60 @@
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Cache of resource-matchers found in tag tries for a resource, keyed on the resource and the element matching scopes.
+ *
+ * The cache is bounded by number of entries and, optionally, by an estimate of memory used by the entries. Once the
+ * cache is full, a resource is admitted only if it was looked up at least admissionMinFrequency times recently - as
+ * estimated by a small frequency sketch - so that a scan of resources accessed once, like HDFS paths of a job, doesn't
+ * evict the resources accessed repeatedly, like hot tables. Eviction is approximate-LRU, as in ConcurrentCacheMap.
+ */
 public class CachedResourceEvaluators {
     private static final Logger LOG                           = LoggerFactory.getLogger(CachedResourceEvaluators.class);
     private static final Logger PERF_EVALUATORS_RETRIEVAL_LOG = RangerPerfTracer.getPerfLogger("CachedResourceEvaluators.retrieval");
 
-    private final Map<String, Map<Map<String, ResourceElementMatchingScope>, Collection<RangerServiceResourceMatcher>>> cache     = new HashMap<>();
-    private final RangerReadWriteLock                                                                                   cacheLock = new RangerReadWriteLock(true);
+    private static final int EVICTION_SAMPLE_SIZE = 64;
+    private static final int ENTRY_OVERHEAD_BYTES = 128; // estimate for the entry, key string and map nodes
+    private static final int SCOPE_OVERHEAD_BYTES = 96;  // estimate for the scopes map and the evaluators collection
+
+    private final int                                   maxEntries;
+    private final long                                  maxMemoryBytes;
+    private final int                                   admissionMinFrequency;
+    private final ConcurrentHashMap<String, CacheEntry> cache        = new ConcurrentHashMap<>();
+    private final AtomicLong                            memoryBytes  = new AtomicLong();
+    private final AtomicLong                            clock        = new AtomicLong(); // number of entries added so far
+    private final ReentrantLock                         evictionLock = new ReentrantLock();
+    private final FrequencySketch                       sketch;
+    private final CacheMetrics                          metrics      = new CacheMetrics();
+
+    public CachedResourceEvaluators() {
+        this(RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_TAG_CACHE_MAX_ENTRIES_DEFAULT, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_TAG_CACHE_MAX_MEMORY_DEFAULT, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_TAG_CACHE_MIN_FREQUENCY_DEFAULT);
+    }
 
-    public CachedResourceEvaluators() {}
+    /**
+     * @param maxEntries            maximum number of resources in the cache
+     * @param maxMemoryBytes        maximum estimated size of the cached entries; 0 for no limit
+     * @param admissionMinFrequency number of recent lookups of a resource needed for it to be admitted to a full cache; 1 or less to admit all
+     */
+    public CachedResourceEvaluators(int maxEntries, long maxMemoryBytes, int admissionMinFrequency) {
+        this.maxEntries            = Math.max(1, maxEntries);
+        this.maxMemoryBytes        = maxMemoryBytes > 0 ? maxMemoryBytes : Long.MAX_VALUE;
+        this.admissionMinFrequency = admissionMinFrequency;
+        this.sketch                = admissionMinFrequency > 1 ? new FrequencySketch(this.maxEntries) : null;
+    }
 
     public static Collection<RangerServiceResourceMatcher> getEvaluators(RangerAccessRequest request, Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> serviceResourceTrie, CachedResourceEvaluators cache) {
         LOG.debug("==> CachedResourceEvaluators.getEvaluators(request={})", request);
@@ -122,30 +161,399 @@ public static boolean excludeDescendantMatches(RangerAccessResource resource) {
     }
 
     public Collection<RangerServiceResourceMatcher> getEvaluators(String resourceKey, Map<String, ResourceElementMatchingScope> scopes) {
-        Collection<RangerServiceResourceMatcher> ret;
+        CacheEntry                               entry = resourceKey != null ? cache.get(resourceKey) : null;
+        Collection<RangerServiceResourceMatcher> ret   = entry != null ? entry.evaluators.get(scopes) : null;
+
+        if (ret != null) {
+            entry.touch(clock.get());
 
-        try (RangerReadWriteLock.RangerLock ignored = cacheLock.getReadLock()) {
-            ret = cache.getOrDefault(resourceKey, Collections.emptyMap()).get(scopes);
+            metrics.hits.increment();
+        } else {
+            if (sketch != null && resourceKey != null) {
+                sketch.increment(resourceKey);
+            }
+
+            metrics.misses.increment();
         }
 
         return ret;
     }
 
     public void cacheEvaluators(String resource, Map<String, ResourceElementMatchingScope> scopes, Collection<RangerServiceResourceMatcher> evaluators) {
-        try (RangerReadWriteLock.RangerLock ignored = cacheLock.getWriteLock()) {
-            cache.computeIfAbsent(resource, k -> new HashMap<>()).put(scopes, evaluators);
+        if (resource == null) {
+            return;
+        }
+
+        CacheEntry entry = cache.get(resource);
+
+        if (entry == null) {
+            if (isFull() && sketch != null && sketch.frequency(resource) < admissionMinFrequency) {
+                metrics.rejections.increment();
+
+                return;
+            }
+
+            CacheEntry newEntry = new CacheEntry(resource, clock.incrementAndGet());
+
+            entry = cache.putIfAbsent(resource, newEntry);
+
+            if (entry == null) {
+                entry = newEntry;
+            }
+        }
+
+        entry.put(scopes, evaluators, memoryBytes);
+
+        metrics.puts.increment();
+
+        if (isOverLimit()) {
+            evict();
         }
     }
 
     public void removeCacheEvaluators(Set<String> resources) {
-        try (RangerReadWriteLock.RangerLock ignored = cacheLock.getWriteLock()) {
-            resources.forEach(cache::remove);
+        for (String resource : resources) {
+            remove(resource);
+        }
+    }
+
+    /**
+     * Removes cached evaluators of the given resources, of their descendants - i.e. of the cache keys that start with
+     * one of the given keys followed by RangerAccessResource.RESOURCE_SEP - and of their ancestors, whose entries can
+     * include evaluators of child resources when looked up with SELF_OR_CHILD scope. Keys are compared ignoring case, so
+     * that entries of resources with case-insensitive matchers are removed as well.
+     *
+     * @return number of cache entries removed
+     */
+    public int removeCacheEvaluatorsForResources(Set<String> resources) {
+        int ret = 0;
+
+        if (!resources.isEmpty()) {
+            Set<String> resourceKeys = new HashSet<>(resources.size());
+            Set<String> ancestorKeys = new HashSet<>();
+
+            for (String resource : resources) {
+                String key = resource.toLowerCase();
+
+                resourceKeys.add(key);
+
+                for (int idx = key.indexOf(RangerAccessResource.RESOURCE_SEP); idx != -1; idx = key.indexOf(RangerAccessResource.RESOURCE_SEP, idx + 1)) {
+                    ancestorKeys.add(key.substring(0, idx));
+                }
+            }
+
+            for (String cacheKey : cache.keySet()) {
+                String key = cacheKey.toLowerCase();
+
+                if ((ancestorKeys.contains(key) || isSelfOrDescendant(key, resourceKeys)) && remove(cacheKey)) {
+                    ret++;
+                }
+            }
         }
+
+        return ret;
     }
 
     public void clearCache() {
-        try (RangerReadWriteLock.RangerLock ignored = cacheLock.getWriteLock()) {
-            cache.clear();
+        for (String cacheKey : cache.keySet()) {
+            remove(cacheKey);
+        }
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getMemoryBytes() {
+        return memoryBytes.get();
+    }
+
+    public CacheMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return values to be published with RangerMetricsUtil.registerMetricsSource()
+     */
+    public Map<String, Object> getMetricsValues() {
+        Map<String, Object> ret = new LinkedHashMap<>();
+
+        ret.put("size", size());
+        ret.put("maxEntries", maxEntries);
+        ret.put("memoryBytes", getMemoryBytes());
+        ret.put("maxMemoryBytes", maxMemoryBytes != Long.MAX_VALUE ? maxMemoryBytes : 0);
+        ret.put("hits", metrics.getHitCount());
+        ret.put("misses", metrics.getMissCount());
+        ret.put("puts", metrics.getPutCount());
+        ret.put("rejections", metrics.getRejectionCount());
+        ret.put("evictions", metrics.getEvictionCount());
+        ret.put("invalidations", metrics.getInvalidationCount());
+
+        return ret;
+    }
+
+    private static boolean isSelfOrDescendant(String key, Set<String> resourceKeys) {
+        boolean ret = resourceKeys.contains(key);
+
+        for (int idx = key.indexOf(RangerAccessResource.RESOURCE_SEP); !ret && idx != -1; idx = key.indexOf(RangerAccessResource.RESOURCE_SEP, idx + 1)) {
+            ret = resourceKeys.contains(key.substring(0, idx));
+        }
+
+        return ret;
+    }
+
+    private boolean remove(String cacheKey) {
+        CacheEntry entry = cache.remove(cacheKey);
+
+        if (entry != null) {
+            entry.markRemoved(memoryBytes);
+
+            metrics.invalidations.increment();
+        }
+
+        return entry != null;
+    }
+
+    private boolean isFull() {
+        return cache.size() >= maxEntries || memoryBytes.get() >= maxMemoryBytes;
+    }
+
+    private boolean isOverLimit() {
+        return cache.size() > maxEntries || memoryBytes.get() > maxMemoryBytes;
+    }
+
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return; // another thread is evicting
+        }
+
+        try {
+            while (isOverLimit()) { // entries might have been added while evicting
+                evictLeastRecentlyAccessed();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // removes about 1/8th of the entries, or of the memory limit, starting with the entries accessed least recently
+    private void evictLeastRecentlyAccessed() {
+        final int  targetSize   = maxEntries - (maxEntries / 8);
+        final long targetMemory = maxMemoryBytes - (maxMemoryBytes / 8);
+        final int  size         = cache.size();
+        int        evictCount   = size - targetSize;
+
+        if (memoryBytes.get() > targetMemory && size > 0) {
+            long averageEntryBytes = Math.max(1, memoryBytes.get() / size);
+
+            evictCount = (int) Math.max(evictCount, Math.min(size, (memoryBytes.get() - targetMemory + averageEntryBytes - 1) / averageEntryBytes));
+        }
+
+        if (evictCount <= 0) {
+            return;
+        }
+
+        long[] sample     = new long[EVICTION_SAMPLE_SIZE];
+        int    sampleSize = 0;
+
+        for (CacheEntry entry : cache.values()) {
+            if (sampleSize == sample.length) {
+                break;
+            }
+
+            sample[sampleSize++] = entry.lastAccessTime;
+        }
+
+        Arrays.sort(sample, 0, sampleSize);
+
+        int  cutoffIdx   = Math.min(sampleSize - 1, (int) ((long) evictCount * sampleSize / Math.max(1, size)));
+        long cutoffTime  = sampleSize > 0 ? sample[cutoffIdx] : Long.MAX_VALUE;
+        int  removeCount = 0;
+
+        for (Iterator<CacheEntry> iter = cache.values().iterator(); iter.hasNext() && removeCount < evictCount; ) {
+            CacheEntry entry = iter.next();
+
+            if (entry.lastAccessTime <= cutoffTime && cache.remove(entry.key, entry)) {
+                entry.markRemoved(memoryBytes);
+
+                removeCount++;
+            }
+        }
+
+        // when many entries have the same access time as the cutoff, the pass above might not remove enough
+        for (Iterator<CacheEntry> iter = cache.values().iterator(); iter.hasNext() && removeCount < evictCount; ) {
+            CacheEntry entry = iter.next();
+
+            if (cache.remove(entry.key, entry)) {
+                entry.markRemoved(memoryBytes);
+
+                removeCount++;
+            }
+        }
+
+        metrics.evictions.add(removeCount);
+
+        LOG.debug("CachedResourceEvaluators.evictLeastRecentlyAccessed(): maxEntries={}, maxMemoryBytes={}, removed {} entries accessed at or before {}", maxEntries, maxMemoryBytes, removeCount, cutoffTime);
+    }
+
+    public static class CacheMetrics {
+        private final LongAdder hits          = new LongAdder();
+        private final LongAdder misses        = new LongAdder();
+        private final LongAdder puts          = new LongAdder();
+        private final LongAdder rejections    = new LongAdder();
+        private final LongAdder evictions     = new LongAdder();
+        private final LongAdder invalidations = new LongAdder();
+
+        public long getHitCount() {
+            return hits.sum();
+        }
+
+        public long getMissCount() {
+            return misses.sum();
+        }
+
+        public long getPutCount() {
+            return puts.sum();
+        }
+
+        public long getRejectionCount() {
+            return rejections.sum();
+        }
+
+        public long getEvictionCount() {
+            return evictions.sum();
+        }
+
+        public long getInvalidationCount() {
+            return invalidations.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "CacheMetrics={hits=" + getHitCount() + ", misses=" + getMissCount() + ", puts=" + getPutCount() + ", rejections=" + getRejectionCount() + ", evictions=" + getEvictionCount() + ", invalidations=" + getInvalidationCount() + "}";
+        }
+    }
+
+    private static final class CacheEntry {
+        final String                                                                                   key;
+        final Map<Map<String, ResourceElementMatchingScope>, Collection<RangerServiceResourceMatcher>> evaluators = new ConcurrentHashMap<>();
+        volatile long                                                                                  lastAccessTime;
+        private long                                                                                   memoryBytes; // included in the cache total while the entry is in the cache
+        private boolean                                                                                isRemoved;
+
+        CacheEntry(String key, long accessTime) {
+            this.key            = key;
+            this.lastAccessTime = accessTime;
+        }
+
+        void touch(long now) {
+            if (lastAccessTime != now) {
+                lastAccessTime = now;
+            }
+        }
+
+        synchronized void put(Map<String, ResourceElementMatchingScope> scopes, Collection<RangerServiceResourceMatcher> matchers, AtomicLong totalMemoryBytes) {
+            Collection<RangerServiceResourceMatcher> prev = evaluators.put(scopes, matchers);
+
+            if (!isRemoved) {
+                long delta = getSize(matchers) - (prev != null ? getSize(prev) : 0);
+
+                if (memoryBytes == 0) {
+                    delta += ENTRY_OVERHEAD_BYTES + 2L * key.length();
+                }
+
+                memoryBytes += delta;
+
+                totalMemoryBytes.addAndGet(delta);
+            }
+        }
+
+        synchronized void markRemoved(AtomicLong totalMemoryBytes) {
+            if (!isRemoved) {
+                isRemoved = true;
+
+                totalMemoryBytes.addAndGet(-memoryBytes);
+            }
+        }
+
+        private static long getSize(Collection<RangerServiceResourceMatcher> matchers) {
+            return SCOPE_OVERHEAD_BYTES + 8L * matchers.size();
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters, with 4 counters for each key - in 4 different 16-counter blocks of a long.
+     * Counters are halved once the number of increments reaches 10 times the cache size, so that the estimate reflects
+     * recent lookups. Updates are not atomic; occasional lost increments only make the estimate less precise.
+     */
+    static final class FrequencySketch {
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int    sampleSize;
+        private int          size;
+
+        FrequencySketch(int maxEntries) {
+            int tableSize = Integer.highestOneBit(Math.max(16, Math.min(maxEntries, 1 << 24)) - 1) << 1; // power of 2, >= maxEntries
+
+            this.table      = new long[tableSize];
+            this.sampleSize = (int) Math.min(Integer.MAX_VALUE, 10L * maxEntries);
+        }
+
+        int frequency(String key) {
+            int hash = spread(key.hashCode());
+            int ret  = Integer.MAX_VALUE;
+
+            for (int i = 0; i < 4; i++) {
+                ret = Math.min(ret, (int) ((table[indexOf(hash, i)] >>> offsetOf(hash, i)) & 0xfL));
+            }
+
+            return ret;
+        }
+
+        void increment(String key) {
+            int     hash  = spread(key.hashCode());
+            boolean added = false;
+
+            for (int i = 0; i < 4; i++) {
+                int  index  = indexOf(hash, i);
+                int  offset = offsetOf(hash, i);
+                long value  = table[index];
+
+                if (((value >>> offset) & 0xfL) != 0xfL) {
+                    table[index] = value + (1L << offset);
+                    added        = true;
+                }
+            }
+
+            if (added && ++size >= sampleSize) {
+                reset();
+            }
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+
+            size = size / 2;
+        }
+
+        private int indexOf(int hash, int i) {
+            long h = (hash + (long) i * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+
+            return (int) ((h ^ (h >>> 32)) & (table.length - 1));
+        }
+
+        // offset of the 4-bit counter i, in block i (of 4 blocks of 16 bits) of the long
+        private static int offsetOf(int hash, int i) {
+            return (i << 4) + (((hash >>> (i << 3)) & 3) << 2);
+        }
+
+        private static int spread(int hash) {
+            int h = hash * 0x9E3779B9;
+
+            return h ^ (h >>> 16);
         }
     }
 
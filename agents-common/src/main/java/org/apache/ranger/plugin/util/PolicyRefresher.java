@@ -23,7 +23,6 @@
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.admin.client.RangerAdminClient;
 import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
-import org.apache.ranger.authorization.utils.JsonUtils;
 import org.apache.ranger.plugin.policyengine.RangerPluginContext;
 import org.apache.ranger.plugin.service.RangerBasePlugin;
 import org.slf4j.Logger;
@@ -31,10 +30,6 @@
 
 import java.io.File;
 import java.io.FileFilter;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.Reader;
-import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Timer;
@@ -53,6 +48,7 @@ public class PolicyRefresher extends Thread {
     private final long                           pollingIntervalMs;
     private final String                         cacheFileName;
     private final String                         cacheDir;
+    private final boolean                        useBinaryCache;
     private final BlockingQueue<DownloadTrigger> policyDownloadQueue = new LinkedBlockingQueue<>();
     private       Timer                          policyDownloadTimer;
     private       long                           lastKnownVersion    = -1L;
@@ -66,10 +62,11 @@ public PolicyRefresher(RangerBasePlugin plugIn) {
         RangerPluginConfig pluginConfig   = plugIn.getConfig();
         String             propertyPrefix = pluginConfig.getPropertyPrefix();
 
-        this.plugIn      = plugIn;
-        this.serviceType = plugIn.getServiceType();
-        this.serviceName = plugIn.getServiceName();
-        this.cacheDir    = pluginConfig.get(propertyPrefix + ".policy.cache.dir");
+        this.plugIn         = plugIn;
+        this.serviceType    = plugIn.getServiceType();
+        this.serviceName    = plugIn.getServiceName();
+        this.cacheDir       = pluginConfig.get(propertyPrefix + ".policy.cache.dir");
+        this.useBinaryCache = pluginConfig.getBoolean(propertyPrefix + RangerCacheFileUtil.PROP_SUFFIX_CACHE_BINARY_FORMAT, false);
 
         String appId         = StringUtils.isEmpty(plugIn.getAppId()) ? serviceType : plugIn.getAppId();
         String cacheFilename = String.format("%s_%s.json", appId, serviceName);
@@ -249,23 +246,12 @@ public void saveToCache(ServicePolicies policies) {
                     perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "PolicyRefresher.saveToCache(serviceName=" + serviceName + ")");
                 }
 
-                Writer writer = null;
-
                 try {
-                    writer = new FileWriter(cacheFile);
+                    RangerCacheFileUtil.saveToFile(cacheFile, policies, useBinaryCache);
 
-                    JsonUtils.objectToWriter(writer, policies);
+                    deleteOldestVersionCacheFileInCacheDirectory(cacheFile.getParentFile());
                 } catch (Exception excp) {
                     LOG.error("failed to save policies to cache file '{}'", cacheFile.getAbsolutePath(), excp);
-                } finally {
-                    if (writer != null) {
-                        try {
-                            writer.close();
-                            deleteOldestVersionCacheFileInCacheDirectory(cacheFile.getParentFile());
-                        } catch (Exception excp) {
-                            LOG.error("error while closing opened cache file '{}'", cacheFile.getAbsolutePath(), excp);
-                        }
-                    }
                 }
 
                 RangerPerfTracer.log(perf);
@@ -279,8 +265,8 @@ public void saveToCache(ServicePolicies policies) {
                         perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "PolicyRefresher.saveToCache(serviceName=" + serviceName + ")");
                     }
 
-                    try (Writer writer = new FileWriter(backupCacheFile)) {
-                        JsonUtils.objectToWriter(writer, policies);
+                    try {
+                        RangerCacheFileUtil.saveToFile(backupCacheFile, policies, useBinaryCache);
                     } catch (Exception excp) {
                         LOG.error("failed to save policies to cache file '{}'", backupCacheFile.getAbsolutePath(), excp);
                     }
@@ -416,16 +402,14 @@ private ServicePolicies loadFromCache() {
         File cacheFile = cacheDir == null ? null : new File(cacheDir + File.separator + cacheFileName);
 
         if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
-            Reader           reader = null;
-            RangerPerfTracer perf   = null;
+            RangerPerfTracer perf = null;
 
             if (RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_LOG)) {
                 perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "PolicyRefresher.loadFromCache(serviceName=" + serviceName + ")");
             }
 
             try {
-                reader   = new FileReader(cacheFile);
-                policies = JsonUtils.jsonToObject(reader, ServicePolicies.class);
+                policies = RangerCacheFileUtil.loadFromFile(cacheFile, ServicePolicies.class);
 
                 if (policies != null) {
                     if (!StringUtils.equals(serviceName, policies.getServiceName())) {
@@ -440,14 +424,6 @@ private ServicePolicies loadFromCache() {
                 LOG.error("failed to load policies from cache file {}", cacheFile.getAbsolutePath(), excp);
             } finally {
                 RangerPerfTracer.log(perf);
-
-                if (reader != null) {
-                    try {
-                        reader.close();
-                    } catch (Exception excp) {
-                        LOG.error("error while closing opened cache file {}", cacheFile.getAbsolutePath(), excp);
-                    }
-                }
             }
         } else {
             LOG.warn("cache file does not exist or not readable '{}'", cacheFile == null ? null : cacheFile.getAbsolutePath());
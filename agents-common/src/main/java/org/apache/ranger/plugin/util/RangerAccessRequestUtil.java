@@ -23,6 +23,7 @@
 import org.apache.commons.collections.MapUtils;
 import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestReadOnly;
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
 import org.apache.ranger.plugin.policyengine.RangerAccessResult;
 import org.apache.ranger.plugin.policyengine.gds.GdsAccessResult;
@@ -56,6 +57,7 @@ public class RangerAccessRequestUtil {
     public static final  String KEY_CONTEXT_GDS_RESULT                       = "_GDS_RESULT";
     public static final  String KEY_CONTEXT_IS_REQUEST_PREPROCESSED          = "ISREQUESTPREPROCESSED";
     public static final  String KEY_CONTEXT_RESOURCE_ZONE_NAMES              = "RESOURCE_ZONE_NAMES";
+    public static final  String KEY_CONTEXT_PRINCIPAL_IDS                    = "PRINCIPAL_IDS";
     private static final Logger LOG                                          = LoggerFactory.getLogger(RangerAccessRequestUtil.class);
 
     private RangerAccessRequestUtil() {
@@ -204,6 +206,24 @@ public static Set<String> getUserRoles(RangerAccessRequest request) {
         return ret;
     }
 
+    public static RangerPrincipalIndex.PrincipalIds getPrincipalIds(RangerAccessRequest request, RangerPrincipalIndex.IdSpace idSpace) {
+        Set<String>                       groups  = request.getUserGroups();
+        Set<String>                       roles   = getUserRoles(request);
+        Map<String, Object>               context = request.getContext();
+        Object                            val     = context != null ? context.get(KEY_CONTEXT_PRINCIPAL_IDS) : null;
+        RangerPrincipalIndex.PrincipalIds ret     = val instanceof RangerPrincipalIndex.PrincipalIds ? (RangerPrincipalIndex.PrincipalIds) val : null;
+
+        if (ret == null || !ret.isFor(idSpace, groups, roles)) {
+            ret = new RangerPrincipalIndex.PrincipalIds(idSpace, groups, roles);
+
+            if (context != null && !(request instanceof RangerAccessRequestReadOnly)) {
+                context.put(KEY_CONTEXT_PRINCIPAL_IDS, ret);
+            }
+        }
+
+        return ret;
+    }
+
     public static void setRequestUserStoreInContext(Map<String, Object> context, RangerUserStore rangerUserStore) {
         context.put(KEY_CONTEXT_USERSTORE, rangerUserStore);
     }
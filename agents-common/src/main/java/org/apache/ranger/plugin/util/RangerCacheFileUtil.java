@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.ranger.authorization.utils.JsonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves and loads objects downloaded from Ranger Admin - policies, roles, tags, userstore - to and from local cache files.
+ *
+ * A cache file is written either as JSON or, when binary format is enabled, as the JSON token stream encoded by
+ * BinaryJsonGenerator - in which each string is written once. The file is written to a temporary file first, which then
+ * replaces the cache file, so that a failure while writing doesn't leave a partially written cache file.
+ *
+ * The format of a cache file is detected when it is loaded, so that a change in the configured format doesn't invalidate
+ * existing cache files. A binary cache file is read from a memory-mapped buffer.
+ */
+public class RangerCacheFileUtil {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerCacheFileUtil.class);
+
+    public static final String PROP_SUFFIX_CACHE_BINARY_FORMAT = ".policy.cache.binary";
+
+    private RangerCacheFileUtil() {
+        // to block instantiation
+    }
+
+    public static void saveToFile(File file, Object obj, boolean binaryFormat) throws IOException {
+        File tmpFile = File.createTempFile("ranger_cache_", ".tmp", file.getAbsoluteFile().getParentFile());
+
+        try {
+            ObjectMapper mapper = JsonUtils.getMapper();
+
+            if (binaryFormat) {
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmpFile)); BinaryJsonGenerator generator = new BinaryJsonGenerator(out, mapper)) {
+                    mapper.writeValue(generator, obj);
+                }
+            } else {
+                try (Writer writer = new FileWriter(tmpFile)) {
+                    mapper.writeValue(writer, obj);
+                }
+            }
+
+            try {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException excp) {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            if (tmpFile.exists() && !tmpFile.delete()) {
+                LOG.warn("failed to delete temporary file {}", tmpFile.getAbsolutePath());
+            }
+        }
+    }
+
+    public static <T> T loadFromFile(File file, Class<T> clz) throws IOException {
+        final T            ret;
+        final ObjectMapper mapper = JsonUtils.getMapper();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() <= Integer.MAX_VALUE && isBinaryFormat(channel)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+                try (BinaryJsonParser parser = new BinaryJsonParser(buffer, mapper)) {
+                    ret = mapper.readValue(parser, clz);
+                }
+            } else {
+                try (Reader reader = new FileReader(file)) {
+                    ret = mapper.readValue(reader, clz);
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private static boolean isBinaryFormat(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(BinaryJsonGenerator.MAGIC.length + 1);
+
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // read the header
+        }
+
+        header.flip();
+
+        return BinaryJsonParser.isBinaryJson(header);
+    }
+}
@@ -28,8 +28,15 @@ public class RangerCommonConstants {
     public static final String  PLUGIN_CONFIG_SUFFIX_TAG_DELTA                       = ".supports.tag.deltas";
     public static final String  RANGER_ADMIN_SUFFIX_IN_PLACE_POLICY_UPDATES          = ".supports.in.place.policy.updates";
     public static final String  PLUGIN_CONFIG_SUFFIX_IN_PLACE_POLICY_UPDATES         = ".supports.in.place.policy.updates";
+    public static final String  PLUGIN_CONFIG_SUFFIX_COPY_ON_WRITE_UPDATES           = ".supports.copy.on.write.policy.updates";
+    public static final String  PLUGIN_CONFIG_SUFFIX_RESULT_CACHE_SIZE               = ".policyengine.access.result.cache.size";
+    public static final String  PLUGIN_CONFIG_SUFFIX_RESULT_CACHE_STRIPES            = ".policyengine.access.result.cache.stripes";
     public static final String  RANGER_ADMIN_SUFFIX_IN_PLACE_TAG_UPDATES             = ".supports.in.place.tag.updates";
     public static final String  PLUGIN_CONFIG_SUFFIX_IN_PLACE_TAG_UPDATES            = ".supports.in.place.tag.updates";
+    public static final String  PLUGIN_CONFIG_SUFFIX_COPY_ON_WRITE_TAGS              = ".supports.copy.on.write.tag.updates";
+    public static final String  PLUGIN_CONFIG_SUFFIX_TAG_CACHE_MAX_ENTRIES           = ".tag.enricher.evaluators.cache.max.entries";
+    public static final String  PLUGIN_CONFIG_SUFFIX_TAG_CACHE_MAX_MEMORY            = ".tag.enricher.evaluators.cache.max.memory.bytes";
+    public static final String  PLUGIN_CONFIG_SUFFIX_TAG_CACHE_MIN_FREQUENCY         = ".tag.enricher.evaluators.cache.admission.min.frequency";
     public static final String  RANGER_SUPPORTS_TAGS_DEDUP                           = ".supports.tags.dedup";
     public static final boolean RANGER_ADMIN_SUFFIX_POLICY_DELTA_DEFAULT             = false;
     public static final boolean PLUGIN_CONFIG_SUFFIX_POLICY_DELTA_DEFAULT            = false;
@@ -37,11 +44,20 @@ public class RangerCommonConstants {
     public static final boolean PLUGIN_CONFIG_SUFFIX_TAG_DELTA_DEFAULT               = false;
     public static final boolean RANGER_ADMIN_SUFFIX_IN_PLACE_POLICY_UPDATES_DEFAULT  = false;
     public static final boolean PLUGIN_CONFIG_SUFFIX_IN_PLACE_POLICY_UPDATES_DEFAULT = false;
+    public static final boolean PLUGIN_CONFIG_SUFFIX_COPY_ON_WRITE_UPDATES_DEFAULT   = false;
+    public static final int     PLUGIN_CONFIG_SUFFIX_RESULT_CACHE_SIZE_DEFAULT       = 0;
+    public static final int     PLUGIN_CONFIG_SUFFIX_RESULT_CACHE_STRIPES_DEFAULT    = 16;
     public static final boolean RANGER_ADMIN_SUFFIX_IN_PLACE_TAG_UPDATES_DEFAULT     = false;
     public static final boolean PLUGIN_CONFIG_SUFFIX_IN_PLACE_TAG_UPDATES_DEFAULT    = false;
+    public static final boolean PLUGIN_CONFIG_SUFFIX_COPY_ON_WRITE_TAGS_DEFAULT      = false;
+    public static final int     PLUGIN_CONFIG_SUFFIX_TAG_CACHE_MAX_ENTRIES_DEFAULT   = 100000;
+    public static final long    PLUGIN_CONFIG_SUFFIX_TAG_CACHE_MAX_MEMORY_DEFAULT    = 0;
+    public static final int     PLUGIN_CONFIG_SUFFIX_TAG_CACHE_MIN_FREQUENCY_DEFAULT = 2;
     public static final boolean RANGER_SUPPORTS_TAGS_DEDUP_DEFAULT                   = true;
     public static final boolean POLICY_REST_CLIENT_SESSION_COOKIE_ENABLED            = true;
     public static final String  SCRIPT_OPTION_ENABLE_JSON_CTX                        = "enableJsonCtx";
+    public static final String  SCRIPT_OPTION_REUSE_BINDINGS                         = "reuseBindings";
+    public static final String  SCRIPT_OPTION_ENABLE_NATIVE_EVAL                     = "enableNativeEval";
     public static final String  SCRIPT_VAR_ctx                                       = "ctx";
     public static final String  SCRIPT_VAR_tag                                       = "tag";
     public static final String  SCRIPT_VAR_tagAttr                                   = "tagAttr";
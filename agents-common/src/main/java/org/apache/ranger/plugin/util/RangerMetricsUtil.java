@@ -37,6 +37,8 @@
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
 
 /**
  * Connect Worker system and runtime information.
@@ -55,6 +57,8 @@ public class RangerMetricsUtil {
     private static final long                  UP_TIME_OF_JVM                  = RUNTIME.getUptime();
     private static final String                JVM_VENDOR_NAME                 = RUNTIME.getVmVendor();
 
+    private static final Map<String, Supplier<Map<String, Object>>> METRICS_SOURCES = new ConcurrentSkipListMap<>();
+
     private static int isRoleActive;
 
     public static int getIsRoleActive() {
@@ -65,6 +69,32 @@ public static void setIsRoleActive(int isRoleActive) {
         RangerMetricsUtil.isRoleActive = isRoleActive;
     }
 
+    /**
+     * Registers a source of metrics - like hit/miss counts of a cache - to be included, with the given name, in the
+     * values returned by getVMStatus(). A source registered earlier with the same name is replaced.
+     */
+    public static void registerMetricsSource(String name, Supplier<Map<String, Object>> source) {
+        METRICS_SOURCES.put(name, source);
+    }
+
+    /**
+     * Unregisters the given source, if it is the one registered with the name - i.e. it has not been replaced by a
+     * source registered later, like by a new instance of the component.
+     */
+    public static void unregisterMetricsSource(String name, Supplier<Map<String, Object>> source) {
+        METRICS_SOURCES.remove(name, source);
+    }
+
+    public static Map<String, Object> getMetricsSourceValues() {
+        Map<String, Object> ret = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Supplier<Map<String, Object>>> entry : METRICS_SOURCES.entrySet()) {
+            ret.put(entry.getKey(), entry.getValue().get());
+        }
+
+        return ret;
+    }
+
     public Map<String, Object> getValues() {
         LOG.debug("==> RangerMetricsUtil.getValues()");
 
@@ -95,6 +125,10 @@ public RangerMetrics getVMStatus() {
 
         jvm.put("jvm", vmDetails);
 
+        if (!METRICS_SOURCES.isEmpty()) {
+            jvm.put("components", getMetricsSourceValues());
+        }
+
         LOG.debug("<== RangerMetricsUtil.getVMStatus(): {}", jvm);
 
         return new RangerMetrics(jvm);
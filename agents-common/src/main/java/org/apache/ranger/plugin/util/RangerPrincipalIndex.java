@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable index of principals, built when roles change: maps each user and group to the fully expanded set of roles
+ * (including nested roles). Group and role names are interned as int ids in an IdSpace, so that sets of groups and roles
+ * can be held and intersected as bitsets - for example, those in policy items with those in an access request. An IdSpace
+ * is created with the auth context of a policy engine and is shared by indexes rebuilt for later roles of that context,
+ * hence ids are released along with the policy engine.
+ */
+public class RangerPrincipalIndex {
+    private final IdSpace             idSpace;
+    private final long                roleVersion;
+    private final Map<String, BitSet> userRoles;
+    private final Map<String, BitSet> groupRoles;
+    private final BitSet              publicGroupRoles;
+
+    /**
+     * Builds the index for the given roles, in the IdSpace of prior index - if given, so that ids held by policy items remain valid.
+     */
+    public RangerPrincipalIndex(RangerRolesUtil rolesUtil, RangerPrincipalIndex prior) {
+        this.idSpace          = prior != null ? prior.idSpace : new IdSpace();
+        this.roleVersion      = rolesUtil != null ? rolesUtil.getRoleVersion() : -1;
+        this.userRoles        = rolesUtil != null ? toIds(rolesUtil.getUserRoleMapping(), idSpace.roleIds) : Collections.emptyMap();
+        this.groupRoles       = rolesUtil != null ? toIds(rolesUtil.getGroupRoleMapping(), idSpace.roleIds) : Collections.emptyMap();
+        this.publicGroupRoles = groupRoles.get(RangerPolicyEngine.GROUP_PUBLIC);
+    }
+
+    public IdSpace getIdSpace() {
+        return idSpace;
+    }
+
+    public long getRoleVersion() {
+        return roleVersion;
+    }
+
+    /**
+     * Returns ids of roles the given user belongs to - directly, through the given groups or the public group, or through nested roles.
+     */
+    public BitSet getRoleIdsForUserAndGroups(String user, Collection<String> groups) {
+        BitSet ret = new BitSet();
+
+        if (StringUtils.isNotEmpty(user)) {
+            or(ret, userRoles.get(user));
+        }
+
+        if (groups != null && !groupRoles.isEmpty()) {
+            for (String group : groups) {
+                or(ret, groupRoles.get(group));
+            }
+        }
+
+        or(ret, publicGroupRoles);
+
+        return ret;
+    }
+
+    public Set<String> getRolesForUserAndGroups(String user, Collection<String> groups) {
+        return idSpace.getRoleNames(getRoleIdsForUserAndGroups(user, groups));
+    }
+
+    @Override
+    public String toString() {
+        return "RangerPrincipalIndex={roleVersion=" + roleVersion + ", users=" + userRoles.size() + ", groups=" + groupRoles.size() + "}";
+    }
+
+    private static Map<String, BitSet> toIds(Map<String, Set<String>> mapping, Interner interner) {
+        final Map<String, BitSet> ret;
+
+        if (mapping != null && !mapping.isEmpty()) {
+            ret = new HashMap<>(mapping.size() * 4 / 3 + 1);
+
+            for (Map.Entry<String, Set<String>> entry : mapping.entrySet()) {
+                ret.put(entry.getKey(), interner.intern(entry.getValue()));
+            }
+        } else {
+            ret = Collections.emptyMap();
+        }
+
+        return ret;
+    }
+
+    private static void or(BitSet target, BitSet source) {
+        if (source != null) {
+            target.or(source);
+        }
+    }
+
+    /**
+     * Ids of group and role names; ids handed out are never reused, hence bitsets computed earlier remain valid after new names are interned.
+     */
+    public static final class IdSpace {
+        private final Interner groupIds = new Interner();
+        private final Interner roleIds  = new Interner();
+
+        public BitSet internGroups(Collection<String> groups) {
+            return groupIds.intern(groups);
+        }
+
+        public BitSet internRoles(Collection<String> roles) {
+            return roleIds.intern(roles);
+        }
+
+        /**
+         * Returns ids of the given groups; groups that were never interned are left out, as no policy item can refer to them.
+         */
+        public BitSet getGroupIds(Collection<String> groups) {
+            return groupIds.getIds(groups);
+        }
+
+        /**
+         * Returns ids of the given roles; roles that were never interned are left out, as no policy item can refer to them.
+         */
+        public BitSet getRoleIds(Collection<String> roles) {
+            return roleIds.getIds(roles);
+        }
+
+        public Set<String> getRoleNames(BitSet ids) {
+            return roleIds.getNames(ids);
+        }
+    }
+
+    /**
+     * Ids of groups and roles of an access request in an IdSpace; held in the request context, so that they are computed once per request.
+     */
+    public static final class PrincipalIds {
+        private final IdSpace     idSpace;
+        private final Set<String> groups;
+        private final Set<String> roles;
+        private final BitSet      groupIds;
+        private final BitSet      roleIds;
+
+        public PrincipalIds(IdSpace idSpace, Set<String> groups, Set<String> roles) {
+            this.idSpace  = idSpace;
+            this.groups   = groups;
+            this.roles    = roles;
+            this.groupIds = idSpace.getGroupIds(groups);
+            this.roleIds  = idSpace.getRoleIds(roles);
+        }
+
+        public boolean isFor(IdSpace idSpace, Set<String> groups, Set<String> roles) {
+            return this.idSpace == idSpace && this.groups == groups && this.roles == roles;
+        }
+
+        public BitSet getGroupIds() {
+            return groupIds;
+        }
+
+        public BitSet getRoleIds() {
+            return roleIds;
+        }
+    }
+
+    static final class Interner {
+        private final    Map<String, Integer> ids   = new ConcurrentHashMap<>();
+        private volatile String[]             names = new String[64];
+        private          int                  nextId;
+
+        BitSet intern(Collection<String> values) {
+            BitSet ret = new BitSet();
+
+            if (values != null) {
+                for (String value : values) {
+                    if (value != null) {
+                        ret.set(intern(value));
+                    }
+                }
+            }
+
+            return ret;
+        }
+
+        int intern(String value) {
+            Integer ret = ids.get(value);
+
+            if (ret == null) {
+                synchronized (this) {
+                    ret = ids.get(value);
+
+                    if (ret == null) {
+                        String[] idNames = names;
+
+                        if (nextId == idNames.length) {
+                            String[] newNames = new String[idNames.length * 2];
+
+                            System.arraycopy(idNames, 0, newNames, 0, idNames.length);
+
+                            idNames = newNames;
+                        }
+
+                        ret          = nextId++;
+                        idNames[ret] = value;
+                        names        = idNames;
+
+                        ids.put(value, ret);
+                    }
+                }
+            }
+
+            return ret;
+        }
+
+        BitSet getIds(Collection<String> values) {
+            BitSet ret = new BitSet();
+
+            if (values != null) {
+                for (String value : values) {
+                    Integer id = value != null ? ids.get(value) : null;
+
+                    if (id != null) {
+                        ret.set(id);
+                    }
+                }
+            }
+
+            return ret;
+        }
+
+        Set<String> getNames(BitSet valueIds) {
+            Set<String> ret     = new HashSet<>();
+            String[]    idNames = names;
+
+            for (int id = valueIds.nextSetBit(0); id >= 0; id = valueIds.nextSetBit(id + 1)) {
+                ret.add(idNames[id]);
+            }
+
+            return ret;
+        }
+    }
+}
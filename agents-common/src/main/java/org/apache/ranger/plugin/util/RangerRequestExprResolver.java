@@ -212,7 +212,7 @@ public String resolveExpressions(RangerAccessRequest request) {
         String ret = str;
 
         if (hasTokens) {
-            ScriptEngine                 scriptEngine    = ScriptEngineUtil.createScriptEngine(serviceType);
+            ScriptEngine                 scriptEngine    = ScriptEngineUtil.getThreadLocalScriptEngine(serviceType);
             RangerRequestScriptEvaluator scriptEvaluator = new RangerRequestScriptEvaluator(request, scriptEngine, RangerRequestScriptEvaluator.needsJsonCtxEnabled(str));
             StringBuffer                 sb              = new StringBuffer();
             Matcher                      matcher         = PATTERN.matcher(str);
@@ -23,6 +23,7 @@
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.collections.Predicate;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceElementMatchingScope;
+import org.apache.ranger.plugin.policyengine.RangerEvaluatorIndexSet;
 import org.apache.ranger.plugin.policyengine.RangerResourceTrie;
 import org.apache.ranger.plugin.policyresourcematcher.RangerResourceEvaluator;
 import org.slf4j.Logger;
@@ -129,4 +130,66 @@ public static <T extends RangerResourceEvaluator> Collection<T> getEvaluators(Ma
 
         return ret;
     }
+
+    /**
+     * Collects evaluators for the given resource in the given set. Unlike getEvaluators(), evaluators for each resource
+     * element are merged and intersected on sorted evaluator indexes, which avoids allocating sets per lookup when
+     * the result set is reused across calls.
+     *
+     * @return false if the tries have evaluators without an index; in such case the caller should use getEvaluators()
+     */
+    public static <T extends RangerResourceEvaluator> boolean collectEvaluators(Map<String, RangerResourceTrie<T>> resourceTrie, Map<String, ?> resource, Map<String, ResourceElementMatchingScope> scopes, Predicate predicate, RangerEvaluatorIndexSet<T> result) {
+        LOG.debug("==> RangerResourceEvaluatorsRetriever.collectEvaluators({})", resource);
+
+        boolean ret = true;
+
+        result.clear();
+
+        if (scopes == null) {
+            scopes = Collections.emptyMap();
+        }
+
+        if (MapUtils.isNotEmpty(resourceTrie) && MapUtils.isNotEmpty(resource)) {
+            Set<String> resourceKeys         = resource.keySet();
+            String      resourceWithMinEvals = null;
+            int         minEvalCount         = 0;
+
+            for (String resourceDefName : resourceKeys) {
+                RangerResourceTrie<T> trie = resourceTrie.get(resourceDefName);
+
+                if (trie == null) {
+                    continue;
+                }
+
+                int evalCount = resourceKeys.size() > 1 ? trie.getEvaluatorsCountForResource(resource.get(resourceDefName), scopes.get(resourceDefName), predicate) : 1;
+
+                if (resourceWithMinEvals == null || (evalCount < minEvalCount)) {
+                    resourceWithMinEvals = resourceDefName;
+                    minEvalCount         = evalCount;
+                }
+            }
+
+            if (resourceWithMinEvals != null && minEvalCount > 0) {
+                ret = resourceTrie.get(resourceWithMinEvals).collectEvaluatorsForResource(resource.get(resourceWithMinEvals), scopes.get(resourceWithMinEvals), predicate, result);
+
+                for (String resourceDefName : resourceKeys) {
+                    if (!ret || result.isEmpty()) {
+                        break;
+                    }
+
+                    RangerResourceTrie<T> trie = resourceTrie.get(resourceDefName);
+
+                    if (trie == null || resourceWithMinEvals.equals(resourceDefName)) {
+                        continue;
+                    }
+
+                    ret = trie.retainEvaluatorsForResource(resource.get(resourceDefName), scopes.get(resourceDefName), result);
+                }
+            }
+        }
+
+        LOG.debug("<== RangerResourceEvaluatorsRetriever.collectEvaluators({}) : ret={}, evaluators:[{}]", resource, ret, result);
+
+        return ret;
+    }
 }
@@ -22,16 +22,11 @@
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.admin.client.RangerAdminClient;
 import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
-import org.apache.ranger.authorization.utils.JsonUtils;
 import org.apache.ranger.plugin.service.RangerBasePlugin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.Reader;
-import java.io.Writer;
 import java.util.Date;
 import java.util.HashSet;
 
@@ -46,6 +41,7 @@ public class RangerRolesProvider {
     private final String            cacheFileNamePrefix;
     private final String            cacheDir;
     private final boolean           disableCacheIfServiceNotFound;
+    private final boolean           useBinaryCache;
     private       long              lastActivationTimeInMillis;
     private       long              lastKnownRoleVersion = -1L;
     private       boolean           rangerUserGroupRolesSetInPlugin;
@@ -75,6 +71,7 @@ public RangerRolesProvider(String serviceType, String appId, String serviceName,
         String propertyPrefix = config.getPropertyPrefix();
 
         disableCacheIfServiceNotFound = config.getBoolean(propertyPrefix + ".disable.cache.if.servicenotfound", true);
+        useBinaryCache                = config.getBoolean(propertyPrefix + RangerCacheFileUtil.PROP_SUFFIX_CACHE_BINARY_FORMAT, false);
 
         LOG.debug("<== RangerRolesProvider(serviceName={}).RangerRolesProvider()", serviceName);
     }
@@ -183,22 +180,10 @@ public void saveToCache(RangerRoles roles) {
                     perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "RangerRolesProvider.saveToCache(serviceName=" + serviceName + ")");
                 }
 
-                Writer writer = null;
-
                 try {
-                    writer = new FileWriter(cacheFile);
-
-                    JsonUtils.objectToWriter(writer, roles);
+                    RangerCacheFileUtil.saveToFile(cacheFile, roles, useBinaryCache);
                 } catch (Exception excp) {
                     LOG.error("failed to save roles to cache file '{}'", cacheFile.getAbsolutePath(), excp);
-                } finally {
-                    if (writer != null) {
-                        try {
-                            writer.close();
-                        } catch (Exception excp) {
-                            LOG.error("error while closing opened cache file '{}'", cacheFile.getAbsolutePath(), excp);
-                        }
-                    }
                 }
 
                 RangerPerfTracer.log(perf);
@@ -260,16 +245,14 @@ private RangerRoles loadUserGroupRolesFromCache() {
         File cacheFile = cacheDir == null ? null : new File(cacheDir + File.separator + cacheFileName);
 
         if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
-            Reader           reader = null;
-            RangerPerfTracer perf   = null;
+            RangerPerfTracer perf = null;
 
             if (RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_LOG)) {
                 perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "RangerRolesProvider.loadUserGroupRolesFromCache(serviceName=" + serviceName + ")");
             }
 
             try {
-                reader = new FileReader(cacheFile);
-                roles  = JsonUtils.jsonToObject(reader, RangerRoles.class);
+                roles = RangerCacheFileUtil.loadFromFile(cacheFile, RangerRoles.class);
 
                 if (roles != null) {
                     if (!StringUtils.equals(serviceName, roles.getServiceName())) {
@@ -284,14 +267,6 @@ private RangerRoles loadUserGroupRolesFromCache() {
                 LOG.error("failed to load userGroupRoles from cache file {}", cacheFile.getAbsolutePath(), excp);
             } finally {
                 RangerPerfTracer.log(perf);
-
-                if (reader != null) {
-                    try {
-                        reader.close();
-                    } catch (Exception excp) {
-                        LOG.error("error while closing opened cache file {}", cacheFile.getAbsolutePath(), excp);
-                    }
-                }
             }
         } else {
             roles = new RangerRoles();
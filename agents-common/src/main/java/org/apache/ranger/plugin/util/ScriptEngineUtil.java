@@ -25,6 +25,9 @@
 
 import javax.script.ScriptEngine;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class ScriptEngineUtil {
     private static final Logger LOG = LoggerFactory.getLogger(ScriptEngineUtil.class);
 
@@ -36,6 +39,8 @@ public class ScriptEngineUtil {
     private static final int      JVM_MAJOR_CLASS_VERSION_JDK15  = 59;
     private static final int      JVM_MAJOR_CLASS_VERSION        = getJVMMajorClassVersion();
 
+    private static final ThreadLocal<Map<String, ScriptEngine>> THREAD_SCRIPT_ENGINES = ThreadLocal.withInitial(HashMap::new);
+
     private static volatile ScriptEngineCreator scriptEngineCreator;
     private static volatile boolean             scriptEngineCreatorInitialized;
 
@@ -79,6 +84,22 @@ public static ScriptEngine createScriptEngine(String serviceType) {
         return ret;
     }
 
+    // returns a script engine owned by the calling thread, created on the first call from the thread
+    public static ScriptEngine getThreadLocalScriptEngine(String serviceType) {
+        Map<String, ScriptEngine> engines = THREAD_SCRIPT_ENGINES.get();
+        ScriptEngine              ret     = engines.get(serviceType);
+
+        if (ret == null) {
+            ret = createScriptEngine(serviceType);
+
+            if (ret != null) {
+                engines.put(serviceType, ret);
+            }
+        }
+
+        return ret;
+    }
+
     private static ScriptEngineCreator getScriptEngineCreator(String serviceType) {
         boolean isInitialized = scriptEngineCreatorInitialized;
 
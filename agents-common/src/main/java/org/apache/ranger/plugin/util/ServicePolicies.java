@@ -315,6 +315,38 @@ public void dedupStrings() {
         }
     }
 
+    /**
+     * Reduces the memory used by policies retained by the policy-engine built from this object - see RangerPolicy.compact().
+     * Lists of users, groups, roles and resource values are shared across all policies - resource, tag and security-zone.
+     */
+    public void compact() {
+        Map<List<String>, List<String>> listTbl = new HashMap<>();
+
+        compactPolicies(policies, listTbl);
+
+        if (tagPolicies != null) {
+            compactPolicies(tagPolicies.getPolicies(), listTbl);
+        }
+
+        if (securityZones != null) {
+            for (SecurityZoneInfo securityZoneInfo : securityZones.values()) {
+                compactPolicies(securityZoneInfo.getPolicies(), listTbl);
+
+                if (securityZoneInfo.getPolicyDeltas() != null) {
+                    for (RangerPolicyDelta policyDelta : securityZoneInfo.getPolicyDeltas()) {
+                        compactPolicy(policyDelta.getPolicy(), listTbl);
+                    }
+                }
+            }
+        }
+
+        if (policyDeltas != null) {
+            for (RangerPolicyDelta policyDelta : policyDeltas) {
+                compactPolicy(policyDelta.getPolicy(), listTbl);
+            }
+        }
+    }
+
     @Override
     public String toString() {
         return "serviceName=" + serviceName + ", "
@@ -337,6 +369,20 @@ public void setPolicyDeltas(List<RangerPolicyDelta> policyDeltas) {
         this.policyDeltas = policyDeltas;
     }
 
+    private static void compactPolicies(List<RangerPolicy> policies, Map<List<String>, List<String>> listTbl) {
+        if (policies != null) {
+            for (RangerPolicy policy : policies) {
+                compactPolicy(policy, listTbl);
+            }
+        }
+    }
+
+    private static void compactPolicy(RangerPolicy policy, Map<List<String>, List<String>> listTbl) {
+        if (policy != null) {
+            policy.compact(listTbl);
+        }
+    }
+
     @JsonAutoDetect(fieldVisibility = Visibility.ANY)
     @JsonInclude(JsonInclude.Include.NON_EMPTY)
     @JsonIgnoreProperties(ignoreUnknown = true)
@@ -45,6 +45,8 @@
 import java.util.UUID;
 
 import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_OPTION_ENABLE_JSON_CTX;
+import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_OPTION_ENABLE_NATIVE_EVAL;
+import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_OPTION_REUSE_BINDINGS;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -114,6 +116,39 @@ public void testScriptConditionEvaluator() {
         Assert.assertTrue("tag attributes for PCI and PII should be found", tagsAttributesCondition.isMatched(request));
     }
 
+    @Test
+    public void testScriptConditionEvaluatorReuseBindings() {
+        RangerAccessRequest tagsRequest   = createRequest(Arrays.asList("PCI", "PII"));
+        RangerAccessRequest noTagsRequest = createRequest(null);
+        Map<String, String> options       = new HashMap<>();
+
+        options.put(SCRIPT_OPTION_REUSE_BINDINGS, "true");
+        options.put(SCRIPT_OPTION_ENABLE_NATIVE_EVAL, "false");
+
+        RangerScriptConditionEvaluator jsonCondition = createScriptConditionEvaluator("_ctx.tag._type == 'PCI' && _ctx.request.user == 'test-user'", options);
+        RangerScriptConditionEvaluator ctxCondition  = createScriptConditionEvaluator("ctx.getUser() == 'test-user' && TAG_NAMES_CSV == 'PCI,PII'", options);
+
+        for (int i = 0; i < 2; i++) {
+            Assert.assertTrue("tag._type should be PCI", jsonCondition.isMatched(tagsRequest));
+            Assert.assertFalse("tag._type should not be PCI", jsonCondition.isMatched(noTagsRequest));
+            Assert.assertTrue("tags should be PCI,PII", ctxCondition.isMatched(tagsRequest));
+            Assert.assertFalse("tags should not be PCI,PII", ctxCondition.isMatched(noTagsRequest));
+        }
+    }
+
+    @Test
+    public void testScriptConditionEvaluatorNativeEval() {
+        RangerAccessRequest            tagsRequest   = createRequest(Arrays.asList("PCI", "PII"));
+        RangerAccessRequest            noTagsRequest = createRequest(null);
+        RangerScriptConditionEvaluator nativeEval    = createScriptConditionEvaluator("IS_IN_GROUP('test-group1') && HAS_TAG('PCI') && USER.attr1 == 'test-user-value1'", Collections.emptyMap());
+        RangerScriptConditionEvaluator engineEval    = createScriptConditionEvaluator("IS_IN_GROUP('test-group1') && HAS_TAG('PCI') && USER.attr1 == 'test-user-value1'", Collections.singletonMap(SCRIPT_OPTION_ENABLE_NATIVE_EVAL, "false"));
+
+        Assert.assertTrue("native: group, tag and user attribute should match", nativeEval.isMatched(tagsRequest));
+        Assert.assertFalse("native: tag should not match", nativeEval.isMatched(noTagsRequest));
+        Assert.assertTrue("engine: group, tag and user attribute should match", engineEval.isMatched(tagsRequest));
+        Assert.assertFalse("engine: tag should not match", engineEval.isMatched(noTagsRequest));
+    }
+
     @Test
     public void testRangerAnyOfExpectedTagsPresentConditionEvaluator() {
         List<String>                                     policyConditionTags              = Arrays.asList("PCI", "PII");
@@ -229,6 +264,10 @@ RangerNoneOfExpectedTagsPresentConditionEvaluator createRangerTagsNotPresentCond
     }
 
     RangerScriptConditionEvaluator createScriptConditionEvaluator(String script) {
+        return createScriptConditionEvaluator(script, Collections.singletonMap(SCRIPT_OPTION_ENABLE_JSON_CTX, "true"));
+    }
+
+    RangerScriptConditionEvaluator createScriptConditionEvaluator(String script, Map<String, String> evaluatorOptions) {
         RangerScriptConditionEvaluator ret = new RangerScriptConditionEvaluator();
 
         RangerServiceDef          serviceDef   = mock(RangerServiceDef.class);
@@ -236,7 +275,7 @@ RangerScriptConditionEvaluator createScriptConditionEvaluator(String script) {
         RangerPolicyItemCondition condition    = mock(RangerPolicyItemCondition.class);
 
         when(serviceDef.getName()).thenReturn("test");
-        when(conditionDef.getEvaluatorOptions()).thenReturn(Collections.singletonMap(SCRIPT_OPTION_ENABLE_JSON_CTX, "true"));
+        when(conditionDef.getEvaluatorOptions()).thenReturn(evaluatorOptions);
         when(condition.getValues()).thenReturn(Arrays.asList(script));
 
         ret.setServiceDef(serviceDef);
@@ -26,6 +26,7 @@
 import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
 import org.apache.ranger.plugin.policyengine.RangerRequestScriptEvaluator;
+import org.apache.ranger.plugin.policyengine.RangerRequestScriptExpression;
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.apache.ranger.plugin.util.RangerUserStore;
@@ -33,6 +34,8 @@
 import org.junit.Assert;
 import org.junit.Test;
 
+import javax.script.Bindings;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 
 import java.util.Arrays;
@@ -464,6 +467,133 @@ public void testIsTimeMacros() {
         Assert.assertTrue("test: IS_ACCESS_TIME_BETWEEN('2010/01/01 15:00:42', '2100/01/01 15:00:42', 'GMT')", (Boolean) evaluator.evaluateScript("IS_ACCESS_TIME_BETWEEN('2010/01/01 15:00:42', '2100/01/01 15:00:42', 'GMT')"));
     }
 
+    @Test
+    public void testCompiledScripts() {
+        RangerAccessRequest request      = createRequest("test-user", new HashSet<>(Arrays.asList("test-group1", "test-group2")), Collections.emptySet(), Collections.emptyList());
+        RangerAccessRequest otherRequest = createRequest("other-user", Collections.emptySet(), Collections.emptySet(), Collections.emptyList());
+        CompiledScript      jsonScript   = RangerRequestScriptEvaluator.compileScript(scriptEngine, "USER._name == 'test-user' && UG_NAMES_CSV == 'test-group1,test-group2'", true);
+        CompiledScript      ctxScript    = RangerRequestScriptEvaluator.compileScript(scriptEngine, "IS_IN_GROUP('test-group1') && [1, 2].includes(2)", false);
+        Bindings            bindings     = scriptEngine.createBindings();
+
+        Assert.assertNotNull("test: compile script with JSON context", jsonScript);
+        Assert.assertNotNull("test: compile script without JSON context", ctxScript);
+
+        // evaluate with new bindings and with reused bindings
+        for (Bindings evalBindings : Arrays.asList(null, bindings, bindings)) {
+            Assert.assertEquals("test: jsonScript", Boolean.TRUE, new RangerRequestScriptEvaluator(request, scriptEngine, true, evalBindings).evaluateScript(jsonScript));
+            Assert.assertEquals("test: jsonScript for other user", Boolean.FALSE, new RangerRequestScriptEvaluator(otherRequest, scriptEngine, true, evalBindings).evaluateScript(jsonScript));
+            Assert.assertEquals("test: ctxScript", Boolean.TRUE, new RangerRequestScriptEvaluator(request, scriptEngine, false, evalBindings).evaluateScript(ctxScript));
+            Assert.assertEquals("test: ctxScript for other user", Boolean.FALSE, new RangerRequestScriptEvaluator(otherRequest, scriptEngine, false, evalBindings).evaluateScript(ctxScript));
+        }
+
+        RangerRequestScriptEvaluator evaluator = new RangerRequestScriptEvaluator(request, scriptEngine, false);
+
+        evaluator.evaluateConditionScript(ctxScript);
+
+        Assert.assertTrue("test: evaluateConditionScript(ctxScript)", evaluator.getResult());
+        Assert.assertNull("test: compile invalid script", RangerRequestScriptEvaluator.compileScript(scriptEngine, "USER._name ==", false));
+    }
+
+    @Test
+    public void testScriptExpressions() {
+        RangerTag           tagPII   = new RangerTag("PII", TestStringUtil.mapFromStrings("level", "high", "size", "10"));
+        RangerTag           tagPCI   = new RangerTag("PCI", Collections.singletonMap("level", "low"));
+        RangerAccessRequest request1 = createRequest("test-user", new HashSet<>(Arrays.asList("test-group1", "test-group2")), Collections.singleton("test-role1"), Arrays.asList(tagPII, tagPCI));
+        RangerAccessRequest request2 = createRequest("test-user2", Collections.singleton("test-group3"), Collections.emptySet(), Collections.singletonList(tagPCI));
+        RangerAccessRequest request3 = createRequest("test-user3", Collections.emptySet(), Collections.emptySet(), null);
+        String[]            scripts  = new String[] {
+                "IS_IN_GROUP('test-group1')",
+                "IS_IN_GROUP('test-group1') && IS_IN_ROLE('test-role1');",
+                "!IS_IN_GROUP('test-group1') || HAS_TAG('PCI')",
+                "(IS_IN_ANY_GROUP || IS_IN_ANY_ROLE) && !(HAS_NO_TAG)",
+                "IS_NOT_IN_ANY_GROUP && IS_NOT_IN_ANY_ROLE",
+                "HAS_ANY_TAG && HAS_TAG_ATTR('level')",
+                "HAS_USER_ATTR('dept') && HAS_UG_ATTR('site')",
+                "ctx.getUser() == 'test-user'",
+                "ctx.getUser() === \"test-user2\"",
+                "ctx.getUser() != 'test-user' && ctx.getUser() !== 'test-user3'",
+                "ctx.getCurrentTagType() == 'PII'",
+                "ctx.getAttributeValue('level') == null",
+                "ctx.isAccessTypeAny() == false",
+                "IS_ACCESS_TIME_AFTER('2020/01/01') && IS_ACCESS_TIME_BEFORE('2100/01/01', 'GMT')",
+                "IS_ACCESS_TIME_BETWEEN('2010/01/01', '2020/01/01')",
+                "UG_NAMES_CSV == 'test-group1,test-group2'",
+                "TAG_NAMES_Q_CSV == \"'PCI','PII'\"",
+                "tagAttr.level == 'high' || tagAttr['level'] == 'low'",
+                "tagAttr.missing == null",
+                "USER.dept == 'ENGG'",
+                "USER['state'] != 'CA' && USER._name == 'test-user2'",
+                "USER.dept == null",
+                "TAG._type == 'PII' && TAG.level == 'high'",
+                "TAG._matchType == 'SELF'",
+                "['ENGG', 'MKTG'].includes(USER.dept)",
+                "[ 'test-user', 'test-user3' ].includes(ctx.getUser()) && true",
+                "!(TAG.level == 'high') && !!HAS_ANY_TAG",
+                "!(ctx.getUser() != 'test-user') || ! IS_IN_ANY_GROUP",
+        };
+
+        for (String script : scripts) {
+            boolean                       enableJsonCtx = RangerRequestScriptEvaluator.needsJsonCtxEnabled(script);
+            RangerRequestScriptExpression expression    = RangerRequestScriptExpression.compile(script, enableJsonCtx);
+
+            Assert.assertNotNull("test: compile " + script, expression);
+
+            for (RangerAccessRequest request : Arrays.asList(request1, request2, request3)) {
+                RangerRequestScriptEvaluator engineEvaluator = new RangerRequestScriptEvaluator(request, scriptEngine, enableJsonCtx);
+                RangerRequestScriptEvaluator nativeEvaluator = new RangerRequestScriptEvaluator(request);
+                Object                       expected        = engineEvaluator.evaluateConditionScript(script);
+
+                Assert.assertTrue("test: script engine result for " + script, expected instanceof Boolean);
+                Assert.assertEquals("test: " + script + " for user " + request.getUser(), expected, nativeEvaluator.evaluateConditionScript(expression));
+                Assert.assertEquals("test: result of " + script + " for user " + request.getUser(), engineEvaluator.getResult(), nativeEvaluator.getResult());
+            }
+        }
+
+        String[] unsupportedScripts = new String[] {
+                "ctx.result = true",
+                "var x = IS_IN_GROUP('test-group1'); x",
+                "IS_IN_GROUP('test-group1') // comment",
+                "ctx.getUser()",
+                "ctx.getUser() == ctx.getResource()",
+                "USER.dept === null",
+                "USER.dept == 'ENGG'.toLowerCase()",
+                "USER.dept.split(',').includes('ENGG')",
+                "tagAttr.size == '10'",
+                "IS_IN_GROUP('test-group1') & true",
+                "ctx.isInGroup(1)",
+                "ctx.tagNames(',')",
+                "ctx.getAsDate('2020/01/01') != null",
+                "[[TAG.value]].intersects([[USER[TAG._type]]])",
+                "'a\\nb' == USER.dept",
+                "ctx.getUser() == 'test-user' ||",
+        };
+
+        for (String script : unsupportedScripts) {
+            Assert.assertNull("test: compile " + script, RangerRequestScriptExpression.compile(script, true));
+        }
+
+        // '!' binds tighter than '==': these compare a boolean with a string, hence are left to the script engine
+        String[] negatedComparisons = new String[] {
+                "!TAG.level == 'high'",
+                "!ctx.getUser() != 'test-user'",
+                "!!USER.dept === 'ENGG'",
+        };
+
+        for (String script : negatedComparisons) {
+            Assert.assertNull("test: compile " + script, RangerRequestScriptExpression.compile(script, true));
+
+            for (RangerAccessRequest request : Arrays.asList(request1, request2, request3)) {
+                RangerRequestScriptEvaluator engineEvaluator = new RangerRequestScriptEvaluator(request, scriptEngine, true);
+                Object                       expected        = script.contains("!=") ? Boolean.TRUE : Boolean.FALSE;
+
+                Assert.assertEquals("test: " + script + " for user " + request.getUser(), expected, engineEvaluator.evaluateConditionScript(script));
+            }
+        }
+
+        Assert.assertNull("test: USER without JSON context", RangerRequestScriptExpression.compile("USER.dept == 'ENGG'", false));
+        Assert.assertNotNull("test: tagAttr without JSON context", RangerRequestScriptExpression.compile("tagAttr.level == 'high'", false));
+    }
+
     RangerAccessRequest createRequest(String userName, Set<String> userGroups, Set<String> userRoles, List<RangerTag> resourceTags) {
         RangerAccessResource resource = mock(RangerAccessResource.class);
 
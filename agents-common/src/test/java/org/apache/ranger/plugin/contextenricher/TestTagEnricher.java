@@ -25,7 +25,9 @@
 import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParseException;
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
 import org.apache.ranger.plugin.contextenricher.TestTagEnricher.TagEnricherTestCase.TestData;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.model.RangerServiceResource;
 import org.apache.ranger.plugin.model.RangerTag;
@@ -34,9 +36,11 @@
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
 import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
 import org.apache.ranger.plugin.policyengine.RangerMutableResource;
+import org.apache.ranger.plugin.policyengine.RangerPluginContext;
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher.MatchType;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerCommonConstants;
 import org.apache.ranger.plugin.util.ServiceTags;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -46,7 +50,9 @@
 import java.io.InputStreamReader;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -98,6 +104,112 @@ public void testTagEnricher_hive() {
         runTestsFromResourceFiles(hiveTestResourceFiles);
     }
 
+    @Test
+    public void testTagEnricher_hiveDeltas() {
+        for (boolean isCopyOnWrite : new boolean[] {false, true}) {
+            InputStream         inStream = this.getClass().getResourceAsStream("/contextenricher/test_tagenricher_hive.json");
+            TagEnricherTestCase testCase = gsonBuilder.fromJson(new InputStreamReader(inStream), TagEnricherTestCase.class);
+            RangerPluginConfig  pluginConfig = new RangerPluginConfig("hive", testCase.serviceName, "hive", "cl1", "on-prem", null);
+            RangerTagEnricher   tagEnricher  = new RangerTagEnricher();
+
+            pluginConfig.setBoolean(pluginConfig.getPropertyPrefix() + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_COPY_ON_WRITE_TAGS, isCopyOnWrite);
+
+            tagEnricher.setServiceName(testCase.serviceName);
+            tagEnricher.setServiceDef(testCase.serviceDef);
+            tagEnricher.setPluginContext(new RangerPluginContext(pluginConfig));
+            tagEnricher.init();
+            tagEnricher.setServiceTags(createServiceTags(testCase));
+
+            assertEquals(Collections.emptyList(), getRequestTags(tagEnricher, testCase.serviceDef, "hr", null));
+            assertEquals(Collections.singletonList("PII"), getRequestTags(tagEnricher, testCase.serviceDef, "hr", "employee", "ssn"));
+            assertEquals(Arrays.asList("EXPIRES_ON", "FINANCE"), getRequestTags(tagEnricher, testCase.serviceDef, "finance", "tax_2010"));
+
+            // tag the database hr with PCI - evaluators cached earlier for hr and hr.employee.ssn must not be used
+            RangerServiceResource hrDb = new RangerServiceResource("cl1_hive", Collections.singletonMap("database", new RangerPolicyResource("hr")));
+
+            hrDb.setId(7L);
+            hrDb.setResourceSignature("hr");
+
+            tagEnricher.setServiceTags(createServiceTagsDelta(hrDb, Collections.singletonMap(7L, Collections.singletonList(5L))));
+
+            assertEquals(Collections.singletonList("PCI"), getRequestTags(tagEnricher, testCase.serviceDef, "hr", null));
+            assertEquals(Arrays.asList("PCI", "PII"), getRequestTags(tagEnricher, testCase.serviceDef, "hr", "employee", "ssn"));
+            assertEquals(Arrays.asList("EXPIRES_ON", "FINANCE"), getRequestTags(tagEnricher, testCase.serviceDef, "finance", "tax_2010"));
+
+            // remove the resource added above
+            RangerServiceResource deletedHrDb = new RangerServiceResource("cl1_hive", Collections.singletonMap("database", new RangerPolicyResource("hr")));
+
+            deletedHrDb.setId(7L);
+
+            tagEnricher.setServiceTags(createServiceTagsDelta(deletedHrDb, Collections.emptyMap()));
+
+            assertEquals(Collections.emptyList(), getRequestTags(tagEnricher, testCase.serviceDef, "hr", null));
+            assertEquals(Collections.singletonList("PII"), getRequestTags(tagEnricher, testCase.serviceDef, "hr", "employee", "ssn"));
+
+            RangerTagEnricher.TagDeltaMetrics metrics = tagEnricher.getTagDeltaMetrics();
+
+            assertEquals(2, metrics.getDeltasAppliedCount());
+            assertEquals(0, metrics.getCacheClearCount());
+            assertTrue(metrics.getCacheEntriesRemovedCount() > 0);
+            assertTrue(tagEnricher.getEvaluatorsCacheMetrics().getHitCount() > 0);
+        }
+    }
+
+    private static ServiceTags createServiceTags(TagEnricherTestCase testCase) {
+        ServiceTags ret = new ServiceTags();
+
+        ret.setServiceName(testCase.serviceName);
+        ret.setTagDefinitions(testCase.tagDefinitions);
+        ret.setTags(testCase.tags);
+        ret.setServiceResources(testCase.serviceResources);
+        ret.setResourceToTagIds(testCase.resourceToTagIds);
+
+        return ret;
+    }
+
+    private static ServiceTags createServiceTagsDelta(RangerServiceResource serviceResource, Map<Long, List<Long>> resourceToTagIds) {
+        ServiceTags ret = new ServiceTags();
+
+        ret.setIsDelta(true);
+        ret.setTagsChangeExtent(ServiceTags.TagsChangeExtent.SERVICE_RESOURCE);
+        ret.setServiceResources(new ArrayList<>(Collections.singletonList(serviceResource)));
+        ret.setResourceToTagIds(new HashMap<>(resourceToTagIds));
+
+        return ret;
+    }
+
+    private static List<String> getRequestTags(RangerTagEnricher tagEnricher, RangerServiceDef serviceDef, String database, String table, String... column) {
+        RangerAccessResourceImpl resource = new RangerAccessResourceImpl();
+
+        resource.setServiceDef(serviceDef);
+        resource.setValue("database", database);
+
+        if (table != null) {
+            resource.setValue("table", table);
+        }
+
+        if (column.length > 0) {
+            resource.setValue("column", column[0]);
+        }
+
+        RangerAccessRequestImpl request = new RangerAccessRequestImpl(resource, "select", "testUser", null, null);
+
+        tagEnricher.enrich(request);
+
+        List<String>          ret  = new ArrayList<>();
+        Set<RangerTagForEval> tags = RangerAccessRequestUtil.getRequestTagsFromContext(request.getContext());
+
+        if (tags != null) {
+            for (RangerTagForEval tag : tags) {
+                ret.add(tag.getType());
+            }
+        }
+
+        Collections.sort(ret);
+
+        return ret;
+    }
+
     private void runTestsFromResourceFiles(String[] resourceNames) {
         for (String resourceName : resourceNames) {
             InputStream       inStream = this.getClass().getResourceAsStream(resourceName);
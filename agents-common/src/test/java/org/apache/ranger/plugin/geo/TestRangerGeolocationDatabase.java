@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.geo;
+
+import org.apache.ranger.plugin.store.file.GeolocationFileStore;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerGeolocationDatabase {
+    private static final String[] CSV_LINES = {
+            "# test data",
+            "FROM_IP,TO_IP,COUNTRY_CODE,COUNTRY_NAME",
+            "20.0.100.80,20.0.100.89,CA,Canada",
+            "2001:db8::,2001:db8::ffff,DE,Germany",
+            "10.0.0.0,10.0.0.255,US,United States",
+            "2001:db8:1::,2001:db8:1:ffff:ffff:ffff:ffff:ffff,FR,France",
+            "20.0.100.90,20.0.100.99,US,United States",
+            "255.255.255.0,255.255.255.255,CN,China",
+    };
+
+    @Test
+    public void testFind() {
+        GeolocationFileStore dotFormatStore  = createStore("/etc/ranger/geo/geo.txt", null, "true");
+        GeolocationFileStore longFormatStore = createStore("/etc/ranger/geo/geo_long.txt", null, "false");
+
+        assertCountry(dotFormatStore, "10.0.1.5", "US");
+        assertCountry(dotFormatStore, "20.0.100.80", "CA");
+        assertCountry(dotFormatStore, "20.0.100.89", "CA");
+        assertCountry(dotFormatStore, "20.0.100.90", "AUS");
+        assertCountry(dotFormatStore, "1.0.2.3", "CN");
+        assertCountry(dotFormatStore, "255.255.255.255", "CN");
+        assertCountry(dotFormatStore, "128.101.101.101", "US");
+        assertCountry(dotFormatStore, "20.0.100.69", null);
+        assertCountry(dotFormatStore, "0.0.0.0", null);
+        assertCountry(dotFormatStore, "2001:db8::1", null);
+
+        assertCountry(longFormatStore, "1.0.8.1", "CN");
+        assertCountry(longFormatStore, "1.0.16.1", "JP");
+        assertCountry(longFormatStore, "255.255.255.1", "CN");
+        assertCountry(longFormatStore, "1.0.0.1", "AU");
+        assertCountry(longFormatStore, "20.0.100.69", null);
+
+        assertEquals("United States", dotFormatStore.getGeoDatabase().getValue(dotFormatStore.getGeoLocation("10.0.1.5"), "COUNTRY_NAME"));
+    }
+
+    @Test
+    public void testCompiledFile() throws IOException {
+        File csvFile      = createCsvFile(CSV_LINES);
+        File compiledFile = File.createTempFile("ranger_geo_test", ".bin");
+
+        compiledFile.deleteOnExit();
+
+        assertTrue(compiledFile.delete());
+
+        GeolocationFileStore csvStore = createStore(csvFile.getAbsolutePath(), compiledFile.getAbsolutePath(), "true");
+
+        assertTrue("compiled file must be created", RangerGeolocationDatabase.isBinaryFile(compiledFile));
+        assertFalse(RangerGeolocationDatabase.isBinaryFile(csvFile));
+
+        GeolocationFileStore compiledStore = createStore(csvFile.getAbsolutePath(), compiledFile.getAbsolutePath(), "true");
+        GeolocationFileStore binaryStore   = createStore(compiledFile.getAbsolutePath(), null, "true");
+
+        for (GeolocationFileStore store : Arrays.asList(csvStore, compiledStore, binaryStore)) {
+            assertEquals(6, store.getGeoDatabase().size());
+            assertEquals(Arrays.asList("COUNTRY_CODE", "COUNTRY_NAME"), Arrays.asList(store.getGeoDatabase().getMetadata().getLocationDataItemNames()));
+
+            assertCountry(store, "10.0.0.0", "US");
+            assertCountry(store, "20.0.100.85", "CA");
+            assertCountry(store, "20.0.100.95", "US");
+            assertCountry(store, "255.255.255.128", "CN");
+            assertCountry(store, "20.0.100.100", null);
+            assertCountry(store, "2001:db8::", "DE");
+            assertCountry(store, "2001:db8::ffff", "DE");
+            assertCountry(store, "2001:db8:1:ffff:ffff:ffff:ffff:ffff", "FR");
+            assertCountry(store, "2001:db8::1:0", null);
+            assertCountry(store, "2001:db8:2::", null);
+            assertCountry(store, "::ffff:10.0.0.1", "US");
+        }
+
+        assertEquals(csvStore.getGeoLocation("2001:db8::1"), binaryStore.getGeoLocation("2001:db8::1"));
+    }
+
+    @Test
+    public void testReload() throws Exception {
+        File                 csvFile = createCsvFile(CSV_LINES);
+        Map<String, String>  context = new HashMap<>();
+        GeolocationFileStore store   = new GeolocationFileStore();
+
+        context.put(GeolocationFileStore.PROP_GEOLOCATION_FILE_LOCATION, csvFile.getAbsolutePath());
+        context.put(GeolocationFileStore.PROP_GEOLOCATION_RELOAD_INTERVAL_MS, "50");
+
+        store.init(context);
+
+        try {
+            assertCountry(store, "10.0.0.1", "US");
+
+            Files.write(csvFile.toPath(), Arrays.asList(CSV_LINES[1], "10.0.0.0,10.0.0.255,IN,India"), StandardCharsets.UTF_8);
+
+            assertTrue(csvFile.setLastModified(csvFile.lastModified() + 10000));
+
+            for (int i = 0; i < 100 && store.getGeoDatabase().size() != 1; i++) {
+                Thread.sleep(50);
+            }
+
+            assertCountry(store, "10.0.0.1", "IN");
+            assertCountry(store, "2001:db8::1", null);
+        } finally {
+            store.cleanup();
+        }
+    }
+
+    private static GeolocationFileStore createStore(String filePath, String compiledFilePath, String ipInDotFormat) {
+        Map<String, String>  context = new HashMap<>();
+        GeolocationFileStore ret     = new GeolocationFileStore();
+
+        context.put(GeolocationFileStore.PROP_GEOLOCATION_FILE_LOCATION, filePath);
+        context.put(GeolocationFileStore.PROP_GEOLOCATION_IP_IN_DOT_FORMAT, ipInDotFormat);
+
+        if (compiledFilePath != null) {
+            context.put(GeolocationFileStore.PROP_GEOLOCATION_COMPILED_FILE_LOCATION, compiledFilePath);
+        }
+
+        ret.init(context);
+
+        return ret;
+    }
+
+    private static File createCsvFile(String[] lines) throws IOException {
+        File ret = File.createTempFile("ranger_geo_test", ".csv");
+
+        ret.deleteOnExit();
+
+        Files.write(ret.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+
+        return ret;
+    }
+
+    private static void assertCountry(GeolocationFileStore store, String ipAddress, String expectedCountry) {
+        RangerGeolocationData data = store.getGeoLocation(ipAddress);
+
+        if (expectedCountry == null) {
+            assertNull(ipAddress, data);
+        } else {
+            assertEquals(ipAddress, expectedCountry, store.getGeoDatabase().getValue(data, "COUNTRY_CODE"));
+        }
+    }
+}
@@ -27,7 +27,11 @@
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class TestRangerPolicy {
     @Test
@@ -117,6 +121,49 @@ public void test_04_PolicyItemCondition_SetListMethods() {
         Assert.assertEquals("RangerPolicyItemCondition.setValues()", values.size(), policyItemCondition.getValues().size());
     }
 
+    @Test
+    public void test_05_Policy_Compact() {
+        Map<List<String>, List<String>> listTbl = new HashMap<>();
+        RangerPolicy                    policy1 = getPolicy();
+        RangerPolicy                    policy2 = getPolicy();
+
+        policy1.compact(listTbl);
+        policy2.compact(listTbl);
+
+        RangerPolicyItem item1 = policy1.getPolicyItems().get(0);
+        RangerPolicyItem item2 = policy2.getPolicyItems().get(0);
+
+        Assert.assertEquals("RangerPolicyItem.getUsers()", Arrays.asList("user1", "user2"), item1.getUsers());
+        Assert.assertSame("RangerPolicyItem.getUsers() after compact()", item1.getUsers(), item2.getUsers());
+        Assert.assertSame("RangerPolicyItem.getGroups() after compact()", item1.getGroups(), item2.getGroups());
+        Assert.assertSame("RangerPolicyResource.getValues() after compact()", policy1.getResources().get("database").getValues(), policy2.getResources().get("database").getValues());
+        Assert.assertNotSame("RangerPolicyItem.getAccesses() after compact()", item1.getAccesses(), item2.getAccesses());
+        Assert.assertTrue("RangerPolicyItem.getRoles() after compact()", item1.getRoles().isEmpty());
+        Assert.assertTrue("RangerPolicy.getDenyPolicyItems() after compact()", policy1.getDenyPolicyItems().isEmpty());
+
+        item1.addUser("user3");
+        item1.addRole("role1");
+        policy1.addDenyPolicyItem(new RangerPolicyItem());
+
+        Assert.assertEquals("RangerPolicyItem.addUser() after compact()", Arrays.asList("user1", "user2", "user3"), item1.getUsers());
+        Assert.assertEquals("RangerPolicyItem.getUsers() of other policy", Arrays.asList("user1", "user2"), item2.getUsers());
+        Assert.assertEquals("RangerPolicyItem.addRole() after compact()", Collections.singletonList("role1"), item1.getRoles());
+        Assert.assertEquals("RangerPolicy.addDenyPolicyItem() after compact()", 1, policy1.getDenyPolicyItems().size());
+    }
+
+    private RangerPolicy getPolicy() {
+        RangerPolicy     policy     = new RangerPolicy();
+        RangerPolicyItem policyItem = new RangerPolicyItem();
+
+        policy.setResources(Collections.singletonMap("database", new RangerPolicyResource(new ArrayList<>(Arrays.asList("db1", "db2")), false, false)));
+        policyItem.setUsers(new ArrayList<>(Arrays.asList("user1", "user2")));
+        policyItem.setGroups(new ArrayList<>(Collections.singletonList("public")));
+        policyItem.addAccess(new RangerPolicyItemAccess("select"));
+        policy.addPolicyItem(policyItem);
+
+        return policy;
+    }
+
     private <T> List<T> getList(T value) {
         List<T> ret = new ArrayList<>();
 
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestConcurrentCacheMap {
+    private static final int CAPACITY = 16;
+
+    @Test
+    public void testEvictsLeastRecentlyAccessed() throws Exception {
+        ConcurrentCacheMap<String, String> cacheMap = new ConcurrentCacheMap<>(CAPACITY);
+
+        for (int i = 0; i < CAPACITY; i++) {
+            cacheMap.put(String.valueOf(i), String.valueOf(i));
+        }
+
+        Thread.sleep(5);
+
+        for (int i = 0; i < CAPACITY / 2; i++) {
+            assertEquals(String.valueOf(i), cacheMap.get(String.valueOf(i)));
+        }
+
+        Thread.sleep(5);
+
+        for (int i = CAPACITY; i < CAPACITY + CAPACITY / 4; i++) { // fewer than the entries not accessed since insert
+            cacheMap.put(String.valueOf(i), String.valueOf(i));
+
+            assertTrue("size exceeds capacity: " + cacheMap.size(), cacheMap.size() <= CAPACITY);
+        }
+
+        for (int i = 0; i < CAPACITY / 2; i++) {
+            assertEquals("recently accessed entry evicted: " + i, String.valueOf(i), cacheMap.get(String.valueOf(i)));
+        }
+
+        assertEquals(cacheMap.size(), cacheMap.entrySet().size());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        ConcurrentCacheMap<Integer, Integer> cacheMap    = new ConcurrentCacheMap<>(CAPACITY * 64);
+        List<Thread>                         threads     = new ArrayList<>();
+        int                                  threadCount = 8;
+
+        for (int t = 0; t < threadCount; t++) {
+            final int base = t * 10000;
+
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    Integer key = base + (i % 2000);
+
+                    if (cacheMap.get(key) == null) {
+                        cacheMap.put(key, key);
+                    }
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // a put() that finds another thread evicting doesn't wait; such entries can exceed the capacity by up to one per thread
+        assertTrue("size exceeds capacity: " + cacheMap.size(), cacheMap.size() <= cacheMap.getCapacity() + threadCount);
+    }
+}
@@ -29,14 +29,17 @@
 import org.apache.ranger.plugin.resourcematcher.RangerResourceMatcher;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class TestPathResourceTrie {
     private static final RangerResourceDef       PATH_RESOURCE_DEF = getPathResourceDef();
@@ -113,6 +116,122 @@ public void testSelfScope() {
         verifyEvaluators("invalid: does-not-begin-with-sep", scope);
     }
 
+    @Test
+    public void testCopyOnWriteUpdates() {
+        verifyCopyOnWriteUpdates(true);
+        verifyCopyOnWriteUpdates(false);
+    }
+
+    @Test
+    public void testCopyOnWriteGenerations() {
+        RangerResourceEvaluator                     evalTmpA = getEvaluator("/tmp/a*", false, false);
+        RangerResourceTrie<RangerResourceEvaluator> curr     = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS, false, null);
+        List<RangerResourceEvaluator>               updated  = new ArrayList<>(EVALUATORS);
+
+        updated.add(evalTmpA);
+
+        RangerResourceTrie<RangerResourceEvaluator> withTmpA = new RangerResourceTrie<>(PATH_RESOURCE_DEF, updated, false, null);
+
+        for (int i = 0; i < 40; i++) {
+            Map<String, Set<RangerResourceEvaluator>> before = getEvaluatorsForResources(curr);
+            RangerResourceTrie<RangerResourceEvaluator> next = new RangerResourceTrie<>(curr, true);
+
+            if (i % 2 == 0) {
+                next.add(evalTmpA.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), evalTmpA);
+            } else {
+                next.delete(evalTmpA.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), evalTmpA);
+            }
+
+            next.wrapUpUpdate();
+
+            assertEquals("generation " + i, getEvaluatorsForResources(i % 2 == 0 ? withTmpA : trie), getEvaluatorsForResources(next));
+            assertEquals("generation " + i + ": source trie modified", before, getEvaluatorsForResources(curr));
+
+            curr = next;
+        }
+    }
+
+    @Test
+    public void testCollectEvaluators() {
+        verifyCollectEvaluators(true);
+        verifyCollectEvaluators(false);
+    }
+
+    private void verifyCollectEvaluators(boolean isOptimizedForRetrieval) {
+        RangerResourceTrie<RangerResourceEvaluator>      trie      = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS, isOptimizedForRetrieval, null);
+        RangerEvaluatorIndexSet<RangerResourceEvaluator> collected = new RangerEvaluatorIndexSet<>();
+        RangerEvaluatorIndexSet<RangerResourceEvaluator> retained  = new RangerEvaluatorIndexSet<>();
+
+        for (String resource : Arrays.asList("/", "/tmp", "/tmp/", "/tmp/a", "/tmp/ab", "/tmp/abc", "/tmp/ac/d/e", "/home", "/home/", "/home/user", "/tmpfile", "/unmatched")) {
+            for (ResourceElementMatchingScope scope : ResourceElementMatchingScope.values()) {
+                Set<RangerResourceEvaluator> expected = trie.getEvaluatorsForResource(resource, scope);
+                String                       message  = "isOptimizedForRetrieval=" + isOptimizedForRetrieval + ", resource=" + resource + ", scope=" + scope;
+
+                collected.clear();
+                retained.clear();
+                retained.addAll(RangerEvaluatorIndexSet.of(EVALUATORS), null);
+
+                assertTrue(message, trie.collectEvaluatorsForResource(resource, scope, null, collected));
+                assertTrue(message, trie.retainEvaluatorsForResource(resource, scope, retained));
+                assertEquals(message, expected == null ? Collections.emptySet() : expected, toSet(collected));
+                assertEquals(message, expected == null ? Collections.emptySet() : expected, toSet(retained));
+            }
+        }
+    }
+
+    private static Set<RangerResourceEvaluator> toSet(RangerEvaluatorIndexSet<RangerResourceEvaluator> evaluators) {
+        Set<RangerResourceEvaluator> ret = new HashSet<>();
+
+        for (int i = 0; i < evaluators.size(); i++) {
+            ret.add(evaluators.get(i));
+        }
+
+        return ret;
+    }
+
+    private void verifyCopyOnWriteUpdates(boolean isOptimizedForRetrieval) {
+        RangerResourceEvaluator       evalTmpAbc   = getEvaluator("/tmp/abc", false, false);
+        RangerResourceEvaluator       evalTmpA     = getEvaluator("/tmp/a*", false, false);
+        RangerResourceEvaluator       evalHomeUser = getEvaluator("/home/user");
+        List<RangerResourceEvaluator> updated      = new ArrayList<>(EVALUATORS);
+
+        updated.remove(EVAL_TMP_AB);
+        updated.remove(EVAL_HOME_);
+        updated.addAll(Arrays.asList(evalTmpAbc, evalTmpA, evalHomeUser));
+
+        RangerResourceTrie<RangerResourceEvaluator> source   = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS, isOptimizedForRetrieval, null);
+        RangerResourceTrie<RangerResourceEvaluator> expected = new RangerResourceTrie<>(PATH_RESOURCE_DEF, updated, isOptimizedForRetrieval, null);
+        Map<String, Set<RangerResourceEvaluator>>   before   = getEvaluatorsForResources(source); // also sets up the nodes, when not optimized for retrieval
+        RangerResourceTrie<RangerResourceEvaluator> copy     = new RangerResourceTrie<>(source, true);
+
+        for (RangerResourceEvaluator evaluator : Arrays.asList(EVAL_TMP_AB, EVAL_HOME_)) {
+            copy.delete(evaluator.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), evaluator);
+        }
+
+        for (RangerResourceEvaluator evaluator : Arrays.asList(evalTmpAbc, evalTmpA, evalHomeUser)) {
+            copy.add(evaluator.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), evaluator);
+        }
+
+        copy.wrapUpUpdate();
+
+        assertEquals("isOptimizedForRetrieval=" + isOptimizedForRetrieval, getEvaluatorsForResources(expected), getEvaluatorsForResources(copy));
+        assertEquals("isOptimizedForRetrieval=" + isOptimizedForRetrieval + ": source trie modified", before, getEvaluatorsForResources(source));
+    }
+
+    private static Map<String, Set<RangerResourceEvaluator>> getEvaluatorsForResources(RangerResourceTrie<RangerResourceEvaluator> trie) {
+        Map<String, Set<RangerResourceEvaluator>> ret = new HashMap<>();
+
+        for (String resource : Arrays.asList("/", "/tmp", "/tmp/", "/tmp/a", "/tmp/ab", "/tmp/abc", "/tmp/abcd", "/tmp/ac/d/e", "/home", "/home/", "/home/user", "/home/user/x", "/tmpfile", "/unmatched")) {
+            for (ResourceElementMatchingScope scope : ResourceElementMatchingScope.values()) {
+                Set<RangerResourceEvaluator> evaluators = trie.getEvaluatorsForResource(resource, scope);
+
+                ret.put(resource + ":" + scope, evaluators == null ? null : new HashSet<>(evaluators));
+            }
+        }
+
+        return ret;
+    }
+
     private void verifyEvaluators(String resource, ResourceElementMatchingScope scope, RangerResourceEvaluator... evaluators) {
         Set<RangerResourceEvaluator> expected = evaluators.length == 0 ? null : new HashSet<>(Arrays.asList(evaluators));
         Set<RangerResourceEvaluator> result   = trie.getEvaluatorsForResource(resource, scope);
@@ -165,6 +284,11 @@ public long getId() {
             return id;
         }
 
+        @Override
+        public int getIndex() {
+            return (int) id;
+        }
+
         @Override
         public RangerPolicyResourceMatcher getPolicyResourceMatcher() {
             return null;
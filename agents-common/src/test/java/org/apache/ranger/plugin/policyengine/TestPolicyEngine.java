@@ -50,6 +50,7 @@
 import org.apache.ranger.plugin.policyresourcematcher.RangerResourceEvaluator;
 import org.apache.ranger.plugin.service.RangerBasePlugin;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerCommonConstants;
 import org.apache.ranger.plugin.util.RangerRequestedResources;
 import org.apache.ranger.plugin.util.RangerRoles;
 import org.apache.ranger.plugin.util.RangerUserStore;
@@ -69,8 +70,10 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -90,6 +93,9 @@ public class TestPolicyEngine {
     static RangerPluginContext pluginContext;
     static Gson                gsonBuilder;
 
+    private boolean isEvaluateTwice;
+    private boolean isEvaluateInBatch;
+
     @BeforeClass
     public static void setUpBeforeClass() throws Exception {
         pluginContext = new RangerPluginContext(new RangerPluginConfig("hive", null, "hive", "cl1", "on-prem", null));
@@ -414,6 +420,79 @@ public void testPolicyEngine_hdfs_incremental_update_for_wildcard_evaluators() {
         runTestsFromResourceFiles(hdfsTestResourceFiles);
     }
 
+    @Test
+    public void testPolicyEngine_incremental_copyOnWrite() {
+        String[] testResourceFiles = {"/policyengine/test_policyengine_hive_incremental_add.json",
+                "/policyengine/test_policyengine_hive_incremental_delete.json",
+                "/policyengine/test_policyengine_hive_incremental_update.json",
+                "/policyengine/test_policyengine_hdfs_incremental_update.json",
+                "/policyengine/test_policyengine_hdfs_incremental_update_for_wildcard_evaluators.json"};
+
+        RangerPluginConfig config     = pluginContext.getConfig();
+        String             deltasProp = config.getPropertyPrefix() + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_POLICY_DELTA;
+        String             cowProp    = config.getPropertyPrefix() + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_COPY_ON_WRITE_UPDATES;
+
+        config.setBoolean(deltasProp, true);
+        config.setBoolean(cowProp, true);
+
+        try {
+            runTestsFromResourceFiles(testResourceFiles);
+        } finally {
+            config.unset(deltasProp);
+            config.unset(cowProp);
+        }
+    }
+
+    @Test
+    public void testPolicyEngine_accessResultCache() {
+        String[] testResourceFiles = {"/policyengine/test_policyengine_hdfs.json",
+                "/policyengine/test_policyengine_hdfs_zones.json",
+                "/policyengine/test_policyengine_hive.json",
+                "/policyengine/test_policyengine_owner.json",
+                "/policyengine/test_policyengine_with_roles.json",
+                "/policyengine/test_policyengine_super_user_access.json",
+                "/policyengine/test_policyengine_conditions.json",
+                "/policyengine/test_policyengine_hive_incremental_update.json"};
+
+        RangerPluginConfig                   config    = pluginContext.getConfig();
+        String                               cacheProp = config.getPropertyPrefix() + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_RESULT_CACHE_SIZE;
+        RangerAccessResultCache.CacheMetrics metrics   = pluginContext.getAccessResultCacheMetrics();
+        long                                 hitCount  = metrics.getHitCount();
+
+        config.setInt(cacheProp, 1000);
+
+        isEvaluateTwice = true;
+
+        try {
+            runTestsFromResourceFiles(testResourceFiles);
+        } finally {
+            config.unset(cacheProp);
+
+            isEvaluateTwice = false;
+        }
+
+        assertTrue("no result found in cache: " + metrics, metrics.getHitCount() > hitCount);
+    }
+
+    @Test
+    public void testPolicyEngine_batchEvaluation() {
+        String[] testResourceFiles = {"/policyengine/test_policyengine_hdfs.json",
+                "/policyengine/test_policyengine_hdfs_zones.json",
+                "/policyengine/test_policyengine_hive.json",
+                "/policyengine/test_policyengine_hbase.json",
+                "/policyengine/test_policyengine_owner.json",
+                "/policyengine/test_policyengine_with_roles.json",
+                "/policyengine/test_policyengine_hive_incremental_update.json"};
+
+        isEvaluateInBatch = true;
+
+        try {
+            runTestsFromResourceFiles(testResourceFiles);
+        } finally {
+            isEvaluateInBatch = false;
+        }
+    }
+
     @Test
     public void testPolicyEngine_hiveForTag() {
         String[] hiveTestResourceFiles = {"/policyengine/test_policyengine_tag_hive.json"};
@@ -817,6 +896,8 @@ private void runTests(InputStreamReader reader, String testName) {
     }
 
     private void runTestCaseTests(RangerPolicyEngine policyEngine, RangerServiceDef serviceDef, String testName, List<TestData> tests) {
+        Map<RangerAccessRequest, RangerAccessResult> batchResults = Collections.synchronizedMap(new LinkedHashMap<>());
+
         tests.parallelStream().forEach(test -> {
             RangerAccessRequest request = test.request;
 
@@ -907,6 +988,20 @@ private void runTestCaseTests(RangerPolicyEngine policyEngine, RangerServiceDef
                 assertNotNull("result was null! - " + test.name, result);
                 assertEquals("isAllowed mismatched! - " + test.name, expected.getIsAllowed(), result.getIsAllowed());
                 assertEquals("isAudited mismatched! - " + test.name, expected.getIsAudited(), result.getIsAudited());
+
+                if (isEvaluateTwice) { // result of the second evaluation may come from the access-result cache
+                    RangerAccessResult result2 = policyEngine.evaluatePolicies(request, RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+                    policyEngine.evaluateAuditPolicies(result2);
+
+                    assertEquals("isAllowed mismatched in second evaluation! - " + test.name, result.getIsAllowed(), result2.getIsAllowed());
+                    assertEquals("isAudited mismatched in second evaluation! - " + test.name, result.getIsAudited(), result2.getIsAudited());
+                    assertEquals("policyId mismatched in second evaluation! - " + test.name, result.getPolicyId(), result2.getPolicyId());
+                }
+
+                if (isEvaluateInBatch) {
+                    batchResults.put(request, result);
+                }
             }
 
             if (test.dataMaskResult != null) {
@@ -948,6 +1043,20 @@ private void runTestCaseTests(RangerPolicyEngine policyEngine, RangerServiceDef
                 assertEquals("deniedGroups mismatched! - " + test.name, expected.getDeniedGroups(), result.getDeniedGroups());
             }
         });
+
+        if (!batchResults.isEmpty()) { // requests evaluated in one batch must get the same results as when evaluated individually
+            Collection<RangerAccessResult> results = policyEngine.evaluatePolicies(new ArrayList<>(batchResults.keySet()), RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+            for (RangerAccessResult result : results) {
+                RangerAccessResult expected = batchResults.get(result.getAccessRequest());
+
+                policyEngine.evaluateAuditPolicies(result);
+
+                assertEquals("isAllowed mismatched in batch evaluation! - " + result.getAccessRequest(), expected.getIsAllowed(), result.getIsAllowed());
+                assertEquals("isAudited mismatched in batch evaluation! - " + result.getAccessRequest(), expected.getIsAudited(), result.getIsAudited());
+                assertEquals("policyId mismatched in batch evaluation! - " + result.getAccessRequest(), expected.getPolicyId(), result.getPolicyId());
+            }
+        }
     }
 
     private void setPluginConfig(RangerPluginConfig conf, String suffix, Set<String> value) {
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.RangerRoles;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.plugin.util.ServicePolicies.SecurityZoneInfo;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestRangerParallelBuilder {
+    @Test
+    public void testMapPreservesOrder() {
+        List<Integer> items = new ArrayList<>();
+
+        for (int i = 0; i < 10000; i++) {
+            items.add(i);
+        }
+
+        Set<Thread>   threads = ConcurrentHashMap.newKeySet();
+        List<Integer> results = RangerParallelBuilder.map(items, i -> {
+            threads.add(Thread.currentThread());
+
+            // nested calls, as when evaluators of concurrently built repositories are built, run in the same pool
+            return RangerParallelBuilder.map(Arrays.asList(i, i), j -> j * 2, 4, 1).get(1);
+        }, 4, 1);
+
+        assertEquals(items.size(), results.size());
+
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(Integer.valueOf(i * 2), results.get(i));
+        }
+
+        assertTrue(threads.size() > 1);
+        assertEquals(Collections.singletonList("a"), RangerParallelBuilder.map(Collections.singletonList("a"), s -> s, 4, 1));
+
+        try {
+            RangerParallelBuilder.map(items, i -> {
+                if (i == 5000) {
+                    throw new IllegalStateException("failed item " + i);
+                }
+
+                return i;
+            }, 4, 1);
+
+            fail("expected an exception");
+        } catch (IllegalStateException excp) {
+            assertTrue(excp.getMessage().contains("failed item 5000"));
+        }
+    }
+
+    @Test
+    public void testSerialByDefault() {
+        assertEquals(1, new RangerPolicyEngineOptions().builderThreadCount);
+    }
+
+    @Test
+    public void testParallelBuildIsDeterministic() throws Exception {
+        PolicyEngine sequential = createPolicyEngine(1);
+        PolicyEngine parallel   = createPolicyEngine(4);
+
+        assertSameRepository(sequential.getPolicyRepository(), parallel.getPolicyRepository());
+        assertEquals(sequential.getZonePolicyRepositories().keySet(), parallel.getZonePolicyRepositories().keySet());
+
+        for (String zoneName : sequential.getZonePolicyRepositories().keySet()) {
+            assertSameRepository(sequential.getZonePolicyRepositories().get(zoneName), parallel.getZonePolicyRepositories().get(zoneName));
+        }
+
+        Random random = new Random(11);
+
+        for (int i = 0; i < 500; i++) {
+            RangerAccessResourceImpl resource = new RangerAccessResourceImpl();
+
+            resource.setValue("database", "db" + random.nextInt(50));
+            resource.setValue("table", "tbl" + random.nextInt(50));
+
+            RangerAccessRequestImpl request = new RangerAccessRequestImpl(resource, "select", "user" + random.nextInt(10), null, null);
+
+            assertEquals(resource.getAsString(), getPolicyIds(sequential.getPolicyRepository().getLikelyMatchPolicyEvaluators(request)), getPolicyIds(parallel.getPolicyRepository().getLikelyMatchPolicyEvaluators(request)));
+        }
+    }
+
+    private static void assertSameRepository(RangerPolicyRepository expected, RangerPolicyRepository actual) {
+        assertEquals(getPolicyIds(expected.getPolicyEvaluators()), getPolicyIds(actual.getPolicyEvaluators()));
+        assertEquals(getPolicyIds(expected.getDataMaskPolicyEvaluators()), getPolicyIds(actual.getDataMaskPolicyEvaluators()));
+    }
+
+    private static List<Long> getPolicyIds(List<? extends RangerPolicyEvaluator> evaluators) {
+        List<Long> ret = new ArrayList<>(evaluators.size());
+
+        for (RangerPolicyEvaluator evaluator : evaluators) {
+            ret.add(evaluator.getPolicy().getId());
+        }
+
+        return ret;
+    }
+
+    private static PolicyEngine createPolicyEngine(int builderThreadCount) throws Exception {
+        RangerPolicyEngineOptions options = new RangerPolicyEngineOptions();
+
+        options.builderThreadCount = builderThreadCount;
+
+        RangerPluginContext           pluginContext = new RangerPluginContext(new RangerPluginConfig("hive", "cl1_hive", "hive", "cl1", "on-prem", options));
+        ServicePolicies               policies      = new ServicePolicies();
+        Map<String, SecurityZoneInfo> zones         = new HashMap<>();
+        Random                        random        = new Random(7);
+        List<RangerPolicy>            allPolicies   = new ArrayList<>();
+
+        for (int i = 1; i <= 3; i++) {
+            SecurityZoneInfo zone = new SecurityZoneInfo();
+
+            zone.setZoneName("zone" + i);
+            zone.setPolicies(new ArrayList<>());
+            zone.setResources(Collections.singletonList(new HashMap<>(Collections.singletonMap("database", Collections.singletonList("zone" + i + "_db*")))));
+
+            zones.put(zone.getZoneName(), zone);
+        }
+
+        for (long id = 1; id <= 1000; id++) {
+            RangerPolicy     policy = createPolicy(id, random);
+            SecurityZoneInfo zone   = zones.get("zone" + (id % 5));
+
+            if (zone != null) {
+                zone.getPolicies().add(policy);
+            } else {
+                allPolicies.add(policy);
+            }
+        }
+
+        policies.setServiceName("cl1_hive");
+        policies.setServiceDef(EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef("hive"));
+        policies.setPolicyVersion(1L);
+        policies.setPolicies(allPolicies);
+        policies.setSecurityZones(zones);
+
+        return new PolicyEngine(policies, pluginContext, new RangerRoles(), false);
+    }
+
+    private static RangerPolicy createPolicy(long id, Random random) {
+        Map<String, RangerPolicyResource> resources = new HashMap<>();
+
+        resources.put("database", new RangerPolicyResource("db" + random.nextInt(50)));
+        resources.put("table", new RangerPolicyResource(random.nextBoolean() ? "*" : ("tbl" + random.nextInt(50))));
+        resources.put("column", new RangerPolicyResource("*"));
+
+        RangerPolicyItem policyItem = new RangerPolicyItem(Collections.singletonList(new RangerPolicyItemAccess("select")), Collections.singletonList("user" + random.nextInt(10)), null, null, null, false);
+        RangerPolicy     ret        = new RangerPolicy();
+
+        ret.setId(id);
+        ret.setName("policy-" + id);
+        ret.setService("cl1_hive");
+        ret.setPolicyType(RangerPolicy.POLICY_TYPE_ACCESS);
+        ret.setPolicyPriority(random.nextInt(10) == 0 ? RangerPolicy.POLICY_PRIORITY_OVERRIDE : RangerPolicy.POLICY_PRIORITY_NORMAL);
+        ret.setIsEnabled(true);
+        ret.setResources(resources);
+        ret.setPolicyItems(Collections.singletonList(policyItem));
+
+        return ret;
+    }
+}
@@ -36,6 +36,7 @@
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 public class TestRangerSecurityZoneMatcher {
     final RangerPluginContext           pluginContext = new RangerPluginContext(new RangerPluginConfig("hive", null, "hive", "cl1", "on-prem", null));
@@ -82,6 +83,43 @@ public void testZoneMatcher() {
         assertEquals(createSet("", "z3", "z4"), zones);
     }
 
+    @Test
+    public void testZoneMatcherCache() {
+        RangerPolicyEngineOptions options = new RangerPolicyEngineOptions();
+
+        options.zoneMatcherCacheSize = 0;
+
+        RangerSecurityZoneMatcher uncached = new RangerSecurityZoneMatcher(securityZones, serviceDef, new RangerPluginContext(new RangerPluginConfig("hive", null, "hive", "cl1", "on-prem", options)));
+        RangerSecurityZoneMatcher cached   = new RangerSecurityZoneMatcher(securityZones, serviceDef, pluginContext);
+        String[]                  dbs      = {"db1", "db2", "db3", "db4"};
+        String[]                  tables   = {null, "tbl1", "test_1", "user_2", "orders"};
+
+        for (int i = 0; i < 3; i++) { // later iterations are served from the cache
+            for (String db : dbs) {
+                for (String table : tables) {
+                    RangerAccessResource res      = table != null ? createResource("database", db, "table", table) : createResource("database", db);
+                    Set<String>          expected = uncached.getZonesForResourceAndChildren(res);
+
+                    assertEquals(res.getAsString(), expected, cached.getZonesForResourceAndChildren(res));
+                    assertEquals(res.getAsString(), expected, cached.getZonesForResourceAndChildren(res.getAsMap()));
+                }
+            }
+        }
+
+        RangerAccessResource res = createResource("database", "db1", "table", "tbl1");
+
+        assertSame(cached.getZonesForResourceAndChildren(res), cached.getZonesForResourceAndChildren(createResource("database", "db1", "table", "tbl1")));
+        assertEquals(createSet("", "z3", "z4"), cached.getZonesForResourceAndChildren(createResource("database", "db3")));
+    }
+
+    @Test
+    public void testZoneMatcherWithoutZones() {
+        RangerSecurityZoneMatcher zoneMatcher = new RangerSecurityZoneMatcher(Collections.emptyMap(), serviceDef, pluginContext);
+
+        assertNull(zoneMatcher.getZonesForResourceAndChildren(createResource("database", "db1", "table", "tbl1")));
+        assertNull(zoneMatcher.getZonesForResourceAndChildren(Collections.singletonMap("database", "db1")));
+    }
+
     private Map<String, SecurityZoneInfo> createSecurityZones() {
         HashMap<String, List<String>> db1     = TestStringUtil.mapFromStringStringList("database", Collections.singletonList("db1"));
         HashMap<String, List<String>> db2     = TestStringUtil.mapFromStringStringList("database", Collections.singletonList("db2"));
@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.RangerRoles;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.plugin.util.ServicePolicies.SecurityZoneInfo;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerZonePolicyRepositories {
+    private static final String SERVICE_TYPE = "hive";
+    private static final String SERVICE_NAME = "cl1_hive";
+
+    @Test
+    public void testEagerZoneRepositories() throws Exception {
+        PolicyEngine                 policyEngine = createPolicyEngine(createOptions(false, 0, 0, null));
+        RangerZonePolicyRepositories repositories = getZoneRepositories(policyEngine);
+
+        for (String zoneName : repositories.keySet()) {
+            assertNotNull(zoneName, repositories.getIfBuilt(zoneName));
+        }
+
+        assertEquals(3, repositories.getBuildCount());
+        assertEquals(3, repositories.getBuiltRepositories().size());
+    }
+
+    @Test
+    public void testLazyZoneRepositories() throws Exception {
+        PolicyEngine                 policyEngine = createPolicyEngine(createOptions(true, 0, 0, null));
+        RangerZonePolicyRepositories repositories = getZoneRepositories(policyEngine);
+
+        assertEquals(3, repositories.size());
+        assertEquals(0, repositories.getBuildCount());
+        assertEquals(2, policyEngine.getResourcePolicies("zone2").size());
+
+        RangerPolicyRepository repository = policyEngine.getRepositoryForZone("zone2");
+
+        assertNotNull(repository);
+        assertEquals(2, repository.getPolicyEvaluators().size());
+        assertSame(repository, policyEngine.getRepositoryForZone("zone2"));
+        assertEquals(1, repositories.getBuildCount());
+        assertNull(repositories.getIfBuilt("zone1"));
+        assertNull(policyEngine.getRepositoryForZone("unknown-zone"));
+
+        RangerAccessResourceImpl resource = new RangerAccessResourceImpl();
+
+        resource.setValue("database", "zone2_db1");
+
+        assertEquals(Collections.singleton("zone2"), policyEngine.getMatchedZonesForResourceAndChildren(resource));
+    }
+
+    @Test
+    public void testMaxCountAndPrewarmZones() throws Exception {
+        PolicyEngine                 policyEngine = createPolicyEngine(createOptions(true, 1, 0, "zone3, unknown-zone"));
+        RangerZonePolicyRepositories repositories = getZoneRepositories(policyEngine);
+
+        assertNotNull(repositories.getIfBuilt("zone3"));
+        assertNull(repositories.getIfBuilt("zone1"));
+
+        policyEngine.getRepositoryForZone("zone1");
+        policyEngine.getRepositoryForZone("zone2");
+
+        // zone1 is evicted, as the least recently used; zone3, a prewarm zone, is not counted against the limit
+        assertNull(repositories.getIfBuilt("zone1"));
+        assertNotNull(repositories.getIfBuilt("zone2"));
+        assertNotNull(repositories.getIfBuilt("zone3"));
+        assertEquals(1, repositories.getEvictionCount());
+
+        // evicted repository is rebuilt on access
+        assertEquals(1, policyEngine.getRepositoryForZone("zone1").getPolicyEvaluators().size());
+        assertEquals(4, repositories.getBuildCount());
+        assertEquals(2, repositories.getEvictionCount());
+    }
+
+    @Test
+    public void testIdleEviction() throws Exception {
+        PolicyEngine                 policyEngine = createPolicyEngine(createOptions(true, 0, 1, "zone3"));
+        RangerZonePolicyRepositories repositories = getZoneRepositories(policyEngine);
+
+        policyEngine.getRepositoryForZone("zone1");
+
+        Thread.sleep(2100);
+
+        policyEngine.getRepositoryForZone("zone2");
+
+        assertNull(repositories.getIfBuilt("zone1"));
+        assertNotNull(repositories.getIfBuilt("zone2"));
+        assertNotNull(repositories.getIfBuilt("zone3"));
+        assertEquals(1, repositories.getEvictionCount());
+    }
+
+    @Test
+    public void testDeltasToUnbuiltZone() throws Exception {
+        PolicyEngine policyEngine = createPolicyEngine(createOptions(true, 0, 0, null));
+
+        policyEngine.getRepositoryForZone("zone2");
+
+        ServicePolicies               deltas = new ServicePolicies();
+        Map<String, SecurityZoneInfo> zones  = new HashMap<>();
+        RangerPolicy                  policy = createPolicy(100L, "zone1_db2");
+
+        for (String zoneName : policyEngine.getZonePolicyRepositories().keySet()) {
+            SecurityZoneInfo zone = new SecurityZoneInfo();
+
+            zone.setZoneName(zoneName);
+            zone.setPolicies(new ArrayList<>());
+            zone.setPolicyDeltas(new ArrayList<>());
+            zone.setResources(Collections.singletonList(new HashMap<>(Collections.singletonMap("database", Collections.singletonList(zoneName + "_db*")))));
+
+            zones.put(zoneName, zone);
+        }
+
+        policy.setZoneName("zone1");
+        zones.get("zone1").getPolicyDeltas().add(new RangerPolicyDelta(1L, RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, 2L, policy));
+
+        deltas.setServiceName(SERVICE_NAME);
+        deltas.setServiceDef(policyEngine.getServiceDef());
+        deltas.setPolicyVersion(2L);
+        deltas.setPolicyDeltas(new ArrayList<>());
+        deltas.setSecurityZones(zones);
+
+        PolicyEngine                 updated      = policyEngine.cloneWithDelta(deltas);
+        RangerZonePolicyRepositories repositories = getZoneRepositories(updated);
+
+        assertNotNull(updated);
+        assertNull(repositories.getIfBuilt("zone1"));
+        assertSame(getZoneRepositories(policyEngine).getIfBuilt("zone2"), repositories.getIfBuilt("zone2"));
+        assertEquals(2, updated.getResourcePolicies("zone1").size());
+        assertEquals(1, policyEngine.getResourcePolicies("zone1").size());
+        assertEquals(2, updated.getRepositoryForZone("zone1").getPolicyEvaluators().size());
+        assertFalse(updated.getZonePolicyRepositories().containsKey("unknown-zone"));
+        assertTrue(updated.getZonePolicyRepositories().containsKey("zone3"));
+    }
+
+    @Test
+    public void testAnyAccessToAllZones() throws Exception {
+        ServicePolicies policies    = createServicePolicies();
+        RangerPolicy    zone3Policy = createPolicy(100L, "zone3_db9");
+
+        zone3Policy.setZoneName("zone3");
+        zone3Policy.getPolicyItems().get(0).setUsers(Collections.singletonList("zone3_user"));
+        policies.getSecurityZones().get("zone3").getPolicies().add(zone3Policy);
+
+        RangerPolicyEngineImpl       engine       = new RangerPolicyEngineImpl(policies, createPluginContext(createOptions(true, 1, 0, null)), new RangerRoles());
+        PolicyEngine                 policyEngine = engine.getPolicyEngine();
+        RangerZonePolicyRepositories repositories = getZoneRepositories(policyEngine);
+
+        policyEngine.getRepositoryForZone("zone1");
+
+        // ANY access to an empty resource, denied by default policies, is evaluated against all zones
+        RangerAccessResult result = engine.evaluatePolicies(new RangerAccessRequestImpl(new RangerAccessResourceImpl(), RangerPolicyEngine.ANY_ACCESS, "user2", null, null), RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+        assertFalse(result.getIsAllowed());
+        assertEquals(3, repositories.getBuildCount());
+        assertEquals(0, repositories.getEvictionCount());
+        assertNotNull(repositories.getIfBuilt("zone1")); // built repositories are retained up to maxCount, and not evicted
+        assertNull(repositories.getIfBuilt("zone2"));
+        assertNull(repositories.getIfBuilt("zone3"));
+
+        result = engine.evaluatePolicies(new RangerAccessRequestImpl(new RangerAccessResourceImpl(), RangerPolicyEngine.ANY_ACCESS, "zone3_user", null, null), RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+        assertTrue(result.getIsAllowed());
+        assertEquals("zone3", result.getZoneName());
+        assertEquals(0, repositories.getEvictionCount());
+        assertNotNull(repositories.getIfBuilt("zone1"));
+    }
+
+    private static RangerZonePolicyRepositories getZoneRepositories(PolicyEngine policyEngine) {
+        return (RangerZonePolicyRepositories) policyEngine.getZonePolicyRepositories();
+    }
+
+    private static RangerPolicyEngineOptions createOptions(boolean lazy, int maxCount, int idleTimeoutSecs, String prewarmZones) {
+        RangerPolicyEngineOptions ret = new RangerPolicyEngineOptions();
+
+        ret.lazyZoneRepositories          = lazy;
+        ret.zoneRepositoryMaxCount        = maxCount;
+        ret.zoneRepositoryIdleTimeoutSecs = idleTimeoutSecs;
+        ret.zoneRepositoryPrewarmZones    = prewarmZones;
+
+        return ret;
+    }
+
+    private static PolicyEngine createPolicyEngine(RangerPolicyEngineOptions options) throws Exception {
+        return new PolicyEngine(createServicePolicies(), createPluginContext(options), new RangerRoles(), false);
+    }
+
+    private static RangerPluginContext createPluginContext(RangerPolicyEngineOptions options) throws Exception {
+        return new RangerPluginContext(new RangerPluginConfig(SERVICE_TYPE, SERVICE_NAME, SERVICE_TYPE, "cl1", "on-prem", options));
+    }
+
+    // zone<n> has n policies
+    private static ServicePolicies createServicePolicies() throws Exception {
+        ServicePolicies               policies = new ServicePolicies();
+        Map<String, SecurityZoneInfo> zones    = new HashMap<>();
+        long                          policyId = 1;
+
+        for (int i = 1; i <= 3; i++) {
+            SecurityZoneInfo   zone         = new SecurityZoneInfo();
+            List<RangerPolicy> zonePolicies = new ArrayList<>();
+
+            for (int j = 1; j <= i; j++) {
+                RangerPolicy policy = createPolicy(policyId++, "zone" + i + "_db" + j);
+
+                policy.setZoneName("zone" + i);
+
+                zonePolicies.add(policy);
+            }
+
+            zone.setZoneName("zone" + i);
+            zone.setPolicies(zonePolicies);
+            zone.setResources(Collections.singletonList(new HashMap<>(Collections.singletonMap("database", Collections.singletonList("zone" + i + "_db*")))));
+
+            zones.put(zone.getZoneName(), zone);
+        }
+
+        policies.setServiceName(SERVICE_NAME);
+        policies.setServiceDef(EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(SERVICE_TYPE));
+        policies.setPolicyVersion(1L);
+        policies.setPolicies(Collections.singletonList(createPolicy(policyId, "default_db")));
+        policies.setSecurityZones(zones);
+
+        return policies;
+    }
+
+    private static RangerPolicy createPolicy(long id, String database) {
+        Map<String, RangerPolicyResource> resources = new HashMap<>();
+
+        resources.put("database", new RangerPolicyResource(database));
+        resources.put("table", new RangerPolicyResource("*"));
+        resources.put("column", new RangerPolicyResource("*"));
+
+        RangerPolicyItem policyItem = new RangerPolicyItem(Collections.singletonList(new RangerPolicyItemAccess("select")), Collections.singletonList("user1"), null, null, null, false);
+        RangerPolicy     ret        = new RangerPolicy();
+
+        ret.setId(id);
+        ret.setName("policy-" + id);
+        ret.setService(SERVICE_NAME);
+        ret.setServiceType(SERVICE_TYPE);
+        ret.setPolicyType(RangerPolicy.POLICY_TYPE_ACCESS);
+        ret.setIsEnabled(true);
+        ret.setResources(resources);
+        ret.setPolicyItems(Collections.singletonList(policyItem));
+
+        return ret;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyevaluator;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class TestRangerPolicyItemEvaluatorIndex {
+    @Test
+    public void testCandidates() {
+        List<RangerPolicyItemEvaluator> evaluators = Arrays.asList(
+                createEvaluator(Arrays.asList("user1", "user2"), null, null),
+                createEvaluator(null, Collections.singletonList("group1"), null),
+                createEvaluator(null, null, Collections.singletonList("role1")),
+                createEvaluator(Collections.singletonList(RangerPolicyEngine.RESOURCE_OWNER), null, null),
+                createEvaluator(Collections.singletonList("user1"), Collections.singletonList("group2"), null),
+                createEvaluator(null, Collections.singletonList(RangerPolicyEngine.GROUP_PUBLIC), null),
+                createEvaluator(null, null, null));
+
+        assertNull(RangerPolicyItemEvaluatorIndex.create(evaluators, evaluators.size() + 1));
+
+        RangerPolicyItemEvaluatorIndex index = RangerPolicyItemEvaluatorIndex.create(evaluators, evaluators.size());
+
+        assertNotNull(index);
+        assertEquals(bits(0, 3, 4, 5), index.getCandidates("user1", null, null));
+        assertEquals(bits(1, 2, 3, 4, 5), index.getCandidates("user3", new HashSet<>(Arrays.asList("group1", "group2")), Collections.singleton("role1")));
+        assertEquals(bits(3, 5), index.getCandidates(null, Collections.singleton("group3"), Collections.singleton("role2")));
+    }
+
+    @Test
+    public void testFirstMatchIsPreserved() {
+        Random                          random     = new Random(7);
+        List<RangerPolicyItemEvaluator> evaluators = new ArrayList<>();
+
+        for (int i = 0; i < 500; i++) {
+            evaluators.add(createEvaluator(names("user", random, 3), names("group", random, 2), names("role", random, 1)));
+        }
+
+        evaluators.add(120, createEvaluator(null, Collections.singletonList(RangerPolicyEngine.GROUP_PUBLIC), null));
+        evaluators.add(300, createEvaluator(Collections.singletonList(RangerPolicyEngine.USER_CURRENT), null, null));
+
+        RangerPolicyItemEvaluatorIndex index = RangerPolicyItemEvaluatorIndex.create(evaluators, 1);
+
+        for (int i = 0; i < 1000; i++) {
+            String      user   = "user" + random.nextInt(400);
+            Set<String> groups = new HashSet<>(names("group", random, 3));
+            Set<String> roles  = new HashSet<>(names("role", random, 2));
+            String      owner  = random.nextBoolean() ? user : null;
+
+            RangerPolicyItemEvaluator expected = null;
+
+            for (RangerPolicyItemEvaluator evaluator : evaluators) {
+                if (evaluator.matchUserGroupAndOwner(user, groups, roles, owner)) {
+                    expected = evaluator;
+
+                    break;
+                }
+            }
+
+            RangerPolicyItemEvaluator actual     = null;
+            BitSet                    candidates = index.getCandidates(user, groups, roles);
+
+            for (int j = candidates.nextSetBit(0); j >= 0; j = candidates.nextSetBit(j + 1)) {
+                if (evaluators.get(j).matchUserGroupAndOwner(user, groups, roles, owner)) {
+                    actual = evaluators.get(j);
+
+                    break;
+                }
+            }
+
+            assertEquals(user + ", " + groups + ", " + roles, expected, actual);
+        }
+    }
+
+    private static RangerPolicyItemEvaluator createEvaluator(List<String> users, List<String> groups, List<String> roles) {
+        RangerPolicyItem policyItem = new RangerPolicyItem(Collections.singletonList(new RangerPolicyItemAccess("select")), users, groups, roles, null, false);
+        RangerPolicy     policy     = new RangerPolicy();
+
+        policy.setId(1L);
+        policy.setPolicyItems(Collections.singletonList(policyItem));
+
+        RangerPolicyItemEvaluator ret = new RangerDefaultPolicyItemEvaluator(new RangerServiceDef(), policy, policyItem, RangerPolicyItemEvaluator.POLICY_ITEM_TYPE_ALLOW, 1, new RangerPolicyEngineOptions());
+
+        ret.init();
+
+        return ret;
+    }
+
+    private static List<String> names(String prefix, Random random, int count) {
+        List<String> ret = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            ret.add(prefix + random.nextInt(400));
+        }
+
+        return ret;
+    }
+
+    private static BitSet bits(int... positions) {
+        BitSet ret = new BitSet();
+
+        for (int position : positions) {
+            ret.set(position);
+        }
+
+        return ret;
+    }
+}
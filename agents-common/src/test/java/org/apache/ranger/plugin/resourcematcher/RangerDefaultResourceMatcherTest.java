@@ -27,7 +27,10 @@
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceElementMatchType.NONE;
@@ -113,6 +116,61 @@ public class RangerDefaultResourceMatcherTest {
 
     @Test
     public void testIsMatch() {
+        testIsMatch(false);
+    }
+
+    @Test
+    public void testIsMatchCompiled() {
+        testIsMatch(true);
+    }
+
+    @Test
+    public void testIsPrefixMatch() {
+        testIsPrefixMatch(false);
+    }
+
+    @Test
+    public void testIsPrefixMatchCompiled() {
+        testIsPrefixMatch(true);
+    }
+
+    @Test
+    public void testCompiledMatchersWithMultipleValues() {
+        List<String>        policyValues   = Arrays.asList("sales", "fin*", "*_tmp", "HR", "a?c", "data*set", "{USER}", "\"Quoted\"", "caf\u00e9", "*ev*_?", "log_*_20*", "\"Q*d\"", "t*?x");
+        List<String>        resourceValues = Arrays.asList("sales", "SALES", "Sales", "sale", "finance", "FIN", "fi", "x_tmp", "X_TMP", "_tmp", "hr", "Hr", "abc", "ABC", "ac",
+                "data_set", "DATASET", "user1", "USER1", "\"Quoted\"", "\"quoted\"", "caf\u00e9", "CAF\u00c9", "\u017fales", "\u0130", "", "dev_1", "DEV_1", "prev_env_2",
+                "dev_12", "log_app_2023", "LOG_x_20", "log_2023", "\"Qd\"", "\"qd\"", "tax", "TAX", "taax", "\u00e9v_1");
+        List<String>        quoteChars     = Arrays.asList("\"", "'");
+        Map<String, Object> evalContext    = new HashMap<>();
+
+        RangerAccessRequestUtil.setCurrentUserInContext(evalContext, "user1");
+
+        for (boolean ignoreCase : new boolean[] {false, true}) {
+            for (boolean quotedCaseSensitive : new boolean[] {false, true}) {
+                for (boolean excludes : new boolean[] {false, true}) {
+                    MatcherWrapper interpreted = new MatcherWrapper(policyValues, excludes, ignoreCase, quotedCaseSensitive, false);
+                    MatcherWrapper compiled    = new MatcherWrapper(policyValues, excludes, ignoreCase, quotedCaseSensitive, true);
+
+                    for (ResourceElementMatchingScope matchScope : ResourceElementMatchingScope.values()) {
+                        for (String resourceValue : resourceValues) {
+                            String message = "resource=" + resourceValue + ", ignoreCase=" + ignoreCase + ", quotedCaseSensitive=" + quotedCaseSensitive + ", excludes=" + excludes + ", matchScope=" + matchScope;
+
+                            assertEquals(message, interpreted.getMatchType(resourceValue, matchScope, evalContext), compiled.getMatchType(resourceValue, matchScope, evalContext));
+                        }
+
+                        for (String quoteChar : quoteChars) {
+                            List<String> resource = Arrays.asList("none", quoteChar + "Quoted" + quoteChar);
+                            String       message  = "resource=" + resource + ", ignoreCase=" + ignoreCase + ", quotedCaseSensitive=" + quotedCaseSensitive + ", excludes=" + excludes + ", matchScope=" + matchScope;
+
+                            assertEquals(message, interpreted.getMatchType(resource, matchScope, evalContext), compiled.getMatchType(resource, matchScope, evalContext));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void testIsMatch(boolean compileMatchers) {
         ResourceElementMatchingScope matchScope = ResourceElementMatchingScope.SELF;
 
         for (Object[] row : data) {
@@ -126,15 +184,14 @@ public void testIsMatch() {
 
             RangerAccessRequestUtil.setCurrentUserInContext(evalContext, user);
 
-            MatcherWrapper matcher = new MatcherWrapper(policyValue, excludes);
+            MatcherWrapper matcher = new MatcherWrapper(getPolicyValues(policyValue, compileMatchers), excludes, false, false, compileMatchers);
 
             assertEquals(getMessage(row), matchType, matcher.getMatchType(resource, matchScope, evalContext));
             assertEquals(getMessage(row), result, matcher.isMatch(resource, matchScope, evalContext));
         }
     }
 
-    @Test
-    public void testIsPrefixMatch() {
+    private void testIsPrefixMatch(boolean compileMatchers) {
         ResourceElementMatchingScope matchScope = ResourceElementMatchingScope.SELF_OR_PREFIX;
 
         for (Object[] row : dataForPrefixMatch) {
@@ -148,25 +205,32 @@ public void testIsPrefixMatch() {
 
             RangerAccessRequestUtil.setCurrentUserInContext(evalContext, user);
 
-            MatcherWrapper matcher = new MatcherWrapper(policyValue, excludes);
+            MatcherWrapper matcher = new MatcherWrapper(getPolicyValues(policyValue, compileMatchers), excludes, false, false, compileMatchers);
 
             assertEquals(getMessage(row), matchType, matcher.getMatchType(resource, matchScope, evalContext));
             assertEquals(getMessage(row), result, matcher.isMatch(resource, matchScope, evalContext));
         }
     }
 
+    // values are compiled only when there are a few of them: add values that don't match any resource in the tests
+    List<String> getPolicyValues(String policyValue, boolean compileMatchers) {
+        return compileMatchers ? Arrays.asList(policyValue, "zz0", "zz1", "zz2") : Collections.singletonList(policyValue);
+    }
+
     String getMessage(Object[] row) {
         return String.format("Resource=%s, Policy=%s, excludes=%s, matchScope=%s, matchType=%s, result=%s",
                 row[0], row[1], row[2], row[3], row[4], row[5]);
     }
 
     static class MatcherWrapper extends RangerDefaultResourceMatcher {
-        MatcherWrapper(String policyValue, boolean exclude) {
+        MatcherWrapper(List<String> policyValues, boolean exclude, boolean ignoreCase, boolean quotedCaseSensitive, boolean compileMatchers) {
             RangerResourceDef   resourceDef    = new RangerResourceDef();
             Map<String, String> matcherOptions = new HashMap<>();
 
-            matcherOptions.put(OPTION_WILD_CARD, Boolean.toString(policyValue.contains(WILDCARD_ASTERISK) || policyValue.contains(WILDCARD_QUESTION_MARK)));
-            matcherOptions.put(OPTION_IGNORE_CASE, Boolean.toString(false));
+            matcherOptions.put(OPTION_WILD_CARD, Boolean.toString(policyValues.stream().anyMatch(policyValue -> policyValue.contains(WILDCARD_ASTERISK) || policyValue.contains(WILDCARD_QUESTION_MARK))));
+            matcherOptions.put(OPTION_IGNORE_CASE, Boolean.toString(ignoreCase));
+            matcherOptions.put(OPTION_QUOTED_CASE_SENSITIVE, Boolean.toString(quotedCaseSensitive));
+            matcherOptions.put(OPTION_QUOTE_CHARS, "\"'");
 
             resourceDef.setMatcherOptions(matcherOptions);
 
@@ -174,8 +238,9 @@ static class MatcherWrapper extends RangerDefaultResourceMatcher {
 
             RangerPolicy.RangerPolicyResource policyResource = new RangerPolicy.RangerPolicyResource();
             policyResource.setIsExcludes(exclude);
-            policyResource.setValues(Lists.newArrayList(policyValue));
+            policyResource.setValues(Lists.newArrayList(policyValues));
             setPolicyResource(policyResource);
+            setCompileMatchers(compileMatchers);
 
             init();
         }
@@ -26,8 +26,10 @@
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
@@ -206,6 +208,34 @@ public void testIsMatchForSelfOrPrefixScope() {
         }
     }
 
+    @Test
+    public void testCompiledMatchersWithMultipleValues() {
+        List<String>        policyValues   = Arrays.asList("/app/hive", "/app/hbase/", "/tmp/*", "*.tmp", "/data/*/2023", "/user/?ob/*", "/Logs/*/app*/", "/x*?y", "/etc/{USER}");
+        List<String>        resourceValues = Arrays.asList("/app/hive", "/APP/Hive", "/app/hive/", "/app/hive/test.db", "/app/hive2", "/app/hbase", "/app/hbase/t1", "/tmp", "/tmp/", "/tmp/x",
+                "/TMP/x", "a.tmp", "/a/b.TMP", "/data/sales/2023", "/data/sales/2023/q1", "/data//sales//2023/q1", "/data/sales/x/2023/q1", "/data/sales/2024", "/user/bob/f1", "/user/Job",
+                "/user/robert/f1", "/logs/1/app1", "/logs/1/app1/f1", "/logs/1/app1/", "/xay", "/xy", "/x/y", "/etc/user1", "/ETC/USER1/f1", "/", "//", "", "/caf\u00e9/x.tmp");
+        Map<String, Object> evalContext    = new HashMap<>();
+
+        RangerAccessRequestUtil.setCurrentUserInContext(evalContext, "user1");
+
+        for (boolean optWildcard : new boolean[] {false, true}) {
+            for (boolean isRecursive : new boolean[] {false, true}) {
+                for (boolean ignoreCase : new boolean[] {false, true}) {
+                    MatcherWrapper interpreted = new MatcherWrapper(policyValues, optWildcard, isRecursive, ignoreCase, false);
+                    MatcherWrapper compiled    = new MatcherWrapper(policyValues, optWildcard, isRecursive, ignoreCase, true);
+
+                    for (ResourceElementMatchingScope matchScope : ResourceElementMatchingScope.values()) {
+                        for (String resourceValue : resourceValues) {
+                            String message = "resource=" + resourceValue + ", optWildcard=" + optWildcard + ", recursive=" + isRecursive + ", ignoreCase=" + ignoreCase + ", matchScope=" + matchScope;
+
+                            assertEquals(message, interpreted.getMatchType(resourceValue, matchScope, evalContext), compiled.getMatchType(resourceValue, matchScope, evalContext));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     String getMessage(Object[] row) {
         return String.format("Resource=%s, Policy=%s, optWildcard=%s, recursive=%s, result=%s", row[0], row[1], row[2], row[3], row[4]);
     }
@@ -227,5 +257,26 @@ static class MatcherWrapper extends RangerPathResourceMatcher {
 
             init();
         }
+
+        MatcherWrapper(List<String> policyValues, boolean optWildcard, boolean isRecursive, boolean ignoreCase, boolean compileMatchers) {
+            RangerResourceDef   resourceDef    = new RangerResourceDef();
+            Map<String, String> matcherOptions = new HashMap<>();
+
+            matcherOptions.put(OPTION_WILD_CARD, Boolean.toString(optWildcard));
+            matcherOptions.put(OPTION_IGNORE_CASE, Boolean.toString(ignoreCase));
+
+            resourceDef.setMatcherOptions(matcherOptions);
+
+            setResourceDef(resourceDef);
+
+            RangerPolicy.RangerPolicyResource policyResource = new RangerPolicy.RangerPolicyResource();
+
+            policyResource.setIsRecursive(isRecursive);
+            policyResource.setValues(policyValues);
+            setPolicyResource(policyResource);
+            setCompileMatchers(compileMatchers);
+
+            init();
+        }
     }
 }
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.resourcematcher;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOCase;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WildcardAutomatonTest {
+    private static final char[] PATTERN_CHARS  = {'a', 'b', '/', '*', '?'};
+    private static final char[] RESOURCE_CHARS = {'a', 'b', '/', '\u00e9'};
+
+    @Test
+    public void testIsMatch() {
+        WildcardAutomaton automaton = new WildcardAutomaton(Arrays.asList("sales_*_2023", "fin?nce", "*.tmp", "db*/tbl*/*"), null);
+
+        assertTrue(automaton.isMatch("sales_us_2023"));
+        assertTrue(automaton.isMatch("sales__2023"));
+        assertTrue(automaton.isMatch("sales_2023_2023"));
+        assertTrue(automaton.isMatch("finance"));
+        assertTrue(automaton.isMatch("x.tmp"));
+        assertTrue(automaton.isMatch(".tmp"));
+        assertTrue(automaton.isMatch("db1/tbl1/col1"));
+        assertTrue(automaton.isMatch("db1/x/tbl1/"));
+        assertFalse(automaton.isMatch("sales_2023"));
+        assertFalse(automaton.isMatch("sales_us_2024"));
+        assertFalse(automaton.isMatch("finnance"));
+        assertFalse(automaton.isMatch("x.tmp1"));
+        assertFalse(automaton.isMatch("db1/tbl1"));
+        assertFalse(automaton.isMatch(""));
+    }
+
+    @Test
+    public void testIsMatchPath() {
+        WildcardAutomaton automaton = new WildcardAutomaton(Arrays.asList("/app/*/data", "/tmp/user?"), '/');
+
+        assertTrue(automaton.isMatch("/app/hive/data"));
+        assertTrue(automaton.isMatch("/app/hive/data/file1"));
+        assertTrue(automaton.isMatch("/app/hive/x/data/file1"));
+        assertTrue(automaton.isMatch("//app//hive///data//file1"));
+        assertTrue(automaton.isMatch("/tmp/user1/file1"));
+        assertFalse(automaton.isMatch("/app/hive/data1"));
+        assertFalse(automaton.isMatch("/tmp/user12"));
+        assertFalse(automaton.isMatch("/tmp"));
+    }
+
+    @Test
+    public void testIsMatchRandom() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 2000; i++) {
+            List<String> patterns     = new ArrayList<>();
+            List<String> pathPatterns = new ArrayList<>(); // RangerPathResourceMatcher uses isRecursiveWildCardMatch() only for values with wildcards
+
+            for (int j = random.nextInt(8) + 1; j > 0; j--) {
+                String pattern = randomString(random, PATTERN_CHARS, 1 + random.nextInt(8));
+
+                patterns.add(pattern);
+
+                if (StringUtils.containsAny(pattern, "*?")) {
+                    pathPatterns.add(pattern);
+                }
+            }
+
+            WildcardAutomaton automaton     = new WildcardAutomaton(patterns, null);
+            WildcardAutomaton pathAutomaton = new WildcardAutomaton(pathPatterns, '/');
+
+            for (int j = 0; j < 100; j++) {
+                String resource = randomString(random, RESOURCE_CHARS, random.nextInt(10));
+
+                assertEquals("patterns=" + patterns + ", resource=" + resource, isAnyWildcardMatch(patterns, resource), automaton.isMatch(resource));
+
+                if (!resource.isEmpty() && !resource.endsWith("/")) {
+                    assertEquals("path patterns=" + pathPatterns + ", resource=" + resource, isAnyRecursiveWildcardMatch(pathPatterns, resource), pathAutomaton.isMatch(resource));
+                }
+            }
+        }
+    }
+
+    private static boolean isAnyWildcardMatch(List<String> patterns, String resource) {
+        for (String pattern : patterns) {
+            if (FilenameUtils.wildcardMatch(resource, pattern, IOCase.SENSITIVE)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isAnyRecursiveWildcardMatch(List<String> patterns, String resource) {
+        for (String pattern : patterns) {
+            if (RangerPathResourceMatcher.isRecursiveWildCardMatch(resource, pattern, '/', IOCase.SENSITIVE, StringUtils.split(pattern, '/'))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String randomString(Random random, char[] chars, int length) {
+        StringBuilder sb = new StringBuilder(length);
+
+        for (int i = 0; i < length; i++) {
+            sb.append(chars[random.nextInt(chars.length)]);
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.ranger.plugin.contextenricher.RangerServiceResourceMatcher;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceElementMatchingScope;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestCachedResourceEvaluators {
+    private static final Map<String, ResourceElementMatchingScope> SCOPES     = Collections.emptyMap();
+    private static final Collection<RangerServiceResourceMatcher>  EVALUATORS = Collections.emptyList();
+
+    @Test
+    public void testAdmission() {
+        CachedResourceEvaluators cache = new CachedResourceEvaluators(4, 0, 2);
+
+        for (int i = 0; i < 4; i++) {
+            cache.cacheEvaluators("database=hot" + i, SCOPES, EVALUATORS);
+        }
+
+        assertEquals(4, cache.size());
+
+        // one-off resources are not admitted to a full cache
+        for (int i = 0; i < 100; i++) {
+            String resource = "path=/tmp/job/file" + i;
+
+            assertNull(cache.getEvaluators(resource, SCOPES));
+
+            cache.cacheEvaluators(resource, SCOPES, EVALUATORS);
+        }
+
+        assertEquals(4, cache.size());
+        assertEquals(100, cache.getMetrics().getRejectionCount());
+
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(cache.getEvaluators("database=hot" + i, SCOPES));
+        }
+
+        // a resource looked up repeatedly is admitted, evicting another entry
+        assertNull(cache.getEvaluators("database=warm", SCOPES));
+        assertNull(cache.getEvaluators("database=warm", SCOPES));
+
+        cache.cacheEvaluators("database=warm", SCOPES, EVALUATORS);
+
+        assertNotNull(cache.getEvaluators("database=warm", SCOPES));
+        assertTrue(cache.size() <= 4);
+        assertTrue(cache.getMetrics().getEvictionCount() > 0);
+        assertEquals(5, cache.getMetrics().getPutCount());
+        assertEquals(5, cache.getMetrics().getHitCount());
+        assertEquals(102, cache.getMetrics().getMissCount());
+    }
+
+    @Test
+    public void testMemoryLimit() {
+        CachedResourceEvaluators cache = new CachedResourceEvaluators(100000, 64 * 1024, 1);
+
+        for (int i = 0; i < 10000; i++) {
+            cache.cacheEvaluators("database=db" + i + "/table=tbl" + i, SCOPES, EVALUATORS);
+
+            assertTrue(cache.getMemoryBytes() <= 64 * 1024);
+        }
+
+        assertTrue(cache.size() < 10000);
+        assertEquals(10000 - cache.size(), cache.getMetrics().getEvictionCount());
+
+        cache.clearCache();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getMemoryBytes());
+    }
+
+    @Test
+    public void testRemoveForResources() {
+        CachedResourceEvaluators cache = new CachedResourceEvaluators();
+
+        for (String resource : Arrays.asList("database=db1", "database=db1/table=t1", "database=db1/table=t1/column=c1", "database=DB1/table=t2", "database=db10", "database=db2")) {
+            cache.cacheEvaluators(resource, SCOPES, EVALUATORS);
+        }
+
+        assertEquals(3, cache.removeCacheEvaluatorsForResources(new HashSet<>(Collections.singletonList("database=db1/table=T1"))));
+        assertEquals(new HashSet<>(Arrays.asList("database=DB1/table=t2", "database=db10", "database=db2")), getCachedResources(cache, "database=db1", "database=db1/table=t1", "database=db1/table=t1/column=c1", "database=DB1/table=t2", "database=db10", "database=db2"));
+        assertEquals(3, cache.getMetrics().getInvalidationCount());
+    }
+
+    @Test
+    public void testMetricsSource() {
+        CachedResourceEvaluators      cache   = new CachedResourceEvaluators();
+        Supplier<Map<String, Object>> source  = cache::getMetricsValues;
+        Supplier<Map<String, Object>> source2 = cache::getMetricsValues;
+        String                        name    = "test.evaluatorsCache." + System.nanoTime();
+
+        cache.cacheEvaluators("database=db1", SCOPES, EVALUATORS);
+        cache.getEvaluators("database=db1", SCOPES);
+
+        RangerMetricsUtil.registerMetricsSource(name, source);
+
+        Map<String, Object> values = (Map<String, Object>) RangerMetricsUtil.getMetricsSourceValues().get(name);
+
+        assertEquals(1, values.get("size"));
+        assertEquals(1L, values.get("hits"));
+        assertTrue(((Map<?, ?>) new RangerMetricsUtil().getVMStatus().getData().get("components")).containsKey(name));
+
+        RangerMetricsUtil.unregisterMetricsSource(name, source2); // not the registered source
+
+        assertTrue(RangerMetricsUtil.getMetricsSourceValues().containsKey(name));
+
+        RangerMetricsUtil.unregisterMetricsSource(name, source);
+
+        assertFalse(RangerMetricsUtil.getMetricsSourceValues().containsKey(name));
+    }
+
+    @Test
+    public void testFrequencySketch() {
+        CachedResourceEvaluators.FrequencySketch sketch = new CachedResourceEvaluators.FrequencySketch(16);
+
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("hot");
+        }
+
+        sketch.increment("warm");
+
+        assertTrue(sketch.frequency("hot") >= 5);
+        assertTrue(sketch.frequency("warm") >= 1);
+
+        // counters are halved after 10 x maxEntries increments, so that old lookups are forgotten
+        for (int i = 0; i < 160; i++) {
+            sketch.increment("other" + i);
+        }
+
+        assertTrue(sketch.frequency("hot") < 5);
+    }
+
+    private static Collection<String> getCachedResources(CachedResourceEvaluators cache, String... resources) {
+        Collection<String> ret = new HashSet<>();
+
+        for (String resource : resources) {
+            if (cache.getEvaluators(resource, SCOPES) != null) {
+                ret.add(resource);
+            }
+        }
+
+        return ret;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.ranger.authorization.utils.JsonUtils;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestRangerCacheFileUtil {
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        ServicePolicies policies   = readResource("/policyengine/comparison/success/myServicePolicies.json", ServicePolicies.class);
+        ServiceTags     tags       = readResource("/policyengine/comparison/success/myServiceTags.json", ServiceTags.class);
+        File            jsonFile   = File.createTempFile("ranger_cache_test", ".json");
+        File            binaryFile = File.createTempFile("ranger_cache_test", ".json");
+
+        jsonFile.deleteOnExit();
+        binaryFile.deleteOnExit();
+
+        for (Object obj : new Object[] {policies, tags}) {
+            RangerCacheFileUtil.saveToFile(jsonFile, obj, false);
+            RangerCacheFileUtil.saveToFile(binaryFile, obj, true);
+
+            assertTrue("binary cache file must be smaller than JSON", binaryFile.length() < jsonFile.length());
+            assertEquals(JsonUtils.objectToJson(obj), JsonUtils.objectToJson(RangerCacheFileUtil.loadFromFile(jsonFile, obj.getClass())));
+            assertEquals(JsonUtils.objectToJson(obj), JsonUtils.objectToJson(RangerCacheFileUtil.loadFromFile(binaryFile, obj.getClass())));
+        }
+
+        RangerCacheFileUtil.saveToFile(binaryFile, policies, true);
+
+        ServicePolicies loaded = RangerCacheFileUtil.loadFromFile(binaryFile, ServicePolicies.class);
+
+        assertTrue(loaded.getPolicies().size() > 1);
+
+        for (RangerPolicy policy : loaded.getPolicies()) {
+            assertSame("strings in binary cache must be shared", loaded.getServiceName(), policy.getService());
+        }
+    }
+
+    @Test
+    public void testLoadTruncatedFile() throws Exception {
+        ServicePolicies policies = readResource("/policyengine/comparison/success/myServicePolicies.json", ServicePolicies.class);
+        File            file     = File.createTempFile("ranger_cache_test", ".json");
+
+        file.deleteOnExit();
+
+        RangerCacheFileUtil.saveToFile(file, policies, true);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+
+        try {
+            RangerCacheFileUtil.loadFromFile(file, ServicePolicies.class);
+
+            fail("loading truncated cache file must fail");
+        } catch (IOException excp) {
+            // expected
+        }
+
+        File[] tmpFiles = file.getParentFile().listFiles((dir, name) -> name.startsWith("ranger_cache_") && name.endsWith(".tmp"));
+
+        assertNotNull(tmpFiles);
+        assertFalse("temporary files must not be left behind", tmpFiles.length > 0);
+    }
+
+    private <T> T readResource(String resourceName, Class<T> clz) throws IOException {
+        try (InputStream inStream = this.getClass().getResourceAsStream(resourceName); Reader reader = new InputStreamReader(inStream, StandardCharsets.UTF_8)) {
+            return JsonUtils.jsonToObject(reader, clz);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.ranger.plugin.model.RangerRole;
+import org.apache.ranger.plugin.model.RangerRole.RoleMember;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+import org.apache.ranger.plugin.service.RangerAuthContext;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerPrincipalIndex {
+    @Test
+    public void testRolesForUserAndGroups() {
+        RangerRoles roles = new RangerRoles();
+
+        roles.setRoleVersion(5L);
+        roles.setRangerRoles(new HashSet<>(Arrays.asList(
+                createRole("idx_analysts", members("idx_user1"), members("idx_finance"), members()),
+                createRole("idx_readers", members(), members(RangerPolicyEngine.GROUP_PUBLIC), members()),
+                createRole("idx_all", members("idx_admin"), members(), members("idx_analysts")),
+                createRole("idx_top", members(), members(), members("idx_all")))));
+
+        Map<String, Set<String>> userGroups = new HashMap<>();
+
+        userGroups.put("idx_user1", new HashSet<>(Arrays.asList("idx_finance", "idx_hr")));
+
+        RangerAuthContext    authContext = new RangerAuthContext(null, null, roles, new RangerUserStore(3L, null, null, userGroups));
+        RangerPrincipalIndex index       = authContext.getPrincipalIndex();
+
+        assertEquals(5L, index.getRoleVersion());
+
+        // nested roles are expanded: idx_analysts is a member of idx_all, which is a member of idx_top
+        assertEquals(names("idx_analysts", "idx_all", "idx_top", "idx_readers"), index.getRolesForUserAndGroups("idx_user1", null));
+        assertEquals(names("idx_analysts", "idx_all", "idx_top", "idx_readers"), index.getRolesForUserAndGroups("idx_user2", Collections.singleton("idx_finance")));
+        assertEquals(names("idx_all", "idx_top", "idx_readers"), authContext.getRolesForUserAndGroups("idx_admin", Collections.emptySet()));
+        assertEquals(names("idx_readers"), authContext.getRolesForUserAndGroups("idx_user2", null));
+
+        // groups in the userstore are not interned: only groups referred to by policy items get ids
+        assertTrue(index.getIdSpace().getGroupIds(names("idx_hr")).isEmpty());
+
+        // index is not rebuilt when userstore changes
+        authContext.setUserStore(new RangerUserStore(4L, null, null, userGroups));
+
+        assertSame(index, authContext.getPrincipalIndex());
+
+        // index is rebuilt when roles change, in the same id space - as ids held by policy items must remain valid
+        roles.setRoleVersion(6L);
+        roles.setRangerRoles(Collections.singleton(createRole("idx_analysts", members("idx_user2"), members(), members())));
+
+        authContext.setRoles(roles);
+
+        assertEquals(6L, authContext.getPrincipalIndex().getRoleVersion());
+        assertSame(index.getIdSpace(), authContext.getPrincipalIndex().getIdSpace());
+        assertEquals(names(), authContext.getRolesForUserAndGroups("idx_user1", null));
+        assertEquals(names("idx_analysts"), authContext.getRolesForUserAndGroups("idx_user2", null));
+
+        // each auth context, hence each policy engine, has its own id space
+        assertNotSame(index.getIdSpace(), new RangerAuthContext(null, null, roles, null).getPrincipalIndex().getIdSpace());
+    }
+
+    @Test
+    public void testIds() {
+        RangerPrincipalIndex.IdSpace idSpace    = new RangerPrincipalIndex.IdSpace();
+        BitSet                       itemGroups = idSpace.internGroups(Arrays.asList("ids_g1", "ids_g2"));
+        BitSet                       itemRoles  = idSpace.internRoles(Collections.singletonList("ids_r1"));
+
+        assertEquals(2, itemGroups.cardinality());
+        assertEquals(itemGroups, idSpace.internGroups(Arrays.asList("ids_g2", "ids_g1")));
+        assertEquals(names("ids_r1"), idSpace.getRoleNames(itemRoles));
+
+        // names never interned have no id
+        BitSet requestGroups = idSpace.getGroupIds(Arrays.asList("ids_g2", "ids_unknown"));
+
+        assertEquals(1, requestGroups.cardinality());
+        assertTrue(itemGroups.intersects(requestGroups));
+        assertFalse(itemGroups.intersects(idSpace.getGroupIds(Collections.singleton("ids_unknown"))));
+
+        // names interned in another id space have no id in this one
+        new RangerPrincipalIndex.IdSpace().internGroups(Collections.singletonList("ids_g3"));
+
+        assertTrue(idSpace.getGroupIds(Collections.singleton("ids_g3")).isEmpty());
+    }
+
+    @Test
+    public void testPrincipalIdsInRequest() {
+        RangerPrincipalIndex.IdSpace idSpace = new RangerPrincipalIndex.IdSpace();
+
+        idSpace.internGroups(Collections.singletonList("req_g1"));
+        idSpace.internRoles(Collections.singletonList("req_r1"));
+
+        RangerAccessRequestImpl           request = new RangerAccessRequestImpl(null, "select", "user1", names("req_g1"), names("req_r1"));
+        RangerPrincipalIndex.PrincipalIds ids     = RangerAccessRequestUtil.getPrincipalIds(request, idSpace);
+
+        assertEquals(idSpace.getGroupIds(names("req_g1")), ids.getGroupIds());
+        assertEquals(idSpace.getRoleIds(names("req_r1")), ids.getRoleIds());
+        assertSame(ids, RangerAccessRequestUtil.getPrincipalIds(request, idSpace));
+
+        // ids are recomputed when groups of the request change
+        request.setUserGroups(names("req_g2"));
+
+        RangerPrincipalIndex.PrincipalIds ids2 = RangerAccessRequestUtil.getPrincipalIds(request, idSpace);
+
+        assertNotSame(ids, ids2);
+        assertTrue(ids2.getGroupIds().isEmpty());
+
+        // ids are recomputed for another id space
+        RangerPrincipalIndex.PrincipalIds ids3 = RangerAccessRequestUtil.getPrincipalIds(request, new RangerPrincipalIndex.IdSpace());
+
+        assertNotSame(ids2, ids3);
+        assertNotSame(ids3, RangerAccessRequestUtil.getPrincipalIds(request, idSpace));
+    }
+
+    private static RangerRole createRole(String name, List<RoleMember> users, List<RoleMember> groups, List<RoleMember> roles) {
+        return new RangerRole(name, null, null, users, groups, roles);
+    }
+
+    private static List<RoleMember> members(String... names) {
+        List<RoleMember> ret = new ArrayList<>();
+
+        for (String name : names) {
+            ret.add(new RoleMember(name, false));
+        }
+
+        return ret;
+    }
+
+    private static Set<String> names(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+}
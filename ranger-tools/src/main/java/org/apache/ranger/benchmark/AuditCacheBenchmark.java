@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.policyengine.CacheMap;
+import org.apache.ranger.plugin.policyengine.ConcurrentCacheMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lookups in the policy-repository audit cache - Collections.synchronizedMap(CacheMap) and ConcurrentCacheMap,
+ * as selected by ranger.plugin.[service].policyengine.auditcachesize.type - with 1 to 64 threads. Keys span 1.25 times
+ * the cache capacity, so that some lookups miss and add entries, causing evictions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuditCacheBenchmark {
+    private static final int CACHE_SIZE = 64 * 1024;
+
+    @Param({"synchronized", "concurrent"})
+    public String cacheType;
+
+    private Map<String, Boolean> cache;
+    private String[]             keys;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cache = "concurrent".equals(cacheType) ? new ConcurrentCacheMap<>(CACHE_SIZE) : Collections.synchronizedMap(new CacheMap<>(CACHE_SIZE));
+        keys  = new String[CACHE_SIZE + CACHE_SIZE / 4];
+
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "db_" + (i % 100) + ".table_" + i;
+        }
+
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            cache.put(keys[i], Boolean.TRUE);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Boolean lookup1Thread(ThreadState state) {
+        return lookup(state);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Boolean lookup4Threads(ThreadState state) {
+        return lookup(state);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Boolean lookup16Threads(ThreadState state) {
+        return lookup(state);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Boolean lookup64Threads(ThreadState state) {
+        return lookup(state);
+    }
+
+    private Boolean lookup(ThreadState state) {
+        String  key = keys[state.random.nextInt(keys.length)];
+        Boolean ret = cache.get(key);
+
+        if (ret == null) {
+            ret = Boolean.TRUE;
+
+            cache.put(key, ret);
+        }
+
+        return ret;
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+    }
+}
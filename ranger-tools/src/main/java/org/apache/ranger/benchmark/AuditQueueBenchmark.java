@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.queue.AuditRingBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures adding audit events to the queues used by audit queues - LinkedBlockingQueue (async queue),
+ * ArrayBlockingQueue (batch queue) and AuditRingBuffer (ringbuffer queue) - with 1 to 16 producer threads, while a
+ * consumer thread drains the queue in batches, as in AuditBatchQueue.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuditQueueBenchmark {
+    private static final int QUEUE_SIZE = 64 * 1024;
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"linked", "array", "ringbuffer"})
+    public String queueType;
+
+    private final AuditEventBase          event = new AuthzAuditEvent();
+    private BlockingQueue<AuditEventBase> queue;
+    private Thread                        consumerThread;
+    private volatile boolean              isStopped;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        switch (queueType) {
+            case "linked":
+                queue = new LinkedBlockingQueue<>(QUEUE_SIZE);
+                break;
+
+            case "array":
+                queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+                break;
+
+            default:
+                queue = new AuditRingBuffer<>(QUEUE_SIZE, AuditRingBuffer.WaitStrategy.BLOCKING);
+                break;
+        }
+
+        isStopped      = false;
+        consumerThread = new Thread(this::consume, "AuditQueueBenchmark-consumer");
+
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        isStopped = true;
+
+        consumerThread.join();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void log1Thread() throws InterruptedException {
+        queue.put(event);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void log4Threads() throws InterruptedException {
+        queue.put(event);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void log16Threads() throws InterruptedException {
+        queue.put(event);
+    }
+
+    private void consume() {
+        List<AuditEventBase> batch = new ArrayList<>(BATCH_SIZE);
+
+        try {
+            while (!isStopped) {
+                AuditEventBase e = queue.poll(100, TimeUnit.MILLISECONDS);
+
+                if (e != null) {
+                    batch.add(e);
+
+                    queue.drainTo(batch, BATCH_SIZE - batch.size());
+
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AuditEventJsonSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures JSON serialization of an audit event, as done by audit destinations: with ObjectMapper (earlier
+ * MiscUtil.stringify()), with AuditEventJsonSerializer into a String (current MiscUtil.stringify()) and with
+ * AuditEventJsonSerializer into its reusable UTF-8 buffer only.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuditSerializationBenchmark {
+    private AuthzAuditEvent event;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        event = new AuthzAuditEvent(3, BenchmarkDataGenerator.SERVICE_NAME, "user_17", new Date(), "select", "db_3/table_42/column_7", "@column", "QUERY", (short) 1,
+                "hiveServer2", 1042L, null, "ranger-acl", "f2c1a1f6-52a3-4b5c-a1d2-0c6c6e1c6a11", "HIVESERVER2", "10.20.30.40",
+                "SELECT column_7, column_8 FROM db_3.table_42 WHERE column_9 > 100", "cl1", null, 12L);
+
+        event.setAgentHostname("hive-server-1.example.com");
+        event.setLogType("RangerAudit");
+        event.setEventId("0ed1d5b2-7a9a-4a43-9c1d-b3f6a4f7c9a0-0");
+        event.setSeqNum(12345);
+        event.setTags(new HashSet<>(Arrays.asList("PII", "GDPR")));
+        event.setAdditionalInfo("{\"remote-ip-address\":\"10.20.30.41\", \"forwarded-ip-addresses\":\"[]\"}");
+    }
+
+    @Benchmark
+    public String objectMapper() throws JsonProcessingException {
+        return MiscUtil.getMapper().writeValueAsString(event);
+    }
+
+    @Benchmark
+    public String stringify() {
+        return MiscUtil.stringify(event);
+    }
+
+    @Benchmark
+    public int serializeToBuffer() {
+        return AuditEventJsonSerializer.get().serialize(event).size();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.DummyAuditProvider;
+import org.apache.ranger.audit.queue.AuditBatchQueue;
+import org.apache.ranger.audit.queue.AuditFileSpool;
+import org.apache.ranger.audit.queue.AuditWalSpool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures stashing a batch of audit events, as AuditBatchQueue does when the destination is down, into the text file
+ * spool (AuditFileSpool) and into the write-ahead spool of memory-mapped segments (AuditWalSpool).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuditSpoolBenchmark {
+    private static final String PROP_PREFIX = "xasecure.audit.destination.benchmark.batch";
+    private static final int    BATCH_SIZE  = 100;
+
+    @Param({"file", "wal"})
+    public String spoolType;
+
+    private final List<AuditEventBase> batch = new ArrayList<>(BATCH_SIZE);
+    private File                       spoolDir;
+    private AuditFileSpool             spool;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(new AuthzAuditEvent(3, BenchmarkDataGenerator.SERVICE_NAME, "user_" + i, new Date(), "select", "db_3/table_42/column_" + i, "@column", "QUERY", (short) 1,
+                    "hiveServer2", 1042L, null, "ranger-acl", "f2c1a1f6-52a3-4b5c-a1d2-0c6c6e1c6a11", "HIVESERVER2", "10.20.30.40",
+                    "SELECT column_7, column_8 FROM db_3.table_42 WHERE column_9 > 100", "cl1", null, 12L));
+        }
+
+        spoolDir = Files.createTempDirectory("audit-spool-benchmark").toFile();
+
+        Properties      props = new Properties();
+        AuditBatchQueue queue = new AuditBatchQueue(new DummyAuditProvider());
+
+        props.setProperty(PROP_PREFIX + "." + AuditFileSpool.PROP_FILE_SPOOL_LOCAL_DIR, spoolDir.getPath());
+
+        queue.setName("batch");
+
+        spool = "wal".equals(spoolType) ? new AuditWalSpool(queue, queue.getConsumer()) : new AuditFileSpool(queue, queue.getConsumer());
+
+        spool.init(props, PROP_PREFIX);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        spool.stop();
+        batch.clear();
+
+        try (Stream<Path> paths = Files.walk(spoolDir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public void stashLogs() {
+        spool.stashLogs(batch);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads benchmark scores from JMH JSON result files and compares a run against a baseline run.
+ *
+ * A benchmark is identified by its name and parameter values. A regression is reported when the time per
+ * operation, or the bytes allocated per operation, exceeds the baseline by more than the given tolerance.
+ */
+public class BenchmarkBaseline {
+    public static final String METRIC_ALLOC_NORM = "gc.alloc.rate.norm";
+
+    private BenchmarkBaseline() {
+        // to block instantiation
+    }
+
+    public static Map<String, Score> load(Reader reader) {
+        Map<String, Score> ret = new TreeMap<>();
+
+        for (JsonElement element : JsonParser.parseReader(reader).getAsJsonArray()) {
+            JsonObject result    = element.getAsJsonObject();
+            JsonObject secondary = result.getAsJsonObject("secondaryMetrics");
+            JsonObject alloc     = secondary != null ? secondary.getAsJsonObject(METRIC_ALLOC_NORM) : null;
+            double     time      = result.getAsJsonObject("primaryMetric").get("score").getAsDouble();
+            double     bytes     = alloc != null ? alloc.get("score").getAsDouble() : Double.NaN;
+
+            ret.put(getKey(result), new Score(time, bytes));
+        }
+
+        return ret;
+    }
+
+    public static List<String> findRegressions(Map<String, Score> baseline, Map<String, Score> current, double tolerancePercent) {
+        List<String> ret    = new ArrayList<>();
+        double       factor = 1 + (tolerancePercent / 100);
+
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score base = baseline.get(entry.getKey());
+
+            if (base == null) {
+                continue;
+            }
+
+            Score curr = entry.getValue();
+
+            if (curr.getTimePerOp() > base.getTimePerOp() * factor) {
+                ret.add(String.format("%s: time/op %.2f -> %.2f", entry.getKey(), base.getTimePerOp(), curr.getTimePerOp()));
+            }
+
+            if (!Double.isNaN(curr.getBytesPerOp()) && !Double.isNaN(base.getBytesPerOp()) && curr.getBytesPerOp() > base.getBytesPerOp() * factor) {
+                ret.add(String.format("%s: bytes/op %.2f -> %.2f", entry.getKey(), base.getBytesPerOp(), curr.getBytesPerOp()));
+            }
+        }
+
+        return ret;
+    }
+
+    private static String getKey(JsonObject result) {
+        StringBuilder sb     = new StringBuilder(result.get("benchmark").getAsString());
+        JsonObject    params = result.getAsJsonObject("params");
+
+        if (params != null) {
+            Map<String, String> sorted = new TreeMap<>();
+
+            for (Map.Entry<String, JsonElement> param : params.entrySet()) {
+                sorted.put(param.getKey(), param.getValue().getAsString());
+            }
+
+            for (Map.Entry<String, String> param : sorted.entrySet()) {
+                sb.append(':').append(param.getKey()).append('=').append(param.getValue());
+            }
+        }
+
+        return sb.toString();
+    }
+
+    public static class Score {
+        private final double timePerOp;
+        private final double bytesPerOp;
+
+        public Score(double timePerOp, double bytesPerOp) {
+            this.timePerOp  = timePerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        public double getTimePerOp() {
+            return timePerOp;
+        }
+
+        public double getBytesPerOp() {
+            return bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("timePerOp=%.2f, bytesPerOp=%.2f", timePerOp, bytesPerOp);
+        }
+    }
+}
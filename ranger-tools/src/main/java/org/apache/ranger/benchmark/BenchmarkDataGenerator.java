@@ -0,0 +1,341 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.authorization.utils.JsonUtils;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerRole;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.model.RangerTagDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.apache.ranger.plugin.policyengine.RangerPluginContext;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.util.RangerRoles;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.plugin.util.ServiceTags;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates synthetic, reproducible Hive policies, tags, roles and access requests for the JMH benchmarks.
+ *
+ * Unlike the generators used by the perf-tester tools, the data produced here depends only on the requested
+ * sizes and the seed; this keeps the numbers reported by consecutive benchmark runs comparable.
+ */
+public class BenchmarkDataGenerator {
+    public static final String SERVICE_TYPE = "hive";
+    public static final String SERVICE_NAME = "cl1_hive";
+    public static final String TAG_SERVICE  = "cl1_tag";
+
+    public static final long DEFAULT_SEED = 20240601L;
+
+    private static final String   HIVE_SERVICE_DEF_RESOURCE = "/service-defs/ranger-servicedef-hive.json";
+    private static final String[] ACCESS_TYPES              = {"select", "update", "create", "drop", "alter", "index", "lock", "read", "write"};
+    private static final String[] TAG_TYPES                 = {"PII", "PCI", "FINANCE", "EXPIRES_ON", "RESTRICTED"};
+    private static final int      USER_COUNT                = 1000;
+    private static final int      GROUP_COUNT               = 100;
+    private static final int      ROLE_COUNT                = 50;
+    private static final int      COLUMNS_PER_TABLE         = 20;
+    private static final int      TABLES_PER_DATABASE       = 50;
+    private static final int      ITEMS_PER_POLICY          = 3;
+    private static final int      PRINCIPALS_PER_ITEM       = 4;
+
+    private final Random           random;
+    private final int              policyCount;
+    private final int              databaseCount;
+    private final RangerServiceDef serviceDef;
+
+    public BenchmarkDataGenerator(int policyCount) {
+        this(policyCount, DEFAULT_SEED);
+    }
+
+    public BenchmarkDataGenerator(int policyCount, long seed) {
+        this.random        = new Random(seed);
+        this.policyCount   = policyCount;
+        this.databaseCount = Math.max(1, policyCount / TABLES_PER_DATABASE);
+        this.serviceDef    = loadHiveServiceDef();
+    }
+
+    public static RangerServiceDef loadHiveServiceDef() {
+        try (InputStream inStr = BenchmarkDataGenerator.class.getResourceAsStream(HIVE_SERVICE_DEF_RESOURCE)) {
+            if (inStr == null) {
+                throw new IllegalStateException(HIVE_SERVICE_DEF_RESOURCE + ": not found in classpath");
+            }
+
+            return JsonUtils.jsonToObject(new InputStreamReader(inStr, StandardCharsets.UTF_8), RangerServiceDef.class);
+        } catch (IOException excp) {
+            throw new IllegalStateException("failed to load " + HIVE_SERVICE_DEF_RESOURCE, excp);
+        }
+    }
+
+    public static RangerPluginContext createPluginContext() {
+        return new RangerPluginContext(new RangerPluginConfig(SERVICE_TYPE, SERVICE_NAME, SERVICE_TYPE, "cl1", "on-prem", createPolicyEngineOptions()));
+    }
+
+    public static RangerPolicyEngineOptions createPolicyEngineOptions() {
+        RangerPolicyEngineOptions ret = new RangerPolicyEngineOptions();
+
+        ret.cacheAuditResults          = false;
+        ret.disableTrieLookupPrefilter = false;
+        ret.optimizeTrieForRetrieval   = true;
+
+        return ret;
+    }
+
+    public RangerServiceDef getServiceDef() {
+        return serviceDef;
+    }
+
+    public int getPolicyCount() {
+        return policyCount;
+    }
+
+    public ServicePolicies createServicePolicies() {
+        ServicePolicies ret = new ServicePolicies();
+
+        ret.setServiceId(1L);
+        ret.setServiceName(SERVICE_NAME);
+        ret.setServiceDef(serviceDef);
+        ret.setPolicyVersion(1L);
+        ret.setPolicyUpdateTime(new Date());
+        ret.setPolicies(createPolicies());
+
+        return ret;
+    }
+
+    public List<RangerPolicy> createPolicies() {
+        List<RangerPolicy> ret = new ArrayList<>(policyCount);
+
+        for (int i = 0; i < policyCount; i++) {
+            ret.add(createPolicy(i));
+        }
+
+        return ret;
+    }
+
+    public RangerPolicy createPolicy(long policyId) {
+        int    dbIdx    = (int) (policyId % databaseCount);
+        int    tblIdx   = (int) ((policyId / databaseCount) % TABLES_PER_DATABASE);
+        String database = "db_" + dbIdx;
+        String table    = (policyId % 10 == 0) ? ("tbl_" + (tblIdx % 10) + "*") : ("tbl_" + tblIdx);
+        String column   = (policyId % 4 == 0) ? "*" : ("col_" + random.nextInt(COLUMNS_PER_TABLE));
+
+        Map<String, RangerPolicyResource> resources = new HashMap<>();
+
+        resources.put("database", new RangerPolicyResource(database));
+        resources.put("table", new RangerPolicyResource(table));
+        resources.put("column", new RangerPolicyResource(column));
+
+        List<RangerPolicyItem> policyItems = new ArrayList<>(ITEMS_PER_POLICY);
+
+        for (int i = 0; i < ITEMS_PER_POLICY; i++) {
+            policyItems.add(createPolicyItem());
+        }
+
+        RangerPolicy ret = new RangerPolicy();
+
+        ret.setId(policyId);
+        ret.setGuid("policy-" + policyId);
+        ret.setService(SERVICE_NAME);
+        ret.setName("generated policy #" + policyId);
+        ret.setPolicyType(RangerPolicy.POLICY_TYPE_ACCESS);
+        ret.setIsEnabled(true);
+        ret.setIsAuditEnabled(true);
+        ret.setVersion(1L);
+        ret.setResources(resources);
+        ret.setPolicyItems(policyItems);
+
+        if (policyId % 20 == 0) {
+            ret.setDenyPolicyItems(Collections.singletonList(createPolicyItem()));
+        }
+
+        return ret;
+    }
+
+    public ServiceTags createServiceTags(int resourceCount) {
+        Map<Long, RangerTagDef>     tagDefinitions   = new HashMap<>();
+        Map<Long, RangerTag>        tags             = new HashMap<>();
+        List<RangerServiceResource> serviceResources = new ArrayList<>(resourceCount);
+        Map<Long, List<Long>>       resourceToTagIds = new HashMap<>();
+
+        for (int i = 0; i < TAG_TYPES.length; i++) {
+            RangerTagDef tagDef = new RangerTagDef(TAG_TYPES[i]);
+
+            tagDef.setId((long) i);
+
+            tagDefinitions.put(tagDef.getId(), tagDef);
+
+            RangerTag tag = new RangerTag(TAG_TYPES[i], Collections.emptyMap());
+
+            tag.setId((long) i);
+
+            tags.put(tag.getId(), tag);
+        }
+
+        for (long i = 0; i < resourceCount; i++) {
+            Map<String, RangerPolicyResource> elements = new HashMap<>();
+
+            elements.put("database", new RangerPolicyResource("db_" + (i % databaseCount)));
+            elements.put("table", new RangerPolicyResource("tbl_" + ((i / databaseCount) % TABLES_PER_DATABASE)));
+
+            if (i % 2 == 0) {
+                elements.put("column", new RangerPolicyResource("col_" + random.nextInt(COLUMNS_PER_TABLE)));
+            }
+
+            RangerServiceResource serviceResource = new RangerServiceResource("resource-" + i, SERVICE_NAME, elements);
+
+            serviceResource.setId(i);
+
+            serviceResources.add(serviceResource);
+            resourceToTagIds.put(i, Collections.singletonList((long) random.nextInt(TAG_TYPES.length)));
+        }
+
+        ServiceTags ret = new ServiceTags();
+
+        ret.setServiceName(SERVICE_NAME);
+        ret.setTagVersion(1L);
+        ret.setTagDefinitions(tagDefinitions);
+        ret.setTags(tags);
+        ret.setServiceResources(serviceResources);
+        ret.setResourceToTagIds(resourceToTagIds);
+
+        return ret;
+    }
+
+    public RangerRoles createRoles() {
+        Set<RangerRole> roles = new HashSet<>();
+
+        for (int i = 0; i < ROLE_COUNT; i++) {
+            List<RangerRole.RoleMember> users  = new ArrayList<>();
+            List<RangerRole.RoleMember> groups = new ArrayList<>();
+
+            for (int j = 0; j < PRINCIPALS_PER_ITEM; j++) {
+                users.add(new RangerRole.RoleMember("user_" + random.nextInt(USER_COUNT), false));
+                groups.add(new RangerRole.RoleMember("group_" + random.nextInt(GROUP_COUNT), false));
+            }
+
+            roles.add(new RangerRole("role_" + i, null, null, users, groups));
+        }
+
+        RangerRoles ret = new RangerRoles();
+
+        ret.setServiceName(SERVICE_NAME);
+        ret.setRoleVersion(1L);
+        ret.setRangerRoles(roles);
+
+        return ret;
+    }
+
+    public List<RangerAccessRequest> createAccessRequests(int count) {
+        List<RangerAccessRequest> ret = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            ret.add(createAccessRequest());
+        }
+
+        return ret;
+    }
+
+    public RangerAccessRequest createAccessRequest() {
+        RangerAccessResourceImpl resource = new RangerAccessResourceImpl();
+
+        resource.setServiceDef(serviceDef);
+        resource.setValue("database", "db_" + random.nextInt(databaseCount));
+        resource.setValue("table", "tbl_" + random.nextInt(TABLES_PER_DATABASE));
+        resource.setValue("column", "col_" + random.nextInt(COLUMNS_PER_TABLE));
+
+        Set<String> userGroups = new HashSet<>();
+
+        userGroups.add("group_" + random.nextInt(GROUP_COUNT));
+        userGroups.add("group_" + random.nextInt(GROUP_COUNT));
+
+        RangerAccessRequestImpl ret = new RangerAccessRequestImpl(resource, ACCESS_TYPES[random.nextInt(ACCESS_TYPES.length)], "user_" + random.nextInt(USER_COUNT), userGroups, null);
+
+        ret.setClusterName("cl1");
+        ret.setAccessTime(new Date());
+
+        return ret;
+    }
+
+    /**
+     * @return requests by one user for the given number of columns of a table, as made by Hive to authorize a query
+     */
+    public List<RangerAccessRequest> createColumnAccessRequests(int columnCount) {
+        List<RangerAccessRequest> ret      = new ArrayList<>(columnCount);
+        RangerAccessRequest       template = createAccessRequest();
+
+        for (int i = 0; i < columnCount; i++) {
+            RangerAccessResourceImpl resource = new RangerAccessResourceImpl();
+
+            resource.setServiceDef(serviceDef);
+            resource.setValue("database", template.getResource().getValue("database"));
+            resource.setValue("table", template.getResource().getValue("table"));
+            resource.setValue("column", "col_" + i);
+
+            RangerAccessRequestImpl request = new RangerAccessRequestImpl(resource, template.getAccessType(), template.getUser(), template.getUserGroups(), null);
+
+            request.setClusterName("cl1");
+            request.setAccessTime(new Date());
+
+            ret.add(request);
+        }
+
+        return ret;
+    }
+
+    private RangerPolicyItem createPolicyItem() {
+        List<RangerPolicyItemAccess> accesses = new ArrayList<>();
+        List<String>                 users    = new ArrayList<>();
+        List<String>                 groups   = new ArrayList<>();
+        List<String>                 roles    = new ArrayList<>();
+
+        accesses.add(new RangerPolicyItemAccess(ACCESS_TYPES[random.nextInt(ACCESS_TYPES.length)]));
+        accesses.add(new RangerPolicyItemAccess(ACCESS_TYPES[random.nextInt(ACCESS_TYPES.length)]));
+
+        for (int i = 0; i < PRINCIPALS_PER_ITEM; i++) {
+            users.add("user_" + random.nextInt(USER_COUNT));
+        }
+
+        groups.add("group_" + random.nextInt(GROUP_COUNT));
+        roles.add("role_" + random.nextInt(ROLE_COUNT));
+
+        return new RangerPolicyItem(accesses, users, groups, roles, null, false);
+    }
+}
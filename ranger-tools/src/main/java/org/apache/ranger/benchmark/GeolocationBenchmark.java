@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.geo.RangerGeolocationData;
+import org.apache.ranger.plugin.store.file.GeolocationFileStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lookup of client IP addresses in a geolocation database of the given number of /24 ranges, loaded by
+ * GeolocationFileStore from a CSV file or from the compiled binary file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeolocationBenchmark {
+    private static final int ADDRESS_COUNT  = 64 * 1024;
+    private static final int LOCATION_COUNT = 250;
+
+    @Param({"10000", "1000000"})
+    public int rangeCount;
+
+    @Param({"csv", "compiled"})
+    public String source;
+
+    private GeolocationFileStore store;
+    private String[]             addresses;
+    private int                  nextAddress;
+    private File                 csvFile;
+    private File                 compiledFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        csvFile      = File.createTempFile("ranger_geo_benchmark", ".csv");
+        compiledFile = new File(csvFile.getAbsolutePath() + ".bin");
+
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("FROM_IP,TO_IP,COUNTRY_CODE,CITY\n");
+
+            for (int i = 0; i < rangeCount; i++) {
+                long start = (1L << 24) + ((long) i << 8);
+
+                writer.write(start + "," + (start + 255) + ",C" + (i % LOCATION_COUNT) + ",City" + (i % LOCATION_COUNT) + "\n");
+            }
+        }
+
+        Map<String, String> context = new HashMap<>();
+
+        context.put(GeolocationFileStore.PROP_GEOLOCATION_FILE_LOCATION, csvFile.getAbsolutePath());
+        context.put(GeolocationFileStore.PROP_GEOLOCATION_IP_IN_DOT_FORMAT, "false");
+
+        if ("compiled".equals(source)) {
+            context.put(GeolocationFileStore.PROP_GEOLOCATION_COMPILED_FILE_LOCATION, compiledFile.getAbsolutePath());
+
+            new GeolocationFileStore().init(context); // saves the compiled file
+        }
+
+        store = new GeolocationFileStore();
+
+        store.init(context);
+
+        SplittableRandom random = new SplittableRandom(1);
+
+        addresses = new String[ADDRESS_COUNT];
+
+        for (int i = 0; i < addresses.length; i++) {
+            long address = (1L << 24) + random.nextLong((long) rangeCount << 8);
+
+            addresses[i] = RangerGeolocationData.unsignedIntToIPAddress(address);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.cleanup();
+
+        csvFile.delete();
+        compiledFile.delete();
+    }
+
+    @Benchmark
+    public RangerGeolocationData find() {
+        String address = addresses[nextAddress];
+
+        nextAddress = (nextAddress + 1) % addresses.length;
+
+        return store.getGeoLocation(address);
+    }
+}
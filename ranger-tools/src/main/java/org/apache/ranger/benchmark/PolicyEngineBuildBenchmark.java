@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.policyengine.RangerPluginContext;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.util.RangerRoles;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures construction of a policy engine - policy evaluators and resource tries - from the given number of policies,
+ * built on the given number of threads (RangerPolicyEngineOptions.builderThreadCount).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PolicyEngineBuildBenchmark {
+    @Param({"10000", "100000"})
+    public int policyCount;
+
+    @Param({"1", "4"})
+    public int builderThreadCount;
+
+    private ServicePolicies           servicePolicies;
+    private RangerRoles               roles;
+    private RangerPolicyEngineOptions options;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkDataGenerator generator = new BenchmarkDataGenerator(policyCount);
+
+        servicePolicies = generator.createServicePolicies();
+        roles           = generator.createRoles();
+        options         = BenchmarkDataGenerator.createPolicyEngineOptions();
+
+        options.builderThreadCount = builderThreadCount;
+    }
+
+    @Benchmark
+    public RangerPolicyEngineImpl buildPolicyEngine() {
+        RangerPluginContext    pluginContext = new RangerPluginContext(new RangerPluginConfig(BenchmarkDataGenerator.SERVICE_TYPE, BenchmarkDataGenerator.SERVICE_NAME, BenchmarkDataGenerator.SERVICE_TYPE, "cl1", "on-prem", options));
+        RangerPolicyEngineImpl ret           = new RangerPolicyEngineImpl(servicePolicies, pluginContext, roles);
+
+        ret.releaseResources(true);
+
+        return ret;
+    }
+}
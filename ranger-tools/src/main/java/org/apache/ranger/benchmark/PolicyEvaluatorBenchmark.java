@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.apache.ranger.plugin.policyengine.RangerPolicyRepository;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.service.RangerDefaultRequestProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures RangerPolicyEvaluator.evaluate() of the policies the resource-trie selects for a request; i.e. the
+ * per-policy cost paid by the policy engine once candidate policies have been found.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PolicyEvaluatorBenchmark {
+    private static final int REQUEST_COUNT = 1024;
+
+    @Param({"1000", "10000", "100000"})
+    public int policyCount;
+
+    private RangerPolicyEngineImpl      policyEngine;
+    private RangerServiceDef            serviceDef;
+    private List<RangerAccessRequest>   requests;
+    private List<RangerPolicyEvaluator> evaluators;
+    private int                         nextEvaluation;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkDataGenerator generator = new BenchmarkDataGenerator(policyCount);
+
+        policyEngine = new RangerPolicyEngineImpl(generator.createServicePolicies(), BenchmarkDataGenerator.createPluginContext(), generator.createRoles());
+        serviceDef   = generator.getServiceDef();
+        requests     = new ArrayList<>();
+        evaluators   = new ArrayList<>();
+
+        RangerDefaultRequestProcessor requestProcessor = new RangerDefaultRequestProcessor(policyEngine.getPolicyEngine());
+        RangerPolicyRepository        policyRepository = policyEngine.getPolicyEngine().getPolicyRepository();
+
+        for (RangerAccessRequest request : generator.createAccessRequests(REQUEST_COUNT)) {
+            requestProcessor.preProcess(request);
+
+            for (RangerPolicyEvaluator evaluator : policyRepository.getLikelyMatchPolicyEvaluators(request, RangerPolicy.POLICY_TYPE_ACCESS)) {
+                requests.add(request);
+                evaluators.add(evaluator);
+            }
+        }
+
+        if (evaluators.isEmpty()) {
+            throw new IllegalStateException("no policy matched the generated requests; policyCount=" + policyCount);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        policyEngine.releaseResources(true);
+    }
+
+    @Benchmark
+    public RangerAccessResult evaluate() {
+        RangerAccessRequest   request   = requests.get(nextEvaluation);
+        RangerPolicyEvaluator evaluator = evaluators.get(nextEvaluation);
+        RangerAccessResult    result    = new RangerAccessResult(RangerPolicy.POLICY_TYPE_ACCESS, BenchmarkDataGenerator.SERVICE_NAME, serviceDef, request);
+
+        nextEvaluation = (nextEvaluation + 1) % evaluators.size();
+
+        evaluator.evaluate(request, result);
+
+        return result;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.policyengine.RangerPluginContext;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.util.RangerRoles;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures access evaluation against a catch-all policy having the given number of policy items, each naming a few
+ * users, with and without the index of policy items by principal (RangerPolicyEngineOptions.policyItemIndexMinItems).
+ * Half of the requests are by users named in one of the items.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PolicyItemIndexBenchmark {
+    private static final int REQUEST_COUNT  = 1024;
+    private static final int USERS_PER_ITEM = 3;
+
+    @Param({"100", "1000", "5000"})
+    public int itemCount;
+
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    private RangerPolicyEngineImpl    policyEngine;
+    private List<RangerAccessRequest> requests;
+    private int                       nextRequest;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        RangerPolicyEngineOptions options = BenchmarkDataGenerator.createPolicyEngineOptions();
+
+        options.policyItemIndexMinItems = indexed ? RangerPolicyEngineOptions.DEFAULT_POLICY_ITEM_INDEX_MIN_ITEMS : 0;
+
+        RangerPluginContext pluginContext = new RangerPluginContext(new RangerPluginConfig(BenchmarkDataGenerator.SERVICE_TYPE, BenchmarkDataGenerator.SERVICE_NAME, BenchmarkDataGenerator.SERVICE_TYPE, "cl1", "on-prem", options));
+        ServicePolicies     policies      = new ServicePolicies();
+
+        policies.setServiceId(1L);
+        policies.setServiceName(BenchmarkDataGenerator.SERVICE_NAME);
+        policies.setServiceDef(BenchmarkDataGenerator.loadHiveServiceDef());
+        policies.setPolicyVersion(1L);
+        policies.setPolicyUpdateTime(new Date());
+        policies.setPolicies(Collections.singletonList(createCatchAllPolicy()));
+
+        policyEngine = new RangerPolicyEngineImpl(policies, pluginContext, new RangerRoles());
+        requests     = new ArrayList<>(REQUEST_COUNT);
+
+        Random random = new Random(BenchmarkDataGenerator.DEFAULT_SEED);
+
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            RangerAccessResourceImpl resource = new RangerAccessResourceImpl();
+
+            resource.setValue("database", "db_" + random.nextInt(100));
+            resource.setValue("table", "tbl_" + random.nextInt(100));
+
+            String                  user    = "user_" + random.nextInt(2 * itemCount * USERS_PER_ITEM);
+            RangerAccessRequestImpl request = new RangerAccessRequestImpl(resource, "select", user, Collections.singleton("group_" + random.nextInt(100)), null);
+
+            request.setClusterName("cl1");
+            request.setAccessTime(new Date());
+
+            requests.add(request);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        policyEngine.releaseResources(true);
+    }
+
+    @Benchmark
+    public RangerAccessResult evaluate() {
+        RangerAccessRequest request = requests.get(nextRequest);
+
+        nextRequest = (nextRequest + 1) % requests.size();
+
+        return policyEngine.evaluatePolicies(request, RangerPolicy.POLICY_TYPE_ACCESS, null);
+    }
+
+    private RangerPolicy createCatchAllPolicy() {
+        Map<String, RangerPolicyResource> resources   = new HashMap<>();
+        List<RangerPolicyItem>            policyItems = new ArrayList<>(itemCount);
+
+        resources.put("database", new RangerPolicyResource("*"));
+        resources.put("table", new RangerPolicyResource("*"));
+        resources.put("column", new RangerPolicyResource("*"));
+
+        for (int i = 0; i < itemCount; i++) {
+            List<String> users = new ArrayList<>(USERS_PER_ITEM);
+
+            for (int j = 0; j < USERS_PER_ITEM; j++) {
+                users.add("user_" + (i * USERS_PER_ITEM + j));
+            }
+
+            policyItems.add(new RangerPolicyItem(Arrays.asList(new RangerPolicyItemAccess("select"), new RangerPolicyItemAccess("read")), users, null, null, null, false));
+        }
+
+        RangerPolicy ret = new RangerPolicy();
+
+        ret.setId(1L);
+        ret.setGuid("policy-1");
+        ret.setService(BenchmarkDataGenerator.SERVICE_NAME);
+        ret.setName("catch-all policy");
+        ret.setPolicyType(RangerPolicy.POLICY_TYPE_ACCESS);
+        ret.setIsEnabled(true);
+        ret.setIsAuditEnabled(true);
+        ret.setVersion(1L);
+        ret.setResources(resources);
+        ret.setPolicyItems(policyItems);
+
+        return ret;
+    }
+}
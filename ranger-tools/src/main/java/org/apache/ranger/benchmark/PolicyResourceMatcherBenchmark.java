@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessResource;
+import org.apache.ranger.plugin.policyengine.RangerPluginContext;
+import org.apache.ranger.plugin.policyresourcematcher.RangerDefaultPolicyResourceMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures RangerDefaultPolicyResourceMatcher.isMatch() for a mix of exact-value and wildcard policy resources.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PolicyResourceMatcherBenchmark {
+    private static final int MATCHER_COUNT = 1000;
+    private static final int REQUEST_COUNT = 1024;
+
+    private final Map<String, Object> evalContext = Collections.emptyMap();
+
+    private List<RangerDefaultPolicyResourceMatcher> matchers;
+    private List<RangerAccessResource>               resources;
+    private int                                      nextMatcher;
+    private int                                      nextResource;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkDataGenerator generator     = new BenchmarkDataGenerator(MATCHER_COUNT);
+        RangerPluginContext    pluginContext = BenchmarkDataGenerator.createPluginContext();
+
+        matchers  = new ArrayList<>(MATCHER_COUNT);
+        resources = new ArrayList<>(REQUEST_COUNT);
+
+        for (RangerPolicy policy : generator.createPolicies()) {
+            RangerDefaultPolicyResourceMatcher matcher = new RangerDefaultPolicyResourceMatcher();
+
+            matcher.setServiceDef(generator.getServiceDef());
+            matcher.setPluginContext(pluginContext);
+            matcher.setPolicy(policy);
+            matcher.init();
+
+            matchers.add(matcher);
+        }
+
+        for (RangerAccessRequest request : generator.createAccessRequests(REQUEST_COUNT)) {
+            resources.add(request.getResource());
+        }
+    }
+
+    @Benchmark
+    public boolean isMatch() {
+        RangerDefaultPolicyResourceMatcher matcher  = matchers.get(nextMatcher);
+        RangerAccessResource               resource = resources.get(nextResource);
+
+        nextMatcher  = (nextMatcher + 1) % matchers.size();
+        nextResource = (nextResource + 1) % resources.size();
+
+        return matcher.isMatch(resource, evalContext);
+    }
+}
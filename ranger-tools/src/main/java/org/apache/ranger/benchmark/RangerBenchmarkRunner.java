@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the policy-engine JMH benchmarks with the GC profiler, so that both ns/op and bytes/op
+ * (gc.alloc.rate.norm) are recorded, and writes the results in JMH JSON format.
+ *
+ * When a baseline result file from an earlier run is given, the scores are compared against it and the
+ * process exits with status 1 if any benchmark regressed beyond the tolerance.
+ */
+public class RangerBenchmarkRunner {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerBenchmarkRunner.class);
+
+    private static final String DEFAULT_INCLUDE     = RangerBenchmarkRunner.class.getPackage().getName() + ".*Benchmark.*";
+    private static final String DEFAULT_RESULT_FILE = "ranger-benchmark-results.json";
+    private static final double DEFAULT_TOLERANCE   = 10;
+
+    private RangerBenchmarkRunner() {
+        // to block instantiation
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options();
+
+        options.addOption("h", "help", false, "show help.");
+        options.addOption("i", "include", true, "Regular expression of benchmarks to run; default: " + DEFAULT_INCLUDE);
+        options.addOption("p", "param", true, "Benchmark parameter override, as name=value1,value2; may be repeated");
+        options.addOption("o", "output", true, "Result file name; default: " + DEFAULT_RESULT_FILE);
+        options.addOption("b", "baseline", true, "Result file of an earlier run to compare against");
+        options.addOption("t", "tolerance", true, "Allowed regression over baseline, in percent; default: " + DEFAULT_TOLERANCE);
+        options.addOption("f", "forks", true, "Number of forks");
+        options.addOption("w", "warmup-iterations", true, "Number of warmup iterations");
+        options.addOption("m", "measurement-iterations", true, "Number of measurement iterations");
+
+        int exitCode;
+
+        try {
+            CommandLine commandLine = new DefaultParser().parse(options, args);
+
+            if (commandLine.hasOption("h")) {
+                new HelpFormatter().printHelp("ranger-benchmark.sh", options);
+
+                exitCode = 0;
+            } else {
+                exitCode = run(commandLine);
+            }
+        } catch (ParseException excp) {
+            LOG.error("Error processing command-line arguments: ", excp);
+
+            new HelpFormatter().printHelp("ranger-benchmark.sh", options);
+
+            exitCode = 2;
+        } catch (RunnerException | IOException excp) {
+            LOG.error("Benchmark run failed", excp);
+
+            exitCode = 2;
+        }
+
+        System.exit(exitCode);
+    }
+
+    private static int run(CommandLine commandLine) throws RunnerException, IOException {
+        String                resultFile = commandLine.getOptionValue("o", DEFAULT_RESULT_FILE);
+        ChainedOptionsBuilder builder    = new OptionsBuilder().include(commandLine.getOptionValue("i", DEFAULT_INCLUDE))
+                                                               .addProfiler(GCProfiler.class)
+                                                               .resultFormat(ResultFormatType.JSON)
+                                                               .result(resultFile);
+
+        if (commandLine.hasOption("p")) {
+            for (String param : commandLine.getOptionValues("p")) {
+                String[] nameValues = param.split("=", 2);
+
+                if (nameValues.length != 2) {
+                    throw new IllegalArgumentException("invalid param: " + param);
+                }
+
+                builder.param(nameValues[0], nameValues[1].split(","));
+            }
+        }
+
+        if (commandLine.hasOption("f")) {
+            builder.forks(Integer.parseInt(commandLine.getOptionValue("f")));
+        }
+
+        if (commandLine.hasOption("w")) {
+            builder.warmupIterations(Integer.parseInt(commandLine.getOptionValue("w")));
+        }
+
+        if (commandLine.hasOption("m")) {
+            builder.measurementIterations(Integer.parseInt(commandLine.getOptionValue("m")));
+        }
+
+        new Runner(builder.build()).run();
+
+        int ret = 0;
+
+        if (commandLine.hasOption("b")) {
+            double                               tolerance   = Double.parseDouble(commandLine.getOptionValue("t", Double.toString(DEFAULT_TOLERANCE)));
+            Map<String, BenchmarkBaseline.Score> baseline    = load(commandLine.getOptionValue("b"));
+            Map<String, BenchmarkBaseline.Score> current     = load(resultFile);
+            List<String>                         regressions = BenchmarkBaseline.findRegressions(baseline, current, tolerance);
+
+            if (regressions.isEmpty()) {
+                LOG.info("No regression found against baseline {} (tolerance {}%)", commandLine.getOptionValue("b"), tolerance);
+            } else {
+                for (String regression : regressions) {
+                    LOG.error("Regression: {}", regression);
+                }
+
+                ret = 1;
+            }
+        }
+
+        return ret;
+    }
+
+    private static Map<String, BenchmarkBaseline.Score> load(String fileName) throws IOException {
+        try (Reader reader = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.UTF_8)) {
+            return BenchmarkBaseline.load(reader);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceElementMatchingScope;
+import org.apache.ranger.plugin.resourcematcher.RangerDefaultResourceMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures RangerDefaultResourceMatcher.isMatch() for a resource having 1 to 100 values, with and without compiled
+ * matchers (RangerPolicyEngineOptions.compileResourceMatchers), for values of type:
+ * - names:     Hive table names and name prefixes, matched case-insensitively
+ * - wildcards: Hive table names with '*' and '?' in the middle, matched case-insensitively
+ * - paths:     recursive HDFS paths with '*' in the middle, matched by RangerPathResourceMatcher
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResourceMatcherBenchmark {
+    private static final int RESOURCE_COUNT = 1024;
+
+    private final Map<String, Object> evalContext = Collections.emptyMap();
+
+    @Param({"1", "4", "10", "100"})
+    public int valueCount;
+
+    @Param({"false", "true"})
+    public boolean compileMatchers;
+
+    @Param({"names", "wildcards", "paths"})
+    public String valueType;
+
+    private RangerDefaultResourceMatcher matcher;
+    private String[]                     resources;
+    private int                          nextResource;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random            random      = new Random(BenchmarkDataGenerator.DEFAULT_SEED);
+        RangerResourceDef resourceDef = null;
+        List<String>      values      = new ArrayList<>(valueCount);
+        boolean           isPath      = "paths".equals(valueType);
+
+        if (isPath) {
+            Map<String, String> matcherOptions = new HashMap<>();
+
+            matcherOptions.put(RangerPathResourceMatcher.OPTION_WILD_CARD, "true");
+            matcherOptions.put(RangerPathResourceMatcher.OPTION_IGNORE_CASE, "false");
+
+            resourceDef = new RangerResourceDef();
+
+            resourceDef.setName("path");
+            resourceDef.setMatcher(RangerPathResourceMatcher.class.getName());
+            resourceDef.setMatcherOptions(matcherOptions);
+        } else {
+            for (RangerResourceDef def : BenchmarkDataGenerator.loadHiveServiceDef().getResources()) {
+                if ("table".equals(def.getName())) {
+                    resourceDef = def;
+                }
+            }
+        }
+
+        for (int i = 0; i < valueCount; i++) {
+            values.add(getValue(i));
+        }
+
+        matcher   = isPath ? new RangerPathResourceMatcher() : new RangerDefaultResourceMatcher();
+        resources = new String[RESOURCE_COUNT];
+
+        matcher.setResourceDef(resourceDef);
+        matcher.setPolicyResource(new RangerPolicyResource(values, false, isPath));
+        matcher.setCompileMatchers(compileMatchers);
+        matcher.init();
+
+        for (int i = 0; i < resources.length; i++) { // about half of the resources match a value
+            resources[i] = getResource(random.nextInt(valueCount * 2));
+        }
+    }
+
+    @Benchmark
+    public boolean isMatch() {
+        String resource = resources[nextResource];
+
+        nextResource = (nextResource + 1) % resources.length;
+
+        return matcher.isMatch(resource, ResourceElementMatchingScope.SELF, evalContext);
+    }
+
+    private String getValue(int idx) {
+        switch (valueType) {
+            case "wildcards":
+                return "Sales_" + idx + "_*_v?";
+            case "paths":
+                return "/data/dept_" + idx + "/*/2023";
+            default:
+                return idx % 4 == 0 ? ("Sales_" + idx + "_*") : ("Sales_" + idx);
+        }
+    }
+
+    private String getResource(int idx) {
+        switch (valueType) {
+            case "wildcards":
+                return "SALES_" + idx + "_europe_v2";
+            case "paths":
+                return "/data/dept_" + idx + "/europe/2023/part-00000.parquet";
+            default:
+                return idx % 4 == 0 ? ("sales_" + idx + "_2024") : ("SALES_" + idx);
+        }
+    }
+}
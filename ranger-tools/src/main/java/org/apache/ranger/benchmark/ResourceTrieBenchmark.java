@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerEvaluatorIndexSet;
+import org.apache.ranger.plugin.policyengine.RangerPluginContext;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.apache.ranger.plugin.policyengine.RangerResourceTrie;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator.RangerPolicyResourceEvaluator;
+import org.apache.ranger.plugin.util.RangerResourceEvaluatorsRetriever;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lookups in RangerResourceTrie: a single-level lookup via getEvaluatorsForResource() and the
+ * multi-level lookup done by RangerResourceEvaluatorsRetriever, which intersects the evaluators of each level - either
+ * in HashSets or, with collectEvaluators(), on sorted evaluator indexes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResourceTrieBenchmark {
+    private static final int REQUEST_COUNT = 1024;
+
+    @Param({"1000", "10000", "100000"})
+    public int policyCount;
+
+    private RangerPolicyEngineImpl                                         policyEngine;
+    private Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> tries;
+    private RangerResourceTrie<RangerPolicyResourceEvaluator>              tableTrie;
+    private RangerEvaluatorIndexSet<RangerPolicyResourceEvaluator>         evaluators;
+    private List<RangerAccessRequest>                                      requests;
+    private int                                                            nextRequest;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkDataGenerator generator     = new BenchmarkDataGenerator(policyCount);
+        RangerPluginContext    pluginContext = BenchmarkDataGenerator.createPluginContext();
+
+        policyEngine = new RangerPolicyEngineImpl(generator.createServicePolicies(), pluginContext, generator.createRoles());
+
+        List<RangerPolicyResourceEvaluator> resourceEvaluators = new ArrayList<>();
+
+        for (RangerPolicyEvaluator policyEvaluator : policyEngine.getPolicyEngine().getPolicyRepository().getPolicyEvaluators()) {
+            resourceEvaluators.addAll(policyEvaluator.getResourceEvaluators());
+        }
+
+        tries = new HashMap<>();
+
+        for (RangerResourceDef resourceDef : generator.getServiceDef().getResources()) {
+            tries.put(resourceDef.getName(), new RangerResourceTrie<>(resourceDef, resourceEvaluators, true, pluginContext));
+        }
+
+        tableTrie  = tries.get("table");
+        evaluators = new RangerEvaluatorIndexSet<>();
+        requests   = generator.createAccessRequests(REQUEST_COUNT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        policyEngine.releaseResources(true);
+    }
+
+    @Benchmark
+    public Set<RangerPolicyResourceEvaluator> getEvaluatorsForResource() {
+        return tableTrie.getEvaluatorsForResource(nextRequest().getResource().getValue("table"));
+    }
+
+    @Benchmark
+    public Collection<RangerPolicyResourceEvaluator> getEvaluatorsForAllLevels() {
+        return RangerResourceEvaluatorsRetriever.getEvaluators(tries, nextRequest().getResource().getAsMap());
+    }
+
+    @Benchmark
+    public RangerEvaluatorIndexSet<RangerPolicyResourceEvaluator> collectEvaluatorsForAllLevels() {
+        RangerResourceEvaluatorsRetriever.collectEvaluators(tries, nextRequest().getResource().getAsMap(), null, null, evaluators);
+
+        return evaluators;
+    }
+
+    private RangerAccessRequest nextRequest() {
+        RangerAccessRequest ret = requests.get(nextRequest);
+
+        nextRequest = (nextRequest + 1) % requests.size();
+
+        return ret;
+    }
+}
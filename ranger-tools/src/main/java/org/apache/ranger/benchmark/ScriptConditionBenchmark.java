@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerRequestScriptEvaluator;
+import org.apache.ranger.plugin.policyengine.RangerRequestScriptExpression;
+import org.apache.ranger.plugin.util.GraalScriptEngineCreator;
+import org.apache.ranger.plugin.util.NashornScriptEngineCreator;
+import org.apache.ranger.plugin.util.ScriptEngineCreator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.script.Bindings;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures evaluation of a policy condition script by RangerRequestScriptEvaluator: from source text, from a script compiled
+ * once, from a compiled script with bindings reused across evaluations, and natively - without a script engine. Graal engine can be measured with
+ * "-p engine=graal", when graal-js is in the classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScriptConditionBenchmark {
+    private static final int    REQUEST_COUNT = 1024;
+    private static final String SCRIPT_CTX    = "ctx.getUser() != 'admin' && IS_ACCESS_TIME_BEFORE('2100/01/01')";
+    private static final String SCRIPT_JSON   = "USER._name != 'admin' && USER.dept != 'HR'";
+
+    @Param("nashorn")
+    public String engine;
+
+    @Param({"ctx", "json"})
+    public String script;
+
+    @Param({"source", "compiled", "reuse", "native"})
+    public String mode;
+
+    private ScriptEngine                  scriptEngine;
+    private String                        scriptText;
+    private boolean                       enableJsonCtx;
+    private CompiledScript                compiledScript;
+    private RangerRequestScriptExpression expression;
+    private Bindings                      bindings;
+    private List<RangerAccessRequest>     requests;
+    private int                           nextRequest;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ScriptEngineCreator creator = "graal".equals(engine) ? new GraalScriptEngineCreator() : new NashornScriptEngineCreator();
+
+        scriptEngine = creator.getScriptEngine(null);
+
+        if (scriptEngine == null) {
+            throw new IllegalStateException("script engine " + engine + " is not available");
+        }
+
+        scriptText    = "json".equals(script) ? SCRIPT_JSON : SCRIPT_CTX;
+        enableJsonCtx = RangerRequestScriptEvaluator.needsJsonCtxEnabled(scriptText);
+        requests      = new BenchmarkDataGenerator(1).createAccessRequests(REQUEST_COUNT);
+
+        if ("native".equals(mode)) {
+            expression = RangerRequestScriptExpression.compile(scriptText, enableJsonCtx);
+
+            if (expression == null) {
+                throw new IllegalStateException("script is not supported by native evaluation");
+            }
+        } else if (!"source".equals(mode)) {
+            compiledScript = RangerRequestScriptEvaluator.compileScript(scriptEngine, scriptText, enableJsonCtx);
+
+            if (compiledScript == null) {
+                throw new IllegalStateException("script engine " + engine + " failed to compile script");
+            }
+        }
+
+        if ("reuse".equals(mode)) {
+            bindings = scriptEngine.createBindings();
+        }
+    }
+
+    @Benchmark
+    public boolean evaluate() {
+        RangerAccessRequest          request   = requests.get(nextRequest);
+        RangerRequestScriptEvaluator evaluator = expression != null ? new RangerRequestScriptEvaluator(request) : new RangerRequestScriptEvaluator(request, scriptEngine, enableJsonCtx, bindings);
+
+        nextRequest = (nextRequest + 1) % requests.size();
+
+        if (expression != null) {
+            evaluator.evaluateConditionScript(expression);
+        } else if (compiledScript != null) {
+            evaluator.evaluateConditionScript(compiledScript);
+        } else {
+            evaluator.evaluateConditionScript(scriptText);
+        }
+
+        return evaluator.getResult();
+    }
+}
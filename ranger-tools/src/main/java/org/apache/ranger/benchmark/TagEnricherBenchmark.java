@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.contextenricher.RangerTagEnricher;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures RangerTagEnricher.enrich(): lookup of the tags associated with the resource being accessed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TagEnricherBenchmark {
+    private static final int REQUEST_COUNT = 1024;
+
+    @Param({"1000", "10000", "100000"})
+    public int resourceCount;
+
+    private RangerTagEnricher         tagEnricher;
+    private List<RangerAccessRequest> requests;
+    private int                       nextRequest;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkDataGenerator generator = new BenchmarkDataGenerator(resourceCount);
+
+        tagEnricher = new RangerTagEnricher();
+
+        tagEnricher.setServiceName(BenchmarkDataGenerator.SERVICE_NAME);
+        tagEnricher.setServiceDef(generator.getServiceDef());
+        tagEnricher.init();
+        tagEnricher.setServiceTags(generator.createServiceTags(resourceCount));
+
+        requests = generator.createAccessRequests(REQUEST_COUNT);
+    }
+
+    @Benchmark
+    public RangerAccessRequest enrich() {
+        RangerAccessRequest request = requests.get(nextRequest);
+
+        nextRequest = (nextRequest + 1) % requests.size();
+
+        tagEnricher.enrich(request);
+
+        return request;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessResource;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.apache.ranger.plugin.policyengine.RangerPluginContext;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyengine.RangerSecurityZoneMatcher;
+import org.apache.ranger.plugin.util.ServicePolicies.SecurityZoneInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lookup of security zones of a resource, with the given number of zones - each zone having a database-name
+ * prefix and a few table-name prefixes - with and without the resource-to-zones cache
+ * (RangerPolicyEngineOptions.zoneMatcherCacheSize). Requests are for a fixed set of resources, accessed repeatedly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ZoneMatcherBenchmark {
+    private static final int RESOURCE_COUNT = 1024;
+
+    @Param({"10", "500"})
+    public int zoneCount;
+
+    @Param({"0", "4096"})
+    public int cacheSize;
+
+    private RangerSecurityZoneMatcher  zoneMatcher;
+    private List<RangerAccessResource> resources;
+    private int                        nextResource;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        RangerPolicyEngineOptions     options       = BenchmarkDataGenerator.createPolicyEngineOptions();
+        RangerServiceDef              serviceDef    = BenchmarkDataGenerator.loadHiveServiceDef();
+        Map<String, SecurityZoneInfo> securityZones = new HashMap<>();
+        Random                        random        = new Random(BenchmarkDataGenerator.DEFAULT_SEED);
+
+        options.zoneMatcherCacheSize = cacheSize;
+
+        for (int i = 0; i < zoneCount; i++) {
+            SecurityZoneInfo zone = new SecurityZoneInfo();
+
+            zone.setZoneName("zone_" + i);
+            zone.setResources(Arrays.asList(createZoneResource("db_" + i + "_*", "*"), createZoneResource("shared_db", "tbl_" + i + "_*")));
+
+            securityZones.put(zone.getZoneName(), zone);
+        }
+
+        RangerPluginContext pluginContext = new RangerPluginContext(new RangerPluginConfig(BenchmarkDataGenerator.SERVICE_TYPE, BenchmarkDataGenerator.SERVICE_NAME, BenchmarkDataGenerator.SERVICE_TYPE, "cl1", "on-prem", options));
+
+        zoneMatcher = new RangerSecurityZoneMatcher(securityZones, serviceDef, pluginContext);
+        resources   = new ArrayList<>(RESOURCE_COUNT);
+
+        for (int i = 0; i < RESOURCE_COUNT; i++) {
+            RangerAccessResourceImpl resource = new RangerAccessResourceImpl();
+            int                      zone     = random.nextInt(zoneCount * 2); // about half of the resources are not in any zone
+
+            if (random.nextBoolean()) {
+                resource.setValue("database", "db_" + zone + "_" + random.nextInt(10));
+            } else {
+                resource.setValue("database", "shared_db");
+            }
+
+            resource.setValue("table", "tbl_" + zone + "_" + random.nextInt(10));
+            resource.setServiceDef(serviceDef);
+
+            resources.add(resource);
+        }
+    }
+
+    @Benchmark
+    public Set<String> getZones() {
+        RangerAccessResource resource = resources.get(nextResource);
+
+        nextResource = (nextResource + 1) % resources.size();
+
+        return zoneMatcher.getZonesForResourceAndChildren(resource);
+    }
+
+    private static HashMap<String, List<String>> createZoneResource(String database, String table) {
+        HashMap<String, List<String>> ret = new HashMap<>();
+
+        ret.put("database", Collections.singletonList(database));
+        ret.put("table", Collections.singletonList(table));
+
+        return ret;
+    }
+}
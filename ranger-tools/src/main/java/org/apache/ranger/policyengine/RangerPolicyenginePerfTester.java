@@ -69,9 +69,17 @@ public static void main(String[] args) {
             URL                 configurationFileURL = perfTestOptions.getPerfConfigurationFileURL();
             RangerConfiguration configuration        = new PerfTestConfiguration(configurationFileURL);
 
-            policyEngineOptions.optimizeTrieForSpace        = configuration.getBoolean("ranger.policyengine.option.optimize.policy.trie.for.space", false);
-            policyEngineOptions.optimizeTagTrieForSpace     = configuration.getBoolean("ranger.policyengine.option.optimize.tag.trie.for.space", false);
-            policyEngineOptions.optimizeTagTrieForRetrieval = configuration.getBoolean("ranger.policyengine.option.optimize.tag.trie.for.retrieval", false);
+            policyEngineOptions.optimizeTrieForSpace          = configuration.getBoolean("ranger.policyengine.option.optimize.policy.trie.for.space", false);
+            policyEngineOptions.optimizeTagTrieForSpace       = configuration.getBoolean("ranger.policyengine.option.optimize.tag.trie.for.space", false);
+            policyEngineOptions.optimizeTagTrieForRetrieval   = configuration.getBoolean("ranger.policyengine.option.optimize.tag.trie.for.retrieval", false);
+            policyEngineOptions.compileResourceMatchers       = configuration.getBoolean("ranger.policyengine.option.compile.resource.matchers", false);
+            policyEngineOptions.policyItemIndexMinItems       = configuration.getInt("ranger.policyengine.option.policyitem.index.min.items", RangerPolicyEngineOptions.DEFAULT_POLICY_ITEM_INDEX_MIN_ITEMS);
+            policyEngineOptions.builderThreadCount            = configuration.getInt("ranger.policyengine.option.builder.thread.count", RangerPolicyEngineOptions.DEFAULT_BUILDER_THREAD_COUNT);
+            policyEngineOptions.lazyZoneRepositories          = configuration.getBoolean("ranger.policyengine.option.lazy.zone.repositories", false);
+            policyEngineOptions.zoneRepositoryMaxCount        = configuration.getInt("ranger.policyengine.option.zone.repository.max.count", 0);
+            policyEngineOptions.zoneRepositoryIdleTimeoutSecs = configuration.getInt("ranger.policyengine.option.zone.repository.idle.timeout.secs", 0);
+            policyEngineOptions.zoneRepositoryPrewarmZones    = configuration.get("ranger.policyengine.option.zone.repository.prewarm.zones");
+            policyEngineOptions.zoneMatcherCacheSize          = configuration.getInt("ranger.policyengine.option.zone.matcher.cache.size", RangerPolicyEngineOptions.DEFAULT_ZONE_MATCHER_CACHE_SIZE);
 
             PerfTestEngine perfTestEngine = new PerfTestEngine(servicePoliciesFileURL, policyEngineOptions, configurationFileURL);
 
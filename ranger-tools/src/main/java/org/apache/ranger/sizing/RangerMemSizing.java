@@ -90,6 +90,7 @@ public class RangerMemSizing {
     private final String      gdsInfoFile;
     private final boolean     deDup;
     private final boolean     deDupStrings;
+    private final boolean     compactPolicies;
     private final String      optimizationMode;
     private final boolean     reuseResourceMatchers;
     private final PrintStream out;
@@ -107,6 +108,7 @@ public RangerMemSizing(CommandLine cmdLine) {
         this.gdsInfoFile           = cmdLine.getOptionValue('g');
         this.deDup                 = Boolean.parseBoolean(cmdLine.getOptionValue("d", "true"));
         this.deDupStrings          = this.deDup;
+        this.compactPolicies       = Boolean.parseBoolean(cmdLine.getOptionValue('x', "false"));
         this.optimizationMode      = StringUtils.startsWithIgnoreCase(cmdLine.getOptionValue('o', "space"), "s") ? OPT_MODE_SPACE : OPT_MODEL_RETRIEVAL;
         this.reuseResourceMatchers = Boolean.parseBoolean(cmdLine.getOptionValue('m', "true"));
     }
@@ -174,6 +176,7 @@ public void run() {
         }
 
         out.println("  DeDup:         " + deDup);
+        out.println("  Compact:       " + compactPolicies);
         out.println("  OptMode:       " + optimizationMode);
         out.println("  ReuseMatchers: " + reuseResourceMatchers);
         out.println();
@@ -217,6 +220,15 @@ private ServicePolicies loadPolicies(String fileName, PerfMemTimeTracker parent)
                 loadTracker.addChild(tracker);
             }
 
+            if (compactPolicies) {
+                PerfMemTimeTracker tracker = new PerfMemTimeTracker("CompactPolicies");
+
+                ret.compact();
+
+                tracker.stop();
+                loadTracker.addChild(tracker);
+            }
+
             loadTracker.stop();
             parent.addChild(loadTracker);
 
@@ -418,6 +430,9 @@ private RangerBasePlugin createRangerPlugin(ServicePolicies policies, ServiceTag
             String             serviceName  = policies.getServiceName();
             RangerPluginConfig pluginConfig = new RangerPluginConfig(serviceType, serviceName, serviceType, null, null, getPolicyEngineOptions());
 
+            // RangerBasePlugin dedups strings in policies again, which replaces lists shared by compact()
+            pluginConfig.setBoolean(pluginConfig.getPropertyPrefix() + ".compact.policies", compactPolicies);
+
             PerfMemTimeTracker tracker = new PerfMemTimeTracker("RangerBasePlugin initialization");
 
             log("Initializing RangerBasePlugin...");
@@ -562,6 +577,7 @@ private List<RangerAccessRequest> readRequests(String fileName, PerfMemTimeTrack
     private static CommandLine parseArgs(String[] args) {
         Option help                  = new Option("h", "help", false, "show help");
         Option deDup                 = new Option("d", "deDup", true, "deDup string, tags: true|false");
+        Option compactPolicies       = new Option("x", "compactPolicies", true, "compact policies: true|false");
         Option policies              = new Option("p", "policies", true, "policies file");
         Option tags                  = new Option("t", "tags", true, "tags file");
         Option roles                 = new Option("r", "roles", true, "roles file");
@@ -586,6 +602,7 @@ private static CommandLine parseArgs(String[] args) {
         options.addOption(evalClients);
         options.addOption(gdsInfo);
         options.addOption(deDup);
+        options.addOption(compactPolicies);
         options.addOption(optimizeMode);
         options.addOption(reuseResourceMatchers);
         options.addOption(genResourceKeys);
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestBenchmarkBaseline {
+    private static final String BENCHMARK = "org.apache.ranger.benchmark.PolicyEngineBenchmark.evaluatePolicies";
+
+    @Test
+    public void testLoad() {
+        Map<String, BenchmarkBaseline.Score> scores = BenchmarkBaseline.load(new StringReader(getResults(1000.0, 512.0)));
+
+        assertEquals(1, scores.size());
+
+        BenchmarkBaseline.Score score = scores.get(BENCHMARK + ":policyCount=1000");
+
+        assertEquals(1000.0, score.getTimePerOp(), 0.001);
+        assertEquals(512.0, score.getBytesPerOp(), 0.001);
+    }
+
+    @Test
+    public void testRegressions() {
+        Map<String, BenchmarkBaseline.Score> baseline = BenchmarkBaseline.load(new StringReader(getResults(1000.0, 512.0)));
+
+        assertTrue(BenchmarkBaseline.findRegressions(baseline, BenchmarkBaseline.load(new StringReader(getResults(1050.0, 520.0))), 10).isEmpty());
+        assertTrue(BenchmarkBaseline.findRegressions(baseline, BenchmarkBaseline.load(new StringReader(getResults(500.0, 0.0))), 10).isEmpty());
+
+        List<String> regressions = BenchmarkBaseline.findRegressions(baseline, BenchmarkBaseline.load(new StringReader(getResults(1200.0, 1024.0))), 10);
+
+        assertEquals(2, regressions.size());
+    }
+
+    private static String getResults(double timePerOp, double bytesPerOp) {
+        return "[ { \"benchmark\": \"" + BENCHMARK + "\", \"params\": { \"policyCount\": \"1000\" }, " +
+                "\"primaryMetric\": { \"score\": " + timePerOp + ", \"scoreUnit\": \"ns/op\" }, " +
+                "\"secondaryMetrics\": { \"" + BenchmarkBaseline.METRIC_ALLOC_NORM + "\": { \"score\": " + bytesPerOp + ", \"scoreUnit\": \"B/op\" } } } ]";
+    }
+}